@@ -2,26 +2,92 @@ package com.rayen;
 
 import com.rayen.userManaement.entity.User;
 import com.rayen.userManaement.repository.UserRepository;
+import com.rayen.userManaement.security.AuthenticatedUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the caller. The user ID comes straight from the token's claims ({@link AuthenticatedUser});
+ * only principals without it (tokens issued before the claim, OAuth2 sessions) need the email lookup,
+ * whose result is kept for {@code app.auth.principal-cache-ttl-seconds}. The full {@link User} is
+ * loaded at most once per request.
+ */
 @Service
 @RequiredArgsConstructor
 public class AuthContextService {
 
+    private static final String CURRENT_USER_ATTRIBUTE = AuthContextService.class.getName() + ".currentUser";
+
     private final UserRepository userRepository;
+    private final Map<String, CachedUserId> userIds = new ConcurrentHashMap<>();
+
+    @Value("${app.auth.principal-cache-ttl-seconds:300}")
+    private long cacheTtlSeconds;
+
+    @Value("${app.auth.principal-cache-max-entries:10000}")
+    private int cacheMaxEntries;
 
     public Long getLoggedInUserId() {
-        String email = (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
-        return userRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("User not found: " + email))
-                .getId();
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (principal instanceof AuthenticatedUser user && user.userId() != null) {
+            return user.userId();
+        }
+        User current = currentRequestUser();
+        if (current != null) {
+            return current.getId();
+        }
+        String email = emailOf(principal);
+        long now = System.currentTimeMillis();
+        CachedUserId cached = userIds.get(email);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.userId();
+        }
+        Long userId = findUser(email).getId();
+        if (userIds.size() >= cacheMaxEntries) {
+            userIds.values().removeIf(entry -> entry.expiresAt() <= now);
+            if (userIds.size() >= cacheMaxEntries) {
+                userIds.clear();
+            }
+        }
+        userIds.put(email, new CachedUserId(userId, now + cacheTtlSeconds * 1000));
+        return userId;
     }
 
     public User getLoggedInUser() {
-        String email = (String) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        User current = currentRequestUser();
+        if (current != null) {
+            return current;
+        }
+        User user = findUser(emailOf(SecurityContextHolder.getContext().getAuthentication().getPrincipal()));
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.setAttribute(CURRENT_USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
+        return user;
+    }
+
+    // Outside a web request (schedulers, async) there is nothing to reuse
+    private static User currentRequestUser() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        return request == null ? null : (User) request.getAttribute(CURRENT_USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private static String emailOf(Object principal) {
+        return principal instanceof AuthenticatedUser user ? user.email() : (String) principal;
+    }
+
+    private User findUser(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found: " + email));
     }
+
+    private record CachedUserId(Long userId, long expiresAt) {
+    }
 }
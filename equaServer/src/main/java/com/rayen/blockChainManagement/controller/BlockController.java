@@ -1,17 +1,22 @@
 package com.rayen.blockChainManagement.controller;
 
 
+import com.rayen.blockChainManagement.model.BlockPage;
 import com.rayen.blockChainManagement.model.BlockRequest;
 import com.rayen.blockChainManagement.model.BlockResponse;
 import com.rayen.blockChainManagement.model.BlockStats;
+import com.rayen.blockChainManagement.service.BlockResponseCache;
 import com.rayen.blockChainManagement.service.BlockService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1/blocks")
@@ -34,17 +39,19 @@ public class BlockController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<BlockResponse> getBlockById(@PathVariable Integer id) {
+    public ResponseEntity<BlockResponse> getBlockById(@PathVariable Integer id,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("REST request to get block by ID: {}", id);
         BlockResponse response = blockService.getBlockById(id);
-        return ResponseEntity.ok(response);
+        return conditional(response, ifNoneMatch, true);
     }
 
     @GetMapping("/hash/{blockHash}")
-    public ResponseEntity<BlockResponse> getBlockByHash(@PathVariable String blockHash) {
+    public ResponseEntity<BlockResponse> getBlockByHash(@PathVariable String blockHash,
+                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("REST request to get block by hash: {}", blockHash);
         BlockResponse response = blockService.getBlockByHash(blockHash);
-        return ResponseEntity.ok(response);
+        return conditional(response, ifNoneMatch, true);
     }
 
     @GetMapping
@@ -54,6 +61,15 @@ public class BlockController {
         return ResponseEntity.ok(blocks);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<BlockPage> getBlockPage(@RequestParam(required = false) Integer beforeId,
+                                                  @RequestParam(defaultValue = "50") int size,
+                                                  @RequestParam(defaultValue = "false") boolean includeTransactionCount) {
+        log.info("REST request to get block page before ID: {}, size: {}", beforeId, size);
+        BlockPage page = blockService.getBlockPage(beforeId, size, includeTransactionCount);
+        return ResponseEntity.ok(page);
+    }
+
     @PostMapping("/search")
     public ResponseEntity<List<BlockResponse>> searchBlocks(@RequestBody BlockRequest request) {
         log.info("REST request to search blocks with filters");
@@ -62,17 +78,18 @@ public class BlockController {
     }
 
     @GetMapping("/latest")
-    public ResponseEntity<BlockResponse> getLatestBlock() {
+    public ResponseEntity<BlockResponse> getLatestBlock(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("REST request to get latest block");
         BlockResponse response = blockService.getLatestBlock();
-        return ResponseEntity.ok(response);
+        // The tip moves on once a new block opens, even if this one is sealed: always revalidate
+        return conditional(response, ifNoneMatch, false);
     }
 
     @GetMapping("/genesis")
-    public ResponseEntity<BlockResponse> getGenesisBlock() {
+    public ResponseEntity<BlockResponse> getGenesisBlock(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("REST request to get genesis block");
         BlockResponse response = blockService.getGenesisBlock();
-        return ResponseEntity.ok(response);
+        return conditional(response, ifNoneMatch, true);
     }
 
     @GetMapping("/stats")
@@ -88,4 +105,34 @@ public class BlockController {
         boolean exists = blockService.blockExists(blockHash);
         return ResponseEntity.ok(exists);
     }
+
+    // Sealed blocks are immutable: long-lived public caching when the URL always names the same block
+    // (ID, hash, genesis), no-cache otherwise; 304 when the client already has them
+    private ResponseEntity<BlockResponse> conditional(BlockResponse block, String ifNoneMatch, boolean fixedBlock) {
+        if (block == null) {
+            return ResponseEntity.ok(null);
+        }
+        String eTag = BlockResponseCache.eTagOf(block);
+        CacheControl cacheControl = fixedBlock && BlockResponseCache.isSealed(block)
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+
+        if (ifNoneMatch != null && matches(ifNoneMatch, eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(cacheControl).body(block);
+    }
+
+    private static boolean matches(String ifNoneMatch, String eTag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);  // If-None-Match uses weak comparison
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
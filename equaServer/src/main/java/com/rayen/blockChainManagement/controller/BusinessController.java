@@ -56,7 +56,7 @@ public class BusinessController {
         dto.setWalletId(w.getWalletId());
         dto.setBusinessId(w.getBusiness().getId());
         dto.setStatus(w.getStatus());
-        dto.setEquaAmount(w.getEquaAmount());
+        dto.setEquaAmount(w.getEquaAmount() == null ? null : w.getEquaAmount().toBigDecimal());
         dto.setLastActivityAt(w.getLastActivityAt());
         return dto;
     }
@@ -80,7 +80,7 @@ public class BusinessController {
             com.rayen.walletManagement.entity.BusinessWallet wallet = new com.rayen.walletManagement.entity.BusinessWallet();
             wallet.setBusiness(business);
             wallet.setStatus("ACTIVE");
-            wallet.setEquaAmount(0f);
+            wallet.setEquaAmount(com.rayen.walletManagement.model.Money.ZERO);
             wallet.setLastActivityAt(java.time.LocalDateTime.now());
             return ResponseEntity.ok(toWalletDto(businessWalletRepository.save(wallet)));
         }).orElseGet(() -> ResponseEntity.notFound().build());
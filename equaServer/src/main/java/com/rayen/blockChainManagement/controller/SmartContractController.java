@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @RestController
@@ -25,10 +26,18 @@ public class SmartContractController {
     private final BlockchainHealthService blockchainHealthService;
     private final ValidatorPredictionService validatorPredictionService;
     @PostMapping("/process")
-    public ResponseEntity<TransactionResponse> processTransaction(@RequestBody TransactionRequest request)
+    public ResponseEntity<TransactionResponse> processTransaction(@RequestBody TransactionRequest request,
+                                                                  @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey)
             throws BadRequestException, JsonProcessingException, ExecutionException, InterruptedException {
         log.info("Processing transaction from wallet: {}", request.getFromWallet());
-        TransactionResponse response = smartContract.processTransaction(request);
+        TransactionResponse response = smartContract.processTransaction(request, idempotencyKey);
+        return ResponseEntity.ok(response);
+    }
+    @PostMapping("/process/batch")
+    public ResponseEntity<BatchTransactionResponse> processBatch(@RequestBody List<TransactionRequest> requests)
+            throws BadRequestException, JsonProcessingException, InterruptedException {
+        log.info("REST request to process a batch of {} transactions", requests.size());
+        BatchTransactionResponse response = smartContract.processBatch(requests);
         return ResponseEntity.ok(response);
     }
     @GetMapping
@@ -38,22 +47,27 @@ public class SmartContractController {
     }
 
     @GetMapping("/analyze")
-    public ResponseEntity<Map<String, String>> analyze() {
-        String analysis = blockchainAnalysisService.analyzeBlockchainState();
-        return ResponseEntity.ok(Map.of("analysis", analysis));
+    public CompletableFuture<ResponseEntity<Map<String, String>>> analyze() {
+        return blockchainAnalysisService.analyzeBlockchainState()
+                .thenApply(analysis -> ResponseEntity.ok(Map.of("analysis", analysis)));
     }
 
     @PostMapping("/chat")
-    public ResponseEntity<Map<String, String>> chat(@RequestBody ChatRequest request) {
-        String response = blockchainChatService.chat(request.getSessionId(), request.getMessage());
-        return ResponseEntity.ok(Map.of(
-                "sessionId", request.getSessionId(),
-                "response", response
-        ));
+    public CompletableFuture<ResponseEntity<Map<String, String>>> chat(@RequestBody ChatRequest request) {
+        return blockchainChatService.chat(request.getSessionId(), request.getMessage())
+                .thenApply(response -> ResponseEntity.ok(Map.of(
+                        "sessionId", request.getSessionId(),
+                        "response", response
+                )));
     }
     @GetMapping("/health")
-    public ResponseEntity<HealthScore> getHealthScore() {
-        return ResponseEntity.ok(blockchainHealthService.getHealthScore());
+    public CompletableFuture<ResponseEntity<HealthScore>> getHealthScore() {
+        return blockchainHealthService.getHealthScore().thenApply(ResponseEntity::ok);
+    }
+
+    @GetMapping("/chat/stats")
+    public ResponseEntity<Map<String, Long>> chatStats() {
+        return ResponseEntity.ok(blockchainChatService.getSessionStats());
     }
 
     @DeleteMapping("/chat/{sessionId}")
@@ -62,8 +76,8 @@ public class SmartContractController {
         return ResponseEntity.noContent().build();
     }
     @GetMapping("/predict")
-    public ResponseEntity<ValidatorPrediction> predictNextValidator() {
-        return ResponseEntity.ok(validatorPredictionService.predictNextValidator());
+    public CompletableFuture<ResponseEntity<ValidatorPrediction>> predictNextValidator() {
+        return validatorPredictionService.predictNextValidator().thenApply(ResponseEntity::ok);
     }
 }
 
@@ -1,6 +1,8 @@
 package com.rayen.blockChainManagement.dto;
 
 import lombok.Data;
+
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
@@ -8,6 +10,6 @@ public class BusinessWalletResponse {
     private Long walletId;
     private Long businessId;
     private String status;
-    private Float equaAmount;
+    private BigDecimal equaAmount;
     private LocalDateTime lastActivityAt;
 }
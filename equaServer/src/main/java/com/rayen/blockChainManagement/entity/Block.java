@@ -42,6 +42,10 @@ public class Block {
     @JoinColumn(name = "previous_block_id")
     private Block previousBlock;
 
+    // Read-only mirror of the FK above, so reading the previous ID never initializes the proxy
+    @Column(name = "previous_block_id", insertable = false, updatable = false)
+    private Integer previousBlockId;
+
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     @JoinColumn(name = "block_id")
     private List<Transaction> transaction = new ArrayList<>();
@@ -51,4 +55,12 @@ public class Block {
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    public Integer getPreviousBlockId() {
+        // Blocks built in this session only have the association set until they are reloaded
+        if (previousBlockId == null && previousBlock != null) {
+            return previousBlock.getBlockId();
+        }
+        return previousBlockId;
+    }
 }
\ No newline at end of file
@@ -16,6 +16,8 @@ import java.time.LocalDateTime;
 @Getter
 public class Transaction {
 
+    public static final int IDEMPOTENCY_KEY_MAX_LENGTH = 100;
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "transaction_id")
@@ -43,6 +45,10 @@ public class Transaction {
     @Column(name = "fee")
     private BigDecimal fee;
 
+    // Client supplied Idempotency-Key, set in the settlement's database transaction; unique so a key settles once
+    @Column(name = "idempotency_key", unique = true, length = IDEMPOTENCY_KEY_MAX_LENGTH)
+    private String idempotencyKey;
+
     @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "validator_node_id")
@@ -0,0 +1,21 @@
+package com.rayen.blockChainManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionResponse {
+    private int submitted;
+    private int accepted;
+    private int rejected;
+    private Integer validatorNodeId;
+    private List<Integer> blockIds;
+    private List<BatchTransactionResult> results;
+}
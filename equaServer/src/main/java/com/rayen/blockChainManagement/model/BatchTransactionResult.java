@@ -0,0 +1,18 @@
+package com.rayen.blockChainManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchTransactionResult {
+    // Position of the item in the submitted batch
+    private int index;
+    private boolean accepted;
+    private TransactionResponse transaction;
+    private String error;
+}
@@ -17,7 +17,7 @@ public class BlockMapper {
                 .blockHash(block.getBlockHash())
                 .timestamp(block.getTimestamp())
                 .blockSize(block.getBlockSize())
-                .previousBlockId(block.getPreviousBlock() != null ? block.getPreviousBlock().getBlockId() : null)
+                .previousBlockId(block.getPreviousBlockId())
                 .createdAt(block.getCreatedAt())
                 .updatedAt(block.getUpdatedAt())
                 .build();
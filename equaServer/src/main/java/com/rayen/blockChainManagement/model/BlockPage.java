@@ -0,0 +1,20 @@
+package com.rayen.blockChainManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlockPage {
+    private List<BlockResponse> blocks;
+
+    // Pass as beforeId to get the next (older) page; null on the last page
+    private Integer nextCursor;
+    private boolean hasMore;
+}
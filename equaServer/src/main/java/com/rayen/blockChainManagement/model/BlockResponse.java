@@ -1,5 +1,6 @@
 package com.rayen.blockChainManagement.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -24,4 +25,14 @@ public class BlockResponse{
 
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+
+    // Only filled by the block explorer when asked for
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long transactionCount;
+
+    // JPQL projection constructor (see BlockRepository), without the transaction count
+    public BlockResponse(Integer blockId, String previousHash, String blockHash, LocalDateTime timestamp,
+                         Long blockSize, Integer previousBlockId, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this(blockId, previousHash, blockHash, timestamp, blockSize, previousBlockId, createdAt, updatedAt, null);
+    }
 }
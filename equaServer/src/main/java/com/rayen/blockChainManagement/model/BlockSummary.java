@@ -0,0 +1,15 @@
+package com.rayen.blockChainManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BlockSummary {
+    private Integer blockId;
+    private String blockHash;
+    private Long blockSize;
+    private Long transactionCount;
+}
@@ -0,0 +1,18 @@
+package com.rayen.blockChainManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable, pre-rendered view of the chain shared by every Gemini prompt builder.
+ * One instance is built per chain height and reused until the height moves.
+ */
+@Getter
+@AllArgsConstructor
+public class ChainSummary {
+    private final String height;
+    private final long totalBlocks;
+    private final long totalTransactions;
+    private final String nodes;    // "=== NODES ===" section only
+    private final String context;  // state + nodes + recent blocks + activity
+}
@@ -0,0 +1,19 @@
+package com.rayen.blockChainManagement.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columns the incremental chain summary folds per transaction. Native projection because the
+ * block link is only mapped from the Block side.
+ */
+public interface TransactionActivity {
+    Integer getTransactionId();
+
+    Integer getValidatorNodeId();
+
+    Integer getBlockId();
+
+    LocalDateTime getTimestamp();
+
+    String getStatus();
+}
@@ -35,7 +35,7 @@ public class fullBlockMapper {
                 block.getBlockHash(),
                 block.getTimestamp(),
                 block.getBlockSize(),
-                block.getPreviousBlock() != null ? block.getPreviousBlock().getBlockId() : null,
+                block.getPreviousBlockId(),
                 txDTOs,
                 block.getCreatedAt(),
                 block.getUpdatedAt()
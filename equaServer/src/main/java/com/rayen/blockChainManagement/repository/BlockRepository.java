@@ -2,7 +2,10 @@ package com.rayen.blockChainManagement.repository;
 
 import com.rayen.blockChainManagement.entity.Block;
 import com.rayen.blockChainManagement.entity.Transaction;
+import com.rayen.blockChainManagement.model.BlockResponse;
+import com.rayen.blockChainManagement.model.BlockSummary;
 import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -10,6 +13,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -72,4 +76,35 @@ public interface BlockRepository extends JpaRepository<Block, Integer> {
     // Get all blocks with their transaction list eagerly loaded
     @Query("SELECT DISTINCT b FROM Block b LEFT JOIN FETCH b.transaction ORDER BY b.timestamp DESC")
     List<Block> findAllBlocksWithTransactions();
-}
\ No newline at end of file
+
+    // Latest blocks with their transaction count, without hydrating Block entities
+    @Query("SELECT new com.rayen.blockChainManagement.model.BlockSummary(b.blockId, b.blockHash, b.blockSize, COUNT(t)) " +
+            "FROM Block b LEFT JOIN b.transaction t " +
+            "GROUP BY b.blockId, b.blockHash, b.blockSize ORDER BY b.blockId DESC")
+    List<BlockSummary> findRecentBlockSummaries(Pageable pageable);
+
+    // Block explorer: keyset pages on block ID, mapped straight to responses (one statement, no entity hydration)
+    @Query("SELECT new com.rayen.blockChainManagement.model.BlockResponse(b.blockId, b.previousHash, b.blockHash, " +
+            "b.timestamp, b.blockSize, b.previousBlockId, b.createdAt, b.updatedAt) " +
+            "FROM Block b WHERE b.blockId < :beforeId ORDER BY b.blockId DESC")
+    List<BlockResponse> findBlockPage(@Param("beforeId") Integer beforeId, Pageable pageable);
+
+    @Query("SELECT new com.rayen.blockChainManagement.model.BlockResponse(b.blockId, b.previousHash, b.blockHash, " +
+            "b.timestamp, b.blockSize, b.previousBlockId, b.createdAt, b.updatedAt, COUNT(t)) " +
+            "FROM Block b LEFT JOIN b.transaction t WHERE b.blockId < :beforeId " +
+            "GROUP BY b.blockId, b.previousHash, b.blockHash, b.timestamp, b.blockSize, b.previousBlockId, b.createdAt, b.updatedAt " +
+            "ORDER BY b.blockId DESC")
+    List<BlockResponse> findBlockPageWithTransactionCount(@Param("beforeId") Integer beforeId, Pageable pageable);
+
+    @Query("SELECT new com.rayen.blockChainManagement.model.BlockResponse(b.blockId, b.previousHash, b.blockHash, " +
+            "b.timestamp, b.blockSize, b.previousBlockId, b.createdAt, b.updatedAt) " +
+            "FROM Block b ORDER BY b.timestamp DESC")
+    List<BlockResponse> findAllBlockResponses();
+
+    // Block IDs folded by the incremental chain summary
+    @Query("SELECT b.blockId FROM Block b WHERE b.blockId > :after ORDER BY b.blockId ASC")
+    List<Integer> findBlockIdsAfter(@Param("after") Integer after, Pageable pageable);
+
+    @Query("SELECT b.blockId FROM Block b WHERE b.blockId IN :ids")
+    List<Integer> findExistingBlockIds(@Param("ids") Collection<Integer> ids);
+}
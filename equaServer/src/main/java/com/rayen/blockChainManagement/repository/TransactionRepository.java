@@ -2,6 +2,8 @@ package com.rayen.blockChainManagement.repository;
 
 import com.rayen.blockChainManagement.entity.Transaction;
 import com.rayen.blockChainManagement.entity.TransactionStatus;
+import com.rayen.blockChainManagement.model.TransactionActivity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -9,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +27,8 @@ public interface TransactionRepository extends JpaRepository<Transaction, Intege
 
     List<Transaction> findByStatus(TransactionStatus status);
 
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
      List<Transaction> findByTimestampBetween(LocalDateTime startDate, LocalDateTime endDate);
 
     List<Transaction> findAllByOrderByTimestampDesc();
@@ -69,4 +74,17 @@ public interface TransactionRepository extends JpaRepository<Transaction, Intege
 
     @Query("SELECT AVG(t.amount) FROM Transaction t WHERE t.status = com.rayen.blockChainManagement.entity.TransactionStatus.VALID")
     BigDecimal getAverageTransactionAmount();
-}
\ No newline at end of file
+
+    // Activity projections used by the incremental chain summary
+    @Query(value = "SELECT t.transaction_id AS transactionId, t.validator_node_id AS validatorNodeId, t.block_id AS blockId, " +
+            "t.timestamp AS timestamp, t.status AS status " +
+            "FROM transactions t WHERE t.transaction_id > :after ORDER BY t.transaction_id ASC",
+            nativeQuery = true)
+    List<TransactionActivity> findActivityAfter(@Param("after") Integer after, Pageable pageable);
+
+    @Query(value = "SELECT t.transaction_id AS transactionId, t.validator_node_id AS validatorNodeId, t.block_id AS blockId, " +
+            "t.timestamp AS timestamp, t.status AS status " +
+            "FROM transactions t WHERE t.transaction_id IN :ids",
+            nativeQuery = true)
+    List<TransactionActivity> findActivityByIds(@Param("ids") Collection<Integer> ids);
+}
@@ -0,0 +1,71 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.model.BlockResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU of sealed blocks, indexed by ID and by hash. A block is sealed once its remaining
+ * size reaches 0: SmartContract opens a new block instead of adding to it, so its response never
+ * changes again and can be served without touching the database.
+ */
+@Component
+public class BlockResponseCache {
+
+    private final Map<Integer, BlockResponse> byId;
+    private final Map<String, Integer> idByHash = new HashMap<>();
+
+    public BlockResponseCache(@Value("${blocks.cache.max-entries:10000}") int maxEntries) {
+        this.byId = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BlockResponse> eldest) {
+                if (size() > maxEntries) {
+                    idByHash.remove(eldest.getValue().getBlockHash());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public static boolean isSealed(BlockResponse block) {
+        return block != null && block.getBlockSize() != null && block.getBlockSize() <= 0;
+    }
+
+    /**
+     * Strong ETag: the block hash alone once sealed, hash plus remaining size while still open.
+     */
+    public static String eTagOf(BlockResponse block) {
+        return isSealed(block)
+                ? "\"" + block.getBlockHash() + "\""
+                : "\"" + block.getBlockHash() + "-" + block.getBlockSize() + "\"";
+    }
+
+    public synchronized BlockResponse getById(Integer blockId) {
+        return byId.get(blockId);
+    }
+
+    public synchronized BlockResponse getByHash(String blockHash) {
+        Integer blockId = idByHash.get(blockHash);
+        return blockId != null ? byId.get(blockId) : null;
+    }
+
+    /**
+     * Caches the response if the block is sealed; open blocks are ignored.
+     */
+    public synchronized void putIfSealed(BlockResponse block) {
+        if (!isSealed(block)) {
+            return;
+        }
+        byId.put(block.getBlockId(), block);
+        idByHash.put(block.getBlockHash(), block.getBlockId());
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+}
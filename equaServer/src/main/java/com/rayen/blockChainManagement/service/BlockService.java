@@ -3,6 +3,7 @@ package com.rayen.blockChainManagement.service;
 import com.rayen.blockChainManagement.entity.Block;
 import com.rayen.blockChainManagement.entity.Transaction;
 import com.rayen.blockChainManagement.model.BlockMapper;
+import com.rayen.blockChainManagement.model.BlockPage;
 import com.rayen.blockChainManagement.model.BlockRequest;
 import com.rayen.blockChainManagement.model.BlockResponse;
 import com.rayen.blockChainManagement.model.BlockStats;
@@ -10,6 +11,7 @@ import com.rayen.blockChainManagement.repository.BlockRepository;
 import com.rayen.blockChainManagement.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.nio.charset.StandardCharsets;
@@ -28,6 +30,8 @@ public class BlockService {
     private final TransactionRepository transactionRepository;
     private final BlockRepository blockRepository;
     private final BlockMapper blockMapper;
+    private final BlockResponseCache blockResponseCache;
+    private static final int MAX_PAGE_SIZE = 200;
     private static final String GENESIS_PREVIOUS_HASH = "0000000000000000000000000000000000000000000000000000000000000000";
 
     @Transactional
@@ -63,18 +67,29 @@ public class BlockService {
         return blockMapper.toResponse(savedBlock);
     }
 
-    @Transactional(readOnly = true)
+    // Not transactional: sealed blocks are answered from the cache without borrowing a connection
     public BlockResponse getBlockById(Integer blockId) {
+        BlockResponse cached = blockResponseCache.getById(blockId);
+        if (cached != null) {
+            return cached;
+        }
         Block block = blockRepository.findById(blockId)
                 .orElseThrow(() -> new IllegalArgumentException("Block not found with ID: " + blockId));
-        return blockMapper.toResponse(block);
+        BlockResponse response = blockMapper.toResponse(block);
+        blockResponseCache.putIfSealed(response);
+        return response;
     }
 
-    @Transactional(readOnly = true)
     public BlockResponse getBlockByHash(String blockHash) {
+        BlockResponse cached = blockResponseCache.getByHash(blockHash);
+        if (cached != null) {
+            return cached;
+        }
         Block block = blockRepository.findByBlockHash(blockHash)
                 .orElseThrow(() -> new IllegalArgumentException("Block not found with hash: " + blockHash));
-        return blockMapper.toResponse(block);
+        BlockResponse response = blockMapper.toResponse(block);
+        blockResponseCache.putIfSealed(response);
+        return response;
     }
 
     @Transactional(readOnly = true)
@@ -110,12 +125,33 @@ public class BlockService {
                 .collect(Collectors.toList());
     }
 
-    @Transactional(readOnly = true)
     public List<BlockResponse> getAllBlocks() {
-        List<Block> blocks = blockRepository.findAllByOrderByTimestampDesc();
-        return blocks.stream()
-                .map(blockMapper::toResponse)
-                .collect(Collectors.toList());
+        return blockRepository.findAllBlockResponses();
+    }
+
+    /**
+     * Keyset page of blocks, newest first. Pass the previous page's nextCursor as beforeId;
+     * each page is a single statement whatever its depth in the chain.
+     */
+    public BlockPage getBlockPage(Integer beforeId, int size, boolean includeTransactionCount) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int cursor = beforeId != null ? beforeId : Integer.MAX_VALUE;
+        // One extra row tells whether an older page exists
+        PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+        List<BlockResponse> blocks = includeTransactionCount
+                ? blockRepository.findBlockPageWithTransactionCount(cursor, limit)
+                : blockRepository.findBlockPage(cursor, limit);
+
+        boolean hasMore = blocks.size() > pageSize;
+        if (hasMore) {
+            blocks = blocks.subList(0, pageSize);
+        }
+        return BlockPage.builder()
+                .blocks(blocks)
+                .nextCursor(hasMore ? blocks.get(blocks.size() - 1).getBlockId() : null)
+                .hasMore(hasMore)
+                .build();
     }
 
     @Transactional(readOnly = true)
@@ -181,6 +217,22 @@ public class BlockService {
 
     @Transactional
     public Block generateBlock() {
+        boolean isGenesisBlock = blockRepository.countTotalBlocks() == 0;
+
+        Block previousBlock = null;
+        if (!isGenesisBlock) {
+            previousBlock = blockRepository.findLatestBlock()
+                    .orElseThrow(() -> new IllegalStateException("No blocks found in blockchain"));
+        }
+        return generateBlockAfter(previousBlock);
+    }
+
+    /**
+     * Opens the block that follows {@code previousBlock} (genesis when null) without looking up
+     * the chain tip, for callers that already hold it.
+     */
+    @Transactional
+    public Block generateBlockAfter(Block previousBlock) {
         Block block = new Block();
         LocalDateTime now = LocalDateTime.now();
 
@@ -188,14 +240,10 @@ public class BlockService {
         block.setCreatedAt(now);
         block.setUpdatedAt(now);
 
-        boolean isGenesisBlock = blockRepository.countTotalBlocks() == 0;
-
-        if (isGenesisBlock) {
+        if (previousBlock == null) {
             block.setPreviousHash(GENESIS_PREVIOUS_HASH);
             block.setPreviousBlock(null);
         } else {
-            Block previousBlock = blockRepository.findLatestBlock()
-                    .orElseThrow(() -> new IllegalStateException("No blocks found in blockchain"));
             block.setPreviousBlock(previousBlock);
             block.setPreviousHash(previousBlock.getBlockHash());
         }
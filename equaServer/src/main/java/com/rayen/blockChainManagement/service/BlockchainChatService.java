@@ -1,74 +1,52 @@
 package com.rayen.blockChainManagement.service;
 
-import com.rayen.blockChainManagement.entity.Block;
-import com.rayen.blockChainManagement.entity.Node;
-import com.rayen.blockChainManagement.repository.BlockRepository;
-import com.rayen.blockChainManagement.repository.NodeRepository;
-import com.rayen.blockChainManagement.repository.TransactionRepository;
+import com.rayen.blockChainManagement.model.ChainSummary;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 @Service
 @RequiredArgsConstructor
 public class BlockchainChatService {
 
     private final GeminiService geminiService;
-    private final NodeRepository nodeRepository;
-    private final BlockRepository blockRepository;
-    private final TransactionRepository transactionRepository;
-
-    private final Map<String, List<String>> sessions = new ConcurrentHashMap<>();
-
-    public String chat(String sessionId, String userMessage) {
-        List<String> history = sessions.computeIfAbsent(sessionId, k -> {
-            List<String> h = new ArrayList<>();
-            h.add(buildContext()); // index 0 → role "user"
-            h.add("Understood. I have full knowledge of this blockchain and am ready to answer your questions."); // index 1 → role "model"
-            return h;
-        });
-
-        history.add(userMessage);
-        String response = geminiService.chat(history);
-        history.add(response);
-        return response;
+    private final ChainSummaryService chainSummaryService;
+    private final ChatSessionStore sessionStore;
+
+    public CompletableFuture<String> chat(String sessionId, String userMessage) {
+        ChatSessionStore.ChatSession session = sessionStore.getOrCreate(sessionId, this::buildContext);
+
+        return geminiService.chatAsync(session.window(userMessage))
+                .thenApply(response -> {
+                    // Fallback texts would only poison the next turns
+                    if (!GeminiService.CHAT_FALLBACK.equals(response) && !GeminiService.NOT_CONFIGURED.equals(response)) {
+                        sessionStore.commit(sessionId, session, userMessage, response);
+                    }
+                    return response;
+                });
     }
 
     public void clearSession(String sessionId) {
-        sessions.remove(sessionId);
+        sessionStore.remove(sessionId);
+    }
+
+    public Map<String, Long> getSessionStats() {
+        return Map.of(
+                "sessions", (long) sessionStore.size(),
+                "bytesHeld", sessionStore.bytesHeld()
+        );
     }
 
     private String buildContext() {
-        List<Node> nodes = nodeRepository.findAll();
-        List<Block> blocks = blockRepository.findAllBlocksWithTransactions();
-        long totalTransactions = transactionRepository.count();
+        ChainSummary summary = chainSummaryService.getSummary();
 
-        StringBuilder ctx = new StringBuilder();
+        StringBuilder ctx = new StringBuilder(summary.getContext().length() + 320);
         ctx.append("You are a blockchain analyst assistant with deep knowledge of this specific blockchain. ");
         ctx.append("Answer all questions accurately based on the data below. Be concise but insightful.\n\n");
-
-        ctx.append("=== BLOCKCHAIN STATE ===\n");
-        ctx.append("Total blocks: ").append(blocks.size()).append("\n");
-        ctx.append("Total transactions: ").append(totalTransactions).append("\n\n");
-
-        ctx.append("=== NODES ===\n");
-        nodes.forEach(node -> ctx.append(String.format(
-                "Node %d | type: %s | location: %s | reputation: %.1f | status: %s | validations: %d\n",
-                node.getNodeId(), node.getNodeType(), node.getLocation(),
-                node.getReputationScore(), node.getStatus(),
-                node.getTransactions() != null ? node.getTransactions().size() : 0
-        )));
-
-        ctx.append("\n=== BLOCKS ===\n");
-        blocks.forEach(block -> ctx.append(String.format(
-                "Block %d | hash: %s | size remaining: %d | transactions: %d\n",
-                block.getBlockId(), block.getBlockHash(),
-                block.getBlockSize(),
-                block.getTransaction() != null ? block.getTransaction().size() : 0
-        )));
-
+        ctx.append(summary.getContext());
         ctx.append("\nYou have full knowledge of this blockchain. Answer any question the user asks about it.");
         return ctx.toString();
     }
-}
\ No newline at end of file
+}
@@ -1,17 +1,13 @@
 package com.rayen.blockChainManagement.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.rayen.blockChainManagement.entity.Block;
-import com.rayen.blockChainManagement.entity.Node;
+import com.rayen.blockChainManagement.model.ChainSummary;
 import com.rayen.blockChainManagement.model.HealthScore;
-import com.rayen.blockChainManagement.repository.BlockRepository;
-import com.rayen.blockChainManagement.repository.NodeRepository;
-import com.rayen.blockChainManagement.repository.TransactionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Service
@@ -19,17 +15,13 @@ import java.util.List;
 public class BlockchainHealthService {
 
     private final GeminiService geminiService;
-    private final NodeRepository nodeRepository;
-    private final BlockRepository blockRepository;
-    private final TransactionRepository transactionRepository;
+    private final ChainSummaryService chainSummaryService;
     private final ObjectMapper objectMapper;
 
-    public HealthScore getHealthScore() {
-        List<Node> nodes = nodeRepository.findAll();
-        List<Block> blocks = blockRepository.findAllBlocksWithTransactions();
-        long totalTransactions = transactionRepository.count();
+    public CompletableFuture<HealthScore> getHealthScore() {
+        ChainSummary summary = chainSummaryService.getSummary();
 
-        StringBuilder prompt = new StringBuilder();
+        StringBuilder prompt = new StringBuilder(summary.getContext().length() + 768);
         prompt.append("You are a blockchain analyst. Analyze this blockchain and return ONLY a valid JSON object with no markdown, no backticks, no explanation outside the JSON.\n\n");
         prompt.append("Return exactly this structure:\n");
         prompt.append("{\n");
@@ -43,28 +35,13 @@ public class BlockchainHealthService {
         prompt.append("  \"overallExplanation\": \"<one sentence>\"\n");
         prompt.append("}\n\n");
 
-        prompt.append("=== BLOCKCHAIN STATE ===\n");
-        prompt.append("Total blocks: ").append(blocks.size()).append("\n");
-        prompt.append("Total transactions: ").append(totalTransactions).append("\n\n");
+        prompt.append(summary.getContext());
 
-        prompt.append("=== NODES ===\n");
-        nodes.forEach(node -> prompt.append(String.format(
-                "Node %d | type: %s | location: %s | reputation: %.1f | status: %s | validations: %d\n",
-                node.getNodeId(), node.getNodeType(), node.getLocation(),
-                node.getReputationScore(), node.getStatus(),
-                node.getTransactions() != null ? node.getTransactions().size() : 0
-        )));
-
-        prompt.append("\n=== BLOCKS ===\n");
-        blocks.forEach(block -> prompt.append(String.format(
-                "Block %d | hash: %s | size remaining: %d | transactions: %d\n",
-                block.getBlockId(), block.getBlockHash(),
-                block.getBlockSize(),
-                block.getTransaction() != null ? block.getTransaction().size() : 0
-        )));
-
-        String raw = geminiService.analyzeBlockchain(prompt.toString());
+        return geminiService.analyzeBlockchainAsync(prompt.toString(), summary.getHeight())
+                .thenApply(this::parse);
+    }
 
+    private HealthScore parse(String raw) {
         try {
             // Strip markdown backticks just in case Gemini adds them anyway
             String clean = raw.replaceAll("```json", "").replaceAll("```", "").trim();
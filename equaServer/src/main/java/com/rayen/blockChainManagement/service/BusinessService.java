@@ -6,6 +6,7 @@ import com.rayen.blockChainManagement.repository.BusinessRepository;
 import com.rayen.userManaement.entity.User;
 import com.rayen.userManaement.repository.UserRepository;
 import com.rayen.walletManagement.entity.BusinessWallet;
+import com.rayen.walletManagement.model.Money;
 import com.rayen.walletManagement.repository.BusinessWalletRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -49,7 +50,7 @@ public class BusinessService {
         BusinessWallet wallet = new BusinessWallet();
         wallet.setBusiness(savedBusiness);
         wallet.setStatus("ACTIVE");
-        wallet.setEquaAmount(0f);
+        wallet.setEquaAmount(Money.ZERO);
         wallet.setLastActivityAt(LocalDateTime.now());
 
         businessWalletRepository.save(wallet);
@@ -0,0 +1,287 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.entity.Node;
+import com.rayen.blockChainManagement.entity.TransactionStatus;
+import com.rayen.blockChainManagement.model.BlockSummary;
+import com.rayen.blockChainManagement.model.ChainSummary;
+import com.rayen.blockChainManagement.model.TransactionActivity;
+import com.rayen.blockChainManagement.repository.BlockRepository;
+import com.rayen.blockChainManagement.repository.NodeRepository;
+import com.rayen.blockChainManagement.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Single source of chain context for the Gemini prompt builders (analysis, health, chat, prediction).
+ *
+ * Instead of loading every block and every node's transaction list per request, it keeps small
+ * aggregates (validations per node, activity per hour of day) and the chain counters in memory,
+ * folded forward from the last transaction and block seen, and only re-renders the prompt text when
+ * the counters move. Rows are read through an {@link IdCursor}, so one that commits after a higher ID
+ * was already folded is still picked up.
+ */
+@Slf4j
+@Service
+public class ChainSummaryService {
+
+    static final int RECENT_BLOCKS = 20;
+    static final int MAX_NODES = 50;
+    private static final int FOLD_BATCH = 1000;
+
+    private final NodeRepository nodeRepository;
+    private final BlockRepository blockRepository;
+    private final TransactionRepository transactionRepository;
+
+    // Counters and aggregates — only touched while holding the fold lock
+    private final ReentrantLock foldLock = new ReentrantLock();
+    private final IdCursor transactionCursor;
+    private final IdCursor blockCursor;
+    private final Map<Integer, Progress> open = new HashMap<>(); // seen, still waiting for a validator or a block
+    private final Map<Integer, Long> validationsByNode = new HashMap<>();
+    private final long[] activityByHour = new long[24];
+    private long blocks;
+    private long transactions;
+    private long validated;
+    private long placed;
+
+    private final AtomicReference<ChainSummary> current = new AtomicReference<>();
+
+    public ChainSummaryService(NodeRepository nodeRepository,
+                               BlockRepository blockRepository,
+                               TransactionRepository transactionRepository,
+                               @Value("${chain.summary.gap-timeout-ms:60000}") long gapTimeoutMs) {
+        this.nodeRepository = nodeRepository;
+        this.blockRepository = blockRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionCursor = new IdCursor(gapTimeoutMs);
+        this.blockCursor = new IdCursor(gapTimeoutMs);
+    }
+
+    /**
+     * Returns the summary for the current chain height, rebuilding it only when the height moved.
+     * While another caller is folding, the last summary is served as is.
+     */
+    public ChainSummary getSummary() {
+        ChainSummary cached = current.get();
+        if (!foldLock.tryLock()) {
+            if (cached != null) {
+                return cached;
+            }
+            foldLock.lock();
+        }
+        try {
+            long now = System.currentTimeMillis();
+            foldTransactions(now);
+            foldBlocks(now);
+
+            String height = blocks + "-" + transactions + "-" + validated + "-" + placed;
+            cached = current.get();
+            if (cached != null && cached.getHeight().equals(height)) {
+                return cached;
+            }
+            return render(height);
+        } finally {
+            foldLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the rendered text so the next call re-reads nodes. Aggregates are kept.
+     * Call this when node data changes without moving the chain (status, reputation, new node).
+     */
+    public void invalidate() {
+        current.set(null);
+    }
+
+    private ChainSummary render(String height) {
+        List<Node> nodes = nodeRepository.findAll();
+        List<BlockSummary> recentBlocks = blockRepository.findRecentBlockSummaries(PageRequest.of(0, RECENT_BLOCKS));
+
+        String nodesSection = renderNodes(nodes);
+        String context = renderContext(nodesSection, recentBlocks);
+
+        ChainSummary summary = new ChainSummary(height, blocks, transactions, nodesSection, context);
+        current.set(summary);
+        log.debug("[ChainSummary] rebuilt at height {} ({} nodes tracked, {} transactions open, {} gaps)",
+                height, validationsByNode.size(), open.size(), transactionCursor.gapCount());
+        return summary;
+    }
+
+    // ==================== AGGREGATES ====================
+
+    private void foldTransactions(long now) {
+        // Known rows that may have progressed, and IDs the cursor jumped over that may have committed since
+        Set<Integer> recheck = transactionCursor.openGaps(now);
+        recheck.addAll(open.keySet());
+        Set<Integer> returned = new HashSet<>();
+        for (List<Integer> chunk : chunks(recheck)) {
+            for (TransactionActivity activity : transactionRepository.findActivityByIds(chunk)) {
+                Integer id = activity.getTransactionId();
+                returned.add(id);
+                Progress progress = open.get(id);
+                if (progress != null) {
+                    fold(activity, progress);
+                } else if (transactionCursor.fill(id)) {
+                    foldNew(activity);
+                }
+            }
+        }
+        // Open rows that were not returned have been deleted
+        open.entrySet().removeIf(entry -> {
+            if (returned.contains(entry.getKey())) {
+                return false;
+            }
+            transactions--;
+            validated -= entry.getValue().validated ? 1 : 0;
+            placed -= entry.getValue().placed ? 1 : 0;
+            return true;
+        });
+
+        List<TransactionActivity> batch;
+        do {
+            batch = transactionRepository.findActivityAfter(transactionCursor.watermark(), PageRequest.of(0, FOLD_BATCH));
+            for (TransactionActivity activity : batch) {
+                transactionCursor.advance(activity.getTransactionId(), now);
+                foldNew(activity);
+            }
+        } while (batch.size() == FOLD_BATCH);
+    }
+
+    private void foldBlocks(long now) {
+        Set<Integer> gaps = blockCursor.openGaps(now);
+        for (List<Integer> chunk : chunks(gaps)) {
+            for (Integer id : blockRepository.findExistingBlockIds(chunk)) {
+                if (blockCursor.fill(id)) {
+                    blocks++;
+                }
+            }
+        }
+
+        List<Integer> batch;
+        do {
+            batch = blockRepository.findBlockIdsAfter(blockCursor.watermark(), PageRequest.of(0, FOLD_BATCH));
+            for (Integer id : batch) {
+                blockCursor.advance(id, now);
+                blocks++;
+            }
+        } while (batch.size() == FOLD_BATCH);
+    }
+
+    private void foldNew(TransactionActivity activity) {
+        transactions++;
+        fold(activity, new Progress());
+    }
+
+    // Transactions are created PENDING and get their validator, then their block, a moment later
+    private void fold(TransactionActivity activity, Progress progress) {
+        if (!progress.validated && activity.getValidatorNodeId() != null) {
+            progress.validated = true;
+            validated++;
+            validationsByNode.merge(activity.getValidatorNodeId(), 1L, Long::sum);
+            if (activity.getTimestamp() != null) {
+                activityByHour[activity.getTimestamp().getHour()]++;
+            }
+        }
+        if (!progress.placed && activity.getBlockId() != null) {
+            progress.placed = true;
+            placed++;
+        }
+        boolean settled = progress.validated && progress.placed;
+        if (settled || TransactionStatus.INVALID.name().equals(activity.getStatus())) {
+            open.remove(activity.getTransactionId());
+        } else {
+            open.put(activity.getTransactionId(), progress);
+        }
+    }
+
+    private static List<List<Integer>> chunks(Set<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> chunk = new ArrayList<>(Math.min(ids.size(), FOLD_BATCH));
+        for (Integer id : ids) {
+            chunk.add(id);
+            if (chunk.size() == FOLD_BATCH) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(FOLD_BATCH);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private static final class Progress {
+        boolean validated;
+        boolean placed;
+    }
+
+    // ==================== RENDERING ====================
+
+    private String renderNodes(List<Node> nodes) {
+        StringBuilder sb = new StringBuilder(64 + Math.min(nodes.size(), MAX_NODES) * 96);
+        sb.append("=== NODES ===\n");
+        nodes.stream()
+                .sorted(Comparator.comparingLong((Node n) -> validationsByNode.getOrDefault(n.getNodeId(), 0L)).reversed())
+                .limit(MAX_NODES)
+                .forEach(node -> sb.append("Node ").append(node.getNodeId())
+                        .append(" | type: ").append(node.getNodeType())
+                        .append(" | location: ").append(node.getLocation())
+                        .append(" | reputation: ").append(oneDecimal(node.getReputationScore()))
+                        .append(" | status: ").append(node.getStatus())
+                        .append(" | validations: ").append(validationsByNode.getOrDefault(node.getNodeId(), 0L))
+                        .append('\n'));
+        if (nodes.size() > MAX_NODES) {
+            sb.append("... and ").append(nodes.size() - MAX_NODES).append(" less active nodes\n");
+        }
+        return sb.toString();
+    }
+
+    private String renderContext(String nodesSection, List<BlockSummary> recentBlocks) {
+        StringBuilder sb = new StringBuilder(nodesSection.length() + recentBlocks.size() * 110 + 512);
+        sb.append("=== BLOCKCHAIN STATE ===\n");
+        sb.append("Total blocks: ").append(blocks).append('\n');
+        sb.append("Total transactions: ").append(transactions).append('\n');
+        sb.append("Validated transactions: ").append(validated).append("\n\n");
+
+        sb.append(nodesSection);
+
+        sb.append("\n=== BLOCKS (latest ").append(recentBlocks.size()).append(" of ").append(blocks).append(") ===\n");
+        recentBlocks.forEach(block -> sb.append("Block ").append(block.getBlockId())
+                .append(" | hash: ").append(block.getBlockHash())
+                .append(" | size remaining: ").append(block.getBlockSize())
+                .append(" | transactions: ").append(block.getTransactionCount())
+                .append('\n'));
+
+        sb.append("\n=== VALIDATIONS PER HOUR OF DAY ===\n");
+        for (int hour = 0; hour < activityByHour.length; hour++) {
+            if (hour > 0) {
+                sb.append(hour % 6 == 0 ? '\n' : ' ');
+            }
+            if (hour < 10) {
+                sb.append('0');
+            }
+            sb.append(hour).append("h: ").append(activityByHour[hour]);
+        }
+        sb.append('\n');
+        return sb.toString();
+    }
+
+    private static String oneDecimal(Double value) {
+        if (value == null) {
+            return "null";
+        }
+        return Double.toString(Math.round(value * 10) / 10.0);
+    }
+}
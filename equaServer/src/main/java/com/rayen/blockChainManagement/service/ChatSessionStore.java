@@ -0,0 +1,211 @@
+package com.rayen.blockChainManagement.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded store for blockchain chat sessions: LRU on session count, idle-TTL eviction,
+ * and a per-session history capped both in memory (turns) and per request (characters sent).
+ */
+@Slf4j
+@Component
+public class ChatSessionStore {
+
+    static final String ACKNOWLEDGEMENT = "Understood. I have full knowledge of this blockchain and am ready to answer your questions.";
+
+    private final int maxSessions;
+    private final long idleMs;
+    private final int maxTurns;
+    private final int maxRequestChars;
+    private final Clock clock;
+
+    // Access-ordered: iteration starts at the least recently used session
+    private final LinkedHashMap<String, ChatSession> sessions = new LinkedHashMap<>(16, 0.75f, true);
+
+    @Autowired
+    public ChatSessionStore(@Value("${chat.sessions.max:1000}") int maxSessions,
+                            @Value("${chat.sessions.idle-minutes:30}") long idleMinutes,
+                            @Value("${chat.history.max-turns:20}") int maxTurns,
+                            @Value("${chat.history.max-request-chars:24000}") int maxRequestChars) {
+        this(maxSessions, idleMinutes, maxTurns, maxRequestChars, Clock.systemUTC());
+    }
+
+    ChatSessionStore(int maxSessions, long idleMinutes, int maxTurns, int maxRequestChars, Clock clock) {
+        this.maxSessions = maxSessions;
+        this.idleMs = TimeUnit.MINUTES.toMillis(idleMinutes);
+        this.maxTurns = maxTurns;
+        this.maxRequestChars = maxRequestChars;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the live session, creating it with the given context if absent.
+     * The context is built outside the store lock.
+     */
+    public ChatSession getOrCreate(String sessionId, Supplier<String> context) {
+        synchronized (sessions) {
+            ChatSession existing = sessions.get(sessionId);
+            if (existing != null) {
+                existing.touch(clock.millis());
+                return existing;
+            }
+        }
+
+        ChatSession created = new ChatSession(context.get(), maxTurns, maxRequestChars, clock.millis());
+        synchronized (sessions) {
+            ChatSession raced = sessions.putIfAbsent(sessionId, created);
+            if (raced != null) {
+                raced.touch(clock.millis());
+                return raced;
+            }
+            if (sessions.size() > maxSessions) {
+                Iterator<String> eldest = sessions.keySet().iterator();
+                String evicted = eldest.next();
+                eldest.remove();
+                log.debug("[ChatSessions] evicted least recently used session {}", evicted);
+            }
+            return created;
+        }
+    }
+
+    /**
+     * Appends an answered turn and marks the session most recently used. The model may take a while
+     * to answer, so the position taken in getOrCreate would be stale by now.
+     */
+    public void commit(String sessionId, ChatSession session, String userMessage, String response) {
+        session.commit(userMessage, response);
+        synchronized (sessions) {
+            // Access order: get moves the entry to the tail; skip it if the session was evicted or replaced meanwhile
+            if (sessions.get(sessionId) == session) {
+                session.touch(clock.millis());
+            }
+        }
+    }
+
+    public void remove(String sessionId) {
+        synchronized (sessions) {
+            sessions.remove(sessionId);
+        }
+    }
+
+    public int size() {
+        synchronized (sessions) {
+            return sessions.size();
+        }
+    }
+
+    public long bytesHeld() {
+        List<ChatSession> snapshot;
+        synchronized (sessions) {
+            snapshot = new ArrayList<>(sessions.values());
+        }
+        return snapshot.stream().mapToLong(ChatSession::bytes).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${chat.sessions.sweep-ms:60000}")
+    public void evictIdle() {
+        long cutoff = clock.millis() - idleMs;
+        int evicted = 0;
+        synchronized (sessions) {
+            // LRU order: stop at the first session used after the cutoff
+            Iterator<ChatSession> it = sessions.values().iterator();
+            while (it.hasNext() && it.next().lastAccess() < cutoff) {
+                it.remove();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.info("[ChatSessions] evicted {} idle sessions", evicted);
+        }
+    }
+
+    /**
+     * One conversation. Turns are committed as (user, model) pairs once the model answered,
+     * so concurrent requests on the same session never interleave half turns.
+     */
+    public static class ChatSession {
+
+        private final String context;
+        private final int maxTurns;
+        private final int maxRequestChars;
+        private final Deque<Turn> turns = new ArrayDeque<>();
+        private long chars;
+        private volatile long lastAccess;
+
+        ChatSession(String context, int maxTurns, int maxRequestChars, long now) {
+            this.context = context;
+            this.lastAccess = now;
+            this.maxTurns = maxTurns;
+            this.maxRequestChars = maxRequestChars;
+            this.chars = context.length() + ACKNOWLEDGEMENT.length();
+        }
+
+        /**
+         * History to send for a new user message: context, acknowledgement, then the most recent
+         * turns that fit in the character budget, then the message itself.
+         */
+        public synchronized List<String> window(String userMessage) {
+            int budget = maxRequestChars - context.length() - ACKNOWLEDGEMENT.length() - userMessage.length();
+            List<Turn> recent = new ArrayList<>();
+            for (Iterator<Turn> it = turns.descendingIterator(); it.hasNext(); ) {
+                Turn turn = it.next();
+                budget -= turn.length();
+                if (budget < 0) {
+                    break;
+                }
+                recent.add(turn);
+            }
+
+            List<String> history = new ArrayList<>(2 + recent.size() * 2 + 1);
+            history.add(context);          // index 0 → role "user"
+            history.add(ACKNOWLEDGEMENT);  // index 1 → role "model"
+            for (int i = recent.size() - 1; i >= 0; i--) {
+                history.add(recent.get(i).user());
+                history.add(recent.get(i).model());
+            }
+            history.add(userMessage);
+            return history;
+        }
+
+        synchronized void commit(String userMessage, String response) {
+            Turn turn = new Turn(userMessage, response);
+            turns.addLast(turn);
+            chars += turn.length();
+            while (turns.size() > maxTurns) {
+                chars -= turns.removeFirst().length();
+            }
+        }
+
+        public synchronized long bytes() {
+            return chars * Character.BYTES;
+        }
+
+        void touch(long now) {
+            lastAccess = now;
+        }
+
+        long lastAccess() {
+            return lastAccess;
+        }
+    }
+
+    private record Turn(String user, String model) {
+        int length() {
+            return user.length() + model.length();
+        }
+    }
+}
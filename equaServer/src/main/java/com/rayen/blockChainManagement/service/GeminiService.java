@@ -1,28 +1,121 @@
 package com.rayen.blockChainManagement.service;
 
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClient;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Gemini client. Calls run on virtual threads behind a bulkhead and a circuit breaker, with
+ * connect/read timeouts and one retry on transient errors.
+ *
+ * Prompt analyses are coalesced (identical concurrent prompts share one upstream call) and cached
+ * for a short TTL, keyed by prompt hash and chain height. Chat turns are never cached.
+ */
 @Service
 @Slf4j
 public class GeminiService {
 
-    @Value("${gemini.api.key}")
-    private String apiKey;
+    private static final String GEMINI_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-flash-latest:generateContent";
 
-    private final RestClient restClient = RestClient.create();
+    static final String ANALYZE_FALLBACK = "Unable to analyze blockchain at this time.";
+    static final String CHAT_FALLBACK = "Unable to respond at this time.";
+    static final String NOT_CONFIGURED = "Gemini API key not configured.";
+    private static final int MAX_CACHED_RESPONSES = 256;
 
-    private static final String GEMINI_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-flash-latest:generateContent";
+    private final String apiKey;
+    private final String url;
+    private final RestClient restClient;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Bulkhead
+    private final Semaphore permits;
+    private final long permitWaitMs;
+    private final int maxRetries;
+
+    // Single-flight + response cache
+    private final long cacheTtlMs;
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, CachedResponse> cache = new ConcurrentHashMap<>();
+
+    // Circuit breaker
+    private final int failureThreshold;
+    private final long openMs;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean(false);
+    private volatile long openUntil = 0;
+
+    public GeminiService(@Value("${gemini.api.key}") String apiKey,
+                         @Value("${gemini.api.url:" + GEMINI_URL + "}") String url,
+                         @Value("${gemini.connect-timeout-ms:3000}") int connectTimeoutMs,
+                         @Value("${gemini.read-timeout-ms:20000}") int readTimeoutMs,
+                         @Value("${gemini.max-concurrent:8}") int maxConcurrent,
+                         @Value("${gemini.bulkhead-wait-ms:2000}") long permitWaitMs,
+                         @Value("${gemini.max-retries:1}") int maxRetries,
+                         @Value("${gemini.cache-ttl-seconds:60}") long cacheTtlSeconds,
+                         @Value("${gemini.breaker.failure-threshold:5}") int failureThreshold,
+                         @Value("${gemini.breaker.open-seconds:30}") long openSeconds) {
+        this.apiKey = apiKey;
+        this.url = url;
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        this.restClient = RestClient.builder().requestFactory(requestFactory).build();
 
+        this.permits = new Semaphore(maxConcurrent);
+        this.permitWaitMs = permitWaitMs;
+        this.maxRetries = maxRetries;
+        this.cacheTtlMs = TimeUnit.SECONDS.toMillis(cacheTtlSeconds);
+        this.failureThreshold = failureThreshold;
+        this.openMs = TimeUnit.SECONDS.toMillis(openSeconds);
+    }
+
+    /**
+     * Blocking variant kept for callers without a chain height (e.g. market analysis).
+     */
     public String analyzeBlockchain(String prompt) {
-        String url = GEMINI_URL + "?key=" + apiKey;
+        return analyzeBlockchainAsync(prompt, null).join();
+    }
+
+    /**
+     * Single-prompt analysis. Never completes exceptionally: failures resolve to a fallback text.
+     *
+     * @param chainHeight height the prompt was rendered at, part of the cache key (may be null)
+     */
+    public CompletableFuture<String> analyzeBlockchainAsync(String prompt, String chainHeight) {
+        String key = sha256(prompt) + "@" + chainHeight;
+
+        CachedResponse cached = cache.get(key);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(cached.text());
+        }
+
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, result);
+        if (existing != null) {
+            return existing;
+        }
 
         Map<String, Object> body = Map.of(
                 "contents", List.of(
@@ -32,27 +125,21 @@ public class GeminiService {
                 )
         );
 
-        try {
-            Map response = restClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(body)
-                    .retrieve()
-                    .body(Map.class);
-
-            return extractText(response);
-        } catch (Exception e) {
-            log.error("Gemini API error", e);
-            return "Unable to analyze blockchain at this time.";
-        }
+        call(body, "Gemini API error").whenComplete((text, error) -> {
+            if (error == null) {
+                cache(key, text);
+            }
+            inFlight.remove(key, result);
+            result.complete(error == null ? text : fallback(error, ANALYZE_FALLBACK));
+        });
+        return result;
     }
 
-    public String chat(List<String> history) {
-        if (apiKey == null || apiKey.isBlank()) return "Gemini API key not configured.";
-
-        String url = GEMINI_URL + "?key=" + apiKey;
-
-        List<Map<String, Object>> contents = new ArrayList<>();
+    /**
+     * Multi-turn chat; even indexes are user turns, odd indexes model turns.
+     */
+    public CompletableFuture<String> chatAsync(List<String> history) {
+        List<Map<String, Object>> contents = new ArrayList<>(history.size());
         for (int i = 0; i < history.size(); i++) {
             contents.add(Map.of(
                     "role", i % 2 == 0 ? "user" : "model",
@@ -62,17 +149,133 @@ public class GeminiService {
 
         Map<String, Object> body = Map.of("contents", contents);
 
+        return call(body, "Gemini chat error")
+                .exceptionally(error -> fallback(error, CHAT_FALLBACK));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ==================== CALL PIPELINE ====================
+
+    private CompletableFuture<String> call(Map<String, Object> body, String errorLabel) {
+        if (apiKey == null || apiKey.isBlank()) {
+            return CompletableFuture.failedFuture(new GeminiUnavailableException(NOT_CONFIGURED));
+        }
+        if (!breakerAllows()) {
+            return CompletableFuture.failedFuture(new GeminiUnavailableException("circuit open"));
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            boolean acquired = false;
+            try {
+                acquired = permits.tryAcquire(permitWaitMs, TimeUnit.MILLISECONDS);
+                if (!acquired) {
+                    probing.set(false);
+                    throw new GeminiUnavailableException("bulkhead full");
+                }
+                String text = postWithRetry(body);
+                onSuccess();
+                return text;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GeminiUnavailableException("interrupted");
+            } catch (GeminiUnavailableException e) {
+                throw e;
+            } catch (Exception e) {
+                onFailure();
+                log.error(errorLabel, e);
+                throw new GeminiUnavailableException(e.getMessage());
+            } finally {
+                if (acquired) {
+                    permits.release();
+                }
+            }
+        }, executor);
+    }
+
+    private String postWithRetry(Map<String, Object> body) {
+        String requestUrl = url + "?key=" + apiKey;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                Map response = restClient.post()
+                        .uri(requestUrl)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(body)
+                        .retrieve()
+                        .body(Map.class);
+                return extractText(response);
+            } catch (HttpClientErrorException e) {
+                // 4xx other than 429 will not get better by retrying
+                if (e.getStatusCode().value() != 429 || attempt >= maxRetries) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+            }
+            log.warn("Gemini call failed, retrying ({}/{})", attempt + 1, maxRetries);
+        }
+    }
+
+    private boolean breakerAllows() {
+        long until = openUntil;
+        if (until == 0) {
+            return true;
+        }
+        if (System.currentTimeMillis() < until) {
+            return false;
+        }
+        // Half-open: let exactly one probe through
+        return probing.compareAndSet(false, true);
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        openUntil = 0;
+        probing.set(false);
+    }
+
+    private void onFailure() {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold || probing.get()) {
+            openUntil = System.currentTimeMillis() + openMs;
+            probing.set(false);
+            log.warn("Gemini circuit opened for {}ms after {} consecutive failures", openMs, consecutiveFailures.get());
+        }
+    }
+
+    // ==================== CACHE ====================
+
+    private void cache(String key, String text) {
+        long now = System.currentTimeMillis();
+        cache.put(key, new CachedResponse(text, now + cacheTtlMs));
+        if (cache.size() > MAX_CACHED_RESPONSES) {
+            cache.values().removeIf(entry -> entry.expiresAt() <= now);
+            while (cache.size() > MAX_CACHED_RESPONSES) {
+                cache.entrySet().stream()
+                        .min(Map.Entry.comparingByValue((a, b) -> Long.compare(a.expiresAt(), b.expiresAt())))
+                        .ifPresent(oldest -> cache.remove(oldest.getKey()));
+            }
+        }
+    }
+
+    private static String fallback(Throwable error, String defaultText) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof GeminiUnavailableException && NOT_CONFIGURED.equals(cause.getMessage())) {
+            return NOT_CONFIGURED;
+        }
+        return defaultText;
+    }
+
+    private static String sha256(String text) {
         try {
-            Map response = restClient.post()
-                    .uri(url)
-                    .contentType(MediaType.APPLICATION_JSON)
-                    .body(body)
-                    .retrieve()
-                    .body(Map.class);
-            return extractText(response);
-        } catch (Exception e) {
-            log.error("Gemini chat error", e);
-            return "Unable to respond at this time.";
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
         }
     }
 
@@ -83,4 +286,13 @@ public class GeminiService {
         List<Map> parts = (List<Map>) content.get("parts");
         return (String) parts.get(0).get("text");
     }
-}
\ No newline at end of file
+
+    private record CachedResponse(String text, long expiresAt) {
+    }
+
+    static class GeminiUnavailableException extends RuntimeException {
+        GeminiUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
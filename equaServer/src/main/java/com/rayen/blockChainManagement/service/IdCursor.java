@@ -0,0 +1,64 @@
+package com.rayen.blockChainManagement.service;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/**
+ * Keyset cursor over an IDENTITY column. IDs are taken at insert but rows only become visible at
+ * commit, so a row can appear after higher IDs were already read. IDs jumped over when the watermark
+ * moves are kept as gaps and re-read until the row shows up or the gap is older than the timeout
+ * (a rolled-back insert never fills its gap).
+ */
+final class IdCursor {
+
+    // In-flight inserts are bounded by the connection pool; anything beyond this is a burnt range
+    static final int MAX_GAPS = 256;
+
+    private final long gapTimeoutMs;
+    private final LinkedHashMap<Integer, Long> gaps = new LinkedHashMap<>(); // ID -> when it was jumped over
+    private int watermark;
+
+    IdCursor(long gapTimeoutMs) {
+        this.gapTimeoutMs = gapTimeoutMs;
+    }
+
+    int watermark() {
+        return watermark;
+    }
+
+    /**
+     * Moves the watermark to {@code id}, which must be above it.
+     */
+    void advance(int id, long now) {
+        for (int skipped = Math.max(watermark + 1, id - MAX_GAPS); skipped < id; skipped++) {
+            gaps.put(skipped, now);
+        }
+        watermark = id;
+        Iterator<Integer> oldest = gaps.keySet().iterator();
+        while (gaps.size() > MAX_GAPS) {
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    /**
+     * True if {@code id} was a gap, i.e. its row is seen for the first time.
+     */
+    boolean fill(int id) {
+        return gaps.remove(id) != null;
+    }
+
+    /**
+     * Gaps still worth re-reading; those past the timeout are dropped.
+     */
+    Set<Integer> openGaps(long now) {
+        gaps.values().removeIf(since -> now - since > gapTimeoutMs);
+        return new HashSet<>(gaps.keySet());
+    }
+
+    int gapCount() {
+        return gaps.size();
+    }
+}
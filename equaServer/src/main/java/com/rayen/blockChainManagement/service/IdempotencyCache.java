@@ -0,0 +1,54 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.model.TransactionResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Bounded LRU of Idempotency-Key → outcome of the first submission. The future is registered
+ * before the transaction runs, so a retry arriving mid-race waits for the same result instead of
+ * starting a second one. Evicted keys are still protected by the unique idempotency_key column.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Map<String, CompletableFuture<TransactionResponse>> outcomes;
+
+    public IdempotencyCache(@Value("${transactions.idempotency.max-entries:10000}") int maxEntries) {
+        this.outcomes = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<TransactionResponse>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Registers {@code outcome} for the key unless a submission already owns it.
+     *
+     * @return the existing outcome, or null if the caller now owns the key
+     */
+    public synchronized CompletableFuture<TransactionResponse> claim(String key, CompletableFuture<TransactionResponse> outcome) {
+        CompletableFuture<TransactionResponse> existing = outcomes.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        outcomes.put(key, outcome);
+        return null;
+    }
+
+    /**
+     * Drops a failed submission so the next retry runs again.
+     */
+    public synchronized void release(String key, CompletableFuture<TransactionResponse> outcome) {
+        outcomes.remove(key, outcome);
+    }
+
+    public synchronized int size() {
+        return outcomes.size();
+    }
+}
@@ -22,6 +22,7 @@ public class NodeService {
 
     private final NodeRepository nodeRepository;
     private final NodeMapper nodeMapper;
+    private final ChainSummaryService chainSummaryService;
 
     public NodeResponse createNode(NodeRequest request) {
         log.info("Creating new node with IP: {}", request.getIpAddress());
@@ -44,6 +45,7 @@ public class NodeService {
         node.setStatus("ONLINE");
 
         Node savedNode = nodeRepository.save(node);
+        chainSummaryService.invalidate();
         return nodeMapper.toResponse(savedNode);
     }
 
@@ -124,6 +126,7 @@ public class NodeService {
         }
 
         Node updatedNode = nodeRepository.save(node);
+        chainSummaryService.invalidate();
         return nodeMapper.toResponse(updatedNode);
     }
 
@@ -137,6 +140,7 @@ public class NodeService {
         node.setUpdatedAt(LocalDateTime.now());
 
         Node updatedNode = nodeRepository.save(node);
+        chainSummaryService.invalidate();
         return nodeMapper.toResponse(updatedNode);
     }
 
@@ -167,6 +171,7 @@ public class NodeService {
         }
 
         nodeRepository.deleteById(nodeId);
+        chainSummaryService.invalidate();
     }
 
     @Transactional(readOnly = true)
@@ -0,0 +1,243 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.entity.Block;
+import com.rayen.blockChainManagement.entity.Node;
+import com.rayen.blockChainManagement.entity.Transaction;
+import com.rayen.blockChainManagement.entity.TransactionStatus;
+import com.rayen.blockChainManagement.model.BatchTransactionResponse;
+import com.rayen.blockChainManagement.model.BatchTransactionResult;
+import com.rayen.blockChainManagement.model.TransactionMapper;
+import com.rayen.blockChainManagement.model.TransactionRequest;
+import com.rayen.blockChainManagement.repository.BlockRepository;
+import com.rayen.blockChainManagement.repository.TransactionRepository;
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.entity.WalletPosting;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
+import com.rayen.walletManagement.repository.WalletRepository;
+import com.rayen.walletManagement.service.WalletLedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.BadRequestException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Moves EQUA between wallets under row locks. Callers hold the {@link WalletLocks} stripes of the
+ * wallets involved around single transfers; the SELECT ... FOR UPDATE here covers other instances.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SettlementService {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final BlockRepository blockRepository;
+    private final BlockService blockService;
+    private final TransactionService transactionService;
+    private final TransactionMapper transactionMapper;
+    private final WalletLedgerService walletLedgerService;
+
+    // Ledger reference of a settled transaction: "tx:" + transaction ID
+    public static final String TRANSFER_REFERENCE = "tx:";
+
+    private static final BigDecimal MAX_AMOUNT = Money.ofUnits(Long.MAX_VALUE).toBigDecimal();
+
+    /**
+     * Debits the sender and credits the receiver once, re-checking the balance on the locked row.
+     * Both sides are posted to the wallet ledger under {@code reference}.
+     */
+    @Transactional
+    public void transfer(Long fromWalletId, Long toWalletId, BigDecimal amount, String reference) throws BadRequestException {
+        Map<Long, Wallet> wallets = new HashMap<>(4);
+        walletRepository.findAllByIdForUpdate(new TreeSet<>(List.of(fromWalletId, toWalletId)))
+                .forEach(wallet -> wallets.put(wallet.getWalletId(), wallet));
+
+        Wallet sender = wallets.get(fromWalletId);
+        if (sender == null) {
+            throw new BadRequestException("Sender wallet not found");
+        }
+        Wallet receiver = wallets.get(toWalletId);
+        if (receiver == null) {
+            throw new BadRequestException("Receiver wallet not found");
+        }
+        Money money = Money.of(amount);
+        // Read after the row lock: no other debit of the sender can commit until this transaction does
+        Money balance = walletLedgerService.exactBalances(List.of(fromWalletId)).getOrDefault(fromWalletId, Money.ZERO);
+        if (balance.isLessThan(money)) {
+            throw new BadRequestException("INSUFFICIENT CREDIT");
+        }
+
+        walletLedgerService.post(sender, money.negate(), PostingType.TRANSFER, reference);
+        walletLedgerService.post(receiver, money, PostingType.TRANSFER, reference);
+    }
+
+    /**
+     * {@link #transfer} for a stored transaction that also gives it its Idempotency-Key, in the same
+     * database transaction: a key is only ever visible on a settled transaction. A key already held by
+     * another transaction fails with a DataIntegrityViolationException and nothing moves. A rejected
+     * transfer (BadRequestException is checked) rolls the key back too.
+     */
+    @Transactional(rollbackFor = BadRequestException.class)
+    public void settle(Integer transactionId, Long fromWalletId, Long toWalletId, BigDecimal amount, String idempotencyKey)
+            throws BadRequestException {
+        if (idempotencyKey != null) {
+            Transaction transaction = transactionRepository.findById(transactionId)
+                    .orElseThrow(() -> new BadRequestException("Transaction not found: " + transactionId));
+            transaction.setIdempotencyKey(idempotencyKey);
+            // Flushed first so a duplicate key fails before any wallet is locked
+            transactionRepository.saveAndFlush(transaction);
+        }
+        transfer(fromWalletId, toWalletId, amount, TRANSFER_REFERENCE + transactionId);
+    }
+
+    /**
+     * Settles a batch in one database transaction. Every wallet involved is locked once, in ID
+     * order, then items are checked in submission order against the running balances, so an
+     * item can spend what an earlier one credited. Rejected items leave no trace; accepted ones
+     * are stored as validated by {@code validator} and packed into blocks up to their capacity.
+     */
+    @Transactional
+    public BatchTransactionResponse settleBatch(List<TransactionRequest> requests, Node validator) {
+        int n = requests.size();
+        Long[] from = new Long[n];
+        Long[] to = new Long[n];
+        Set<Long> walletIds = new TreeSet<>();
+        for (int i = 0; i < n; i++) {
+            TransactionRequest request = requests.get(i);
+            from[i] = parseWalletId(request.getFromWallet());
+            to[i] = parseWalletId(request.getToWallet());
+            if (from[i] != null && to[i] != null) {
+                walletIds.add(from[i]);
+                walletIds.add(to[i]);
+            }
+        }
+
+        Set<Long> found = new HashSet<>(walletIds.size() * 2);
+        walletRepository.findAllByIdForUpdate(walletIds).forEach(wallet -> found.add(wallet.getWalletId()));
+        Map<Long, Money> balances = new HashMap<>(walletLedgerService.exactBalances(found));
+
+        BatchTransactionResult[] results = new BatchTransactionResult[n];
+        List<Transaction> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        List<WalletPosting> postings = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            TransactionRequest request = requests.get(i);
+            String error = rejectionReason(request, from[i], to[i], balances);
+            if (error != null) {
+                results[i] = BatchTransactionResult.builder().index(i).accepted(false).error(error).build();
+                continue;
+            }
+
+            Money amount = Money.of(request.getAmount());
+            balances.merge(from[i], amount.negate(), Money::plus);
+            balances.merge(to[i], amount, Money::plus);
+            postings.add(walletLedgerService.posting(from[i], amount.negate(), PostingType.TRANSFER, null));
+            postings.add(walletLedgerService.posting(to[i], amount, PostingType.TRANSFER, null));
+
+            Transaction transaction = transactionService.newTransaction(request);
+            transaction.setStatus(TransactionStatus.VALID);
+            transaction.setValidatorNode(validator);
+            accepted.add(transaction);
+            acceptedIndexes.add(i);
+        }
+
+        transactionRepository.saveAll(accepted);
+        // Two postings per accepted item, in the same order: reference them once the IDs exist
+        for (int k = 0; k < accepted.size(); k++) {
+            String reference = TRANSFER_REFERENCE + accepted.get(k).getTransactionId();
+            postings.get(2 * k).setReference(reference);
+            postings.get(2 * k + 1).setReference(reference);
+        }
+        walletLedgerService.append(postings);
+        List<Integer> blockIds = placeInBlocks(accepted);
+
+        for (int k = 0; k < accepted.size(); k++) {
+            int i = acceptedIndexes.get(k);
+            results[i] = BatchTransactionResult.builder()
+                    .index(i)
+                    .accepted(true)
+                    .transaction(transactionMapper.toResponse(accepted.get(k)))
+                    .build();
+        }
+
+        return BatchTransactionResponse.builder()
+                .submitted(n)
+                .accepted(accepted.size())
+                .rejected(n - accepted.size())
+                .validatorNodeId(validator.getNodeId())
+                .blockIds(blockIds)
+                .results(List.of(results))
+                .build();
+    }
+
+    // Fills the latest block's remaining capacity, then opens new blocks as SmartContract does
+    private List<Integer> placeInBlocks(List<Transaction> transactions) {
+        Set<Integer> blockIds = new LinkedHashSet<>();
+        if (transactions.isEmpty()) {
+            return List.of();
+        }
+        Block block = blockRepository.findLatestBlock()
+                .orElseThrow(() -> new IllegalStateException("No blocks found in blockchain"));
+        int placed = 0;
+        while (placed < transactions.size()) {
+            if (block.getBlockSize() <= 0) {
+                block = blockService.generateBlockAfter(block);
+            }
+            int take = (int) Math.min(block.getBlockSize(), transactions.size() - placed);
+            block.getTransaction().addAll(transactions.subList(placed, placed + take));
+            block.setBlockSize(block.getBlockSize() - take);
+            blockIds.add(block.getBlockId());
+            placed += take;
+        }
+        return new ArrayList<>(blockIds);
+    }
+
+    private static String rejectionReason(TransactionRequest request, Long from, Long to, Map<Long, Money> balances) {
+        if (from == null || to == null) {
+            return "Invalid wallet ID";
+        }
+        if (from.equals(to)) {
+            return "Sender and receiver are the same wallet";
+        }
+        if (request.getAmount() == null || request.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Amount must be positive";
+        }
+        if (request.getAmount().compareTo(MAX_AMOUNT) > 0) {
+            return "Amount too large";
+        }
+        Money balance = balances.get(from);
+        if (balance == null) {
+            return "Sender wallet not found";
+        }
+        if (!balances.containsKey(to)) {
+            return "Receiver wallet not found";
+        }
+        if (balance.isLessThan(Money.of(request.getAmount()))) {
+            return "INSUFFICIENT CREDIT";
+        }
+        return null;
+    }
+
+    private static Long parseWalletId(String walletId) {
+        if (walletId == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(walletId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
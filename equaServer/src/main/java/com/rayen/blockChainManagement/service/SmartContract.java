@@ -4,21 +4,27 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.rayen.blockChainManagement.entity.*;
+import com.rayen.blockChainManagement.model.BatchTransactionResponse;
 import com.rayen.blockChainManagement.model.BlockDTO;
 import com.rayen.blockChainManagement.model.fullBlockMapper;
+import com.rayen.blockChainManagement.model.TransactionMapper;
 import com.rayen.blockChainManagement.model.TransactionRequest;
 import com.rayen.blockChainManagement.model.TransactionResponse;
 import com.rayen.blockChainManagement.repository.*;
 import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.Money;
 import com.rayen.walletManagement.repository.WalletRepository;
-import jakarta.transaction.Transactional;
+import com.rayen.walletManagement.service.WalletLedgerService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.coyote.BadRequestException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 import java.util.Random;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -36,10 +42,21 @@ public class SmartContract {
     private final DinarWalletRepository dinarWalletRepository;
     private final DinarRepository dinarRepository;
     private final WalletRepository walletRepository;
+    private final IdempotencyCache idempotencyCache;
+    private final TransactionMapper transactionMapper;
+    private final SettlementService settlementService;
+    private final WalletLocks walletLocks;
+    private final WalletLedgerService walletLedgerService;
+
+    @Value("${transactions.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    // Target hashes and guesses are drawn from the same alphabet: a, b, c, d, e, f
+    static final int HASH_ALPHABET_SIZE = 6;
 
     private String guessHash() {
         Random random = new Random();
-        char letter = (char) ('a' + random.nextInt(6)); // a, b, c, d, e, f
+        char letter = (char) ('a' + random.nextInt(HASH_ALPHABET_SIZE)); // a, b, c, d, e, f
         return String.valueOf(letter);
     }
 
@@ -49,8 +66,25 @@ public class SmartContract {
                 "================================================================ VALIDATION START ================================================================");
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new BadRequestException("Transaction not found: " + transactionId));
+
+        Node winner = runValidationRace(transaction.getTransactionHash());
+
+        log.info("✅ Transaction {} validated by Node {} | reputation: {} → {}", transactionId, winner.getNodeId(),
+                winner.getReputationScore(), winner.getReputationScore() - 1);
+        log.info(
+                "================================================================ VALIDATION END ==============================================================");
+
+        rewardValidator(winner);
+        transaction.setStatus(TransactionStatus.VALID);
+        transaction.setValidatorNode(winner);
+        transactionRepository.save(transaction);
+    }
+
+    /**
+     * Every node guesses the target after waiting its reputation score in ms; the first hit wins.
+     */
+    private Node runValidationRace(String target) throws BadRequestException, InterruptedException {
         List<Node> nodes = nodeRepository.findAll();
-        String target = transaction.getTransactionHash();
 
         log.info("🎯 Target hash: '{}' | {} nodes competing", target, nodes.size());
         log.info(
@@ -98,20 +132,16 @@ public class SmartContract {
 
         log.info(
                 "---------------------------------------------------------------- RACE ENDS -------------------------------------------------------------------");
-        log.info("✅ Transaction {} validated by Node {} | reputation: {} → {}", transactionId, winner.getNodeId(),
-                winner.getReputationScore(), winner.getReputationScore() - 1);
-        log.info(
-                "================================================================ VALIDATION END ==============================================================");
+        return winner;
+    }
 
+    private void rewardValidator(Node winner) {
         if (winner.getReputationScore() == 0) {
             winner.setReputationScore(50.0);
         } else {
             winner.setReputationScore(winner.getReputationScore() - 0.5);
         }
         nodeRepository.save(winner);
-        transaction.setStatus(TransactionStatus.VALID);
-        transaction.setValidatorNode(winner);
-        transactionRepository.save(transaction);
     }
 
     private void addToBlock(Integer transactionId) {
@@ -151,45 +181,155 @@ public class SmartContract {
         nodeRepository.saveAll(nodes);
     }
 
-    @Transactional
+    // Fail-fast check before the race; deductAndCredit re-checks under lock
     public void validateSufficientBalance(String walletId, BigDecimal amount) throws BadRequestException {
         Wallet wallet = walletRepository.findById(Long.parseLong(walletId))
                 .orElseThrow(() -> new BadRequestException("Wallet not found"));
 
-        if (amount.floatValue() > wallet.getEquaAmount()) {
+        if (walletLedgerService.balance(wallet.getWalletId()).isLessThan(Money.of(amount))) {
             throw new BadRequestException("INSUFFICIENT CREDIT");
         }
     }
 
-    @Transactional
-    public void deductAndCredit(String fromWalletId, String toWalletId, BigDecimal amount) throws BadRequestException {
-        Wallet senderWallet = walletRepository.findById(Long.parseLong(fromWalletId))
-                .orElseThrow(() -> new BadRequestException("Sender wallet not found"));
+    /**
+     * Moves the amount once, under the striped locks of both wallets and their row locks, so
+     * concurrent transfers from the same wallet cannot lose updates. A non-null Idempotency-Key is
+     * recorded on the transaction together with the movement.
+     */
+    public void deductAndCredit(String fromWalletId, String toWalletId, BigDecimal amount, Integer transactionId,
+                                String idempotencyKey) throws BadRequestException {
+        long fromId = Long.parseLong(fromWalletId);
+        long toId = Long.parseLong(toWalletId);
+
+        WalletLocks.Held held = walletLocks.lock(fromId, toId);
+        try {
+            settlementService.settle(transactionId, fromId, toId, amount, idempotencyKey);
+        } finally {
+            held.close();
+        }
+    }
+
+    public TransactionResponse processTransaction(TransactionRequest request)
+            throws BadRequestException, JsonProcessingException, ExecutionException, InterruptedException {
+        return processTransaction(request, null);
+    }
 
-        Wallet receiverWallet = walletRepository.findById(Long.parseLong(toWalletId))
-                .orElseThrow(() -> new BadRequestException("Receiver wallet not found"));
+    /**
+     * Same as {@link #processTransaction(TransactionRequest)}, but a repeated Idempotency-Key returns
+     * the original response without running the race or the settlement again. The key is written
+     * with the settlement, so only a transaction whose money moved is ever replayed.
+     */
+    public TransactionResponse processTransaction(TransactionRequest request, String idempotencyKey)
+            throws BadRequestException, JsonProcessingException, ExecutionException, InterruptedException {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return runTransaction(request, null);
+        }
+        if (idempotencyKey.length() > Transaction.IDEMPOTENCY_KEY_MAX_LENGTH) {
+            throw new BadRequestException("Idempotency-Key longer than " + Transaction.IDEMPOTENCY_KEY_MAX_LENGTH + " characters");
+        }
 
-        senderWallet.setEquaAmount(senderWallet.getEquaAmount() - amount.floatValue());
-        senderWallet.setEquaAmount(senderWallet.getEquaAmount() - amount.floatValue());
+        CompletableFuture<TransactionResponse> outcome = new CompletableFuture<>();
+        CompletableFuture<TransactionResponse> existing = idempotencyCache.claim(idempotencyKey, outcome);
+        if (existing != null) {
+            TransactionResponse original;
+            try {
+                original = existing.join();
+            } catch (CompletionException | CancellationException e) {
+                // The first submission failed and released the key: this retry runs for real
+                return processTransaction(request, idempotencyKey);
+            }
+            log.info("Replaying transaction {} for Idempotency-Key {}", original.getTransactionId(), idempotencyKey);
+            return replay(original, request);
+        }
 
-        receiverWallet.setEquaAmount(receiverWallet.getEquaAmount() + amount.floatValue());
-        receiverWallet.setEquaAmount(receiverWallet.getEquaAmount() + amount.floatValue());
+        try {
+            // Keys evicted from the cache (or settled by another instance) are still in the database
+            Transaction stored = transactionRepository.findByIdempotencyKey(idempotencyKey).orElse(null);
+            TransactionResponse response = stored != null
+                    ? replay(transactionMapper.toResponse(stored), request)
+                    : runTransaction(request, idempotencyKey);
+            outcome.complete(response);
+            return response;
+        } catch (Exception e) {
+            idempotencyCache.release(idempotencyKey, outcome);
+            outcome.completeExceptionally(e);
+            throw e;
+        }
+    }
 
-        walletRepository.save(senderWallet);
-        walletRepository.save(receiverWallet);
+    private TransactionResponse replay(TransactionResponse original, TransactionRequest request) throws BadRequestException {
+        if (original.getStatus() != TransactionStatus.VALID) {
+            throw new BadRequestException("Idempotency-Key belongs to a transaction that did not settle");
+        }
+        boolean sameRequest = Objects.equals(original.getFromWallet(), request.getFromWallet())
+                && Objects.equals(original.getToWallet(), request.getToWallet())
+                && original.getAmount() != null && request.getAmount() != null
+                && original.getAmount().compareTo(request.getAmount()) == 0;
+        if (!sameRequest) {
+            throw new BadRequestException("Idempotency-Key already used for a different transaction");
+        }
+        return original;
     }
 
-    public TransactionResponse processTransaction(TransactionRequest request)
+    private TransactionResponse runTransaction(TransactionRequest request, String idempotencyKey)
             throws BadRequestException, JsonProcessingException, ExecutionException, InterruptedException {
         validateSufficientBalance(request.getFromWallet(), request.getAmount());
         TransactionResponse response = transactionService.createTransaction(request);
-        validateTransaction(response.getTransactionId());
-        deductAndCredit(request.getFromWallet(), request.getToWallet(), request.getAmount());
+        try {
+            validateTransaction(response.getTransactionId());
+            deductAndCredit(request.getFromWallet(), request.getToWallet(), request.getAmount(),
+                    response.getTransactionId(), idempotencyKey);
+        } catch (DataIntegrityViolationException e) {
+            markInvalid(response.getTransactionId());
+            if (idempotencyKey == null) {
+                throw e;
+            }
+            // A concurrent submission with the same key settled first; nothing moved for this one
+            Transaction stored = transactionRepository.findByIdempotencyKey(idempotencyKey).orElseThrow(() -> e);
+            return replay(transactionMapper.toResponse(stored), request);
+        } catch (Exception e) {
+            markInvalid(response.getTransactionId());
+            throw e;
+        }
+        response.setStatus(TransactionStatus.VALID);
         addToBlock(response.getTransactionId());
         updateNodes();
         return response;
     }
 
+    // Nothing moved for this transaction, so it must not stay PENDING or look validated
+    private void markInvalid(Integer transactionId) {
+        transactionRepository.findById(transactionId).ifPresent(transaction -> {
+            transaction.setStatus(TransactionStatus.INVALID);
+            transactionRepository.save(transaction);
+        });
+    }
+
+    /**
+     * Settles many transfers at once: one validation race for the whole set, one settlement
+     * transaction with ordered wallet locks, blocks filled to capacity, and a single node sync.
+     */
+    public BatchTransactionResponse processBatch(List<TransactionRequest> requests)
+            throws BadRequestException, JsonProcessingException, InterruptedException {
+        if (requests == null || requests.isEmpty()) {
+            throw new BadRequestException("Batch contains no transactions");
+        }
+        if (requests.size() > maxBatchSize) {
+            throw new BadRequestException("Batch too large: " + requests.size() + " transactions (max " + maxBatchSize + ")");
+        }
+
+        log.info("Processing batch of {} transactions", requests.size());
+        Node winner = runValidationRace(guessHash());
+        BatchTransactionResponse response = settlementService.settleBatch(requests, winner);
+        rewardValidator(winner);
+        if (response.getAccepted() > 0) {
+            updateNodes();
+        }
+        log.info("Batch settled: {} accepted, {} rejected, blocks {}", response.getAccepted(),
+                response.getRejected(), response.getBlockIds());
+        return response;
+    }
+
     public List<Node> getAllNodesWithBlockchain() {
         return nodeRepository.findAll();
     }
@@ -30,13 +30,21 @@ public class TransactionService {
     //26 letters × 10 digits = **260 possible combinations**
     private String generateHash() {
         Random random = new Random();
-        char letter = (char) ('a' + random.nextInt(6)); // a, b, c, d, e, f
+        char letter = (char) ('a' + random.nextInt(SmartContract.HASH_ALPHABET_SIZE)); // a, b, c, d, e, f
         return String.valueOf(letter);
     }
 
     @Transactional
     public TransactionResponse createTransaction(TransactionRequest request) {
-        Transaction transaction = Transaction.builder()
+        Transaction transaction = newTransaction(request);
+        Transaction saved = transactionRepository.save(transaction);
+        log.info("Transaction created with id: {}", saved.getTransactionId());
+        return transactionMapper.toResponse(saved);
+    }
+
+    // Pending, unsaved transaction for a request
+    Transaction newTransaction(TransactionRequest request) {
+        return Transaction.builder()
                 .fromWallet(request.getFromWallet())
                 .toWallet(request.getToWallet())
                 .amount(request.getAmount())
@@ -45,9 +53,6 @@ public class TransactionService {
                 .transactionHash(generateHash())
                 .fee(request.getAmount().multiply(BigDecimal.valueOf(0.01)))
                 .build();
-        Transaction saved = transactionRepository.save(transaction);
-        log.info("Transaction created with id: {}", saved.getTransactionId());
-        return transactionMapper.toResponse(saved);
     }
 
     // Get by ID
@@ -1,76 +1,124 @@
 package com.rayen.blockChainManagement.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.rayen.blockChainManagement.entity.Node;
+import com.rayen.blockChainManagement.model.ChainSummary;
 import com.rayen.blockChainManagement.model.ValidatorPrediction;
 import com.rayen.blockChainManagement.repository.NodeRepository;
-import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-@Slf4j
+/**
+ * Predicts the next validation race winner with {@link ValidatorRaceEngine}. The race rules are
+ * fully known, so odds are computed locally; Gemini is only asked (optionally) to word the reasoning.
+ */
 @Service
-@RequiredArgsConstructor
 public class ValidatorPredictionService {
 
+    private static final int REASONING_TOP_NODES = 5;
+
     private final GeminiService geminiService;
+    private final ChainSummaryService chainSummaryService;
     private final NodeRepository nodeRepository;
-    private final ObjectMapper objectMapper;
+    private final ValidatorRaceEngine raceEngine;
+    private final boolean llmReasoning;
 
-    public ValidatorPrediction predictNextValidator() {
-        List<Node> nodes = nodeRepository.findAll();
+    public ValidatorPredictionService(GeminiService geminiService,
+                                      ChainSummaryService chainSummaryService,
+                                      NodeRepository nodeRepository,
+                                      ValidatorRaceEngine raceEngine,
+                                      @Value("${validator.prediction.llm-reasoning:false}") boolean llmReasoning) {
+        this.geminiService = geminiService;
+        this.chainSummaryService = chainSummaryService;
+        this.nodeRepository = nodeRepository;
+        this.raceEngine = raceEngine;
+        this.llmReasoning = llmReasoning;
+    }
 
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("""
-            You are a blockchain analyst. Based on the node data below, predict which node is most likely
-            to win the next validation race. Remember: lower reputation score = shorter wait time = higher chance of winning first.
-            Return ONLY valid JSON with no markdown, no backticks.
-
-            Return exactly this structure:
-            {
-              "predictedNodeId": <nodeId>,
-              "location": "<location>",
-              "nodeType": "<type>",
-              "reputation": <reputationScore>,
-              "winProbability": <0-100>,
-              "reasoning": "<2 sentences explaining why>",
-              "allNodeOdds": [
-                { "nodeId": <id>, "location": "<location>", "winChance": <0-100>, "reason": "<one sentence>" },
-                ...
-              ]
-            }
-
-            === NODES ===
-            """);
-
-        nodes.forEach(node -> prompt.append(String.format(
-                "Node %d | type: %s | location: %s | reputation: %.1f | status: %s | total validations: %d\n",
-                node.getNodeId(), node.getNodeType(), node.getLocation(),
-                node.getReputationScore(), node.getStatus(),
-                node.getTransactions() != null ? node.getTransactions().size() : 0
-        )));
-
-        prompt.append("""
-
-            Rules of the system:
-            - Each node waits reputationScore milliseconds before guessing
-            - Lower reputation = faster guess = higher win chance
-            - Hash is random (a-f), so luck matters but speed is the main factor
-            - Winner gets -1 reputation (becomes faster next time = privilege)
-            """);
-
-        String raw = geminiService.analyzeBlockchain(prompt.toString());
-
-        try {
-            String clean = raw.replaceAll("```json", "").replaceAll("```", "").trim();
-            return objectMapper.readValue(clean, ValidatorPrediction.class);
-        } catch (Exception e) {
-            log.error("Failed to parse prediction JSON: {}", raw, e);
-            ValidatorPrediction fallback = new ValidatorPrediction();
-            fallback.setReasoning("Failed to parse Gemini response.");
-            return fallback;
+    public CompletableFuture<ValidatorPrediction> predictNextValidator() {
+        List<Node> nodes = nodeRepository.findAll().stream()
+                .filter(node -> node.getReputationScore() != null)
+                .toList();
+        ValidatorPrediction prediction = predict(nodes);
+
+        if (!llmReasoning || prediction.getPredictedNodeId() == null) {
+            return CompletableFuture.completedFuture(prediction);
+        }
+
+        ChainSummary summary = chainSummaryService.getSummary();
+        return geminiService.analyzeBlockchainAsync(reasoningPrompt(prediction), summary.getHeight())
+                .thenApply(text -> {
+                    if (!GeminiService.ANALYZE_FALLBACK.equals(text) && !GeminiService.NOT_CONFIGURED.equals(text)) {
+                        prediction.setReasoning(text.trim());
+                    }
+                    return prediction;
+                });
+    }
+
+    ValidatorPrediction predict(List<Node> nodes) {
+        ValidatorPrediction prediction = new ValidatorPrediction();
+        if (nodes.isEmpty()) {
+            prediction.setReasoning("No nodes are registered, so there is no race to predict.");
+            prediction.setAllNodeOdds(List.of());
+            return prediction;
+        }
+
+        long[] waits = new long[nodes.size()];
+        for (int i = 0; i < waits.length; i++) {
+            waits[i] = nodes.get(i).getReputationScore().longValue();
         }
+        double[] odds = raceEngine.winProbabilities(waits);
+
+        Integer[] order = new Integer[nodes.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> odds[i]).reversed());
+
+        List<ValidatorPrediction.NodeOdds> allNodeOdds = new ArrayList<>(order.length);
+        for (int i : order) {
+            Node node = nodes.get(i);
+            allNodeOdds.add(new ValidatorPrediction.NodeOdds(
+                    node.getNodeId(), node.getLocation(), percent(odds[i]),
+                    "Guesses every " + waits[i] + "ms with a 1 in " + SmartContract.HASH_ALPHABET_SIZE + " chance per guess."));
+        }
+
+        int best = order[0];
+        Node favourite = nodes.get(best);
+        prediction.setPredictedNodeId(favourite.getNodeId());
+        prediction.setLocation(favourite.getLocation());
+        prediction.setNodeType(favourite.getNodeType());
+        prediction.setReputation(favourite.getReputationScore());
+        prediction.setWinProbability(percent(odds[best]));
+        prediction.setAllNodeOdds(allNodeOdds);
+        prediction.setReasoning("Node " + favourite.getNodeId() + " waits " + waits[best]
+                + "ms between guesses, racing against " + (nodes.size() - 1) + " other nodes. "
+                + "Each guess hits the target with probability 1/" + SmartContract.HASH_ALPHABET_SIZE
+                + ", which gives it a " + percent(odds[best]) + "% chance to validate first.");
+        return prediction;
+    }
+
+    private String reasoningPrompt(ValidatorPrediction prediction) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("You are a blockchain analyst. In exactly 2 sentences of plain text (no JSON, no markdown), ");
+        prompt.append("explain why node ").append(prediction.getPredictedNodeId());
+        prompt.append(" is the favourite to win the next validation race.\n\n");
+        prompt.append("Rules: each node waits reputationScore milliseconds, then guesses one letter a-f; ");
+        prompt.append("the first correct guess wins.\n\n");
+        prompt.append("=== COMPUTED ODDS ===\n");
+        prediction.getAllNodeOdds().stream().limit(REASONING_TOP_NODES).forEach(odds -> prompt
+                .append("Node ").append(odds.getNodeId())
+                .append(" | location: ").append(odds.getLocation())
+                .append(" | win chance: ").append(odds.getWinChance()).append("%\n"));
+        return prompt.toString();
+    }
+
+    private static int percent(double probability) {
+        return (int) Math.round(probability * 100);
     }
-}
\ No newline at end of file
+}
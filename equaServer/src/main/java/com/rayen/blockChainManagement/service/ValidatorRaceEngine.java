@@ -0,0 +1,111 @@
+package com.rayen.blockChainManagement.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Exact win probabilities for the validation race run by {@link SmartContract}.
+ *
+ * Every node sleeps {@code reputationScore} ms (truncated) and then guesses one letter of the hash
+ * alphabet, so node i guesses at w, 2w, 3w... each with a 1/6 chance of hitting the target.
+ * Walking the merged guess timeline, at a time t where m nodes guess together:
+ * P(nobody hit before t) * (1 - (5/6)^m) is shared equally between those m nodes
+ * (simultaneous hits are settled by thread scheduling).
+ *
+ * Nodes with the same wait are interchangeable, so the walk runs over distinct waits only and
+ * stops once the remaining mass is negligible — about 150 steps whatever the node count.
+ */
+@Component
+public class ValidatorRaceEngine {
+
+    static final double MISS = 1.0 - 1.0 / SmartContract.HASH_ALPHABET_SIZE;
+    private static final double EPSILON = 1e-12;
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * @param waitsMs per-node wait in ms, i.e. {@code reputationScore.longValue()}
+     * @return per-node win probability, aligned with {@code waitsMs}, summing to 1
+     */
+    public double[] winProbabilities(long[] waitsMs) {
+        int n = waitsMs.length;
+        if (n == 0) {
+            return new double[0];
+        }
+
+        Map<Long, Long> nodesPerWait = countByWait(waitsMs);
+        // Thread.sleep rejects negative waits: those nodes crash out of the race
+        nodesPerWait.keySet().removeIf(wait -> wait < 0);
+        if (nodesPerWait.isEmpty()) {
+            return new double[n];
+        }
+        Map<Long, Double> perNode = new HashMap<>(nodesPerWait.size() * 2);
+
+        Long zeroWaitNodes = nodesPerWait.get(0L);
+        if (zeroWaitNodes != null) {
+            // Nodes that never sleep get through thousands of rounds before anyone else's first guess
+            perNode.put(0L, 1.0 / zeroWaitNodes);
+        } else {
+            walkTimeline(nodesPerWait, perNode);
+        }
+
+        double[] result = new double[n];
+        IntStream indexes = IntStream.range(0, n);
+        if (n >= PARALLEL_THRESHOLD) {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i -> result[i] = perNode.getOrDefault(waitsMs[i], 0.0));
+        return result;
+    }
+
+    private void walkTimeline(Map<Long, Long> nodesPerWait, Map<Long, Double> perNode) {
+        // Entries are {next guess time, wait}
+        PriorityQueue<long[]> timeline = new PriorityQueue<>(nodesPerWait.size(), (a, b) -> Long.compare(a[0], b[0]));
+        nodesPerWait.keySet().forEach(wait -> timeline.add(new long[]{wait, wait}));
+
+        long[] guessing = new long[nodesPerWait.size()];
+        double survival = 1.0;
+        while (survival > EPSILON) {
+            long now = timeline.peek()[0];
+            int groups = 0;
+            long guessers = 0;
+            while (!timeline.isEmpty() && timeline.peek()[0] == now) {
+                long[] entry = timeline.poll();
+                guessing[groups++] = entry[1];
+                guessers += nodesPerWait.get(entry[1]);
+                entry[0] += entry[1];
+                timeline.add(entry);
+            }
+
+            double nobodyHits = Math.pow(MISS, guessers);
+            double share = survival * (1.0 - nobodyHits) / guessers;
+            for (int g = 0; g < groups; g++) {
+                perNode.merge(guessing[g], share, Double::sum);
+            }
+            survival *= nobodyHits;
+        }
+
+        double total = 1.0 - survival;
+        perNode.replaceAll((wait, p) -> p / total);
+    }
+
+    private static Map<Long, Long> countByWait(long[] waitsMs) {
+        if (waitsMs.length < PARALLEL_THRESHOLD) {
+            Map<Long, Long> counts = new HashMap<>();
+            for (long wait : waitsMs) {
+                counts.merge(wait, 1L, Long::sum);
+            }
+            return counts;
+        }
+        ConcurrentMap<Long, Long> counts = Arrays.stream(waitsMs).parallel().boxed()
+                .collect(Collectors.groupingByConcurrent(Function.identity(), Collectors.counting()));
+        return counts;
+    }
+}
@@ -0,0 +1,70 @@
+package com.rayen.blockChainManagement.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks keyed by wallet ID. Transfers touching the same wallet queue up here
+ * instead of piling onto the same database rows, while transfers between unrelated wallets only
+ * collide when their IDs share a stripe. Stripes are always taken in ascending index order, so
+ * two transfers locking the same pair in opposite directions cannot deadlock.
+ */
+@Component
+public class WalletLocks {
+
+    private final ReentrantLock[] stripes;
+
+    public WalletLocks(@Value("${settlement.lock-stripes:256}") int stripeCount) {
+        this.stripes = new ReentrantLock[Math.max(stripeCount, 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Blocks until every wallet is locked. Release with try-with-resources.
+     */
+    public Held lock(long... walletIds) {
+        int[] indexes = new int[walletIds.length];
+        for (int i = 0; i < walletIds.length; i++) {
+            indexes[i] = stripeOf(walletIds[i]);
+        }
+        int[] ordered = Arrays.stream(indexes).sorted().distinct().toArray();
+
+        int acquired = 0;
+        try {
+            for (int index : ordered) {
+                stripes[index].lock();
+                acquired++;
+            }
+        } finally {
+            if (acquired < ordered.length) {
+                unlock(ordered, acquired);
+            }
+        }
+        return () -> unlock(ordered, ordered.length);
+    }
+
+    private void unlock(int[] ordered, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[ordered[i]].unlock();
+        }
+    }
+
+    int stripeOf(long walletId) {
+        // Spread sequential IDs so neighbouring wallets land on different stripes
+        long mixed = walletId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(mixed ^ (mixed >>> 32), (long) stripes.length);
+    }
+
+    /**
+     * Locks held by one transfer.
+     */
+    public interface Held extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
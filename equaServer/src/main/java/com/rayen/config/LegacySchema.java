@@ -0,0 +1,35 @@
+package com.rayen.config;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+
+/**
+ * Looks up legacy tables and columns in the connection's schema, so a {@link StartupMigration}
+ * can tell "nothing to migrate" apart from a real failure instead of catching the error.
+ */
+public final class LegacySchema {
+
+    private LegacySchema() {
+    }
+
+    public static boolean hasTable(JdbcTemplate jdbcTemplate, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet tables = metaData.getTables(connection.getCatalog(), connection.getSchema(), table, null)) {
+                return tables.next();
+            }
+        }));
+    }
+
+    public static boolean hasColumn(JdbcTemplate jdbcTemplate, String table, String column) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), connection.getSchema(), table, column)) {
+                return columns.next();
+            }
+        }));
+    }
+}
@@ -0,0 +1,11 @@
+package com.rayen.config;
+
+/**
+ * A data migration that has to be complete before the application serves requests, typically a
+ * copy from a legacy column or table into the one ddl-auto just added. Run by
+ * {@link StartupMigrations} in {@code @Order}; an exception aborts startup.
+ */
+public interface StartupMigration {
+
+    void migrate();
+}
@@ -0,0 +1,50 @@
+package com.rayen.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs every {@link StartupMigration} once the schema is updated and before the web server starts
+ * listening (the server is itself a lifecycle bean started near {@code Integer.MAX_VALUE}), and
+ * before scheduled jobs start. ApplicationRunners would run only after the server is accepting
+ * requests. A failing migration fails the context refresh, so the instance never comes up half
+ * migrated.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StartupMigrations implements SmartLifecycle {
+
+    public static final int PHASE = 0;
+
+    private final ObjectProvider<StartupMigration> migrations;
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        migrations.orderedStream().forEach(migration -> {
+            long started = System.currentTimeMillis();
+            migration.migrate();
+            log.info("[Startup] {} done in {} ms", migration.getClass().getSimpleName(), System.currentTimeMillis() - started);
+        });
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
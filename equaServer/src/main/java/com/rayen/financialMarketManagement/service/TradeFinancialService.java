@@ -4,6 +4,9 @@ import com.rayen.financialMarketManagement.dto.*;
 import com.rayen.financialMarketManagement.entity.*;
 import com.rayen.financialMarketManagement.repository.*;
 import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
+import com.rayen.walletManagement.service.WalletLedgerService;
 import com.rayen.walletManagement.service.WalletService;
 import lombok.RequiredArgsConstructor;
 import org.apache.coyote.BadRequestException;
@@ -28,6 +31,7 @@ public class TradeFinancialService {
     private final HedgeTransactionFinancialRepository   txRepo;
     private final AssetFinancialService                 assetService;
     private final WalletService walletService;
+    private final WalletLedgerService walletLedgerService;
 
     @Transactional
     public TradeResponseFinancial buy(TradeRequestFinancial req, Long userId) throws BadRequestException {
@@ -42,16 +46,12 @@ public class TradeFinancialService {
         // DONE: deduct `spendEqua` EQUA from wallet → walletService.debit(userId, spendEqua)
         Wallet wallet = walletService.getMyWallet();
 
-        BigDecimal walletAmount = BigDecimal.valueOf(wallet.getEquaAmount());
+        Money spend = Money.of(req.amountEqua);
 
-        if (walletAmount.compareTo(req.amountEqua) < 0) {
+        if (walletLedgerService.lockForDebit(wallet.getWalletId()).isLessThan(spend)) {
             throw new BadRequestException("CANT_INVEST_BROKIE");
         }
 
-        wallet.setEquaAmount(
-                walletAmount.subtract(req.amountEqua).floatValue()
-        );
-
         BigDecimal impact   = subtotal.divide(marketCap(asset), 6, RoundingMode.HALF_UP).multiply(PRICE_SENSITIVITY);
         BigDecimal newPrice = price.multiply(BigDecimal.ONE.add(impact)).setScale(6, RoundingMode.HALF_UP);
         asset.setCurrentPriceEqua(newPrice);
@@ -78,6 +78,7 @@ public class TradeFinancialService {
                 .quantity(qty).pricePerUnitEqua(price)
                 .totalEqua(spendEqua).feesEqua(fees).build();
         txRepo.save(tx);
+        walletLedgerService.post(wallet, spend.negate(), PostingType.TRADE, "trade:" + tx.getId());
         return toTradeResponse(tx);
     }
 
@@ -102,8 +103,6 @@ public class TradeFinancialService {
 
         // DONE: credit `received` EQUA to wallet → walletService.credit(userId, received)
         Wallet wallet = walletService.getMyWallet();
-        wallet.setEquaAmount(wallet.getEquaAmount() + received.floatValue());
-
 
         BigDecimal impact   = subtotal.divide(marketCap(asset), 6, RoundingMode.HALF_UP).multiply(PRICE_SENSITIVITY);
         BigDecimal newPrice = price.multiply(BigDecimal.ONE.subtract(impact)).setScale(6, RoundingMode.HALF_UP);
@@ -121,6 +120,7 @@ public class TradeFinancialService {
                 .quantity(qty).pricePerUnitEqua(price)
                 .totalEqua(received).feesEqua(fees).build();
         txRepo.save(tx);
+        walletLedgerService.post(wallet, Money.of(received), PostingType.TRADE, "trade:" + tx.getId());
         return toTradeResponse(tx);
     }
 
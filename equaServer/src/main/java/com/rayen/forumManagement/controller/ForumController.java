@@ -46,7 +46,7 @@ public class ForumController {
     public ResponseEntity<ForumTopicDTO> createTopic(
             @RequestBody CreateForumTopicRequest request,
             Authentication authentication) {
-        String email = authentication != null ? (String) authentication.getPrincipal() : null;
+        String email = authentication != null ? authentication.getName() : null;
         ForumTopicDTO created = forumService.createTopic(request, email);
         return ResponseEntity.status(HttpStatus.CREATED).body(created);
     }
@@ -70,7 +70,7 @@ public class ForumController {
             @PathVariable Long id,
             @RequestBody CreateForumMessageRequest request,
             Authentication authentication) {
-        String email = authentication != null ? (String) authentication.getPrincipal() : null;
+        String email = authentication != null ? authentication.getName() : null;
         ForumMessageDTO message = forumService.addMessage(id, request, email);
         return ResponseEntity.status(HttpStatus.CREATED).body(message);
     }
@@ -104,7 +104,7 @@ public class ForumController {
             @PathVariable Long id,
             @RequestBody CreateForumReportRequest request,
             Authentication authentication) {
-        String email = authentication != null ? (String) authentication.getPrincipal() : null;
+        String email = authentication != null ? authentication.getName() : null;
         ForumReportDTO report = forumService.reportTopic(id, request, email);
         return ResponseEntity.status(HttpStatus.CREATED).body(report);
     }
@@ -115,7 +115,7 @@ public class ForumController {
             @PathVariable Long id,
             @RequestBody CreateForumReportRequest request,
             Authentication authentication) {
-        String email = authentication != null ? (String) authentication.getPrincipal() : null;
+        String email = authentication != null ? authentication.getName() : null;
         ForumReportDTO report = forumService.reportMessage(id, request, email);
         return ResponseEntity.status(HttpStatus.CREATED).body(report);
     }
@@ -144,7 +144,7 @@ public class ForumController {
             @PathVariable Long id,
             @RequestBody ModerateForumReportRequest request,
             Authentication authentication) {
-        String email = authentication != null ? (String) authentication.getPrincipal() : null;
+        String email = authentication != null ? authentication.getName() : null;
         return forumService.moderateReport(id, request, email);
     }
 
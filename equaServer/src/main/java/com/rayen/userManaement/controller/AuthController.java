@@ -7,15 +7,19 @@ import com.rayen.userManaement.model.ResetPasswordRequestDTO;
 import com.rayen.userManaement.model.SigninRequestDTO;
 import com.rayen.userManaement.model.SignupRequestDTO;
 import com.rayen.userManaement.service.AuthService;
+import com.rayen.userManaement.service.LoginThrottle;
+import com.rayen.userManaement.service.PasswordHashingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -28,6 +32,7 @@ import java.util.Map;
 public class AuthController {
 
     private final AuthService authService;
+    private final PasswordHashingService passwordHashingService;
 
 //doner
     @PostMapping("/signup")
@@ -39,8 +44,8 @@ public class AuthController {
 //done
     @PostMapping("/signin")
     @Operation(summary = "Connexion", description = "Se connecter avec email et mot de passe. Retourne un token JWT. Si reCAPTCHA est activé, envoyer recaptchaToken.")
-    public ResponseEntity<AuthResponseDTO> signin(@RequestBody SigninRequestDTO request) {
-        AuthResponseDTO response = authService.signin(request);
+    public ResponseEntity<AuthResponseDTO> signin(@RequestBody SigninRequestDTO request, HttpServletRequest httpRequest) {
+        AuthResponseDTO response = authService.signin(request, httpRequest.getRemoteAddr());
         return ResponseEntity.ok(response);
     }
 
@@ -72,7 +77,7 @@ public class AuthController {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Non authentifié."));
         }
-        String email = (String) authentication.getPrincipal();
+        String email = authentication.getName();
         authService.changePassword(email, request.getCurrentPassword(), request.getNewPassword());
         Map<String, String> body = new HashMap<>();
         body.put("message", "Mot de passe modifié. Vous pouvez continuer à utiliser votre session.");
@@ -87,7 +92,7 @@ public class AuthController {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Non authentifié."));
         }
-        String email = (String) authentication.getPrincipal();
+        String email = authentication.getName();
         authService.disableMyAccount(email);
         Map<String, String> body = new HashMap<>();
         body.put("message", "Compte désactivé. Vous ne pourrez plus vous connecter avec ce compte.");
@@ -112,6 +117,34 @@ public class AuthController {
         return ResponseEntity.ok(body);
     }
 
+    @GetMapping("/hashing-stats")
+    @Operation(summary = "Statistiques de hachage des mots de passe",
+            description = "Taches BCrypt terminees, rejetees (pool sature) ou expirees, latence moyenne et max, attente en file.")
+    public ResponseEntity<Map<String, Long>> hashingStats() {
+        return ResponseEntity.ok(passwordHashingService.getStats());
+    }
+
+    @ExceptionHandler(PasswordHashingService.BusyException.class)
+    public ResponseEntity<Map<String, Object>> handleHashingBusy(PasswordHashingService.BusyException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now().toString());
+        error.put("status", 429);
+        error.put("error", "Too Many Requests");
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    @ExceptionHandler(LoginThrottle.ThrottledException.class)
+    public ResponseEntity<Map<String, Object>> handleThrottled(LoginThrottle.ThrottledException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now().toString());
+        error.put("status", 429);
+        error.put("error", "Too Many Requests");
+        error.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds())).body(error);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<Map<String, Object>> handleIllegalArgument(IllegalArgumentException ex) {
         Map<String, Object> error = new HashMap<>();
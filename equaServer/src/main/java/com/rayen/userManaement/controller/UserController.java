@@ -114,7 +114,7 @@ public class UserController {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Non authentifie."));
         }
-        String actorEmail = (String) authentication.getPrincipal();
+        String actorEmail = authentication.getName();
         String riskLevel = body.get("riskLevel");
         return ResponseEntity.ok(Map.of("riskLevel", userService.updateObserverRiskLevel(id, riskLevel, actorEmail)));
     }
@@ -131,7 +131,7 @@ public class UserController {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        String actorEmail = (String) authentication.getPrincipal();
+        String actorEmail = authentication.getName();
         return ResponseEntity.ok(userService.getMyKycProfile(actorEmail));
     }
 
@@ -143,7 +143,7 @@ public class UserController {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        String actorEmail = (String) authentication.getPrincipal();
+        String actorEmail = authentication.getName();
         return ResponseEntity.status(HttpStatus.CREATED).body(userService.createMyKycProfile(request, actorEmail));
     }
 
@@ -155,7 +155,7 @@ public class UserController {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
-        String actorEmail = (String) authentication.getPrincipal();
+        String actorEmail = authentication.getName();
         return ResponseEntity.ok(userService.updateMyKycProfile(request, actorEmail));
     }
 
@@ -168,7 +168,7 @@ public class UserController {
         if (authentication == null || authentication.getPrincipal() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("message", "Non authentifie."));
         }
-        String actorEmail = (String) authentication.getPrincipal();
+        String actorEmail = authentication.getName();
         String kycStatus = body.get("kycStatus");
         String note = body.get("note");
         return ResponseEntity.ok(Map.of("kycStatus", userService.updateObserverKycStatus(id, kycStatus, actorEmail, note)));
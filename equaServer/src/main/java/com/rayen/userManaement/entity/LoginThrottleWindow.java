@@ -0,0 +1,40 @@
+package com.rayen.userManaement.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Failed sign-ins per throttle key (email or client IP) and fixed window, shared between instances
+ * when app.auth.throttle.shared is on. Written and read in batches by LoginThrottle over JDBC only.
+ */
+@Entity
+@Table(name = "login_throttle_windows")
+@IdClass(LoginThrottleWindow.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoginThrottleWindow {
+
+    @Id
+    @Column(name = "throttle_key", length = 320)
+    private String throttleKey;
+
+    // Epoch time divided by the window length
+    @Id
+    @Column(name = "window_index")
+    private Long windowIndex;
+
+    @Column(name = "failures", nullable = false)
+    private Long failures;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String throttleKey;
+        private Long windowIndex;
+    }
+}
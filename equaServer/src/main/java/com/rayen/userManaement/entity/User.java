@@ -40,10 +40,6 @@ public abstract class User {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
-    /** Nombre de tentatives de connexion échouées. Réinitialisé à 0 après succès. Nullable pour migration (lignes existantes). */
-    @Column(name = "failed_login_attempts")
-    private Integer failedLoginAttempts = 0;
-
     /** Compte verrouillé jusqu'à cette date (après trop de tentatives). */
     @Column(name = "locked_until")
     private LocalDateTime lockedUntil;
@@ -2,8 +2,13 @@ package com.rayen.userManaement.repository;
 
 import com.rayen.userManaement.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -18,4 +23,41 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByProviderIdAndAuthProvider(String providerId, String authProvider);
 
     Optional<User> findByPasswordResetTokenAndPasswordResetUsedAtIsNull(String token);
+
+    // Sign-in writes: each its own short transaction touching only its columns, so the entity read
+    // before hashing never overwrites a change made meanwhile (e.g. a password reset)
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.lockedUntil = :until, u.updatedAt = :now WHERE u.id = :id")
+    int lockUntil(@Param("id") Long id, @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.lastLoginAt = :now, u.lockedUntil = NULL, u.updatedAt = :now WHERE u.id = :id")
+    int recordLogin(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Only replaces the hash that was verified; 0 if the password changed in between
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash, u.updatedAt = :now WHERE u.id = :id AND u.password = :oldHash")
+    int replacePassword(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash,
+                        @Param("now") LocalDateTime now);
+
+    // Password change: replaces the verified hash and lifts any lock; 0 if the password changed in between
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash, u.lockedUntil = NULL, u.requiresPasswordReset = false, "
+            + "u.updatedAt = :now WHERE u.id = :id AND u.password = :oldHash")
+    int changePassword(@Param("id") Long id, @Param("oldHash") String oldHash, @Param("newHash") String newHash,
+                       @Param("now") LocalDateTime now);
+
+    // Password reset: consumes the token with the new hash; 0 if the token was used or expired in between
+    @Transactional
+    @Modifying
+    @Query("UPDATE User u SET u.password = :newHash, u.passwordResetToken = NULL, u.passwordResetTokenExpiry = NULL, "
+            + "u.passwordResetUsedAt = :now, u.lockedUntil = NULL, u.requiresPasswordReset = false, u.updatedAt = :now "
+            + "WHERE u.id = :id AND u.passwordResetToken = :token AND u.passwordResetUsedAt IS NULL "
+            + "AND u.passwordResetTokenExpiry >= :now")
+    int resetPassword(@Param("id") Long id, @Param("token") String token, @Param("newHash") String newHash,
+                      @Param("now") LocalDateTime now);
 }
@@ -0,0 +1,18 @@
+package com.rayen.userManaement.security;
+
+import java.security.Principal;
+
+/**
+ * Principal published by {@link JwtAuthFilter}: the identity claims of a verified token, so the
+ * current user is known without a lookup. {@link #getName()} is the email, which is what the plain
+ * String principal used to hold, so {@code Authentication.getName()} keeps returning it.
+ *
+ * @param userId NULL for tokens issued before the claim existed
+ */
+public record AuthenticatedUser(Long userId, String email) implements Principal {
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
@@ -2,62 +2,179 @@ package com.rayen.userManaement.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Issues and verifies tokens. The key and parser are built once; tokens that verified recently are
+ * remembered by SHA-256 digest (never the token itself) in an LRU of {@code app.jwt.verified-cache-size}
+ * entries until they expire, so a client sending the same token on every request pays the HMAC and
+ * JSON parsing once. Only successful verifications are cached.
+ * <p>
+ * The LRU is split into stripes by digest, each with its own lock and its share of the capacity, so
+ * concurrent requests only contend when their tokens land in the same stripe. Small caches keep a
+ * single stripe and therefore exact LRU order.
+ */
 @Component
 public class JwtUtils {
 
-    @Value("${app.jwt.secret:equa-default-secret-key-min-256-bits-for-hs256-please-change-in-production}")
-    private String secretKey;
+    static final String USER_ID_CLAIM = "uid";
 
-    @Value("${app.jwt.expiration-ms:86400000}")
-    private long expirationMs;
+    private static final int MAX_STRIPES = 16;
+    private static final int MIN_ENTRIES_PER_STRIPE = 64;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long expirationMs;
+    private final Clock clock;
+    // null when the cache is disabled
+    private final Stripe[] verified;
+
+    @Autowired
+    public JwtUtils(@Value("${app.jwt.secret:equa-default-secret-key-min-256-bits-for-hs256-please-change-in-production}") String secretKey,
+                    @Value("${app.jwt.expiration-ms:86400000}") long expirationMs,
+                    @Value("${app.jwt.verified-cache-size:10000}") int verifiedCacheSize) {
+        this(secretKey, expirationMs, verifiedCacheSize, Clock.systemUTC());
     }
 
-    public String generateToken(String email) {
-        Date now = new Date();
+    JwtUtils(String secretKey, long expirationMs, int verifiedCacheSize, Clock clock) {
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        this.clock = clock;
+        this.parser = Jwts.parser().verifyWith(signingKey).clock(() -> Date.from(clock.instant())).build();
+        this.expirationMs = expirationMs;
+        if (verifiedCacheSize <= 0) {
+            this.verified = null;
+        } else {
+            int stripes = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, verifiedCacheSize / MIN_ENTRIES_PER_STRIPE)));
+            this.verified = new Stripe[stripes];
+            for (int i = 0; i < stripes; i++) {
+                // The first stripes take the remainder so the capacities add up to verifiedCacheSize
+                verified[i] = new Stripe(verifiedCacheSize / stripes + (i < verifiedCacheSize % stripes ? 1 : 0));
+            }
+        }
+    }
+
+    /**
+     * Subject is the email; the user ID travels as a claim so requests can be attributed without a lookup.
+     */
+    public String generateToken(String email, Long userId) {
+        Date now = Date.from(clock.instant());
         Date expiry = new Date(now.getTime() + expirationMs);
         return Jwts.builder()
                 .subject(email)
+                .claim(USER_ID_CLAIM, userId)
                 .issuedAt(now)
                 .expiration(expiry)
-                .signWith(getSigningKey(), Jwts.SIG.HS512)
+                .signWith(signingKey, Jwts.SIG.HS512)
                 .compact();
     }
 
+    /**
+     * The identity claims of a valid token, or null if the token does not verify or has expired.
+     */
+    public AuthenticatedUser getUserFromToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        if (verified == null) {
+            VerifiedToken parsed = parse(token);
+            return parsed == null ? null : parsed.user();
+        }
+
+        ByteBuffer digest = digest(token);
+        Stripe stripe = verified[digest.getInt(0) & (verified.length - 1)];
+        long now = clock.millis();
+        synchronized (stripe) {
+            VerifiedToken cached = stripe.get(digest);
+            if (cached != null) {
+                if (cached.expiresAt() > now) {
+                    return cached.user();
+                }
+                stripe.remove(digest);
+            }
+        }
+        VerifiedToken parsed = parse(token);
+        if (parsed == null) {
+            return null;
+        }
+        synchronized (stripe) {
+            stripe.put(digest, parsed);
+        }
+        return parsed.user();
+    }
+
     public String getEmailFromToken(String token) {
+        AuthenticatedUser user = getUserFromToken(token);
+        return user == null ? null : user.email();
+    }
+
+    public boolean validateToken(String token) {
+        return getUserFromToken(token) != null;
+    }
+
+    int verifiedCacheSize() {
+        if (verified == null) {
+            return 0;
+        }
+        int size = 0;
+        for (Stripe stripe : verified) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private VerifiedToken parse(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            return claims.getSubject();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
+            if (claims.getSubject() == null) {
+                return null;
+            }
+            long expiresAt = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+            return new VerifiedToken(new AuthenticatedUser(claims.get(USER_ID_CLAIM, Long.class), claims.getSubject()), expiresAt);
         } catch (JwtException | IllegalArgumentException e) {
             return null;
         }
     }
 
-    public boolean validateToken(String token) {
+    private static ByteBuffer digest(String token) {
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record VerifiedToken(AuthenticatedUser user, long expiresAt) {
+    }
+
+    // Access-ordered, evicting its least recently used entry beyond its capacity; guarded by its own monitor
+    private static final class Stripe extends LinkedHashMap<ByteBuffer, VerifiedToken> {
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+            return size() > capacity;
         }
     }
 }
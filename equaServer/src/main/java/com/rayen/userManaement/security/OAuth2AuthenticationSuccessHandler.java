@@ -14,6 +14,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
+import com.rayen.userManaement.entity.User;
 import com.rayen.userManaement.repository.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -49,7 +50,7 @@ public class OAuth2AuthenticationSuccessHandler extends SimpleUrlAuthenticationS
                 redirect(request, response, "error=account_disabled");
                 return;
             }
-            String token = jwtUtils.generateToken(email);
+            String token = jwtUtils.generateToken(email, userOpt.map(User::getId).orElse(null));
             redirect(request, response, "token=" + URLEncoder.encode(token, StandardCharsets.UTF_8));
         } catch (Exception e) {
             log.error("OAuth2 success handler error (email={})", email, e);
@@ -13,7 +13,6 @@ import com.rayen.userManaement.repository.UserRepository;
 import com.rayen.userManaement.security.JwtUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -39,10 +38,11 @@ public class AuthService {
     private static final Pattern TOKEN_PATTERN = Pattern.compile("[A-Za-z0-9_-]{20,}");
     private final UserRepository userRepository;
     private final ObserverUserRepository observerUserRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtUtils jwtUtils;
     private final EmailService emailService;
     private final RecaptchaService recaptchaService;
+    private final LoginThrottle loginThrottle;
 
     @Value("${app.password-reset.base-url:http://localhost:4200/user/reset-password}")
     private String passwordResetBaseUrl;
@@ -53,7 +53,10 @@ public class AuthService {
     @Value("${app.auth.lockout-minutes:1}")
     private int lockoutMinutes;
 
-    @Transactional
+    /**
+     * Inscription. Pas de transaction autour du hachage BCrypt : la vérification de l'email puis
+     * l'insertion ont chacune leur propre transaction courte.
+     */
     public AuthResponseDTO signup(SignupRequestDTO request) {
         recaptchaService.verify(request.getRecaptchaToken());
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -62,7 +65,7 @@ public class AuthService {
         if (request.getPassword() == null || request.getPassword().length() < MIN_PASSWORD_LENGTH) {
             throw new IllegalArgumentException("Le mot de passe doit contenir au moins " + MIN_PASSWORD_LENGTH + " caractères.");
         }
-        String hashedPassword = passwordEncoder.encode(request.getPassword());
+        String hashedPassword = passwordHashingService.encode(request.getPassword());
 
         User user;
         if ("OBSERVER".equalsIgnoreCase(request.getUserType())) {
@@ -87,21 +90,29 @@ public class AuthService {
             user = userRepository.save(assistant);
         }
 
-        String token = jwtUtils.generateToken(user.getEmail());
+        String token = jwtUtils.generateToken(user.getEmail(), user.getId());
         String userType = user instanceof ObserverUser ? "OBSERVER" : "ASSISTANT";
         return new AuthResponseDTO(token, user.getId(), user.getUsername(), user.getEmail(), userType);
     }
 
     /**
      * Connexion avec limite de tentatives puis verrouillage temporaire ({@code lockedUntil}) sans envoi d'email.
+     * Les échecs sont comptés en mémoire par email et par IP ({@link LoginThrottle}) : la base n'est écrite
+     * que lorsque le verrouillage se déclenche.
      * Les emails de réinitialisation restent réservés à {@link #requestPasswordReset(String)}.
+     * Pas de transaction autour du hachage BCrypt : la lecture puis chaque écriture ({@link UserRepository#lockUntil},
+     * {@link UserRepository#recordLogin}) ont leur propre transaction courte, aucune connexion n'est tenue pendant le hachage.
      */
-    @Transactional(noRollbackFor = IllegalArgumentException.class)
-    public AuthResponseDTO signin(SigninRequestDTO request) {
+    public AuthResponseDTO signin(SigninRequestDTO request, String clientIp) {
         //Rayen commented this , sudden login Bad request
         //recaptchaService.verify(request.getRecaptchaToken());
-        User user = userRepository.findByEmail(request.getEmail())
-                .orElseThrow(() -> new IllegalArgumentException("Invalid email or password"));
+        loginThrottle.checkIp(clientIp, System.currentTimeMillis());
+        Optional<User> found = userRepository.findByEmail(request.getEmail());
+        if (found.isEmpty()) {
+            loginThrottle.recordFailure(request.getEmail(), clientIp, System.currentTimeMillis());
+            throw new IllegalArgumentException("Invalid email or password");
+        }
+        User user = found.get();
 
         if (Boolean.FALSE.equals(user.getEnabled())) {
             throw new IllegalArgumentException("Compte désactivé. Contactez l'administrateur.");
@@ -123,35 +134,35 @@ public class AuthService {
             throw new IllegalArgumentException(
                     "Compte temporairement verrouille apres trop de tentatives. Reessayez apres " + user.getLockedUntil() + ".");
         }
-        if (user.getLockedUntil() != null) {
-            user.setLockedUntil(null);
-            user.setFailedLoginAttempts(0);
-            userRepository.save(user);
-        }
+        // An expired lockedUntil is left as is: it no longer blocks and the next write clears or replaces it
 
-        if (!passwordEncoder.matches(request.getPassword(), user.getPassword())) {
-            int attempts = (user.getFailedLoginAttempts() == null ? 0 : user.getFailedLoginAttempts()) + 1;
+        if (!passwordHashingService.matches(request.getPassword(), user.getPassword())) {
+            int attempts = loginThrottle.recordFailure(user.getEmail(), clientIp, System.currentTimeMillis());
             if (attempts >= maxLoginAttempts) {
-                user.setLockedUntil(now.plusMinutes(lockoutMinutes));
-                user.setFailedLoginAttempts(0);
-                userRepository.save(user);
+                userRepository.lockUntil(user.getId(), now.plusMinutes(lockoutMinutes), now);
+                loginThrottle.reset(user.getEmail());
                 throw new IllegalArgumentException(
                         "Trop de tentatives incorrectes. Compte verrouille pendant " + lockoutMinutes
                                 + " minute(s). Aucun email n'est envoye ; utilisez mot de passe oublie si besoin.");
             }
-            user.setFailedLoginAttempts(attempts);
-            userRepository.save(user);
             int remaining = maxLoginAttempts - attempts;
             throw new IllegalArgumentException(
                     "Invalid email or password. " + remaining + " tentative(s) restante(s) avant verrouillage temporaire.");
         }
 
-        user.setFailedLoginAttempts(0);
-        user.setLockedUntil(null);
-        user.setLastLoginAt(now);
-        userRepository.save(user);
+        loginThrottle.reset(user.getEmail());
+        userRepository.recordLogin(user.getId(), now);
+        if (passwordHashingService.upgradeEncoding(user.getPassword())) {
+            // Hash stored with a lower BCrypt cost than configured: rehash while we have the password
+            try {
+                userRepository.replacePassword(user.getId(), user.getPassword(),
+                        passwordHashingService.encode(request.getPassword()), now);
+            } catch (PasswordHashingService.BusyException e) {
+                // Not worth failing a valid login; the next one upgrades it
+            }
+        }
 
-        String token = jwtUtils.generateToken(user.getEmail());
+        String token = jwtUtils.generateToken(user.getEmail(), user.getId());
         String userType = user instanceof ObserverUser ? "OBSERVER" : "ASSISTANT";
         return new AuthResponseDTO(token, user.getId(), user.getUsername(), user.getEmail(), userType);
     }
@@ -173,14 +184,16 @@ public class AuthService {
 
     /**
      * Réinitialise le mot de passe avec le token reçu par email.
+     * Le nouveau mot de passe est haché hors transaction, puis {@link UserRepository#resetPassword}
+     * consomme le token en une seule écriture : un token utilisé entre-temps est refusé.
      */
-    @Transactional
     public void resetPassword(String token, String newPassword) {
         String normalizedToken = extractTokenValue(token);
         if (normalizedToken == null || normalizedToken.isBlank()) {
             throw new IllegalArgumentException("Token invalide ou expiré.");
         }
-        User user = userRepository.findByPasswordResetTokenAndPasswordResetUsedAtIsNull(hashToken(normalizedToken))
+        String tokenHash = hashToken(normalizedToken);
+        User user = userRepository.findByPasswordResetTokenAndPasswordResetUsedAtIsNull(tokenHash)
                 .orElseThrow(() -> new IllegalArgumentException("Token invalide ou expiré."));
         if (user.getPasswordResetTokenExpiry() == null || LocalDateTime.now().isAfter(user.getPasswordResetTokenExpiry())) {
             user.setPasswordResetToken(null);
@@ -191,21 +204,19 @@ public class AuthService {
         if (newPassword == null || newPassword.length() < MIN_PASSWORD_LENGTH) {
             throw new IllegalArgumentException("Le mot de passe doit contenir au moins " + MIN_PASSWORD_LENGTH + " caractères.");
         }
-        user.setPassword(passwordEncoder.encode(newPassword));
-        user.setPasswordResetToken(null);
-        user.setPasswordResetTokenExpiry(null);
-        user.setPasswordResetUsedAt(LocalDateTime.now());
-        user.setFailedLoginAttempts(0);
-        user.setLockedUntil(null);
-        user.setRequiresPasswordReset(false);
-        userRepository.save(user);
+        String newHash = passwordHashingService.encode(newPassword);
+        if (userRepository.resetPassword(user.getId(), tokenHash, newHash, LocalDateTime.now()) == 0) {
+            throw new IllegalArgumentException("Token invalide ou expiré.");
+        }
+        loginThrottle.reset(user.getEmail());
     }
 
     /**
      * Changement de mot de passe par un utilisateur déjà connecté (JWT).
      * Vérifie le mot de passe actuel puis met à jour. Réinitialise verrouillage et tentatives.
+     * Vérification et hachage hors transaction ; {@link UserRepository#changePassword} n'écrit que si
+     * le mot de passe vérifié est toujours celui en base.
      */
-    @Transactional
     public void changePassword(String email, String currentPassword, String newPassword) {
         if (email == null || email.isBlank()) {
             throw new IllegalArgumentException("Utilisateur non identifié.");
@@ -219,17 +230,19 @@ public class AuthService {
         if (user.getPassword() == null || user.getPassword().isBlank()) {
             throw new IllegalArgumentException("Ce compte n'a pas de mot de passe à modifier.");
         }
-        if (!passwordEncoder.matches(currentPassword, user.getPassword())) {
-            throw new IllegalArgumentException("Mot de passe actuel incorrect.");
-        }
+        // Checked before BCrypt: a rejected new password costs no hashing
         if (newPassword == null || newPassword.length() < MIN_PASSWORD_LENGTH) {
             throw new IllegalArgumentException("Le nouveau mot de passe doit contenir au moins " + MIN_PASSWORD_LENGTH + " caractères.");
         }
-        user.setPassword(passwordEncoder.encode(newPassword));
-        user.setFailedLoginAttempts(0);
-        user.setLockedUntil(null);
-        user.setRequiresPasswordReset(false);
-        userRepository.save(user);
+        if (!passwordHashingService.matches(currentPassword, user.getPassword())) {
+            throw new IllegalArgumentException("Mot de passe actuel incorrect.");
+        }
+        String newHash = passwordHashingService.encode(newPassword);
+        if (userRepository.changePassword(user.getId(), user.getPassword(), newHash, LocalDateTime.now()) == 0) {
+            // Changed or reset since it was verified: the password checked above is no longer the current one
+            throw new IllegalArgumentException("Mot de passe actuel incorrect.");
+        }
+        loginThrottle.reset(user.getEmail());
     }
 
     /**
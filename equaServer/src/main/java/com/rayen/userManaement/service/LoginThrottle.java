@@ -0,0 +1,259 @@
+package com.rayen.userManaement.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Failed sign-ins per email and per client IP over a sliding window, kept in memory so a brute-force
+ * attempt costs no database write until a lockout actually triggers. Each key holds a sliding window
+ * counter: the failures of the current fixed window plus the previous window's, weighted by how much
+ * of it still overlaps the sliding window. Keys are spread over independently locked shards.
+ * <p>
+ * With {@code app.auth.throttle.shared} on, failures are also upserted in batches into
+ * login_throttle_windows every {@code app.auth.throttle.shared.flush-ms} and the totals of all
+ * instances read back, so decisions see the whole cluster with at most one flush of lag.
+ */
+@Component
+@Slf4j
+public class LoginThrottle {
+
+    private static final String UPSERT_SQL = "INSERT INTO login_throttle_windows (throttle_key, window_index, failures) VALUES (?, ?, ?)"
+            + " ON CONFLICT (throttle_key, window_index) DO UPDATE SET failures = login_throttle_windows.failures + EXCLUDED.failures";
+
+    private final Shard[] shards;
+    private final long windowMs;
+    private final int ipMaxFailures;
+    private final boolean shared;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Cluster-wide counters as of the last flush (shared mode only)
+    private volatile Map<String, Window> sharedWindows = Map.of();
+
+    public LoginThrottle(@Value("${app.auth.throttle.shards:64}") int shardCount,
+                         @Value("${app.auth.throttle.window-seconds:900}") long windowSeconds,
+                         @Value("${app.auth.throttle.ip-max-failures:20}") int ipMaxFailures,
+                         @Value("${app.auth.throttle.shared:false}") boolean shared,
+                         JdbcTemplate jdbcTemplate) {
+        this.shards = new Shard[Math.max(shardCount, 1)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.windowMs = Math.max(windowSeconds, 1) * 1000;
+        this.ipMaxFailures = ipMaxFailures;
+        this.shared = shared;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Refuses a client IP that failed too often recently, before any lookup.
+     *
+     * @throws ThrottledException if the IP is over {@code app.auth.throttle.ip-max-failures}
+     */
+    public void checkIp(String clientIp, long nowMillis) {
+        if (clientIp != null && ipMaxFailures > 0 && failures(ipKey(clientIp), nowMillis) >= ipMaxFailures) {
+            throw new ThrottledException(windowMs / 1000);
+        }
+    }
+
+    /**
+     * Counts one failed sign-in for the email and the client IP and returns the email's failures in
+     * the sliding window, this one included.
+     */
+    public int recordFailure(String email, String clientIp, long nowMillis) {
+        if (clientIp != null) {
+            record(ipKey(clientIp), nowMillis);
+        }
+        return email == null ? 0 : record(emailKey(email), nowMillis);
+    }
+
+    /**
+     * Forgets the email's failures, after a successful sign-in or password change, or once its lockout is persisted.
+     */
+    public void reset(String email) {
+        if (email == null) {
+            return;
+        }
+        String key = emailKey(email);
+        Shard shard = shardOf(key);
+        synchronized (shard) {
+            shard.windows.remove(key);
+            if (shared) {
+                shard.pending.keySet().removeIf(pending -> pending.key().equals(key));
+                shard.resets.add(key);
+            }
+        }
+        if (shared && sharedWindows.containsKey(key)) {
+            Map<String, Window> windows = new HashMap<>(sharedWindows);
+            windows.remove(key);
+            sharedWindows = windows;
+        }
+    }
+
+    int failures(String key, long nowMillis) {
+        long index = nowMillis / windowMs;
+        double overlap = 1.0 - (double) (nowMillis % windowMs) / windowMs;
+        double local;
+        Shard shard = shardOf(key);
+        synchronized (shard) {
+            Window window = shard.windows.get(key);
+            local = window == null ? 0 : window.estimate(index, overlap);
+        }
+        Window remote = shared ? sharedWindows.get(key) : null;
+        return (int) Math.max(local, remote == null ? 0 : remote.estimate(index, overlap));
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.throttle.evict-ms:60000}", initialDelayString = "${app.auth.throttle.evict-ms:60000}")
+    public void evictIdle() {
+        long index = System.currentTimeMillis() / windowMs;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.windows.values().removeIf(window -> window.index < index - 1);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.throttle.shared.flush-ms:1000}")
+    public void flush() {
+        if (!shared) {
+            return;
+        }
+        List<Object[]> upserts = new ArrayList<>();
+        List<Object[]> resets = new ArrayList<>();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.pending.forEach((pending, count) -> upserts.add(new Object[]{pending.key(), pending.index(), count}));
+                shard.resets.forEach(key -> resets.add(new Object[]{key}));
+                shard.pending.clear();
+                shard.resets.clear();
+            }
+        }
+        long index = System.currentTimeMillis() / windowMs;
+        try {
+            if (!resets.isEmpty()) {
+                jdbcTemplate.batchUpdate("DELETE FROM login_throttle_windows WHERE throttle_key = ?", resets);
+            }
+            if (!upserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, upserts);
+            }
+            jdbcTemplate.update("DELETE FROM login_throttle_windows WHERE window_index < ?", index - 1);
+            Map<String, Window> windows = new HashMap<>();
+            jdbcTemplate.query("SELECT throttle_key, window_index, failures FROM login_throttle_windows WHERE window_index >= ?",
+                    rs -> {
+                        windows.computeIfAbsent(rs.getString(1), key -> new Window()).load(rs.getLong(2), rs.getLong(3));
+                    }, index - 1);
+            sharedWindows = windows;
+        } catch (DataAccessException e) {
+            // Local counters keep working; these failures are only missing from the other instances
+            log.warn("[LoginThrottle] could not sync {} counters: {}", upserts.size(), e.getMessage());
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.windows.size();
+            }
+        }
+        return size;
+    }
+
+    private int record(String key, long nowMillis) {
+        long index = nowMillis / windowMs;
+        Shard shard = shardOf(key);
+        synchronized (shard) {
+            shard.windows.computeIfAbsent(key, k -> new Window()).add(index);
+            if (shared) {
+                shard.pending.merge(new Pending(key, index), 1L, Long::sum);
+            }
+        }
+        return failures(key, nowMillis);
+    }
+
+    private Shard shardOf(String key) {
+        return shards[Math.floorMod(key.hashCode() * 0x9E3779B9, shards.length)];
+    }
+
+    private static String emailKey(String email) {
+        return "email:" + email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String ipKey(String clientIp) {
+        return "ip:" + clientIp;
+    }
+
+    public static class ThrottledException extends RuntimeException {
+        private final long retryAfterSeconds;
+
+        public ThrottledException(long retryAfterSeconds) {
+            super("Trop de tentatives de connexion depuis cette adresse. Reessayez plus tard.");
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+
+    private record Pending(String key, long index) {
+    }
+
+    private static final class Shard {
+        private final Map<String, Window> windows = new HashMap<>();
+        private final Map<Pending, Long> pending = new HashMap<>();
+        private final Set<String> resets = new HashSet<>();
+    }
+
+    /**
+     * Failures in fixed window {@code index} and the one before it.
+     */
+    private static final class Window {
+        private long index;
+        private long current;
+        private long previous;
+
+        private void add(long now) {
+            roll(now);
+            current++;
+        }
+
+        private void load(long windowIndex, long failures) {
+            if (windowIndex > index) {
+                roll(windowIndex);
+                current = failures;
+            } else if (windowIndex == index) {
+                current = failures;
+            } else if (windowIndex == index - 1) {
+                previous = failures;
+            }
+        }
+
+        private void roll(long now) {
+            if (now == index) {
+                return;
+            }
+            previous = now == index + 1 ? current : 0;
+            current = 0;
+            index = now;
+        }
+
+        private double estimate(long now, double previousOverlap) {
+            if (now == index) {
+                return current + previous * previousOverlap;
+            }
+            return now == index + 1 ? current * previousOverlap : 0;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.rayen.userManaement.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt on a small dedicated pool instead of the request threads. The pool and its queue are
+ * bounded: once both are full, or a queued task waits longer than {@code app.auth.hashing.max-wait-ms},
+ * the caller gets a {@link BusyException} (HTTP 429) straight away. A burst of sign-in attempts then
+ * holds at most threads + queue request threads and leaves the rest of the server its CPU.
+ * <p>
+ * Capacity is counted with a semaphore of threads + queue permits rather than by the executor: a
+ * caller that gives up on a task still queued takes it out and frees its permit, while a task already
+ * hashing cannot be interrupted (BCrypt ignores interrupts) and keeps its permit until it really ends.
+ */
+@Service
+@Slf4j
+public class PasswordHashingService {
+
+    private static final int QUEUED = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final Semaphore capacity;
+    private final long maxWaitMs;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder hashNanos = new LongAdder();
+    private final LongAdder queueNanos = new LongAdder();
+    private final LongAccumulator maxHashNanos = new LongAccumulator(Math::max, 0);
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Value("${app.auth.hashing.threads:0}") int threads,
+                                  @Value("${app.auth.hashing.queue-size:32}") int queueSize,
+                                  @Value("${app.auth.hashing.max-wait-ms:1000}") long maxWaitMs) {
+        this.passwordEncoder = passwordEncoder;
+        int workers = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int queue = Math.max(queueSize, 1);
+        this.capacity = new Semaphore(workers + queue);
+        this.pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue),
+                Thread.ofPlatform().daemon().name("password-hashing-", 0).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return run(() -> passwordEncoder.encode(rawPassword));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True if the stored hash uses a lower cost than the configured encoder (no hashing involved).
+     */
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    public Map<String, Long> getStats() {
+        long done = completed.sum();
+        return Map.of(
+                "completed", done,
+                "rejected", rejected.sum(),
+                "timedOut", timedOut.sum(),
+                "avgHashMicros", done == 0 ? 0 : hashNanos.sum() / done / 1_000,
+                "maxHashMicros", maxHashNanos.get() / 1_000,
+                "avgQueueWaitMicros", done == 0 ? 0 : queueNanos.sum() / done / 1_000,
+                "active", (long) pool.getActiveCount(),
+                "queued", (long) pool.getQueue().size()
+        );
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        if (!capacity.tryAcquire()) {
+            rejected.increment();
+            log.warn("[PasswordHashing] pool saturated ({} active, {} queued), rejecting", pool.getActiveCount(), pool.getQueue().size());
+            throw new BusyException();
+        }
+        long submitted = System.nanoTime();
+        AtomicInteger state = new AtomicInteger(QUEUED);
+        Future<T> future;
+        try {
+            future = pool.submit(() -> {
+                if (!state.compareAndSet(QUEUED, RUNNING)) {
+                    return null;    // abandoned while queued, its permit is already back
+                }
+                long started = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    capacity.release();
+                    long elapsed = System.nanoTime() - started;
+                    completed.increment();
+                    hashNanos.add(elapsed);
+                    queueNanos.add(started - submitted);
+                    maxHashNanos.accumulate(elapsed);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // A worker still busy dropping an abandoned task: the executor is briefly fuller than the permits say
+            capacity.release();
+            rejected.increment();
+            throw new BusyException();
+        }
+
+        try {
+            return future.get(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            abandon(future, state);
+            timedOut.increment();
+            throw new BusyException();
+        } catch (InterruptedException e) {
+            abandon(future, state);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    // A task not started yet leaves the queue and frees its permit now; a running one frees it when it ends
+    private void abandon(Future<?> future, AtomicInteger state) {
+        if (state.compareAndSet(QUEUED, ABANDONED)) {
+            pool.remove((Runnable) future);
+            capacity.release();
+        }
+    }
+
+    public static class BusyException extends RuntimeException {
+        public BusyException() {
+            super("Serveur d'authentification occupe. Reessayez dans quelques instants.");
+        }
+    }
+}
@@ -2,10 +2,16 @@ package com.rayen.walletManagement.controller;
 
 import com.rayen.blockChainManagement.service.EquaValuationEngine;
 import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.entity.WalletPosting;
+import com.rayen.walletManagement.model.AchievementType;
 import com.rayen.walletManagement.model.AnalyticsSummary;
+import com.rayen.walletManagement.model.BulkTransferResponse;
+import com.rayen.walletManagement.model.ChallengeType;
 import com.rayen.walletManagement.model.ConversionRequest;
 import com.rayen.walletManagement.model.DeviseWalletDTO;
 import com.rayen.walletManagement.model.FundsRequest;
+import com.rayen.walletManagement.model.FxRateSnapshot;
+import com.rayen.walletManagement.model.LedgerBalance;
 import com.rayen.walletManagement.model.LoyaltyRedeemRequest;
 import com.rayen.walletManagement.model.RewardRequest;
 import com.rayen.walletManagement.model.TransferRequest;
@@ -13,16 +19,20 @@ import com.rayen.walletManagement.model.WalletDTO;
 import com.rayen.walletManagement.model.WalletKpi;
 import com.rayen.walletManagement.service.AnalyticsService;
 import com.rayen.walletManagement.service.DeviseWalletService;
+import com.rayen.walletManagement.service.FxRateProvider;
 import com.rayen.walletManagement.service.GamificationService;
 import com.rayen.walletManagement.service.LoyaltyService;
+import com.rayen.walletManagement.service.WalletLedgerService;
 import com.rayen.walletManagement.service.WalletMapper;
 import com.rayen.walletManagement.service.WalletService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Set;
 
@@ -38,6 +48,8 @@ public class WalletController {
     private final GamificationService gamificationService;
     private final WalletMapper walletMapper;
     private final EquaValuationEngine equaValuationEngine;
+    private final WalletLedgerService walletLedgerService;
+    private final FxRateProvider fxRateProvider;
 
 //============================================================================================
 // This section has already been implemented by Rayen.
@@ -108,6 +120,11 @@ public class WalletController {
         return ResponseEntity.ok(walletMapper.toDTO(deviseWalletService.transferBetweenWallets(request.getSourceWalletId(), request.getSourceCurrency(), request.getTargetWalletId(), request.getTargetCurrency(), request.getAmount())));
     }
 
+    @PostMapping("/transfer/bulk")
+    public ResponseEntity<BulkTransferResponse> bulkTransfer(@RequestBody List<TransferRequest> requests) {
+        return ResponseEntity.ok(deviseWalletService.bulkTransfer(requests));
+    }
+
     @PostMapping("/{walletId}/loyalty/redeem")
     public ResponseEntity<WalletDTO> redeemLoyaltyPoints(@PathVariable Long walletId, @RequestBody LoyaltyRedeemRequest request) {
         Wallet wallet = walletService.getWalletById(walletId);
@@ -124,7 +141,7 @@ public class WalletController {
 
     @GetMapping("/analytics")
     public ResponseEntity<AnalyticsSummary> getGlobalAnalytics() {
-        return ResponseEntity.ok(analyticsService.computeGlobalSummary(walletService.getAllWallets()));
+        return ResponseEntity.ok(analyticsService.getGlobalSummary());
     }
 
     @GetMapping("/{walletId}/analytics")
@@ -133,12 +150,12 @@ public class WalletController {
     }
 
     @GetMapping("/{walletId}/achievements")
-    public ResponseEntity<Set<String>> getAchievements(@PathVariable Long walletId) {
+    public ResponseEntity<Set<AchievementType>> getAchievements(@PathVariable Long walletId) {
         return ResponseEntity.ok(walletService.getWalletById(walletId).getAchievements());
     }
 
     @GetMapping("/{walletId}/challenges")
-    public ResponseEntity<Set<String>> getChallenges(@PathVariable Long walletId) {
+    public ResponseEntity<Set<ChallengeType>> getChallenges(@PathVariable Long walletId) {
         return ResponseEntity.ok(walletService.getWalletById(walletId).getCompletedChallenges());
     }
 
@@ -154,5 +171,33 @@ public class WalletController {
         return ResponseEntity.ok(walletMapper.toDTO(deviseWallet));
     }
 
+    // GET /api/v1/wallets/{walletId}/ledger?limit=50 — newest postings first
+    @GetMapping("/{walletId}/ledger")
+    public ResponseEntity<List<WalletPosting>> getLedger(@PathVariable Long walletId,
+                                                         @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(walletLedgerService.history(walletId, limit));
+    }
+
+    // GET /api/v1/wallets/{walletId}/balance?at=2025-01-31T23:59:59 — current balance without "at"
+    @GetMapping("/{walletId}/balance")
+    public ResponseEntity<LedgerBalance> getLedgerBalance(@PathVariable Long walletId,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        BigDecimal balance = (at == null ? walletLedgerService.balance(walletId) : walletLedgerService.balanceAt(walletId, at)).toBigDecimal();
+        return ResponseEntity.ok(LedgerBalance.builder().walletId(walletId).balance(balance).at(at).build());
+    }
+
+    // GET /api/v1/wallets/fx-rates?at=2025-01-31T23:59:59 — current snapshot without "at"
+    @GetMapping("/fx-rates")
+    public ResponseEntity<FxRateSnapshot> getFxRates(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        FxRateSnapshot snapshot = at == null ? fxRateProvider.current() : fxRateProvider.snapshotAt(at);
+        return snapshot == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(snapshot);
+    }
+
+    // GET /api/v1/wallets/fx-rates/history — retained snapshots, newest first
+    @GetMapping("/fx-rates/history")
+    public ResponseEntity<List<FxRateSnapshot>> getFxRateHistory() {
+        return ResponseEntity.ok(fxRateProvider.history());
+    }
+
 
 }
\ No newline at end of file
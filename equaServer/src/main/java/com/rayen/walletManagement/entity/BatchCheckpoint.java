@@ -0,0 +1,34 @@
+package com.rayen.walletManagement.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a keyset batch job over wallets: everything up to lastWalletId is done for the run
+ * started at runStartedAt. A run without completedAt is resumed from there.
+ */
+@Entity
+@Table(name = "batch_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchCheckpoint {
+
+    @Id
+    @Column(name = "job_name", length = 50)
+    private String jobName;
+
+    @Column(name = "last_wallet_id", nullable = false)
+    private Long lastWalletId;
+
+    @Column(name = "run_started_at", nullable = false)
+    private LocalDateTime runStartedAt;
+
+    private LocalDateTime updatedAt;
+
+    // NULL while the run is in progress or was interrupted
+    private LocalDateTime completedAt;
+}
@@ -3,6 +3,7 @@ package com.rayen.walletManagement.entity;
 import jakarta.persistence.*;
 import lombok.*;
 import com.rayen.blockChainManagement.entity.Business;
+import com.rayen.walletManagement.model.Money;
 
 import java.time.LocalDateTime;
 
@@ -22,6 +23,7 @@ public class BusinessWallet {
     private Business business;
 
     private String status;
-    private Float equaAmount = 0f;
+    @Column(name = "equa_units")
+    private Money equaAmount = Money.ZERO;
     private LocalDateTime lastActivityAt;
 }
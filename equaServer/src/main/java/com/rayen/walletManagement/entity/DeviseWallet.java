@@ -1,6 +1,7 @@
 package com.rayen.walletManagement.entity;
 
 import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.Money;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -25,32 +26,80 @@ public class DeviseWallet {
     @EqualsAndHashCode.Exclude
     private Wallet wallet;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "devise_wallet_balances", joinColumns = @JoinColumn(name = "devise_wallet_id"))
-    @MapKeyEnumerated(EnumType.STRING)
-    @Column(name = "amount", precision = 19, scale = 8)
+    // One fixed-point column per CurrencyCode (1e-8 units, MoneyConverter), so the row holds every balance.
+    // NULL only on rows not yet migrated from devise_wallet_balances, see DeviseBalancesBackfill
     @Builder.Default
-    private Map<CurrencyCode, BigDecimal> balances = new EnumMap<>(CurrencyCode.class);
+    @Column(name = "eur_units")
+    private Money eur = Money.ZERO;
+
+    @Builder.Default
+    @Column(name = "usd_units")
+    private Money usd = Money.ZERO;
+
+    @Builder.Default
+    @Column(name = "tnd_units")
+    private Money tnd = Money.ZERO;
+
+    @Builder.Default
+    @Column(name = "btc_units")
+    private Money btc = Money.ZERO;
 
     public void initializeBalances() {
         for (CurrencyCode currency : CurrencyCode.values()) {
-            balances.putIfAbsent(currency, BigDecimal.ZERO);
+            if (units(currency) == null) {
+                setUnits(currency, Money.ZERO);
+            }
         }
     }
 
+    /**
+     * All balances by currency. A copy: change balances with {@link #deposit} and {@link #withdraw}.
+     */
+    public Map<CurrencyCode, BigDecimal> getBalances() {
+        Map<CurrencyCode, BigDecimal> balances = new EnumMap<>(CurrencyCode.class);
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            balances.put(currency, getBalance(currency));
+        }
+        return balances;
+    }
+
     public BigDecimal getBalance(CurrencyCode currency) {
-        return balances.getOrDefault(currency, BigDecimal.ZERO);
+        return balanceOf(currency).toBigDecimal();
     }
 
     public void deposit(CurrencyCode currency, BigDecimal amount) {
-        balances.put(currency, getBalance(currency).add(amount));
+        setUnits(currency, balanceOf(currency).plus(Money.of(amount)));
     }
 
     public void withdraw(CurrencyCode currency, BigDecimal amount) {
-        BigDecimal current = getBalance(currency);
-        if (current.compareTo(amount) < 0) {
+        Money current = balanceOf(currency);
+        Money debit = Money.of(amount);
+        if (current.isLessThan(debit)) {
             throw new IllegalArgumentException("Insufficient " + currency + " balance");
         }
-        balances.put(currency, current.subtract(amount));
+        setUnits(currency, current.minus(debit));
+    }
+
+    private Money balanceOf(CurrencyCode currency) {
+        Money units = units(currency);
+        return units == null ? Money.ZERO : units;
+    }
+
+    private Money units(CurrencyCode currency) {
+        return switch (currency) {
+            case EUR -> eur;
+            case USD -> usd;
+            case TND -> tnd;
+            case BTC -> btc;
+        };
+    }
+
+    private void setUnits(CurrencyCode currency, Money value) {
+        switch (currency) {
+            case EUR -> eur = value;
+            case USD -> usd = value;
+            case TND -> tnd = value;
+            case BTC -> btc = value;
+        }
     }
 }
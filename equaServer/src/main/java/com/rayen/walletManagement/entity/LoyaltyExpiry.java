@@ -0,0 +1,39 @@
+package com.rayen.walletManagement.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Points a wallet lost to the expiry policy. Written by LoyaltyMaintenanceJob in the same
+ * transaction as the reset, and only for rows the reset actually changed.
+ */
+@Entity
+@Table(name = "loyalty_expiries", indexes = @Index(name = "idx_loyalty_expiries_wallet", columnList = "wallet_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoyaltyExpiry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "expiry_id")
+    private Long expiryId;
+
+    @Column(name = "wallet_id", nullable = false, updatable = false)
+    private Long walletId;
+
+    // Balance before the reset
+    @Column(name = "points", nullable = false, updatable = false)
+    private BigDecimal points;
+
+    @Column(name = "last_activity_at", updatable = false)
+    private LocalDateTime lastActivityAt;
+
+    // Start of the maintenance run that expired them, also on a resumed run
+    @Column(name = "expired_at", nullable = false, updatable = false)
+    private LocalDateTime expiredAt;
+}
@@ -1,18 +1,25 @@
 package com.rayen.walletManagement.entity;
 
 import com.rayen.userManaement.entity.User;
+import com.rayen.walletManagement.model.AchievementType;
+import com.rayen.walletManagement.model.ChallengeType;
+import com.rayen.walletManagement.model.EnumBits;
 import com.rayen.walletManagement.model.FraudRiskLevel;
 import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.model.Money;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.EnumSet;
 
 @Entity
 @Table(name = "wallets")
+// UPDATEs carry only changed columns: after-commit side effects (loyalty, gamification) and
+// money operations touch different columns of the same row and must not overwrite each other
+@DynamicUpdate
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,8 +33,11 @@ public class Wallet {
     private String publicKey;
     private String status;
 
+    // BIGINT of 1e-8 EQUA units (MoneyConverter); the legacy float column equa_amount is backfilled once.
+    // Not the balance: WalletLedgerService is, and copies it back here for SQL aggregates only
     @Builder.Default
-    private Float equaAmount = 0f;
+    @Column(name = "equa_units", updatable = false)
+    private Money equaAmount = Money.ZERO;
 
     @Builder.Default
     private BigDecimal loyaltyPoints = BigDecimal.ZERO;
@@ -36,6 +46,9 @@ public class Wallet {
     @Builder.Default
     private LoyaltyTier loyaltyTier = LoyaltyTier.BRONZE;
 
+    // Last time points were earned or redeemed; points expire after a period without any, see LoyaltyMaintenanceJob
+    private LocalDateTime loyaltyActivityAt;
+
     @Enumerated(EnumType.STRING)
     @Builder.Default
     private FraudRiskLevel fraudRiskLevel = FraudRiskLevel.LOW;
@@ -50,17 +63,18 @@ public class Wallet {
     private LocalDateTime lastBalanceChangeAt;
     private LocalDateTime lastConversionAt;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "wallet_achievements", joinColumns = @JoinColumn(name = "wallet_id"))
-    @Column(name = "achievement")
+    // Bitmasks over AchievementType / ChallengeType (EnumBits). NULL only on rows not yet
+    // migrated from the legacy wallet_achievements / wallet_challenges tables, see GamificationBitsBackfill
     @Builder.Default
-    private Set<String> achievements = new HashSet<>();
+    @Column(name = "achievement_bits")
+    private Long achievementBits = 0L;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "wallet_challenges", joinColumns = @JoinColumn(name = "wallet_id"))
-    @Column(name = "challenge")
     @Builder.Default
-    private Set<String> completedChallenges = new HashSet<>();
+    @Column(name = "challenge_bits")
+    private Long challengeBits = 0L;
+
+    // GamificationRules.VERSION the masks were last evaluated under; NULL or older means due for re-evaluation
+    private Integer gamificationRulesVersion;
 
     @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
     @JoinColumn(name = "devise_wallet_id")
@@ -72,4 +86,27 @@ public class Wallet {
     @JoinColumn(name = "user_id", nullable = true, unique = true)
     private User user;
 
+    public EnumSet<AchievementType> getAchievements() {
+        return EnumBits.toSet(achievementBits == null ? 0L : achievementBits, AchievementType.class);
+    }
+
+    public boolean hasAchievement(AchievementType achievement) {
+        return achievementBits != null && EnumBits.contains(achievementBits, achievement);
+    }
+
+    public void addAchievement(AchievementType achievement) {
+        achievementBits = (achievementBits == null ? 0L : achievementBits) | EnumBits.bit(achievement);
+    }
+
+    public EnumSet<ChallengeType> getCompletedChallenges() {
+        return EnumBits.toSet(challengeBits == null ? 0L : challengeBits, ChallengeType.class);
+    }
+
+    public boolean hasCompletedChallenge(ChallengeType challenge) {
+        return challengeBits != null && EnumBits.contains(challengeBits, challenge);
+    }
+
+    public void completeChallenge(ChallengeType challenge) {
+        challengeBits = (challengeBits == null ? 0L : challengeBits) | EnumBits.bit(challenge);
+    }
 }
@@ -0,0 +1,39 @@
+package com.rayen.walletManagement.entity;
+
+import com.rayen.walletManagement.model.Money;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Balance of a wallet once every posting up to {@code lastPostingId} is applied.
+ */
+@Entity
+@Table(name = "wallet_balance_snapshots", indexes = @Index(name = "idx_wallet_snapshots_wallet", columnList = "wallet_id, last_posting_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WalletBalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Column(name = "balance_units", nullable = false)
+    private Money balance;
+
+    @Column(name = "last_posting_id", nullable = false)
+    private Long lastPostingId;
+
+    // created_at of the last posting included, for point-in-time lookups
+    @Column(name = "covered_until", nullable = false)
+    private LocalDateTime coveredUntil;
+
+    @Column(name = "taken_at", nullable = false)
+    private LocalDateTime takenAt;
+}
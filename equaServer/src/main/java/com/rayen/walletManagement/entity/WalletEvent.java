@@ -0,0 +1,61 @@
+package com.rayen.walletManagement.entity;
+
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.WalletOperationType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Outbox row for the side effects of a wallet operation (loyalty, gamification). Written in the
+ * same transaction as the operation, processed after it commits, see WalletEventDispatcher.
+ */
+@Entity
+@Table(name = "wallet_events", indexes = {
+        @Index(name = "idx_wallet_events_pending", columnList = "processed_at, id"),
+        @Index(name = "idx_wallet_events_wallet", columnList = "wallet_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WalletEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "wallet_id", nullable = false)
+    private Long walletId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private WalletOperationType operationType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 10)
+    private CurrencyCode currency;
+
+    @Column(precision = 19, scale = 8)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    // NULL until a worker has applied the side effects
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Failed attempts so far; NULL on rows written before retries were counted
+    @Column(name = "attempts")
+    private Integer attempts;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    // Set once the event has failed wallet-events.max-attempts times: no longer retried, nor does it hold back the wallet's later events
+    @Column(name = "dead_at")
+    private LocalDateTime deadAt;
+}
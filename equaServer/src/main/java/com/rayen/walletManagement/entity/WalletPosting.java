@@ -0,0 +1,44 @@
+package com.rayen.walletManagement.entity;
+
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One signed EQUA movement on a wallet. Rows are only ever inserted: the balance at any point
+ * is the latest snapshot plus the postings after it.
+ */
+@Entity
+@Table(name = "wallet_postings", indexes = @Index(name = "idx_wallet_postings_wallet", columnList = "wallet_id, posting_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WalletPosting {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "posting_id")
+    private Long postingId;
+
+    // Plain ID rather than an association: appends never load or lock the wallet row
+    @Column(name = "wallet_id", nullable = false, updatable = false)
+    private Long walletId;
+
+    @Column(name = "amount_units", nullable = false, updatable = false)
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, updatable = false, length = 20)
+    private PostingType type;
+
+    // Business reference of the movement, e.g. "tx:42"
+    @Column(name = "reference", updatable = false, length = 64)
+    private String reference;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,5 +1,6 @@
 package com.rayen.walletManagement.model;
 
+// Stored as bit ordinal() of wallets.achievement_bits (EnumBits): add new constants at the end only
 public enum AchievementType {
     FIRST_WALLET_FUNDING,
     FIRST_CURRENCY_CONVERSION,
@@ -0,0 +1,25 @@
+package com.rayen.walletManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransferResponse {
+    private int submitted;
+    private int accepted;
+    private int rejected;
+    // Wallets locked for the batch and wallets whose balances were written
+    private int walletsLocked;
+    private int walletsUpdated;
+    private long fxVersion;
+    private long elapsedMs;
+    private long legsPerSecond;
+    private List<BulkTransferResult> results;
+}
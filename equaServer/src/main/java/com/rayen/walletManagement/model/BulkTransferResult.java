@@ -0,0 +1,22 @@
+package com.rayen.walletManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkTransferResult {
+    // Position of the leg in the submitted list
+    private int index;
+    private boolean accepted;
+    // Credited to the target wallet, in the target currency, after the conversion fee
+    private BigDecimal netAmount;
+    private BigDecimal feeAmount;
+    private String error;
+}
@@ -1,5 +1,6 @@
 package com.rayen.walletManagement.model;
 
+// Stored as bit ordinal() of wallets.challenge_bits (EnumBits): add new constants at the end only
 public enum ChallengeType {
     DAILY_MINIMUM_BALANCE,
     WEEKLY_VALUE_GROWTH,
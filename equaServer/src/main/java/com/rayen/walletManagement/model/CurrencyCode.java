@@ -8,18 +8,14 @@ public enum CurrencyCode {
     TND(BigDecimal.valueOf(3.3)),
     BTC(BigDecimal.valueOf(29000.0));
 
-    private final BigDecimal eurRate;
+    // Fallback EUR rate served by StaticFxRateSource; live rates come from FxRateProvider
+    private final BigDecimal defaultEurRate;
 
-    CurrencyCode(BigDecimal eurRate) {
-        this.eurRate = eurRate;
+    CurrencyCode(BigDecimal defaultEurRate) {
+        this.defaultEurRate = defaultEurRate;
     }
 
-    public BigDecimal getEurRate() {
-        return eurRate;
-    }
-
-    public BigDecimal convertTo(CurrencyCode target, BigDecimal amount) {
-        BigDecimal amountInEur = amount.multiply(eurRate);
-        return amountInEur.divide(target.eurRate, 8, BigDecimal.ROUND_HALF_UP);
+    public BigDecimal getDefaultEurRate() {
+        return defaultEurRate;
     }
 }
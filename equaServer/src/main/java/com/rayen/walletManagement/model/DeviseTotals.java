@@ -0,0 +1,23 @@
+package com.rayen.walletManagement.model;
+
+/**
+ * Devise balances of all wallets summed per currency column, 1e-8 units.
+ */
+public interface DeviseTotals {
+    long getEurUnits();
+
+    long getUsdUnits();
+
+    long getTndUnits();
+
+    long getBtcUnits();
+
+    default Money totalOf(CurrencyCode currency) {
+        return Money.ofUnits(switch (currency) {
+            case EUR -> getEurUnits();
+            case USD -> getUsdUnits();
+            case TND -> getTndUnits();
+            case BTC -> getBtcUnits();
+        });
+    }
+}
@@ -0,0 +1,40 @@
+package com.rayen.walletManagement.model;
+
+import java.util.EnumSet;
+
+/**
+ * Packs a set of constants of a small enum into a long, one bit per {@code ordinal()}. Enums
+ * stored this way must only ever be appended to: reordering or removing a constant changes
+ * the meaning of every stored mask.
+ */
+public final class EnumBits {
+
+    private EnumBits() {
+    }
+
+    public static long bit(Enum<?> constant) {
+        return 1L << constant.ordinal();
+    }
+
+    public static boolean contains(long mask, Enum<?> constant) {
+        return (mask & bit(constant)) != 0;
+    }
+
+    public static <E extends Enum<E>> EnumSet<E> toSet(long mask, Class<E> type) {
+        EnumSet<E> set = EnumSet.noneOf(type);
+        for (E constant : type.getEnumConstants()) {
+            if (contains(mask, constant)) {
+                set.add(constant);
+            }
+        }
+        return set;
+    }
+
+    public static <E extends Enum<E>> long toMask(Iterable<E> constants) {
+        long mask = 0L;
+        for (E constant : constants) {
+            mask |= bit(constant);
+        }
+        return mask;
+    }
+}
@@ -12,4 +12,8 @@ import java.math.BigDecimal;
 public class FraudAssessment {
     private BigDecimal riskScore;
     private FraudRiskLevel level;
+    // Decayed operation counts from FraudVelocityEngine the score was based on
+    private double changesLastMinute;
+    private double changesLastHour;
+    private double conversionsLastDay;
 }
@@ -0,0 +1,113 @@
+package com.rayen.walletManagement.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Immutable set of FX rates as loaded at one point in time. Every cross rate is divided out once
+ * when the snapshot is built, so a conversion is one array lookup and one multiply.
+ * Replaced as a whole on refresh, never modified, so readers need no locking.
+ */
+public final class FxRateSnapshot {
+
+    // Cross rates keep far more digits than the 8 decimals amounts are rounded to
+    private static final MathContext CROSS_PRECISION = MathContext.DECIMAL128;
+
+    private final long version;
+    private final String source;
+    private final LocalDateTime loadedAt;
+    private final BigDecimal[] eurRates;        // by CurrencyCode ordinal
+    private final BigDecimal[][] crossRates;    // [from][to]: 1 from = crossRates[from][to] to
+
+    private FxRateSnapshot(long version, String source, LocalDateTime loadedAt, BigDecimal[] eurRates) {
+        this.version = version;
+        this.source = source;
+        this.loadedAt = loadedAt;
+        this.eurRates = eurRates;
+        this.crossRates = new BigDecimal[eurRates.length][eurRates.length];
+        for (int from = 0; from < eurRates.length; from++) {
+            for (int to = 0; to < eurRates.length; to++) {
+                crossRates[from][to] = from == to ? BigDecimal.ONE : eurRates[from].divide(eurRates[to], CROSS_PRECISION);
+            }
+        }
+    }
+
+    /**
+     * @param eurRates EUR value of one unit of each currency; every CurrencyCode must be present and positive
+     */
+    public static FxRateSnapshot of(long version, String source, LocalDateTime loadedAt, Map<CurrencyCode, BigDecimal> eurRates) {
+        CurrencyCode[] currencies = CurrencyCode.values();
+        BigDecimal[] rates = new BigDecimal[currencies.length];
+        for (CurrencyCode currency : currencies) {
+            BigDecimal rate = eurRates.get(currency);
+            if (rate == null || rate.signum() <= 0) {
+                throw new IllegalArgumentException("Missing or non-positive FX rate for " + currency + ": " + rate);
+            }
+            rates[currency.ordinal()] = rate;
+        }
+        return new FxRateSnapshot(version, source, loadedAt, rates);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    public Map<CurrencyCode, BigDecimal> getEurRates() {
+        Map<CurrencyCode, BigDecimal> rates = new EnumMap<>(CurrencyCode.class);
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            rates.put(currency, eurRates[currency.ordinal()]);
+        }
+        return Collections.unmodifiableMap(rates);
+    }
+
+    @JsonIgnore
+    public BigDecimal getEurRate(CurrencyCode currency) {
+        return eurRates[currency.ordinal()];
+    }
+
+    @JsonIgnore
+    public BigDecimal getRate(CurrencyCode from, CurrencyCode to) {
+        return crossRates[from.ordinal()][to.ordinal()];
+    }
+
+    /**
+     * {@code amount} of {@code from} expressed in {@code to}, rounded half-up to 8 decimals.
+     */
+    public BigDecimal convert(CurrencyCode from, CurrencyCode to, BigDecimal amount) {
+        return amount.multiply(crossRates[from.ordinal()][to.ordinal()]).setScale(Money.SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * EUR value of {@code amount} of {@code currency}, unrounded.
+     */
+    public BigDecimal toEur(CurrencyCode currency, BigDecimal amount) {
+        return amount.multiply(eurRates[currency.ordinal()]);
+    }
+
+    /**
+     * True when both snapshots hold numerically equal rates, whatever their version.
+     */
+    public boolean hasSameRates(FxRateSnapshot other) {
+        for (int i = 0; i < eurRates.length; i++) {
+            if (eurRates[i].compareTo(other.eurRates[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
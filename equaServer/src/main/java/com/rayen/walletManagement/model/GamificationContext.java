@@ -0,0 +1,19 @@
+package com.rayen.walletManagement.model;
+
+import java.math.BigDecimal;
+
+/**
+ * What the gamification rules look at, computed once per evaluation of a wallet.
+ *
+ * @param operationType  the operation being processed, null when re-evaluating outside an operation
+ * @param netWorth       EQUA plus the EUR value of every devise balance
+ * @param heldCurrencies devise currencies with a positive balance
+ */
+public record GamificationContext(WalletOperationType operationType,
+                                  Money equaBalance,
+                                  BigDecimal netWorth,
+                                  int heldCurrencies,
+                                  LoyaltyTier loyaltyTier,
+                                  int recentBalanceChanges,
+                                  boolean hasConverted) {
+}
@@ -0,0 +1,20 @@
+package com.rayen.walletManagement.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerBalance {
+    private Long walletId;
+    private BigDecimal balance;
+    // null for the current balance
+    private LocalDateTime at;
+}
@@ -23,4 +23,17 @@ public enum LoyaltyTier {
     public BigDecimal getMultiplier() {
         return multiplier;
     }
+
+    /**
+     * Highest tier whose threshold {@code points} reaches; BRONZE below every threshold.
+     */
+    public static LoyaltyTier forPoints(BigDecimal points) {
+        LoyaltyTier result = BRONZE;
+        for (LoyaltyTier tier : values()) {
+            if (points.compareTo(tier.pointsThreshold) >= 0) {
+                result = tier;
+            }
+        }
+        return result;
+    }
 }
@@ -0,0 +1,7 @@
+package com.rayen.walletManagement.model;
+
+public interface LoyaltyTierCount {
+    LoyaltyTier getTier();
+
+    long getWallets();
+}
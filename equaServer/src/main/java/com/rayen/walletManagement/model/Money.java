@@ -0,0 +1,110 @@
+package com.rayen.walletManagement.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable EQUA amount held as a {@code long} of minor units (1 unit = 1e-8 EQUA).
+ *
+ * Add, subtract and compare are plain long arithmetic (overflow throws); BigDecimal only appears
+ * at the edges: parsing requests, rates and percentages, and JSON, where amounts are written as
+ * decimal numbers so API payloads keep their shape.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 8;
+    public static final long UNITS_PER_EQUA = 100_000_000L;
+    public static final Money ZERO = new Money(0);
+
+    private final long units;
+
+    private Money(long units) {
+        this.units = units;
+    }
+
+    public static Money ofUnits(long units) {
+        return units == 0 ? ZERO : new Money(units);
+    }
+
+    /**
+     * Rounds half-up to 8 decimals.
+     *
+     * @throws ArithmeticException if the amount does not fit in a long of minor units
+     */
+    @JsonCreator
+    public static Money of(BigDecimal amount) {
+        return ofUnits(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public static Money of(long wholeEqua) {
+        return ofUnits(Math.multiplyExact(wholeEqua, UNITS_PER_EQUA));
+    }
+
+    public long units() {
+        return units;
+    }
+
+    public Money plus(Money other) {
+        return other.units == 0 ? this : ofUnits(Math.addExact(units, other.units));
+    }
+
+    public Money minus(Money other) {
+        return other.units == 0 ? this : ofUnits(Math.subtractExact(units, other.units));
+    }
+
+    public Money negate() {
+        return ofUnits(Math.negateExact(units));
+    }
+
+    public Money times(BigDecimal factor) {
+        return of(toBigDecimal().multiply(factor));
+    }
+
+    public boolean isZero() {
+        return units == 0;
+    }
+
+    public boolean isPositive() {
+        return units > 0;
+    }
+
+    public boolean isNegative() {
+        return units < 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return units < other.units;
+    }
+
+    public boolean isAtLeast(Money other) {
+        return units >= other.units;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(units, other.units);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && other.units == units;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(units);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,21 @@
+package com.rayen.walletManagement.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link Money} as a BIGINT of minor units.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(Money money) {
+        return money == null ? null : money.units();
+    }
+
+    @Override
+    public Money convertToEntityAttribute(Long units) {
+        return units == null ? null : Money.ofUnits(units);
+    }
+}
@@ -0,0 +1,10 @@
+package com.rayen.walletManagement.model;
+
+public enum PostingType {
+    OPENING_BALANCE,
+    TRANSFER,
+    DINAR_CONVERSION,
+    TRADE,
+    LOYALTY_REDEEM,
+    REWARD_CREDIT
+}
@@ -0,0 +1,7 @@
+package com.rayen.walletManagement.model;
+
+/**
+ * Published when a wallet_events outbox row is written; delivered to the dispatcher after commit.
+ */
+public record WalletEventRecorded(Long eventId, Long walletId) {
+}
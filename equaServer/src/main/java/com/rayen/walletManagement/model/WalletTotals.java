@@ -0,0 +1,14 @@
+package com.rayen.walletManagement.model;
+
+/**
+ * Wallet-wide counters for the global analytics summary, read in one pass over wallets.
+ */
+public interface WalletTotals {
+    long getWallets();
+
+    long getEquaUnits();   // sum of EQUA balances, 1e-8 units
+
+    long getActive();
+
+    long getSuspended();
+}
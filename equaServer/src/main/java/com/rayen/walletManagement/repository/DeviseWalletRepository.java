@@ -0,0 +1,23 @@
+package com.rayen.walletManagement.repository;
+
+import com.rayen.walletManagement.entity.DeviseWallet;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DeviseWalletRepository extends JpaRepository<DeviseWallet, Long> {
+
+    // SELECT ... FOR UPDATE of the devise rows of the given wallets, in devise ID order so concurrent
+    // devise operations always lock in the same order. The wallets rows themselves are not locked
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM DeviseWallet d WHERE d.id IN " +
+            "(SELECT w.deviseWallet.id FROM Wallet w WHERE w.walletId IN :walletIds) ORDER BY d.id")
+    List<DeviseWallet> findAllByWalletIdForUpdate(@Param("walletIds") Collection<Long> walletIds);
+}
@@ -0,0 +1,17 @@
+package com.rayen.walletManagement.repository;
+
+import com.rayen.walletManagement.entity.WalletBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface WalletBalanceSnapshotRepository extends JpaRepository<WalletBalanceSnapshot, Long> {
+
+    Optional<WalletBalanceSnapshot> findFirstByWalletIdOrderByLastPostingIdDesc(Long walletId);
+
+    // Latest snapshot containing only postings made at or before the given time
+    Optional<WalletBalanceSnapshot> findFirstByWalletIdAndCoveredUntilLessThanEqualOrderByLastPostingIdDesc(Long walletId, LocalDateTime at);
+}
@@ -0,0 +1,43 @@
+package com.rayen.walletManagement.repository;
+
+import com.rayen.walletManagement.entity.WalletEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WalletEventRepository extends JpaRepository<WalletEvent, Long> {
+
+    // Marks the event processed unless another worker got there first; 0 means skip it
+    @Modifying
+    @Query("UPDATE WalletEvent e SET e.processedAt = :now WHERE e.id = :id AND e.processedAt IS NULL")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Query("SELECT e FROM WalletEvent e WHERE e.processedAt IS NULL AND e.deadAt IS NULL AND e.createdAt < :before ORDER BY e.id")
+    List<WalletEvent> findPending(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // An older event of the same wallet still to be applied: this one has to wait for it
+    @Query("SELECT COUNT(e) > 0 FROM WalletEvent e WHERE e.walletId = :walletId AND e.id < :id"
+            + " AND e.processedAt IS NULL AND e.deadAt IS NULL")
+    boolean hasEarlierPending(@Param("walletId") Long walletId, @Param("id") Long id);
+
+    @Modifying
+    @Query("UPDATE WalletEvent e SET e.attempts = COALESCE(e.attempts, 0) + 1, e.lastError = :error"
+            + " WHERE e.id = :id AND e.processedAt IS NULL")
+    int recordFailure(@Param("id") Long id, @Param("error") String error);
+
+    @Modifying
+    @Query("UPDATE WalletEvent e SET e.deadAt = :now WHERE e.id = :id AND e.attempts >= :maxAttempts"
+            + " AND e.processedAt IS NULL AND e.deadAt IS NULL")
+    int deadLetter(@Param("id") Long id, @Param("maxAttempts") int maxAttempts, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("DELETE FROM WalletEvent e WHERE e.processedAt < :before")
+    int deleteProcessedBefore(@Param("before") LocalDateTime before);
+}
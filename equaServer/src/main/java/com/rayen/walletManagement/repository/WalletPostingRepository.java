@@ -0,0 +1,75 @@
+package com.rayen.walletManagement.repository;
+
+import com.rayen.walletManagement.entity.WalletPosting;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WalletPostingRepository extends JpaRepository<WalletPosting, Long> {
+
+    // The postings after a snapshot, for the in-memory tail of WalletLedgerService#balance
+    @Query(value = "SELECT posting_id AS postingId, amount_units AS units FROM wallet_postings"
+            + " WHERE wallet_id = :walletId AND posting_id > :afterPostingId", nativeQuery = true)
+    List<PostingUnits> findTail(@Param("walletId") Long walletId, @Param("afterPostingId") long afterPostingId);
+
+    // Latest snapshot plus the sum of the postings after it, for each wallet, in one statement
+    @Query(value = "SELECT w.wallet_id AS walletId, COALESCE(s.balance_units, 0)"
+            + " + COALESCE((SELECT SUM(p.amount_units) FROM wallet_postings p"
+            + " WHERE p.wallet_id = w.wallet_id AND p.posting_id > COALESCE(s.last_posting_id, 0)), 0) AS units"
+            + " FROM wallets w"
+            + " LEFT JOIN wallet_balance_snapshots s ON s.wallet_id = w.wallet_id AND s.last_posting_id ="
+            + " (SELECT MAX(s2.last_posting_id) FROM wallet_balance_snapshots s2 WHERE s2.wallet_id = w.wallet_id)"
+            + " WHERE w.wallet_id IN (:walletIds)", nativeQuery = true)
+    List<WalletUnits> findExactBalances(@Param("walletIds") Collection<Long> walletIds);
+
+    @Query(value = "SELECT COALESCE(SUM(amount_units), 0) FROM wallet_postings"
+            + " WHERE wallet_id = :walletId AND posting_id > :afterPostingId AND created_at <= :at", nativeQuery = true)
+    long sumUnitsAfterUntil(@Param("walletId") Long walletId, @Param("afterPostingId") long afterPostingId,
+                            @Param("at") LocalDateTime at);
+
+    // Newest posting old enough to be folded into a snapshot, see WalletLedgerService#takeSnapshots
+    @Query(value = "SELECT MAX(posting_id) FROM wallet_postings"
+            + " WHERE wallet_id = :walletId AND posting_id > :afterPostingId AND created_at <= :settledBefore", nativeQuery = true)
+    Long findLastSettledPostingId(@Param("walletId") Long walletId, @Param("afterPostingId") long afterPostingId,
+                                  @Param("settledBefore") LocalDateTime settledBefore);
+
+    @Query(value = "SELECT COALESCE(SUM(amount_units), 0) AS units, MAX(created_at) AS coveredUntil FROM wallet_postings"
+            + " WHERE wallet_id = :walletId AND posting_id > :afterPostingId AND posting_id <= :untilPostingId", nativeQuery = true)
+    RangeTotal sumRange(@Param("walletId") Long walletId, @Param("afterPostingId") long afterPostingId,
+                        @Param("untilPostingId") long untilPostingId);
+
+    // Wallets whose settled tail has grown past minTail postings since their last snapshot
+    @Query(value = "SELECT p.wallet_id FROM wallet_postings p"
+            + " WHERE p.created_at <= :settledBefore"
+            + " AND p.posting_id > COALESCE((SELECT MAX(s.last_posting_id) FROM wallet_balance_snapshots s WHERE s.wallet_id = p.wallet_id), 0)"
+            + " GROUP BY p.wallet_id HAVING COUNT(*) >= :minTail", nativeQuery = true)
+    List<Long> findWalletsWithSettledTail(@Param("settledBefore") LocalDateTime settledBefore, @Param("minTail") long minTail);
+
+    @Query("SELECT p FROM WalletPosting p WHERE p.walletId = :walletId ORDER BY p.postingId DESC")
+    List<WalletPosting> findHistory(@Param("walletId") Long walletId, Pageable pageable);
+
+    interface PostingUnits {
+        Long getPostingId();
+
+        Long getUnits();
+    }
+
+    interface WalletUnits {
+        Long getWalletId();
+
+        Long getUnits();
+    }
+
+    interface RangeTotal {
+        Long getUnits();
+
+        LocalDateTime getCoveredUntil();
+    }
+}
@@ -1,9 +1,19 @@
 package com.rayen.walletManagement.repository;
 
 import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.DeviseTotals;
+import com.rayen.walletManagement.model.FraudRiskCount;
+import com.rayen.walletManagement.model.LoyaltyTierCount;
+import com.rayen.walletManagement.model.WalletTotals;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,6 +23,30 @@ public interface WalletRepository extends JpaRepository<Wallet, Long> {
 
     boolean existsByUser_Id(Long userId);
 
-    @org.springframework.data.jpa.repository.Query("SELECT SUM(w.equaAmount) FROM Wallet w")
-    Double sumTotalEqua();
+    // Total EQUA in circulation, in 1e-8 units
+    @Query(value = "SELECT COALESCE(SUM(equa_units), 0) FROM wallets", nativeQuery = true)
+    Long sumTotalEquaUnits();
+
+    @Query(value = "SELECT COUNT(*) AS wallets, COALESCE(SUM(equa_units), 0) AS equaUnits, " +
+            "COALESCE(SUM(CASE WHEN UPPER(status) = 'ACTIVE' THEN 1 ELSE 0 END), 0) AS active, " +
+            "COALESCE(SUM(CASE WHEN UPPER(status) = 'SUSPENDED' THEN 1 ELSE 0 END), 0) AS suspended " +
+            "FROM wallets", nativeQuery = true)
+    WalletTotals findWalletTotals();
+
+    // Devise balances of wallets, summed per currency column
+    @Query(value = "SELECT COALESCE(SUM(d.eur_units), 0) AS eurUnits, COALESCE(SUM(d.usd_units), 0) AS usdUnits, " +
+            "COALESCE(SUM(d.tnd_units), 0) AS tndUnits, COALESCE(SUM(d.btc_units), 0) AS btcUnits " +
+            "FROM wallets w JOIN devise_wallets d ON d.id = w.devise_wallet_id", nativeQuery = true)
+    DeviseTotals sumDeviseBalances();
+
+    @Query("SELECT w.loyaltyTier AS tier, COUNT(w) AS wallets FROM Wallet w GROUP BY w.loyaltyTier")
+    List<LoyaltyTierCount> countByLoyaltyTier();
+
+    @Query("SELECT w.fraudRiskLevel AS level, COUNT(w) AS wallets FROM Wallet w GROUP BY w.fraudRiskLevel")
+    List<FraudRiskCount> countByFraudRiskLevel();
+
+    // SELECT ... FOR UPDATE in ID order, so concurrent settlements always lock in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.walletId IN :ids ORDER BY w.walletId")
+    List<Wallet> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
 }
@@ -3,58 +3,95 @@ package com.rayen.walletManagement.service;
 import com.rayen.walletManagement.entity.Wallet;
 import com.rayen.walletManagement.model.AnalyticsSummary;
 import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.DeviseTotals;
+import com.rayen.walletManagement.model.FraudRiskCount;
 import com.rayen.walletManagement.model.FraudRiskLevel;
+import com.rayen.walletManagement.model.FxRateSnapshot;
 import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.model.LoyaltyTierCount;
+import com.rayen.walletManagement.model.Money;
 import com.rayen.walletManagement.model.WalletKpi;
+import com.rayen.walletManagement.model.WalletTotals;
+import com.rayen.walletManagement.repository.WalletRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.EnumMap;
-import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
 public class AnalyticsService {
 
     private final GamificationService gamificationService;
+    private final WalletRepository walletRepository;
+    private final FxRateProvider fxRateProvider;
+    private final WalletLedgerService walletLedgerService;
 
-    public AnalyticsSummary computeGlobalSummary(List<Wallet> wallets) {
-        long totalWallets = wallets.size();
-        BigDecimal totalBalance = wallets.stream()
-                .map(this::computeAggregateBalance)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal averageBalance = totalWallets > 0
-                ? totalBalance.divide(BigDecimal.valueOf(totalWallets), 2, BigDecimal.ROUND_HALF_UP)
-                : BigDecimal.ZERO;
+    private final AtomicReference<CachedSummary> globalSummary = new AtomicReference<>();
+
+    @Value("${analytics.summary.ttl-ms:30000}")
+    private long summaryTtlMs;
+
+    /**
+     * Global summary computed by the database in a handful of GROUP BY queries, without loading
+     * any wallet. Served from memory for {@code analytics.summary.ttl-ms} after each computation.
+     */
+    public AnalyticsSummary getGlobalSummary() {
+        CachedSummary cached = globalSummary.get();
+        if (cached != null && !cached.isExpired(summaryTtlMs)) {
+            return cached.summary();
+        }
+        return refreshGlobalSummary();
+    }
+
+    private synchronized AnalyticsSummary refreshGlobalSummary() {
+        CachedSummary cached = globalSummary.get();
+        if (cached != null && !cached.isExpired(summaryTtlMs)) {
+            return cached.summary();
+        }
+        AnalyticsSummary summary = computeGlobalSummary();
+        globalSummary.set(new CachedSummary(summary, System.currentTimeMillis()));
+        return summary;
+    }
+
+    AnalyticsSummary computeGlobalSummary() {
+        WalletTotals totals = walletRepository.findWalletTotals();
+
+        DeviseTotals devise = walletRepository.sumDeviseBalances();
 
+        // Aggregate balance per wallet is EQUA + Σ rate × devise balance, so the total folds per currency
+        FxRateSnapshot rates = fxRateProvider.current();
         Map<CurrencyCode, BigDecimal> currencyDistribution = new EnumMap<>(CurrencyCode.class);
+        BigDecimal totalBalance = Money.ofUnits(totals.getEquaUnits()).toBigDecimal();
         for (CurrencyCode currency : CurrencyCode.values()) {
-            currencyDistribution.put(currency, BigDecimal.ZERO);
-        }
-        for (Wallet wallet : wallets) {
-            if (wallet.getDeviseWallet() != null) {
-                wallet.getDeviseWallet().getBalances().forEach((currency, amount) -> {
-                    BigDecimal existing = currencyDistribution.getOrDefault(currency, BigDecimal.ZERO);
-                    currencyDistribution.put(currency, existing.add(amount == null ? BigDecimal.ZERO : amount));
-                });
-            }
+            BigDecimal amount = devise.totalOf(currency).toBigDecimal();
+            currencyDistribution.put(currency, amount);
+            totalBalance = totalBalance.add(rates.toEur(currency, amount));
         }
 
-        Map<LoyaltyTier, Long> tierDistribution = wallets.stream()
-                .collect(Collectors.groupingBy(Wallet::getLoyaltyTier, Collectors.counting()));
+        long totalWallets = totals.getWallets();
+        BigDecimal averageBalance = totalWallets > 0
+                ? totalBalance.divide(BigDecimal.valueOf(totalWallets), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
 
-        long activeWallets = wallets.stream()
-                .filter(wallet -> wallet.getStatus() != null && wallet.getStatus().equalsIgnoreCase("ACTIVE"))
-                .count();
-        long suspendedWallets = wallets.stream()
-                .filter(wallet -> wallet.getStatus() != null && wallet.getStatus().equalsIgnoreCase("SUSPENDED"))
-                .count();
+        Map<LoyaltyTier, Long> tierDistribution = new EnumMap<>(LoyaltyTier.class);
+        for (LoyaltyTierCount row : walletRepository.countByLoyaltyTier()) {
+            if (row.getTier() != null) {
+                tierDistribution.put(row.getTier(), row.getWallets());
+            }
+        }
 
-        Map<FraudRiskLevel, Long> fraudRiskDistribution = wallets.stream()
-                .collect(Collectors.groupingBy(Wallet::getFraudRiskLevel, Collectors.counting()));
+        Map<FraudRiskLevel, Long> fraudRiskDistribution = new EnumMap<>(FraudRiskLevel.class);
+        for (FraudRiskCount row : walletRepository.countByFraudRiskLevel()) {
+            if (row.getLevel() != null) {
+                fraudRiskDistribution.put(row.getLevel(), row.getWallets());
+            }
+        }
 
         return AnalyticsSummary.builder()
                 .totalWallets(totalWallets)
@@ -62,14 +99,15 @@ public class AnalyticsService {
                 .averageBalance(averageBalance)
                 .currencyDistribution(currencyDistribution)
                 .tierDistribution(tierDistribution)
-                .activeWallets(activeWallets)
-                .suspendedWallets(suspendedWallets)
+                .activeWallets(totals.getActive())
+                .suspendedWallets(totals.getSuspended())
                 .fraudRiskDistribution(fraudRiskDistribution)
                 .build();
     }
 
     public WalletKpi computeWalletKpi(Wallet wallet) {
-        BigDecimal aggregateBalance = computeAggregateBalance(wallet);
+        BigDecimal mainBalance = walletLedgerService.balance(wallet.getWalletId()).toBigDecimal();
+        BigDecimal aggregateBalance = computeAggregateBalance(wallet, mainBalance);
         Map<CurrencyCode, BigDecimal> currencyExposure = new EnumMap<>(CurrencyCode.class);
         if (wallet.getDeviseWallet() != null) {
             wallet.getDeviseWallet().getBalances().forEach((currency, amount) -> currencyExposure.put(currency, amount == null ? BigDecimal.ZERO : amount));
@@ -79,7 +117,7 @@ public class AnalyticsService {
 
         return WalletKpi.builder()
                 .walletId(wallet.getWalletId())
-                .mainBalance(BigDecimal.valueOf(wallet.getEquaAmount()))
+                .mainBalance(mainBalance)
                 .aggregateNetWorth(aggregateBalance)
                 .loyaltyPoints(wallet.getLoyaltyPoints())
                 .loyaltyTier(wallet.getLoyaltyTier())
@@ -91,17 +129,23 @@ public class AnalyticsService {
                 .build();
     }
 
-    private BigDecimal computeAggregateBalance(Wallet wallet) {
-        BigDecimal mainBalance = BigDecimal.valueOf(wallet.getEquaAmount());
+    private BigDecimal computeAggregateBalance(Wallet wallet, BigDecimal mainBalance) {
         if (wallet.getDeviseWallet() == null) {
             return mainBalance;
         }
+        FxRateSnapshot rates = fxRateProvider.current();
         BigDecimal aggregate = mainBalance;
         for (Map.Entry<CurrencyCode, BigDecimal> entry : wallet.getDeviseWallet().getBalances().entrySet()) {
             if (entry.getValue() != null) {
-                aggregate = aggregate.add(entry.getKey().getEurRate().multiply(entry.getValue()));
+                aggregate = aggregate.add(rates.toEur(entry.getKey(), entry.getValue()));
             }
         }
         return aggregate;
     }
+
+    private record CachedSummary(AnalyticsSummary summary, long computedAt) {
+        boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - computedAt >= ttlMs;
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.config.LegacySchema;
+import com.rayen.config.StartupMigration;
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time copy of the legacy devise_wallet_balances rows (one per wallet and currency) into the
+ * per-currency unit columns that ddl-auto adds to devise_wallets. Columns already filled are
+ * skipped; the legacy table is left in place and is no longer read. Runs before the server accepts
+ * requests, since a devise wallet read with NULL columns has no balance.
+ */
+@Component
+@Order(4)
+@RequiredArgsConstructor
+@Slf4j
+public class DeviseBalancesBackfill implements StartupMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void migrate() {
+        boolean legacy = LegacySchema.hasTable(jdbcTemplate, "devise_wallet_balances");
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            String column = currency.name().toLowerCase() + "_units";
+            if (legacy) {
+                int rows = jdbcTemplate.update("UPDATE devise_wallets SET " + column + " = ("
+                        + "SELECT ROUND(b.amount * " + Money.UNITS_PER_EQUA + ") FROM devise_wallet_balances b"
+                        + " WHERE b.devise_wallet_id = devise_wallets.id AND b.balances_key = ?)"
+                        + " WHERE " + column + " IS NULL", currency.name());
+                if (rows > 0) {
+                    log.info("[Devise] migrated {} {} balances to units", rows, currency);
+                }
+            }
+            jdbcTemplate.update("UPDATE devise_wallets SET " + column + " = 0 WHERE " + column + " IS NULL");
+        }
+    }
+}
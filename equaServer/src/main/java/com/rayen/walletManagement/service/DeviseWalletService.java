@@ -2,16 +2,30 @@ package com.rayen.walletManagement.service;
 
 import com.rayen.walletManagement.entity.DeviseWallet;
 import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.BulkTransferResponse;
+import com.rayen.walletManagement.model.BulkTransferResult;
 import com.rayen.walletManagement.model.CurrencyCode;
 import com.rayen.walletManagement.model.FraudAssessment;
+import com.rayen.walletManagement.model.FxRateSnapshot;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.TransferRequest;
 import com.rayen.walletManagement.model.WalletOperationType;
+import com.rayen.walletManagement.repository.DeviseWalletRepository;
 import com.rayen.walletManagement.repository.WalletRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 @Service
 @RequiredArgsConstructor
@@ -19,10 +33,14 @@ import java.math.BigDecimal;
 public class DeviseWalletService {
 
     private final WalletRepository walletRepository;
+    private final DeviseWalletRepository deviseWalletRepository;
     private final WalletBalanceValidator validator;
     private final FraudDetectionService fraudDetectionService;
-    private final LoyaltyService loyaltyService;
-    private final GamificationService gamificationService;
+    private final WalletEventOutbox walletEventOutbox;
+    private final FxRateProvider fxRateProvider;
+
+    @Value("${devise.bulk-transfer.max-legs:5000}")
+    private int bulkTransferMaxLegs;
 
     @Transactional
     public Wallet createWalletWithDevise(Wallet wallet) {
@@ -33,7 +51,7 @@ public class DeviseWalletService {
             wallet.setDeviseWallet(deviseWallet);
         }
         wallet.setStatus("ACTIVE");
-        wallet.setEquaAmount(wallet.getEquaAmount() == null ? 0f : wallet.getEquaAmount());
+        wallet.setEquaAmount(wallet.getEquaAmount() == null ? Money.ZERO : wallet.getEquaAmount());
         return walletRepository.save(wallet);
     }
 
@@ -74,7 +92,7 @@ public class DeviseWalletService {
         wallet.getDeviseWallet().deposit(to, result.netAmount());
 
         recordOperation(wallet, WalletOperationType.CONVERSION, to, result.netAmount());
-        log.info("Converted {} {} to {} {} in wallet {} (fee {})", amount, from, result.netAmount(), to, walletId, result.feeAmount());
+        log.info("Converted {} {} to {} {} in wallet {} (fee {}, fx v{})", amount, from, result.netAmount(), to, walletId, result.feeAmount(), result.fxVersion());
         return walletRepository.save(wallet);
     }
 
@@ -84,8 +102,9 @@ public class DeviseWalletService {
             throw new IllegalArgumentException("Cannot transfer to the same wallet");
         }
 
-        Wallet source = findActiveWallet(sourceWalletId);
-        Wallet target = findActiveWallet(targetWalletId);
+        Map<Long, Wallet> wallets = lockWallets(new TreeSet<>(List.of(sourceWalletId, targetWalletId)));
+        Wallet source = found(wallets, sourceWalletId);
+        Wallet target = found(wallets, targetWalletId);
         validator.validateAmount(amount);
         ensureDeviseWallet(source);
         ensureDeviseWallet(target);
@@ -98,13 +117,176 @@ public class DeviseWalletService {
         recordOperation(target, WalletOperationType.TRANSFER, targetCurrency, result.netAmount());
 
         walletRepository.save(source);
-        log.info("Transferred {} {} from wallet {} to {} {} in wallet {}", amount, sourceCurrency, sourceWalletId, result.netAmount(), targetCurrency, targetWalletId);
+        log.info("Transferred {} {} from wallet {} to {} {} in wallet {} (fx v{})", amount, sourceCurrency, sourceWalletId, result.netAmount(), targetCurrency, targetWalletId, result.fxVersion());
         return walletRepository.save(target);
     }
 
+    /**
+     * Applies many transfers in one transaction. Every leg is checked before anything is locked, the
+     * devise rows of the wallets involved are then locked once, in ID order like every other devise
+     * operation (see {@link #lockWallets}) so concurrent batches cannot deadlock, and the legs are replayed in order against in-memory balances
+     * with one FX snapshot. Only the net change per wallet and currency is written back, so each wallet
+     * row gets a single UPDATE, batched by Hibernate at flush. A rejected leg does not stop the others.
+     * <p>
+     * Fraud checks run once per accepted leg and side, with the leg amount, so the velocity rates count
+     * every leg. Outbox events are recorded once per wallet and currency, for the gross amount moved.
+     */
+    @Transactional
+    public BulkTransferResponse bulkTransfer(List<TransferRequest> legs) {
+        if (legs == null || legs.isEmpty()) {
+            throw new IllegalArgumentException("Bulk transfer contains no transfers");
+        }
+        if (legs.size() > bulkTransferMaxLegs) {
+            throw new IllegalArgumentException("Bulk transfer too large: " + legs.size() + " transfers (max " + bulkTransferMaxLegs + ")");
+        }
+        long started = System.nanoTime();
+        int n = legs.size();
+        String[] errors = new String[n];
+        long[] debits = new long[n];
+        Set<Long> walletIds = new TreeSet<>();
+        for (int i = 0; i < n; i++) {
+            TransferRequest leg = legs.get(i);
+            errors[i] = legError(leg);
+            if (errors[i] == null) {
+                debits[i] = Money.of(leg.getAmount()).units();
+                walletIds.add(leg.getSourceWalletId());
+                walletIds.add(leg.getTargetWalletId());
+            }
+        }
+
+        Map<Long, Wallet> wallets = lockWallets(walletIds);
+        wallets.values().forEach(this::ensureDeviseWallet);
+        FxRateSnapshot rates = fxRateProvider.current();
+
+        // Per wallet, indexed by CurrencyCode ordinal: running balance and gross amount moved, in Money units
+        Map<Long, long[]> balances = new TreeMap<>();
+        Map<Long, long[]> moved = new HashMap<>();
+        BulkTransferResult[] results = new BulkTransferResult[n];
+        int accepted = 0;
+        for (int i = 0; i < n; i++) {
+            TransferRequest leg = legs.get(i);
+            String error = errors[i];
+            if (error == null) {
+                error = !wallets.containsKey(leg.getSourceWalletId()) ? "Source wallet not found"
+                        : !wallets.containsKey(leg.getTargetWalletId()) ? "Target wallet not found" : null;
+            }
+            long[] source = error == null ? balances.computeIfAbsent(leg.getSourceWalletId(), id -> unitsOf(wallets.get(id))) : null;
+            if (error == null && source[leg.getSourceCurrency().ordinal()] < debits[i]) {
+                error = "Insufficient " + leg.getSourceCurrency() + " balance";
+            }
+            if (error != null) {
+                results[i] = BulkTransferResult.builder().index(i).accepted(false).error(error).build();
+                continue;
+            }
+
+            ConversionResult result = calculateConversionWithFee(rates, leg.getSourceCurrency(), leg.getTargetCurrency(), leg.getAmount());
+            long credit = Money.of(result.netAmount()).units();
+            long[] target = balances.computeIfAbsent(leg.getTargetWalletId(), id -> unitsOf(wallets.get(id)));
+            source[leg.getSourceCurrency().ordinal()] -= debits[i];
+            target[leg.getTargetCurrency().ordinal()] = Math.addExact(target[leg.getTargetCurrency().ordinal()], credit);
+            moved.computeIfAbsent(leg.getSourceWalletId(), id -> new long[CurrencyCode.values().length])[leg.getSourceCurrency().ordinal()] += debits[i];
+            moved.computeIfAbsent(leg.getTargetWalletId(), id -> new long[CurrencyCode.values().length])[leg.getTargetCurrency().ordinal()] += credit;
+            // Scored per leg, as separate transfers would be, so a batch cannot hide its rate from the velocity checks
+            fraudDetectionService.assess(wallets.get(leg.getSourceWalletId()), WalletOperationType.TRANSFER, leg.getSourceCurrency(), leg.getAmount());
+            fraudDetectionService.assess(wallets.get(leg.getTargetWalletId()), WalletOperationType.TRANSFER, leg.getTargetCurrency(), result.netAmount());
+            results[i] = BulkTransferResult.builder()
+                    .index(i)
+                    .accepted(true)
+                    .netAmount(result.netAmount())
+                    .feeAmount(result.feeAmount())
+                    .build();
+            accepted++;
+        }
+
+        int walletsUpdated = 0;
+        for (Map.Entry<Long, long[]> entry : balances.entrySet()) {
+            long[] gross = moved.get(entry.getKey());
+            if (gross == null) {
+                continue;
+            }
+            Wallet wallet = wallets.get(entry.getKey());
+            DeviseWallet deviseWallet = wallet.getDeviseWallet();
+            for (CurrencyCode currency : CurrencyCode.values()) {
+                long delta = entry.getValue()[currency.ordinal()] - Money.of(deviseWallet.getBalance(currency)).units();
+                if (delta > 0) {
+                    deviseWallet.deposit(currency, Money.ofUnits(delta).toBigDecimal());
+                } else if (delta < 0) {
+                    deviseWallet.withdraw(currency, Money.ofUnits(-delta).toBigDecimal());
+                }
+                if (gross[currency.ordinal()] > 0) {
+                    walletEventOutbox.record(wallet, WalletOperationType.TRANSFER, currency, Money.ofUnits(gross[currency.ordinal()]).toBigDecimal());
+                }
+            }
+            walletRepository.save(wallet);
+            walletsUpdated++;
+        }
+
+        long elapsedNanos = Math.max(System.nanoTime() - started, 1);
+        long legsPerSecond = n * 1_000_000_000L / elapsedNanos;
+        log.info("Bulk transfer: {} of {} legs applied across {} wallets in {} ms ({} legs/s, fx v{})",
+                accepted, n, walletsUpdated, elapsedNanos / 1_000_000, legsPerSecond, rates.getVersion());
+        return BulkTransferResponse.builder()
+                .submitted(n)
+                .accepted(accepted)
+                .rejected(n - accepted)
+                .walletsLocked(wallets.size())
+                .walletsUpdated(walletsUpdated)
+                .fxVersion(rates.getVersion())
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .legsPerSecond(legsPerSecond)
+                .results(List.of(results))
+                .build();
+    }
+
+    // Checks that need no wallet: everything else is decided once the wallets are locked
+    private static String legError(TransferRequest leg) {
+        if (leg == null || leg.getSourceWalletId() == null || leg.getTargetWalletId() == null) {
+            return "Source and target wallets are required";
+        }
+        if (leg.getSourceCurrency() == null || leg.getTargetCurrency() == null) {
+            return "Source and target currencies are required";
+        }
+        if (leg.getSourceWalletId().equals(leg.getTargetWalletId())) {
+            return "Cannot transfer to the same wallet";
+        }
+        try {
+            // Below one unit rounds to zero, which is no transfer either
+            return leg.getAmount() == null || !Money.of(leg.getAmount()).isPositive() ? "Amount must be positive" : null;
+        } catch (ArithmeticException e) {
+            return "Amount too large";
+        }
+    }
+
+    private static long[] unitsOf(Wallet wallet) {
+        long[] units = new long[CurrencyCode.values().length];
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            units[currency.ordinal()] = Money.of(wallet.getDeviseWallet().getBalance(currency)).units();
+        }
+        return units;
+    }
+
     private Wallet findActiveWallet(Long walletId) {
-        return walletRepository.findById(walletId)
-                .orElseThrow(() -> new IllegalArgumentException("Wallet not found: " + walletId));
+        return found(lockWallets(List.of(walletId)), walletId);
+    }
+
+    /**
+     * Locks the devise_wallets rows of the given wallets, where the balances live, then loads the wallets.
+     * The lock comes first so the balances read are the locked ones; every devise write goes through
+     * here, so two operations on the same wallets serialize instead of overwriting each other.
+     */
+    private Map<Long, Wallet> lockWallets(Collection<Long> walletIds) {
+        deviseWalletRepository.findAllByWalletIdForUpdate(walletIds);
+        Map<Long, Wallet> wallets = new HashMap<>(walletIds.size() * 2);
+        walletRepository.findAllById(walletIds).forEach(wallet -> wallets.put(wallet.getWalletId(), wallet));
+        return wallets;
+    }
+
+    private static Wallet found(Map<Long, Wallet> wallets, Long walletId) {
+        Wallet wallet = wallets.get(walletId);
+        if (wallet == null) {
+            throw new IllegalArgumentException("Wallet not found: " + walletId);
+        }
+        return wallet;
     }
 
     private void ensureDeviseWallet(Wallet wallet) {
@@ -113,20 +295,24 @@ public class DeviseWalletService {
         }
     }
 
+    // Only the fraud check stays inline since it can suspend the wallet; loyalty and gamification
+    // run after commit from the outbox (WalletEventDispatcher), outside this transaction
     private void recordOperation(Wallet wallet, WalletOperationType operationType, CurrencyCode currency, BigDecimal amount) {
         fraudDetectionService.assess(wallet, operationType, currency, amount);
-        loyaltyService.recordActivity(wallet, amount, operationType);
-        gamificationService.evaluateAchievements(wallet, operationType);
-        gamificationService.evaluateChallenges(wallet);
+        walletEventOutbox.record(wallet, operationType, currency, amount);
     }
 
     private ConversionResult calculateConversionWithFee(CurrencyCode from, CurrencyCode to, BigDecimal amount) {
-        BigDecimal targetRaw = from.convertTo(to, amount);
+        return calculateConversionWithFee(fxRateProvider.current(), from, to, amount);
+    }
+
+    private static ConversionResult calculateConversionWithFee(FxRateSnapshot rates, CurrencyCode from, CurrencyCode to, BigDecimal amount) {
+        BigDecimal targetRaw = rates.convert(from, to, amount);
         BigDecimal fee = targetRaw.multiply(BigDecimal.valueOf(0.005));
         BigDecimal net = targetRaw.subtract(fee);
-        return new ConversionResult(net, fee);
+        return new ConversionResult(net, fee, rates.getVersion());
     }
 
-    private record ConversionResult(BigDecimal netAmount, BigDecimal feeAmount) {
+    private record ConversionResult(BigDecimal netAmount, BigDecimal feeAmount, long fxVersion) {
     }
 }
@@ -0,0 +1,41 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.config.LegacySchema;
+import com.rayen.config.StartupMigration;
+import com.rayen.walletManagement.model.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-time copy of the legacy float equa_amount balances into the BIGINT equa_units column
+ * that ddl-auto adds next to them. Rows already converted are skipped, and databases created
+ * after the switch have no equa_amount column at all. Runs before the server accepts requests,
+ * since a wallet read with a NULL equa_units has no balance.
+ */
+@Component
+@Order(1)
+@RequiredArgsConstructor
+@Slf4j
+public class EquaUnitsBackfill implements StartupMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void migrate() {
+        backfill("wallets");
+        backfill("business_wallets");
+    }
+
+    private void backfill(String table) {
+        String legacy = LegacySchema.hasColumn(jdbcTemplate, table, "equa_amount")
+                ? "ROUND(CAST(COALESCE(equa_amount, 0) AS NUMERIC) * " + Money.UNITS_PER_EQUA + ")"
+                : "0";
+        int rows = jdbcTemplate.update("UPDATE " + table + " SET equa_units = " + legacy + " WHERE equa_units IS NULL");
+        if (rows > 0) {
+            log.info("[Money] converted {} {} balances to 1e-8 units", rows, table);
+        }
+    }
+}
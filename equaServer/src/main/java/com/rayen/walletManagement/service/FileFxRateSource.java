@@ -0,0 +1,47 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.CurrencyCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Rates from a properties file, one {@code CURRENCY=eurRate} line per currency (e.g. {@code USD=1.1}).
+ * The file is re-read on every refresh, so rates can be updated without a restart.
+ */
+@Component
+public class FileFxRateSource implements FxRateSource {
+
+    @Value("${fx.file.path:fx-rates.properties}")
+    private String path;
+
+    @Override
+    public String name() {
+        return "file";
+    }
+
+    @Override
+    public Map<CurrencyCode, BigDecimal> load() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Path.of(path))) {
+            properties.load(reader);
+        }
+        Map<CurrencyCode, BigDecimal> rates = new EnumMap<>(CurrencyCode.class);
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            String value = properties.getProperty(currency.name());
+            if (value == null) {
+                throw new IllegalStateException("No rate for " + currency + " in " + path);
+            }
+            rates.put(currency, new BigDecimal(value.trim()));
+        }
+        return rates;
+    }
+}
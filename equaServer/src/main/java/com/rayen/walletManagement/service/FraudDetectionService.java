@@ -5,32 +5,40 @@ import com.rayen.walletManagement.model.CurrencyCode;
 import com.rayen.walletManagement.model.FraudAssessment;
 import com.rayen.walletManagement.model.FraudRiskLevel;
 import com.rayen.walletManagement.model.WalletOperationType;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class FraudDetectionService {
 
     private static final BigDecimal HIGH_AMOUNT_THRESHOLD = BigDecimal.valueOf(10_000);
     private static final BigDecimal CRITICAL_AMOUNT_THRESHOLD = BigDecimal.valueOf(50_000);
 
+    private final FraudVelocityEngine velocityEngine;
+
     public FraudAssessment assess(Wallet wallet, WalletOperationType operationType, CurrencyCode currency, BigDecimal amount) {
         BigDecimal riskScore = BigDecimal.ZERO;
         LocalDateTime now = LocalDateTime.now();
+        FraudVelocityEngine.Rates rates = wallet.getWalletId() == null
+                ? FraudVelocityEngine.Rates.NONE
+                : velocityEngine.record(wallet.getWalletId(), operationType, now.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
 
-        if (wallet.getLastActivityAt() != null) {
-            Duration sinceLast = Duration.between(wallet.getLastActivityAt(), now);
-            if (sinceLast.toHours() < 1 && wallet.getRecentBalanceChanges() != null && wallet.getRecentBalanceChanges() > 4) {
-                riskScore = riskScore.add(BigDecimal.valueOf(25));
-            }
-            if (sinceLast.toDays() > 30) {
-                riskScore = riskScore.add(BigDecimal.valueOf(20));
-            }
+        if (rates.changesLastHour() > 4) {
+            riskScore = riskScore.add(BigDecimal.valueOf(25));
+        }
+        if (rates.changesLastMinute() > 3) {
+            riskScore = riskScore.add(BigDecimal.valueOf(15));
+        }
+        if (wallet.getLastActivityAt() != null && Duration.between(wallet.getLastActivityAt(), now).toDays() > 30) {
+            riskScore = riskScore.add(BigDecimal.valueOf(20));
         }
 
         if (amount != null) {
@@ -46,7 +54,7 @@ public class FraudDetectionService {
             riskScore = riskScore.add(BigDecimal.valueOf(15));
         }
 
-        if (wallet.getRecentConversionCount() != null && wallet.getRecentConversionCount() > 3) {
+        if (rates.conversionsLastDay() > 3) {
             riskScore = riskScore.add(BigDecimal.valueOf(20));
         }
 
@@ -73,7 +81,8 @@ public class FraudDetectionService {
             log.warn("Wallet {} flagged as CRITICAL fraud risk", wallet.getWalletId());
         }
 
-        return new FraudAssessment(riskScore.min(BigDecimal.valueOf(100)), level);
+        return new FraudAssessment(riskScore.min(BigDecimal.valueOf(100)), level,
+                rates.changesLastMinute(), rates.changesLastHour(), rates.conversionsLastDay());
     }
 
     private FraudRiskLevel mapScoreToLevel(BigDecimal score) {
@@ -0,0 +1,216 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.config.StartupMigrations;
+import com.rayen.walletManagement.model.WalletOperationType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory operation rates per wallet over the last minute, hour and day. Each window is an
+ * exponentially decayed counter: on every event the counter is multiplied by
+ * e^(-elapsed / window) and incremented, so at a steady rate it settles on the number of events
+ * per window, and old activity fades out instead of accumulating forever. An event older than
+ * the counter (concurrent operations recorded out of order) is added already decayed, so the
+ * result does not depend on arrival order.
+ * <p>
+ * Wallets are spread over independently locked shards. The counters are rebuilt from the last
+ * day of wallet_events before the server accepts requests, so a restart does not reset every
+ * wallet to "quiet".
+ */
+@Component
+@Slf4j
+public class FraudVelocityEngine implements SmartLifecycle {
+
+    static final long MINUTE_MS = 60_000L;
+    static final long HOUR_MS = 3_600_000L;
+    static final long DAY_MS = 86_400_000L;
+    private static final long[] WINDOWS_MS = {MINUTE_MS, HOUR_MS, DAY_MS};
+
+    // Counter indexes in Counters.values: balance changes per window, then conversions per day
+    private static final int CHANGES = 0;
+    private static final int CONVERSIONS_DAY = WINDOWS_MS.length;
+
+    // A wallet whose day counter decayed below this is as good as never seen
+    private static final double IDLE_THRESHOLD = 0.01;
+
+    private final Shard[] shards;
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean running;
+
+    public FraudVelocityEngine(@Value("${fraud.velocity.shards:64}") int shardCount, JdbcTemplate jdbcTemplate) {
+        this.shards = new Shard[Math.max(shardCount, 1)];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard();
+        }
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Counts one operation at {@code atMillis} and returns the wallet's rates including it.
+     */
+    public Rates record(long walletId, WalletOperationType operationType, long atMillis) {
+        Shard shard = shardOf(walletId);
+        synchronized (shard) {
+            Counters counters = shard.wallets.computeIfAbsent(walletId, id -> new Counters(atMillis));
+            counters.decayTo(atMillis);
+            long lagMillis = counters.lastMillis - atMillis;
+            if (operationType != WalletOperationType.LOYALTY_REDEEM) {
+                for (int w = 0; w < WINDOWS_MS.length; w++) {
+                    counters.add(CHANGES + w, WINDOWS_MS[w], lagMillis);
+                }
+            }
+            if (operationType == WalletOperationType.CONVERSION) {
+                counters.add(CONVERSIONS_DAY, DAY_MS, lagMillis);
+            }
+            return counters.rates();
+        }
+    }
+
+    /**
+     * Rates as of {@code nowMillis} without counting anything.
+     */
+    public Rates rates(long walletId, long nowMillis) {
+        Shard shard = shardOf(walletId);
+        synchronized (shard) {
+            Counters counters = shard.wallets.get(walletId);
+            if (counters == null) {
+                return Rates.NONE;
+            }
+            counters.decayTo(nowMillis);
+            return counters.rates();
+        }
+    }
+
+    /**
+     * Replays the last day of wallet_events after the startup migrations and before the web server
+     * starts, so the first requests are scored against rebuilt rates.
+     */
+    @Override
+    public void start() {
+        replay();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return StartupMigrations.PHASE + 1;
+    }
+
+    /**
+     * A failing query fails the context refresh, as a failing startup migration does: scoring every
+     * wallet as quiet would silently disable the velocity checks. Rows whose operation_type is no
+     * longer a {@link WalletOperationType} are skipped and counted.
+     */
+    void replay() {
+        long since = System.currentTimeMillis() - DAY_MS;
+        long[] replayed = {0};
+        Map<String, Integer> unknown = new HashMap<>();
+        jdbcTemplate.query("SELECT wallet_id, operation_type, created_at FROM wallet_events"
+                + " WHERE created_at >= ? ORDER BY created_at", rs -> {
+            String operationType = rs.getString(2);
+            WalletOperationType type;
+            try {
+                type = WalletOperationType.valueOf(operationType);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                unknown.merge(String.valueOf(operationType), 1, Integer::sum);
+                return;
+            }
+            record(rs.getLong(1), type, rs.getTimestamp(3).getTime());
+            replayed[0]++;
+        }, new Timestamp(since));
+        if (!unknown.isEmpty()) {
+            log.error("[FraudVelocity] skipped {} wallet events with an unknown operation_type: {}",
+                    unknown.values().stream().mapToInt(Integer::intValue).sum(), unknown);
+        }
+        if (replayed[0] > 0) {
+            log.info("[FraudVelocity] rebuilt rates for {} wallets from {} events", size(), replayed[0]);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${fraud.velocity.evict-ms:3600000}", initialDelayString = "${fraud.velocity.evict-ms:3600000}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                shard.wallets.values().removeIf(counters -> {
+                    counters.decayTo(now);
+                    return counters.values[CHANGES + 2] < IDLE_THRESHOLD;
+                });
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                size += shard.wallets.size();
+            }
+        }
+        return size;
+    }
+
+    private Shard shardOf(long walletId) {
+        return shards[Math.floorMod(Long.hashCode(walletId * 0x9E3779B97F4A7C15L), shards.length)];
+    }
+
+    /**
+     * Decayed event counts: roughly how many operations happened in the last minute, hour and day.
+     */
+    public record Rates(double changesLastMinute, double changesLastHour, double changesLastDay,
+                        double conversionsLastDay) {
+        public static final Rates NONE = new Rates(0, 0, 0, 0);
+    }
+
+    private static final class Shard {
+        private final Map<Long, Counters> wallets = new HashMap<>();
+    }
+
+    private static final class Counters {
+        private final double[] values = new double[WINDOWS_MS.length + 1];
+        private long lastMillis;
+
+        private Counters(long atMillis) {
+            this.lastMillis = atMillis;
+        }
+
+        private void decayTo(long nowMillis) {
+            long elapsed = nowMillis - lastMillis;
+            if (elapsed <= 0) {
+                return;  // same-instant or older event: see add
+            }
+            for (int w = 0; w < WINDOWS_MS.length; w++) {
+                values[CHANGES + w] *= Math.exp(-(double) elapsed / WINDOWS_MS[w]);
+            }
+            values[CONVERSIONS_DAY] *= Math.exp(-(double) elapsed / DAY_MS);
+            lastMillis = nowMillis;
+        }
+
+        // One event lagMillis before lastMillis, decayed as if it had been counted on time
+        private void add(int index, long windowMs, long lagMillis) {
+            values[index] += lagMillis > 0 ? Math.exp(-(double) lagMillis / windowMs) : 1.0;
+        }
+
+        private Rates rates() {
+            return new Rates(values[CHANGES], values[CHANGES + 1], values[CHANGES + 2], values[CONVERSIONS_DAY]);
+        }
+    }
+}
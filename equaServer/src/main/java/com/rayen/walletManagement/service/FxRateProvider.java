@@ -0,0 +1,104 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.FxRateSnapshot;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Current FX rates for conversions and EUR valuations. Rates are loaded from the configured
+ * {@link FxRateSource} into an immutable {@link FxRateSnapshot} that is swapped in one atomic step,
+ * so a caller that holds a snapshot sees one consistent set of rates for its whole computation.
+ * The last {@code fx.history.max-snapshots} snapshots are kept for audit.
+ */
+@Service
+@Slf4j
+public final class FxRateProvider {
+
+    private final FxRateSource source;
+    private final int historySize;
+    private final AtomicReference<FxRateSnapshot> current = new AtomicReference<>();
+    private final Deque<FxRateSnapshot> history = new ArrayDeque<>();   // newest first, guarded by this
+
+    public FxRateProvider(List<FxRateSource> sources,
+                          @Value("${fx.source:static}") String sourceName,
+                          @Value("${fx.history.max-snapshots:100}") int historySize) {
+        this.source = sources.stream()
+                .filter(s -> s.name().equals(sourceName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown fx.source: " + sourceName));
+        this.historySize = Math.max(historySize, 1);
+        if (!refresh()) {
+            // Never start without rates: fall back to the defaults until the source recovers
+            publish(new StaticFxRateSource().load(), StaticFxRateSource.NAME);
+        }
+    }
+
+    public FxRateSnapshot current() {
+        return current.get();
+    }
+
+    public BigDecimal convert(CurrencyCode from, CurrencyCode to, BigDecimal amount) {
+        return current.get().convert(from, to, amount);
+    }
+
+    /**
+     * Reloads the source and swaps in a new snapshot if any rate changed.
+     * Returns false if the source could not be read; the current snapshot then stays in place.
+     */
+    @Scheduled(fixedDelayString = "${fx.refresh-ms:60000}", initialDelayString = "${fx.refresh-ms:60000}")
+    public boolean refresh() {
+        try {
+            publish(source.load(), source.name());
+            return true;
+        } catch (Exception e) {
+            log.warn("[FX] could not load rates from {}: {}", source.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Retained snapshots, newest first.
+     */
+    public synchronized List<FxRateSnapshot> history() {
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * The snapshot that was current at {@code at}, or null if it is older than the retained history.
+     */
+    public synchronized FxRateSnapshot snapshotAt(LocalDateTime at) {
+        for (FxRateSnapshot snapshot : history) {
+            if (!snapshot.getLoadedAt().isAfter(at)) {
+                return snapshot;
+            }
+        }
+        return null;
+    }
+
+    private synchronized void publish(Map<CurrencyCode, BigDecimal> rates, String sourceName) {
+        FxRateSnapshot previous = current.get();
+        long version = previous == null ? 1 : previous.getVersion() + 1;
+        FxRateSnapshot next = FxRateSnapshot.of(version, sourceName, LocalDateTime.now(), rates);
+        if (previous != null && previous.hasSameRates(next)) {
+            return;
+        }
+        current.set(next);
+        history.addFirst(next);
+        while (history.size() > historySize) {
+            history.removeLast();
+        }
+        log.info("[FX] snapshot v{} from {}: {}", version, sourceName, next.getEurRates());
+    }
+}
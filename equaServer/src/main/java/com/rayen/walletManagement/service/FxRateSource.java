@@ -0,0 +1,20 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.CurrencyCode;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Where {@link FxRateProvider} reads rates from; chosen by name with {@code fx.source}.
+ */
+public interface FxRateSource {
+
+    String name();
+
+    /**
+     * EUR value of one unit of each currency. May throw on an unreadable or incomplete source;
+     * the provider then keeps serving its current snapshot.
+     */
+    Map<CurrencyCode, BigDecimal> load() throws Exception;
+}
@@ -0,0 +1,68 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.config.LegacySchema;
+import com.rayen.config.StartupMigration;
+import com.rayen.walletManagement.model.AchievementType;
+import com.rayen.walletManagement.model.ChallengeType;
+import com.rayen.walletManagement.model.EnumBits;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One-time fold of the legacy wallet_achievements / wallet_challenges rows into the bitmask
+ * columns that ddl-auto adds to wallets. Only rows whose mask is still NULL are touched; the
+ * legacy tables are left in place and are no longer read. Runs before the server accepts requests,
+ * since a wallet evaluated with a NULL mask would be granted everything again.
+ */
+@Component
+@Order(3)
+@RequiredArgsConstructor
+@Slf4j
+public class GamificationBitsBackfill implements StartupMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void migrate() {
+        backfill("wallet_achievements", "achievement", "achievement_bits", AchievementType.class);
+        backfill("wallet_challenges", "challenge", "challenge_bits", ChallengeType.class);
+    }
+
+    private <E extends Enum<E>> void backfill(String legacyTable, String legacyColumn, String maskColumn, Class<E> type) {
+        Map<Long, Long> masks = new HashMap<>();
+        if (LegacySchema.hasTable(jdbcTemplate, legacyTable)) {
+            jdbcTemplate.query("SELECT l.wallet_id, l." + legacyColumn + " FROM " + legacyTable + " l"
+                    + " JOIN wallets w ON w.wallet_id = l.wallet_id WHERE w." + maskColumn + " IS NULL", rs -> {
+                long bit = bitOf(type, rs.getString(2));
+                masks.merge(rs.getLong(1), bit, (a, b) -> a | b);
+            });
+        }
+
+        if (!masks.isEmpty()) {
+            List<Object[]> updates = new ArrayList<>(masks.size());
+            masks.forEach((walletId, mask) -> updates.add(new Object[]{mask, walletId}));
+            jdbcTemplate.batchUpdate("UPDATE wallets SET " + maskColumn + " = ? WHERE wallet_id = ? AND " + maskColumn + " IS NULL", updates);
+        }
+        int rest = jdbcTemplate.update("UPDATE wallets SET " + maskColumn + " = 0 WHERE " + maskColumn + " IS NULL");
+        if (!masks.isEmpty() || rest > 0) {
+            log.info("[Gamification] migrated {} of {} wallets to {}", masks.size(), masks.size() + rest, maskColumn);
+        }
+    }
+
+    // Unknown names (constants since removed) are dropped
+    private static <E extends Enum<E>> long bitOf(Class<E> type, String name) {
+        try {
+            return name == null ? 0L : EnumBits.bit(Enum.valueOf(type, name));
+        } catch (IllegalArgumentException e) {
+            return 0L;
+        }
+    }
+}
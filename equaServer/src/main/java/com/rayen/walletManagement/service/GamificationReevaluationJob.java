@@ -0,0 +1,122 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.repository.WalletRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brings every wallet up to the current {@link GamificationRules#VERSION}, so rules added since a
+ * wallet was last evaluated are granted without waiting for its next operation. Wallets stamped
+ * with an older version are read in wallet-ID keyset chunks and each chunk is evaluated and saved
+ * in its own transaction on a worker pool. Progress lives in the version column itself, so an
+ * interrupted run resumes where it stopped on the next start.
+ */
+@Component
+@Slf4j
+public class GamificationReevaluationJob implements ApplicationRunner {
+
+    private final WalletRepository walletRepository;
+    private final GamificationService gamificationService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${gamification.reevaluate.threads:4}")
+    private int threads;
+
+    @Value("${gamification.reevaluate.chunk-size:500}")
+    private int chunkSize;
+
+    public GamificationReevaluationJob(WalletRepository walletRepository, GamificationService gamificationService,
+                                       JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.walletRepository = walletRepository;
+        this.gamificationService = gamificationService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // In the background: a new rule must not hold up startup for a full pass over the wallets
+    @Override
+    public void run(ApplicationArguments args) {
+        Thread.ofPlatform().name("gamification-reevaluation").daemon().start(this::reevaluateOutdated);
+    }
+
+    /**
+     * Re-evaluates every wallet whose rules version is missing or older than the current one.
+     * Returns the number of wallets that earned something.
+     */
+    public int reevaluateOutdated() {
+        AtomicInteger evaluated = new AtomicInteger();
+        AtomicInteger earned = new AtomicInteger();
+        int workers = Math.max(threads, 1);
+        // Bounded queue + caller-runs: the reader never gets more than a few chunks ahead of the workers
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2), Thread.ofPlatform().name("gamification-reevaluation-", 0).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            long after = 0;
+            List<Long> chunk;
+            while (!(chunk = outdatedAfter(after)).isEmpty()) {
+                after = chunk.get(chunk.size() - 1);
+                List<Long> ids = chunk;
+                pool.execute(() -> {
+                    try {
+                        earned.addAndGet(reevaluate(ids));
+                        evaluated.addAndGet(ids.size());
+                    } catch (Exception e) {
+                        // Left on the old version: retried on the next run
+                        log.warn("[Gamification] re-evaluation of wallets {}..{} failed: {}", ids.get(0), ids.get(ids.size() - 1), e.getMessage());
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (evaluated.get() > 0) {
+            log.info("[Gamification] re-evaluated {} wallets under rules v{}, {} earned something",
+                    evaluated.get(), GamificationRules.VERSION, earned.get());
+        }
+        return earned.get();
+    }
+
+    // Masks still NULL are waiting for GamificationBitsBackfill, which only fills NULL masks
+    private List<Long> outdatedAfter(long after) {
+        return jdbcTemplate.queryForList("SELECT wallet_id FROM wallets WHERE wallet_id > ?"
+                + " AND (gamification_rules_version IS NULL OR gamification_rules_version < ?)"
+                + " AND achievement_bits IS NOT NULL AND challenge_bits IS NOT NULL"
+                + " ORDER BY wallet_id LIMIT ?", Long.class, after, GamificationRules.VERSION, chunkSize);
+    }
+
+    // Locked like the event processor does, so a concurrent operation cannot overwrite the new bits
+    private int reevaluate(List<Long> walletIds) {
+        Integer earned = transactionTemplate.execute(status -> {
+            int count = 0;
+            List<Wallet> wallets = walletRepository.findAllByIdForUpdate(walletIds);
+            for (Wallet wallet : wallets) {
+                if (gamificationService.evaluate(wallet, null)) {
+                    count++;
+                }
+            }
+            walletRepository.saveAll(wallets);
+            return count;
+        });
+        return earned == null ? 0 : earned;
+    }
+}
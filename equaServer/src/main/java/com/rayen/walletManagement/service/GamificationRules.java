@@ -0,0 +1,120 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.AchievementType;
+import com.rayen.walletManagement.model.ChallengeType;
+import com.rayen.walletManagement.model.GamificationContext;
+import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.model.Money;
+
+import java.math.BigDecimal;
+import java.util.function.Predicate;
+
+/**
+ * Every achievement and challenge condition, declared once. Each set is compiled into an array of
+ * predicates indexed by the constant's ordinal, the same bit it has in the wallet's mask, so
+ * evaluation walks only the bits a wallet has not earned yet.
+ * <p>
+ * Bump {@link #VERSION} when adding or changing a rule: wallets evaluated under an older version
+ * are picked up again by {@link GamificationReevaluationJob}.
+ */
+public final class GamificationRules {
+
+    public static final int VERSION = 1;
+
+    private static final BigDecimal HIGH_BALANCE = BigDecimal.valueOf(10_000);
+    private static final BigDecimal WEEKLY_GROWTH_TARGET = BigDecimal.valueOf(5_000);
+    private static final Money DAILY_MINIMUM_BALANCE = Money.of(500);
+
+    public static final RuleSet<AchievementType> ACHIEVEMENTS = RuleSet.of(AchievementType.class)
+            .rule(AchievementType.FIRST_WALLET_FUNDING, c -> c.equaBalance().isPositive())
+            .rule(AchievementType.FIRST_CURRENCY_CONVERSION, GamificationContext::hasConverted)
+            .rule(AchievementType.HOLDING_MULTIPLE_CURRENCIES, c -> c.heldCurrencies() >= 2)
+            .rule(AchievementType.REACHED_HIGH_BALANCE, c -> c.netWorth().compareTo(HIGH_BALANCE) >= 0)
+            .rule(AchievementType.REACHED_PLATINUM_TIER, c -> c.loyaltyTier() == LoyaltyTier.PLATINUM)
+            .build();
+
+    public static final RuleSet<ChallengeType> CHALLENGES = RuleSet.of(ChallengeType.class)
+            .rule(ChallengeType.DAILY_MINIMUM_BALANCE, c -> c.equaBalance().isAtLeast(DAILY_MINIMUM_BALANCE))
+            .rule(ChallengeType.WEEKLY_VALUE_GROWTH, c -> c.netWorth().compareTo(WEEKLY_GROWTH_TARGET) >= 0)
+            .rule(ChallengeType.MULTI_CURRENCY_USE, c -> c.heldCurrencies() >= 2)
+            .rule(ChallengeType.CONSISTENT_ACTIVITY, c -> c.recentBalanceChanges() >= 3)
+            .build();
+
+    private GamificationRules() {
+    }
+
+    /**
+     * Compiled rules over one enum stored as an EnumBits mask.
+     */
+    public static final class RuleSet<E extends Enum<E>> {
+
+        private final Predicate<GamificationContext>[] predicates;
+        private final long declared;
+
+        private RuleSet(Predicate<GamificationContext>[] predicates, long declared) {
+            this.predicates = predicates;
+            this.declared = declared;
+        }
+
+        static <E extends Enum<E>> Builder<E> of(Class<E> type) {
+            return new Builder<>(type);
+        }
+
+        /**
+         * Bits of declared rules that {@code earned} does not contain yet.
+         */
+        public long pending(long earned) {
+            return declared & ~earned;
+        }
+
+        /**
+         * Tests only the rules pending for {@code earned} and returns the bits newly satisfied.
+         */
+        public long evaluate(long earned, GamificationContext context) {
+            long gained = 0L;
+            for (long pending = pending(earned); pending != 0; pending &= pending - 1) {
+                int ordinal = Long.numberOfTrailingZeros(pending);
+                if (predicates[ordinal].test(context)) {
+                    gained |= 1L << ordinal;
+                }
+            }
+            return gained;
+        }
+    }
+
+    static final class Builder<E extends Enum<E>> {
+
+        private final Class<E> type;
+        private final Predicate<GamificationContext>[] predicates;
+        private long declared;
+
+        // Generic arrays cannot be created: a raw Predicate[] holds only the conditions passed to rule()
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Builder(Class<E> type) {
+            int size = type.getEnumConstants().length;
+            if (size > Long.SIZE) {
+                throw new IllegalStateException(type.getSimpleName() + " has more constants than a mask holds");
+            }
+            this.type = type;
+            this.predicates = new Predicate[size];
+        }
+
+        Builder<E> rule(E constant, Predicate<GamificationContext> condition) {
+            if (predicates[constant.ordinal()] != null) {
+                throw new IllegalStateException("Duplicate rule for " + constant);
+            }
+            predicates[constant.ordinal()] = condition;
+            declared |= 1L << constant.ordinal();
+            return this;
+        }
+
+        RuleSet<E> build() {
+            for (E constant : type.getEnumConstants()) {
+                if (predicates[constant.ordinal()] == null) {
+                    throw new IllegalStateException("No rule declared for " + constant);
+                }
+            }
+            return new RuleSet<>(predicates.clone(), declared);
+        }
+    }
+}
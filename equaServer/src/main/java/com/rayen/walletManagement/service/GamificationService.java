@@ -1,67 +1,57 @@
 package com.rayen.walletManagement.service;
 
 import com.rayen.walletManagement.entity.Wallet;
-import com.rayen.walletManagement.model.AchievementType;
-import com.rayen.walletManagement.model.ChallengeType;
 import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.FxRateSnapshot;
+import com.rayen.walletManagement.model.GamificationContext;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
 import com.rayen.walletManagement.model.RewardType;
 import com.rayen.walletManagement.model.WalletOperationType;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.Map;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class GamificationService {
 
-    public void evaluateAchievements(Wallet wallet, WalletOperationType operationType) {
-        if (wallet.getEquaAmount() > 0 && !wallet.getAchievements().contains(AchievementType.FIRST_WALLET_FUNDING.name())) {
-            wallet.getAchievements().add(AchievementType.FIRST_WALLET_FUNDING.name());
-        }
-
-        if (operationType == WalletOperationType.CONVERSION) {
-            wallet.getAchievements().add(AchievementType.FIRST_CURRENCY_CONVERSION.name());
-        }
-
-        if (hasMultipleCurrencies(wallet)) {
-            wallet.getAchievements().add(AchievementType.HOLDING_MULTIPLE_CURRENCIES.name());
-        }
-
-        if (computeAggregateNetWorth(wallet).compareTo(BigDecimal.valueOf(10_000)) >= 0) {
-            wallet.getAchievements().add(AchievementType.REACHED_HIGH_BALANCE.name());
-        }
-
-        if (wallet.getLoyaltyTier().name().equals("PLATINUM")) {
-            wallet.getAchievements().add(AchievementType.REACHED_PLATINUM_TIER.name());
-        }
-    }
+    private final WalletLedgerService walletLedgerService;
+    private final FxRateProvider fxRateProvider;
 
-    public void evaluateChallenges(Wallet wallet) {
-        if (wallet.getEquaAmount() >= 500) {
-            wallet.getCompletedChallenges().add(ChallengeType.DAILY_MINIMUM_BALANCE.name());
+    /**
+     * Checks the rules the wallet has not satisfied yet against one context computed for this
+     * operation, sets the newly earned bits and stamps the rules version it was evaluated under.
+     * Returns true if anything was earned.
+     */
+    public boolean evaluate(Wallet wallet, WalletOperationType operationType) {
+        long achievements = wallet.getAchievementBits() == null ? 0L : wallet.getAchievementBits();
+        long challenges = wallet.getChallengeBits() == null ? 0L : wallet.getChallengeBits();
+        long gainedAchievements = 0L;
+        long gainedChallenges = 0L;
+        if (GamificationRules.ACHIEVEMENTS.pending(achievements) != 0 || GamificationRules.CHALLENGES.pending(challenges) != 0) {
+            GamificationContext context = contextOf(wallet, operationType);
+            gainedAchievements = GamificationRules.ACHIEVEMENTS.evaluate(achievements, context);
+            gainedChallenges = GamificationRules.CHALLENGES.evaluate(challenges, context);
         }
-
-        if (computeAggregateNetWorth(wallet).compareTo(BigDecimal.valueOf(5_000)) >= 0) {
-            wallet.getCompletedChallenges().add(ChallengeType.WEEKLY_VALUE_GROWTH.name());
+        if (gainedAchievements != 0) {
+            wallet.setAchievementBits(achievements | gainedAchievements);
         }
-
-        if (hasMultipleCurrencies(wallet)) {
-            wallet.getCompletedChallenges().add(ChallengeType.MULTI_CURRENCY_USE.name());
-        }
-
-        if (wallet.getRecentBalanceChanges() != null && wallet.getRecentBalanceChanges() >= 3) {
-            wallet.getCompletedChallenges().add(ChallengeType.CONSISTENT_ACTIVITY.name());
+        if (gainedChallenges != 0) {
+            wallet.setChallengeBits(challenges | gainedChallenges);
         }
+        wallet.setGamificationRulesVersion(GamificationRules.VERSION);
+        return gainedAchievements != 0 || gainedChallenges != 0;
     }
 
     public void applyReward(Wallet wallet, RewardType rewardType, BigDecimal amount) {
         switch (rewardType) {
             case BONUS_POINTS -> wallet.setLoyaltyPoints(wallet.getLoyaltyPoints().add(amount));
-            case CASHBACK -> wallet.setEquaAmount(wallet.getEquaAmount() + amount.floatValue());
+            case CASHBACK -> walletLedgerService.post(wallet, Money.of(amount), PostingType.REWARD_CREDIT, null);
             case TIER_BOOST -> wallet.setLoyaltyPoints(wallet.getLoyaltyPoints().add(BigDecimal.valueOf(500)));
             default -> throw new IllegalArgumentException("Unknown reward type");
         }
@@ -69,26 +59,27 @@ public class GamificationService {
     }
 
     public BigDecimal computeAggregateNetWorth(Wallet wallet) {
-        BigDecimal mainBalance = BigDecimal.valueOf(wallet.getEquaAmount());
-        if (wallet.getDeviseWallet() == null) {
-            return mainBalance;
-        }
-        BigDecimal total = mainBalance;
-        for (Map.Entry<CurrencyCode, BigDecimal> entry : wallet.getDeviseWallet().getBalances().entrySet()) {
-            if (entry.getValue() != null) {
-                total = total.add(entry.getKey().getEurRate().multiply(entry.getValue()));
-            }
-        }
-        return total;
+        return contextOf(wallet, null).netWorth();
     }
 
-    private boolean hasMultipleCurrencies(Wallet wallet) {
-        if (wallet.getDeviseWallet() == null) {
-            return false;
+    // One pass over the devise balances gives both the net worth and the number of currencies held
+    GamificationContext contextOf(Wallet wallet, WalletOperationType operationType) {
+        Money equa = walletLedgerService.balance(wallet.getWalletId());
+        BigDecimal netWorth = equa.toBigDecimal();
+        int heldCurrencies = 0;
+        if (wallet.getDeviseWallet() != null) {
+            FxRateSnapshot rates = fxRateProvider.current();
+            for (Map.Entry<CurrencyCode, BigDecimal> entry : wallet.getDeviseWallet().getBalances().entrySet()) {
+                BigDecimal balance = entry.getValue();
+                netWorth = netWorth.add(rates.toEur(entry.getKey(), balance));
+                if (balance.signum() > 0) {
+                    heldCurrencies++;
+                }
+            }
         }
-        return wallet.getDeviseWallet().getBalances().entrySet().stream()
-                .filter(entry -> entry.getValue() != null)
-                .filter(entry -> entry.getValue().compareTo(BigDecimal.ZERO) > 0)
-                .count() >= 2;
+        return new GamificationContext(operationType, equa, netWorth, heldCurrencies,
+                wallet.getLoyaltyTier(),
+                wallet.getRecentBalanceChanges() == null ? 0 : wallet.getRecentBalanceChanges(),
+                operationType == WalletOperationType.CONVERSION || wallet.getLastConversionAt() != null);
     }
 }
@@ -0,0 +1,37 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.config.StartupMigration;
+import com.rayen.walletManagement.model.PostingType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Opens the ledger of wallets that hold EQUA from before it existed: one OPENING_BALANCE posting
+ * with the current balance, for every wallet that has no posting yet. Runs after
+ * {@link EquaUnitsBackfill} so legacy balances are already in units, and before the server accepts
+ * requests, so no wallet can get its first posting before its opening balance. Wallets created
+ * since start at zero and never need one.
+ */
+@Component
+@Order(2)
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerOpeningBalances implements StartupMigration {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void migrate() {
+        int rows = jdbcTemplate.update("INSERT INTO wallet_postings (wallet_id, amount_units, type, reference, created_at)"
+                + " SELECT w.wallet_id, w.equa_units, '" + PostingType.OPENING_BALANCE.name() + "', NULL, CURRENT_TIMESTAMP"
+                + " FROM wallets w"
+                + " WHERE w.equa_units IS NOT NULL AND w.equa_units <> 0"
+                + " AND NOT EXISTS (SELECT 1 FROM wallet_postings p WHERE p.wallet_id = w.wallet_id)");
+        if (rows > 0) {
+            log.info("[Ledger] opened {} wallets with their existing balance", rows);
+        }
+    }
+}
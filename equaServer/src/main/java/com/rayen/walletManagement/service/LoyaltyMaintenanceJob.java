@@ -0,0 +1,254 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.BatchCheckpoint;
+import com.rayen.walletManagement.entity.LoyaltyExpiry;
+import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.repository.BatchCheckpointRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Applies the current {@link LoyaltyTier} thresholds and the points expiry policy to every wallet,
+ * including dormant ones that {@link LoyaltyService#refreshTier} never sees. Wallets are read as
+ * plain columns in wallet-ID keyset chunks (no entities), each chunk is computed and written by a
+ * worker with one JDBC batch holding only the rows that changed, and a checkpoint records how far
+ * the run got so an interrupted run resumes instead of starting over.
+ * <p>
+ * Expiry (off unless {@code loyalty.expiry.inactive-days} is positive): points of a wallet without
+ * loyalty activity for that many days are reset to zero, and each reset leaves a {@link LoyaltyExpiry}
+ * row. Wallets that never recorded activity start their clock at their first run.
+ */
+@Component
+@Slf4j
+public class LoyaltyMaintenanceJob {
+
+    static final String JOB_NAME = "loyalty-maintenance";
+
+    // Only written if the row still holds what the chunk read: a concurrent operation wins
+    private static final String UPDATE_SQL = "UPDATE wallets SET loyalty_points = ?, loyalty_tier = ?, loyalty_activity_at = ?"
+            + " WHERE wallet_id = ? AND loyalty_points IS NOT DISTINCT FROM ? AND loyalty_tier IS NOT DISTINCT FROM ?"
+            + " AND loyalty_activity_at IS NOT DISTINCT FROM ?";
+
+    private static final String EXPIRY_SQL = "INSERT INTO loyalty_expiries (wallet_id, points, last_activity_at, expired_at)"
+            + " VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BatchCheckpointRepository checkpointRepository;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${loyalty.batch.threads:4}")
+    private int threads;
+
+    @Value("${loyalty.batch.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${loyalty.expiry.inactive-days:0}")
+    private long inactiveDays;
+
+    public LoyaltyMaintenanceJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 BatchCheckpointRepository checkpointRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.checkpointRepository = checkpointRepository;
+    }
+
+    @Scheduled(cron = "${loyalty.batch.cron:0 0 3 * * *}")
+    public void runNightly() {
+        run();
+    }
+
+    /**
+     * Runs (or resumes) one pass over all wallets. Returns the number of wallets updated,
+     * or -1 if a pass is already in progress.
+     */
+    public long run() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("[Loyalty] maintenance already running, skipping");
+            return -1;
+        }
+        try {
+            return pass();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long pass() {
+        BatchCheckpoint checkpoint = checkpointRepository.findById(JOB_NAME)
+                .filter(c -> c.getCompletedAt() == null)
+                .orElseGet(() -> BatchCheckpoint.builder().jobName(JOB_NAME).lastWalletId(0L).runStartedAt(LocalDateTime.now()).build());
+        if (checkpoint.getLastWalletId() > 0) {
+            log.info("[Loyalty] resuming run of {} after wallet {}", checkpoint.getRunStartedAt(), checkpoint.getLastWalletId());
+        }
+        LocalDateTime now = checkpoint.getRunStartedAt();
+        LocalDateTime expireBefore = inactiveDays > 0 ? now.minusDays(inactiveDays) : null;
+
+        Progress progress = new Progress(checkpoint);
+        AtomicLong updated = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        int workers = Math.max(threads, 1);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(workers * 2), Thread.ofPlatform().name("loyalty-maintenance-", 0).factory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        long started = System.currentTimeMillis();
+        long read = 0;
+        try {
+            long after = checkpoint.getLastWalletId();
+            List<LoyaltyRow> chunk;
+            for (long sequence = 0; !failed.get() && !(chunk = readAfter(after)).isEmpty(); sequence++) {
+                after = chunk.get(chunk.size() - 1).walletId();
+                read += chunk.size();
+                long chunkSequence = sequence;
+                long lastWalletId = after;
+                List<LoyaltyRow> rows = chunk;
+                pool.execute(() -> {
+                    try {
+                        updated.addAndGet(write(rows, now, expireBefore));
+                        progress.complete(chunkSequence, lastWalletId);
+                    } catch (Exception e) {
+                        failed.set(true);
+                        log.warn("[Loyalty] chunk ending at wallet {} failed: {}", lastWalletId, e.getMessage());
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failed.set(true);
+            }
+        }
+        if (!failed.get()) {
+            progress.finish();
+        }
+        log.info("[Loyalty] maintenance {}: {} wallets read, {} updated in {} ms",
+                failed.get() ? "stopped, will resume" : "done", read, updated.get(), System.currentTimeMillis() - started);
+        return updated.get();
+    }
+
+    private List<LoyaltyRow> readAfter(long walletId) {
+        return jdbcTemplate.query("SELECT wallet_id, loyalty_points, loyalty_tier, loyalty_activity_at FROM wallets"
+                        + " WHERE wallet_id > ? ORDER BY wallet_id LIMIT ?",
+                (rs, i) -> {
+                    String tier = rs.getString(3);
+                    Timestamp activity = rs.getTimestamp(4);
+                    return new LoyaltyRow(rs.getLong(1), rs.getBigDecimal(2), tier == null ? null : LoyaltyTier.valueOf(tier),
+                            activity == null ? null : activity.toLocalDateTime());
+                }, walletId, chunkSize);
+    }
+
+    private int write(List<LoyaltyRow> rows, LocalDateTime now, LocalDateTime expireBefore) {
+        List<LoyaltyRow> changed = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (LoyaltyRow row : rows) {
+            LoyaltyRow next = maintain(row, now, expireBefore);
+            if (!next.equals(row)) {
+                changed.add(row);
+                updates.add(new Object[]{next.points(), next.tier().name(), Timestamp.valueOf(next.activityAt()),
+                        row.walletId(), row.points(), row.tier() == null ? null : row.tier().name(),
+                        row.activityAt() == null ? null : Timestamp.valueOf(row.activityAt())});
+            }
+        }
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        return transactionTemplate.execute(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+            List<Object[]> expiries = new ArrayList<>();
+            int written = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 0) {
+                    continue;
+                }
+                written++;
+                LoyaltyRow row = changed.get(i);
+                if (expired(row, expireBefore)) {
+                    expiries.add(new Object[]{row.walletId(), row.points(), Timestamp.valueOf(row.activityAt()),
+                            Timestamp.valueOf(now)});
+                }
+            }
+            if (!expiries.isEmpty()) {
+                jdbcTemplate.batchUpdate(EXPIRY_SQL, expiries);
+            }
+            return written;
+        });
+    }
+
+    /**
+     * The row after expiry and tier recomputation as of {@code now}; equal to {@code row} when nothing changes.
+     */
+    static LoyaltyRow maintain(LoyaltyRow row, LocalDateTime now, LocalDateTime expireBefore) {
+        BigDecimal points = row.points() == null ? BigDecimal.ZERO : row.points();
+        LocalDateTime activityAt = row.activityAt();
+        if (activityAt == null) {
+            activityAt = now;
+        } else if (expired(row, expireBefore)) {
+            points = BigDecimal.ZERO;
+        }
+        LoyaltyTier tier = LoyaltyTier.forPoints(points);
+        if (row.points() != null && points.compareTo(row.points()) == 0) {
+            points = row.points();  // keep the stored scale so an unchanged row compares equal
+        }
+        return new LoyaltyRow(row.walletId(), points, tier, activityAt);
+    }
+
+    private static boolean expired(LoyaltyRow row, LocalDateTime expireBefore) {
+        return expireBefore != null && row.activityAt() != null && row.activityAt().isBefore(expireBefore)
+                && row.points() != null && row.points().signum() > 0;
+    }
+
+    record LoyaltyRow(long walletId, BigDecimal points, LoyaltyTier tier, LocalDateTime activityAt) {
+    }
+
+    /**
+     * Chunks finish out of order; the checkpoint only moves past a chunk once every earlier one is done.
+     */
+    private final class Progress {
+        private final BatchCheckpoint checkpoint;
+        private final TreeMap<Long, Long> finished = new TreeMap<>();
+        private long nextSequence;
+
+        private Progress(BatchCheckpoint checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+
+        private synchronized void complete(long sequence, long lastWalletId) {
+            finished.put(sequence, lastWalletId);
+            Long reached = null;
+            while (finished.containsKey(nextSequence)) {
+                reached = finished.remove(nextSequence++);
+            }
+            if (reached != null) {
+                checkpoint.setLastWalletId(reached);
+                checkpoint.setUpdatedAt(LocalDateTime.now());
+                checkpointRepository.save(checkpoint);
+            }
+        }
+
+        private synchronized void finish() {
+            checkpoint.setCompletedAt(LocalDateTime.now());
+            checkpoint.setUpdatedAt(checkpoint.getCompletedAt());
+            checkpointRepository.save(checkpoint);
+        }
+    }
+}
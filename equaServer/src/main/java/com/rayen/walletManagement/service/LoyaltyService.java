@@ -2,16 +2,23 @@ package com.rayen.walletManagement.service;
 
 import com.rayen.walletManagement.entity.Wallet;
 import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
 import com.rayen.walletManagement.model.WalletOperationType;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class LoyaltyService {
 
+    private final WalletLedgerService walletLedgerService;
+
     public void recordActivity(Wallet wallet, BigDecimal amount, WalletOperationType operationType) {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             return;
@@ -27,19 +34,14 @@ public class LoyaltyService {
 
         BigDecimal updated = wallet.getLoyaltyPoints().add(earned);
         wallet.setLoyaltyPoints(updated);
+        wallet.setLoyaltyActivityAt(LocalDateTime.now());
         refreshTier(wallet);
 
         log.info("Loyalty updated for wallet {}: earned {} points, total {}", wallet.getWalletId(), earned, updated);
     }
 
     public void refreshTier(Wallet wallet) {
-        LoyaltyTier nextTier = wallet.getLoyaltyTier();
-        for (LoyaltyTier tier : LoyaltyTier.values()) {
-            if (wallet.getLoyaltyPoints().compareTo(tier.getPointsThreshold()) >= 0) {
-                nextTier = tier;
-            }
-        }
-        wallet.setLoyaltyTier(nextTier);
+        wallet.setLoyaltyTier(LoyaltyTier.forPoints(wallet.getLoyaltyPoints()));
     }
 
     public void redeemPoints(Wallet wallet, BigDecimal pointsToRedeem) {
@@ -52,8 +54,9 @@ public class LoyaltyService {
 
         BigDecimal creditValue = pointsToRedeem.divide(BigDecimal.valueOf(100), 2, BigDecimal.ROUND_HALF_UP);
         wallet.setLoyaltyPoints(wallet.getLoyaltyPoints().subtract(pointsToRedeem));
-        wallet.setEquaAmount(wallet.getEquaAmount() + creditValue.floatValue());
+        wallet.setLoyaltyActivityAt(LocalDateTime.now());
         refreshTier(wallet);
+        walletLedgerService.post(wallet, Money.of(creditValue), PostingType.LOYALTY_REDEEM, null);
         log.info("Redeemed {} points into {} EUR for wallet {}", pointsToRedeem, creditValue, wallet.getWalletId());
     }
 }
@@ -0,0 +1,31 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.CurrencyCode;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Local stub: the fixed default rates declared on {@link CurrencyCode}.
+ */
+@Component
+public class StaticFxRateSource implements FxRateSource {
+
+    public static final String NAME = "static";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Map<CurrencyCode, BigDecimal> load() {
+        Map<CurrencyCode, BigDecimal> rates = new EnumMap<>(CurrencyCode.class);
+        for (CurrencyCode currency : CurrencyCode.values()) {
+            rates.put(currency, currency.getDefaultEurRate());
+        }
+        return rates;
+    }
+}
@@ -0,0 +1,366 @@
+package com.rayen.walletManagement.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Wallet-to-wallet transfers as a compact directed multigraph. Wallet IDs are interned into dense
+ * node indexes and every edge is a slot in a handful of primitive arrays, with out- and in-edge
+ * lists in CSR form (an offsets array plus one edge-index array per direction). That keeps an edge
+ * at about 24 bytes, so tens of millions of transfers fit in a regular heap.
+ * <p>
+ * Edges must be added in timestamp order; both edge lists then stay time-ordered per node, which is
+ * what the sliding-window detectors rely on.
+ */
+public final class TransferGraph {
+
+    private final long[] walletIds;     // node -> wallet ID
+    private final int[] from;           // edge -> source node
+    private final int[] to;             // edge -> target node
+    private final int[] seconds;        // edge -> seconds since baseEpochSecond
+    private final float[] amounts;      // edge -> EQUA
+    private final int[] outStart;       // node -> first slot in outEdges, CSR offsets (n + 1)
+    private final int[] outEdges;
+    private final int[] inStart;
+    private final int[] inEdges;
+
+    private TransferGraph(long[] walletIds, int[] from, int[] to, int[] seconds, float[] amounts) {
+        this.walletIds = walletIds;
+        this.from = from;
+        this.to = to;
+        this.seconds = seconds;
+        this.amounts = amounts;
+        this.outStart = new int[walletIds.length + 1];
+        this.outEdges = new int[from.length];
+        this.inStart = new int[walletIds.length + 1];
+        this.inEdges = new int[from.length];
+        index(from, outStart, outEdges);
+        index(to, inStart, inEdges);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int nodeCount() {
+        return walletIds.length;
+    }
+
+    public int edgeCount() {
+        return from.length;
+    }
+
+    public long walletId(int node) {
+        return walletIds[node];
+    }
+
+    /**
+     * Runs every detector over all nodes, in parallel on {@code pool}. Each node is analysed on its
+     * own, so partitions need no coordination; the result arrays are only ever set to true.
+     */
+    public Findings analyse(Limits limits, ForkJoinPool pool) {
+        int n = nodeCount();
+        Findings findings = new Findings(new boolean[n], new boolean[n], new boolean[n], new boolean[n]);
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(n, limits.cycleMaxLength()));
+        pool.submit(() -> IntStream.range(0, n).parallel().forEach(node -> {
+            Scratch s = scratch.get();
+            if (burst(node, outStart, outEdges, to, limits, s)) {
+                findings.fanOut()[node] = true;
+            }
+            if (burst(node, inStart, inEdges, from, limits, s)) {
+                findings.fanIn()[node] = true;
+            }
+            if (passThrough(node, limits)) {
+                findings.passThrough()[node] = true;
+            }
+            findCycles(node, limits, s, findings.cycle());
+        })).join();
+        return findings;
+    }
+
+    /**
+     * True when some window of {@code burstWindowSeconds} holds transfers with at least
+     * {@code burstMinCounterparties} distinct counterparties on one side of {@code node}.
+     */
+    private boolean burst(int node, int[] start, int[] edges, int[] counterpart, Limits limits, Scratch s) {
+        int lo = start[node];
+        int hi = start[node + 1];
+        if (hi - lo < limits.burstMinCounterparties()) {
+            return false;
+        }
+        int[] counts = s.counts;
+        int distinct = 0;
+        int tail = lo;
+        boolean found = false;
+        for (int head = lo; head < hi && !found; head++) {
+            int e = edges[head];
+            if (counts[counterpart[e]]++ == 0) {
+                distinct++;
+            }
+            while (seconds[e] - seconds[edges[tail]] > limits.burstWindowSeconds()) {
+                if (--counts[counterpart[edges[tail++]]] == 0) {
+                    distinct--;
+                }
+            }
+            found = distinct >= limits.burstMinCounterparties();
+            if (found) {
+                hi = head + 1;  // only the window's entries are left to clear below
+            }
+        }
+        for (int i = tail; i < hi; i++) {
+            counts[counterpart[edges[i]]] = 0;
+        }
+        return found;
+    }
+
+    /**
+     * True when at least {@code passMinCount} incoming transfers were sent on, to someone other than
+     * their sender, within {@code passWindowSeconds} and keeping at least (1 - passTolerance) of the amount.
+     */
+    private boolean passThrough(int node, Limits limits) {
+        int outLo = outStart[node];
+        int outHi = outStart[node + 1];
+        if (outLo == outHi) {
+            return false;
+        }
+        int matches = 0;
+        int cursor = outLo;
+        for (int i = inStart[node]; i < inStart[node + 1]; i++) {
+            int in = inEdges[i];
+            while (cursor < outHi && seconds[outEdges[cursor]] < seconds[in]) {
+                cursor++;
+            }
+            float min = amounts[in] * (1f - (float) limits.passTolerance());
+            int scanned = 0;
+            for (int j = cursor; j < outHi && scanned < limits.maxScan(); j++, scanned++) {
+                int out = outEdges[j];
+                if (seconds[out] - seconds[in] > limits.passWindowSeconds()) {
+                    break;
+                }
+                if (to[out] != from[in] && amounts[out] >= min && amounts[out] <= amounts[in]) {
+                    if (++matches >= limits.passMinCount()) {
+                        return true;
+                    }
+                    break;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks every node on a time-respecting cycle that starts and ends at {@code node}: each hop
+     * strictly later than the previous one, at most {@code cycleMaxLength} hops and
+     * {@code cycleMaxSpanSeconds} end to end. Only the rotation starting with the earliest transfer
+     * has increasing times, so each cycle is walked from exactly one of its nodes. The walk behind each
+     * first hop stops after {@code cycleMaxSteps} edges, which bounds the search in dense neighbourhoods.
+     */
+    private void findCycles(int node, Limits limits, Scratch s, boolean[] cycle) {
+        if (outStart[node] == outStart[node + 1] || inStart[node] == inStart[node + 1]) {
+            return;
+        }
+        s.path[0] = node;
+        for (int i = outStart[node]; i < outStart[node + 1]; i++) {
+            int e = outEdges[i];
+            s.steps = limits.cycleMaxSteps();
+            int next = to[e];
+            if (next != node && extend(node, next, seconds[e], seconds[e] + limits.cycleMaxSpanSeconds(), 1, limits, s, cycle)) {
+                cycle[node] = true;
+            }
+        }
+    }
+
+    private boolean extend(int origin, int current, int at, int deadline, int depth,
+                           Limits limits, Scratch s, boolean[] cycle) {
+        s.path[depth] = current;
+        boolean closed = false;
+        int hi = outStart[current + 1];
+        int scanned = 0;
+        for (int i = firstAfter(current, at); i < hi && scanned < limits.maxScan() && s.steps > 0; i++, scanned++, s.steps--) {
+            int e = outEdges[i];
+            if (seconds[e] > deadline) {
+                break;
+            }
+            int next = to[e];
+            if (next == origin) {
+                for (int d = 1; d <= depth; d++) {
+                    cycle[s.path[d]] = true;
+                }
+                closed = true;
+            } else if (depth + 1 < limits.cycleMaxLength() && !onPath(next, depth, s)
+                    && extend(origin, next, seconds[e], deadline, depth + 1, limits, s, cycle)) {
+                closed = true;
+            }
+        }
+        return closed;
+    }
+
+    private static boolean onPath(int node, int depth, Scratch s) {
+        for (int d = 1; d <= depth; d++) {
+            if (s.path[d] == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // First out-edge slot of node strictly later than second
+    private int firstAfter(int node, int second) {
+        int lo = outStart[node];
+        int hi = outStart[node + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (seconds[outEdges[mid]] <= second) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Stable counting sort of edge indexes by endpoint, which keeps each list in time order
+    private static void index(int[] endpoint, int[] start, int[] edges) {
+        for (int node : endpoint) {
+            start[node + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+        int[] next = Arrays.copyOf(start, start.length - 1);
+        for (int e = 0; e < endpoint.length; e++) {
+            edges[next[endpoint[e]]++] = e;
+        }
+    }
+
+    /**
+     * Detection thresholds. {@code maxScan} caps how many edges one step looks at, which bounds the
+     * cost of very busy wallets.
+     */
+    public record Limits(int burstWindowSeconds, int burstMinCounterparties,
+                         int passWindowSeconds, double passTolerance, int passMinCount,
+                         int cycleMaxLength, int cycleMaxSpanSeconds, int cycleMaxSteps, int maxScan) {
+    }
+
+    /**
+     * Per-node results, indexed like the graph's nodes.
+     */
+    public record Findings(boolean[] cycle, boolean[] fanOut, boolean[] fanIn, boolean[] passThrough) {
+
+        public int patternCount(int node) {
+            return (cycle[node] ? 1 : 0) + (fanOut[node] ? 1 : 0) + (fanIn[node] ? 1 : 0) + (passThrough[node] ? 1 : 0);
+        }
+    }
+
+    private static final class Scratch {
+        private final int[] counts;
+        private final int[] path;
+        private int steps;
+
+        private Scratch(int nodes, int maxLength) {
+            this.counts = new int[nodes];
+            this.path = new int[Math.max(maxLength, 1)];
+        }
+    }
+
+    /**
+     * Collects edges into growable primitive arrays and interns wallet IDs on the way.
+     */
+    public static final class Builder {
+
+        private long[] keys = new long[1 << 10];     // open addressing: wallet ID -> node + 1
+        private int[] slots = new int[1 << 10];
+        private long[] walletIds = new long[1 << 10];
+        private int nodes;
+
+        private int[] from = new int[1 << 12];
+        private int[] to = new int[1 << 12];
+        private int[] seconds = new int[1 << 12];
+        private float[] amounts = new float[1 << 12];
+        private int edges;
+
+        private long baseEpochSecond = Long.MIN_VALUE;
+        private int lastSecond;
+
+        private Builder() {
+        }
+
+        public Builder addTransfer(long fromWallet, long toWallet, long epochSecond, double amount) {
+            if (baseEpochSecond == Long.MIN_VALUE) {
+                baseEpochSecond = epochSecond;
+            }
+            long offset = epochSecond - baseEpochSecond;
+            if (offset < lastSecond || offset > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Transfers must be added in timestamp order");
+            }
+            if (edges == from.length) {
+                int capacity = edges + (edges >> 1);
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                seconds = Arrays.copyOf(seconds, capacity);
+                amounts = Arrays.copyOf(amounts, capacity);
+            }
+            from[edges] = intern(fromWallet);
+            to[edges] = intern(toWallet);
+            seconds[edges] = (int) offset;
+            amounts[edges] = (float) amount;
+            edges++;
+            lastSecond = (int) offset;
+            return this;
+        }
+
+        public TransferGraph build() {
+            long[] ids = Arrays.copyOf(walletIds, nodes);
+            keys = null;
+            slots = null;
+            walletIds = null;
+            return new TransferGraph(ids, Arrays.copyOf(from, edges), Arrays.copyOf(to, edges),
+                    Arrays.copyOf(seconds, edges), Arrays.copyOf(amounts, edges));
+        }
+
+        private int intern(long walletId) {
+            int mask = keys.length - 1;
+            int i = slot(walletId) & mask;
+            while (slots[i] != 0) {
+                if (keys[i] == walletId) {
+                    return slots[i] - 1;
+                }
+                i = (i + 1) & mask;
+            }
+            if (nodes == walletIds.length) {
+                walletIds = Arrays.copyOf(walletIds, nodes * 2);
+            }
+            walletIds[nodes] = walletId;
+            keys[i] = walletId;
+            slots[i] = ++nodes;
+            if (nodes * 2 > keys.length) {
+                rehash();
+            }
+            return nodes - 1;
+        }
+
+        private static int slot(long walletId) {
+            long h = walletId * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[oldKeys.length * 2];
+            slots = new int[oldSlots.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldSlots[j] != 0) {
+                    int i = slot(oldKeys[j]) & mask;
+                    while (slots[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    slots[i] = oldSlots[j];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.FraudRiskLevel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly look at the shape of the transfer graph, which the per-operation checks in
+ * {@link FraudDetectionService} cannot see: short time-ordered cycles, fan-out and fan-in bursts,
+ * and rapid pass-through of received funds. VALID transactions of the lookback window are streamed
+ * into a {@link TransferGraph}, analysed in parallel, and flagged wallets are raised to
+ * MEDIUM (one burst pattern), HIGH (cycle or pass-through) or CRITICAL (two patterns or more).
+ * The job only ever raises a wallet's level; lowering stays with the inline assessment.
+ */
+@Component
+@Slf4j
+public class TransferGraphAnalysisJob {
+
+    private static final int FETCH_SIZE = 10_000;
+    private static final int UPDATE_BATCH = 1_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnly;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${fraud.graph.lookback-days:30}")
+    private long lookbackDays;
+
+    @Value("${fraud.graph.parallelism:0}")
+    private int parallelism;
+
+    @Value("${fraud.graph.burst-window-seconds:3600}")
+    private int burstWindowSeconds;
+
+    @Value("${fraud.graph.burst-min-counterparties:10}")
+    private int burstMinCounterparties;
+
+    @Value("${fraud.graph.pass-window-seconds:900}")
+    private int passWindowSeconds;
+
+    @Value("${fraud.graph.pass-tolerance:0.1}")
+    private double passTolerance;
+
+    @Value("${fraud.graph.pass-min-count:3}")
+    private int passMinCount;
+
+    @Value("${fraud.graph.cycle-max-length:4}")
+    private int cycleMaxLength;
+
+    @Value("${fraud.graph.cycle-max-span-seconds:86400}")
+    private int cycleMaxSpanSeconds;
+
+    @Value("${fraud.graph.cycle-max-steps:1024}")
+    private int cycleMaxSteps;
+
+    @Value("${fraud.graph.max-scan:32}")
+    private int maxScan;
+
+    public TransferGraphAnalysisJob(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    @Scheduled(cron = "${fraud.graph.cron:0 0 2 * * *}")
+    public void runNightly() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("[TransferGraph] previous run still in progress, skipping");
+            return;
+        }
+        try {
+            analyse(LocalDateTime.now().minusDays(lookbackDays));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Builds and analyses the graph of VALID transfers since {@code since}, then writes the results.
+     * Returns the number of wallets whose risk level was raised.
+     */
+    public int analyse(LocalDateTime since) {
+        long started = System.nanoTime();
+        TransferGraph graph = load(since);
+        if (graph.edgeCount() == 0) {
+            return 0;
+        }
+        long loaded = System.nanoTime();
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        TransferGraph.Findings findings;
+        try {
+            findings = graph.analyse(limits(), pool);
+        } finally {
+            pool.shutdown();
+        }
+        long analysed = System.nanoTime();
+
+        Map<FraudRiskLevel, List<Long>> flagged = classify(graph, findings);
+        int raised = raise(flagged);
+        log.info("[TransferGraph] {} wallets, {} transfers: load {} ms, analysis {} ms, flagged {}, raised {}",
+                graph.nodeCount(), graph.edgeCount(), Duration.ofNanos(loaded - started).toMillis(),
+                Duration.ofNanos(analysed - loaded).toMillis(),
+                flagged.values().stream().mapToInt(List::size).sum(), raised);
+        return raised;
+    }
+
+    // Streams with a server-side cursor: PostgreSQL only honours the fetch size inside a transaction
+    private TransferGraph load(LocalDateTime since) {
+        TransferGraph.Builder builder = TransferGraph.builder();
+        long[] skipped = {0};
+        readOnly.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(
+                    "SELECT from_wallet, to_wallet, timestamp, amount FROM transactions"
+                            + " WHERE status = 'VALID' AND timestamp >= ? ORDER BY timestamp",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.valueOf(since));
+            return ps;
+        }, rs -> {
+            Long from = walletId(rs.getString(1));
+            Long to = walletId(rs.getString(2));
+            if (from == null || to == null) {
+                skipped[0]++;  // endpoint is not a wallet ID
+                return;
+            }
+            builder.addTransfer(from, to, rs.getTimestamp(3).getTime() / 1000, rs.getDouble(4));
+        }));
+        if (skipped[0] > 0) {
+            log.debug("[TransferGraph] skipped {} transfers without two wallet endpoints", skipped[0]);
+        }
+        return builder.build();
+    }
+
+    private TransferGraph.Limits limits() {
+        return new TransferGraph.Limits(burstWindowSeconds, burstMinCounterparties,
+                passWindowSeconds, passTolerance, passMinCount,
+                cycleMaxLength, cycleMaxSpanSeconds, cycleMaxSteps, maxScan);
+    }
+
+    static Map<FraudRiskLevel, List<Long>> classify(TransferGraph graph, TransferGraph.Findings findings) {
+        Map<FraudRiskLevel, List<Long>> flagged = new EnumMap<>(FraudRiskLevel.class);
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            int patterns = findings.patternCount(node);
+            if (patterns == 0) {
+                continue;
+            }
+            FraudRiskLevel level;
+            if (patterns > 1) {
+                level = FraudRiskLevel.CRITICAL;
+            } else if (findings.cycle()[node] || findings.passThrough()[node]) {
+                level = FraudRiskLevel.HIGH;
+            } else {
+                level = FraudRiskLevel.MEDIUM;
+            }
+            flagged.computeIfAbsent(level, l -> new ArrayList<>()).add(graph.walletId(node));
+        }
+        return flagged;
+    }
+
+    private int raise(Map<FraudRiskLevel, List<Long>> flagged) {
+        int raised = 0;
+        for (Map.Entry<FraudRiskLevel, List<Long>> entry : flagged.entrySet()) {
+            FraudRiskLevel level = entry.getKey();
+            String lower = Arrays.stream(FraudRiskLevel.values())
+                    .filter(l -> l.ordinal() < level.ordinal())
+                    .map(l -> "'" + l.name() + "'")
+                    .collect(Collectors.joining(","));
+            String sql = "UPDATE wallets SET fraud_risk_level = '" + level.name() + "'"
+                    + " WHERE wallet_id = ? AND (fraud_risk_level IS NULL OR fraud_risk_level IN (" + lower + "))";
+            for (int[] batch : jdbcTemplate.batchUpdate(sql, entry.getValue(), UPDATE_BATCH,
+                    (ps, walletId) -> ps.setLong(1, walletId))) {
+                for (int count : batch) {
+                    raised += Math.max(count, 0);
+                }
+            }
+        }
+        return raised;
+    }
+
+    private static Long walletId(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
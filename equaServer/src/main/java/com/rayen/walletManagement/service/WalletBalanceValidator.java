@@ -25,10 +25,4 @@ public class WalletBalanceValidator {
             throw new IllegalStateException("Wallet is not active");
         }
     }
-
-    public void ensureSufficientMainBalance(Wallet wallet, BigDecimal amount) {
-        if (wallet.getEquaAmount() == null || BigDecimal.valueOf(wallet.getEquaAmount()).compareTo(amount) < 0) {
-            throw new IllegalStateException("Insufficient main wallet balance");
-        }
-    }
 }
@@ -0,0 +1,118 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.WalletEvent;
+import com.rayen.walletManagement.model.WalletEventRecorded;
+import com.rayen.walletManagement.repository.WalletEventRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands committed outbox events to a pool of single-threaded workers. Events are routed by
+ * wallet ID, so one wallet's events run one at a time and in order while different wallets
+ * proceed in parallel. A periodic sweep re-dispatches events left behind by a crash, a failure or
+ * a full queue, oldest first, and {@link WalletEventProcessor} holds an event back while an older
+ * one of its wallet is pending, so a retry never overtakes. An event that keeps failing is
+ * dead-lettered after {@code wallet-events.max-attempts}.
+ */
+@Component
+@Slf4j
+public class WalletEventDispatcher {
+
+    private static final int SWEEP_BATCH = 500;
+
+    private final WalletEventProcessor processor;
+    private final WalletEventRepository walletEventRepository;
+    private final ExecutorService[] workers;
+
+    // Events younger than this are still on their way through the after-commit path
+    @Value("${wallet-events.sweep-after-seconds:30}")
+    private long sweepAfterSeconds;
+
+    @Value("${wallet-events.retention-days:7}")
+    private long retentionDays;
+
+    @Value("${wallet-events.max-attempts:5}")
+    private int maxAttempts;
+
+    public WalletEventDispatcher(WalletEventProcessor processor,
+                                 WalletEventRepository walletEventRepository,
+                                 @Value("${wallet-events.workers:4}") int workerCount,
+                                 @Value("${wallet-events.queue-capacity:1000}") int queueCapacity) {
+        this.processor = processor;
+        this.walletEventRepository = walletEventRepository;
+        this.workers = new ExecutorService[Math.max(workerCount, 1)];
+        for (int i = 0; i < workers.length; i++) {
+            // A full queue drops the hand-off, not the event: it stays pending in the outbox for the sweep
+            workers[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)),
+                    Thread.ofPlatform().name("wallet-events-" + i).factory(),
+                    (task, pool) -> log.debug("[WalletEvents] worker queue full, leaving an event to the sweep"));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRecorded(WalletEventRecorded recorded) {
+        dispatch(recorded.eventId(), recorded.walletId());
+    }
+
+    void dispatch(Long eventId, Long walletId) {
+        workers[Math.floorMod(Long.hashCode(walletId), workers.length)].execute(() -> {
+            try {
+                processor.process(eventId);
+            } catch (Exception e) {
+                // Left unprocessed: the next sweep retries it until it is dead-lettered
+                log.warn("[WalletEvents] event {} failed: {}", eventId, e.getMessage());
+                try {
+                    processor.recordFailure(eventId, e, maxAttempts);
+                } catch (Exception recordFailure) {
+                    log.warn("[WalletEvents] could not record the failure of event {}: {}", eventId, recordFailure.getMessage());
+                }
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${wallet-events.sweep-ms:30000}", initialDelayString = "${wallet-events.sweep-ms:30000}")
+    public void sweep() {
+        LocalDateTime before = LocalDateTime.now().minusSeconds(sweepAfterSeconds);
+        int dispatched = 0;
+        for (WalletEvent event : walletEventRepository.findPending(before, PageRequest.of(0, SWEEP_BATCH))) {
+            dispatch(event.getId(), event.getWalletId());
+            dispatched++;
+        }
+        if (dispatched > 0) {
+            log.info("[WalletEvents] re-dispatched {} pending events", dispatched);
+        }
+    }
+
+    @Scheduled(cron = "${wallet-events.purge-cron:0 30 3 * * *}")
+    @Transactional
+    public void purgeProcessed() {
+        int deleted = walletEventRepository.deleteProcessedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            log.info("[WalletEvents] purged {} processed events", deleted);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService worker : workers) {
+            worker.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.entity.WalletEvent;
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.WalletEventRecorded;
+import com.rayen.walletManagement.model.WalletOperationType;
+import com.rayen.walletManagement.repository.WalletEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Records the deferred side effects of a wallet operation in the caller's transaction. The row
+ * commits or rolls back with the operation itself, so side effects run exactly for committed
+ * operations even if the process dies before the worker picks them up.
+ */
+@Service
+@RequiredArgsConstructor
+public class WalletEventOutbox {
+
+    private final WalletEventRepository walletEventRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public WalletEvent record(Wallet wallet, WalletOperationType operationType, CurrencyCode currency, BigDecimal amount) {
+        WalletEvent event = walletEventRepository.save(WalletEvent.builder()
+                .walletId(wallet.getWalletId())
+                .operationType(operationType)
+                .currency(currency)
+                .amount(amount)
+                .createdAt(LocalDateTime.now())
+                .build());
+        eventPublisher.publishEvent(new WalletEventRecorded(event.getId(), event.getWalletId()));
+        return event;
+    }
+}
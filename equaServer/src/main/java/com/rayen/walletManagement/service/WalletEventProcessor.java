@@ -0,0 +1,73 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.entity.WalletEvent;
+import com.rayen.walletManagement.repository.WalletEventRepository;
+import com.rayen.walletManagement.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Applies the loyalty and gamification side effects of one outbox event.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletEventProcessor {
+
+    private static final int MAX_ERROR = 500;
+
+    private final WalletEventRepository walletEventRepository;
+    private final WalletRepository walletRepository;
+    private final LoyaltyService loyaltyService;
+    private final GamificationService gamificationService;
+
+    /**
+     * Claims the event and applies it in one transaction: a failure releases the claim, and an
+     * event already processed (by a sweep or another instance) is skipped. An event is only applied
+     * once every older event of its wallet has been, or was dead-lettered; until then it is left
+     * pending for the sweep.
+     */
+    @Transactional
+    public void process(Long eventId) {
+        WalletEvent event = walletEventRepository.findById(eventId).orElse(null);
+        if (event == null || event.getProcessedAt() != null || event.getDeadAt() != null) {
+            return;
+        }
+        if (walletEventRepository.hasEarlierPending(event.getWalletId(), eventId)) {
+            log.debug("[WalletEvents] event {} waits for an older event of wallet {}", eventId, event.getWalletId());
+            return;
+        }
+        if (walletEventRepository.claim(eventId, LocalDateTime.now()) == 0) {
+            return;
+        }
+        // Row lock: money movements on the same wallet wait instead of overwriting these columns
+        List<Wallet> locked = walletRepository.findAllByIdForUpdate(List.of(event.getWalletId()));
+        if (locked.isEmpty()) {
+            log.debug("[WalletEvents] wallet {} is gone, dropping event {}", event.getWalletId(), eventId);
+            return;
+        }
+        Wallet wallet = locked.get(0);
+        loyaltyService.recordActivity(wallet, event.getAmount(), event.getOperationType());
+        gamificationService.evaluate(wallet, event.getOperationType());
+        walletRepository.save(wallet);
+    }
+
+    /**
+     * Counts a failed attempt, in its own transaction since the one of {@link #process} rolled back,
+     * and dead-letters the event once it has failed {@code maxAttempts} times.
+     */
+    @Transactional
+    public void recordFailure(Long eventId, Exception failure, int maxAttempts) {
+        String error = String.valueOf(failure.getMessage());
+        walletEventRepository.recordFailure(eventId, error.length() > MAX_ERROR ? error.substring(0, MAX_ERROR) : error);
+        if (walletEventRepository.deadLetter(eventId, maxAttempts, LocalDateTime.now()) > 0) {
+            log.error("[WalletEvents] event {} dead-lettered after {} attempts: {}", eventId, maxAttempts, error);
+        }
+    }
+}
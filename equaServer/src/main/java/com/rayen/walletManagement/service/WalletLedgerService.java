@@ -0,0 +1,325 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.entity.WalletBalanceSnapshot;
+import com.rayen.walletManagement.entity.WalletPosting;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
+import com.rayen.walletManagement.repository.WalletBalanceSnapshotRepository;
+import com.rayen.walletManagement.repository.WalletPostingRepository;
+import com.rayen.walletManagement.repository.WalletRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only record of every EQUA balance change, and the source of truth for EQUA balances.
+ * Each change is a signed {@link WalletPosting}; a background job periodically folds a wallet's
+ * postings into a {@link WalletBalanceSnapshot}, so a balance is the latest snapshot plus the short
+ * tail of postings after it.
+ * <p>
+ * Posting only inserts: the wallet row is not written, so concurrent credits to one wallet do not
+ * queue on its row lock. Debits lock the wallet row and check {@link #lockForDebit} /
+ * {@link #exactBalances}. {@link #balance} is served from an in-memory snapshot + tail per wallet,
+ * kept current by this instance's commits and reloaded after {@code ledger.balance-cache-seconds}
+ * to pick up other instances' postings. {@code wallets.equa_units} is only a copy for SQL aggregates,
+ * refreshed in batches every {@code ledger.balance-sync-ms}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WalletLedgerService {
+
+    public static final int MAX_HISTORY = 500;
+
+    // Wallet IDs per exact-balance / copy-back statement
+    private static final int CHUNK = 500;
+
+    private final WalletPostingRepository postingRepository;
+    private final WalletBalanceSnapshotRepository snapshotRepository;
+    private final WalletRepository walletRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    // Latest snapshot per wallet; snapshots are immutable, so a cached one is never stale, only superseded
+    private final Map<Long, WalletBalanceSnapshot> latestSnapshots = new ConcurrentHashMap<>();
+    // Snapshot + tail per wallet, see #balance
+    private final Map<Long, Tail> tails = new ConcurrentHashMap<>();
+    // Wallets posted to since equa_units was last copied back
+    private final Set<Long> unsynced = ConcurrentHashMap.newKeySet();
+
+    @Value("${ledger.snapshot.min-tail:50}")
+    private long minTail;
+
+    // Postings younger than this are never folded: an IDENTITY id is taken at insert but only becomes
+    // visible at commit, so a lower id may still appear after a higher one was read
+    @Value("${ledger.snapshot.settle-seconds:60}")
+    private long settleSeconds;
+
+    @Value("${ledger.balance-cache-seconds:30}")
+    private long cacheSeconds;
+
+    /**
+     * Appends a posting of {@code delta} to the wallet, in the caller's transaction.
+     */
+    @Transactional
+    public WalletPosting post(Wallet wallet, Money delta, PostingType type, String reference) {
+        WalletPosting saved = postingRepository.save(posting(wallet.getWalletId(), delta, type, reference));
+        afterCommit(List.of(saved));
+        return saved;
+    }
+
+    /**
+     * The posting of {@code delta} to a wallet, not saved yet, so a caller settling many changes can
+     * {@link #append} them in one go.
+     */
+    public WalletPosting posting(Long walletId, Money delta, PostingType type, String reference) {
+        return WalletPosting.builder()
+                .walletId(walletId)
+                .amount(delta)
+                .type(type)
+                .reference(reference)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Transactional
+    public List<WalletPosting> append(List<WalletPosting> postings) {
+        List<WalletPosting> saved = postingRepository.saveAll(postings);
+        afterCommit(saved);
+        return saved;
+    }
+
+    /**
+     * Current balance: snapshot plus the postings after it, from memory. Postings committed by
+     * another instance show up within {@code ledger.balance-cache-seconds}; anything that debits
+     * must use {@link #lockForDebit} instead.
+     */
+    @Transactional(readOnly = true)
+    public Money balance(Long walletId) {
+        long now = System.currentTimeMillis();
+        Tail tail = tails.get(walletId);
+        if (tail == null || !tail.complete || now - tail.loadedAt > cacheSeconds * 1000) {
+            Tail loaded = load(walletId, now);
+            tail = tails.merge(walletId, loaded, (cached, fresh) -> fresh.plus(cached));
+        }
+        return Money.ofUnits(tail.units);
+    }
+
+    /**
+     * Exact balances read in one statement per chunk. Only a wallet whose row the caller has locked
+     * for update cannot move before the caller's transaction ends.
+     */
+    public Map<Long, Money> exactBalances(Collection<Long> walletIds) {
+        Map<Long, Money> balances = new HashMap<>(walletIds.size() * 2);
+        List<Long> ids = new ArrayList<>(walletIds);
+        for (int from = 0; from < ids.size(); from += CHUNK) {
+            for (WalletPostingRepository.WalletUnits row : postingRepository.findExactBalances(ids.subList(from, Math.min(from + CHUNK, ids.size())))) {
+                balances.put(row.getWalletId(), Money.ofUnits(row.getUnits()));
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Locks the wallet row until the caller's transaction ends and returns its exact balance, so a
+     * debit checked against it cannot overdraw the wallet.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Money lockForDebit(Long walletId) {
+        walletRepository.findAllByIdForUpdate(List.of(walletId));
+        return exactBalances(List.of(walletId)).getOrDefault(walletId, Money.ZERO);
+    }
+
+    /**
+     * Balance as of {@code at}: the latest snapshot taken entirely before it, plus the postings
+     * made between that snapshot and {@code at}.
+     */
+    @Transactional(readOnly = true)
+    public Money balanceAt(Long walletId, LocalDateTime at) {
+        WalletBalanceSnapshot snapshot = snapshotRepository
+                .findFirstByWalletIdAndCoveredUntilLessThanEqualOrderByLastPostingIdDesc(walletId, at)
+                .orElse(null);
+        long after = snapshot != null ? snapshot.getLastPostingId() : 0L;
+        Money base = snapshot != null ? snapshot.getBalance() : Money.ZERO;
+        return base.plus(Money.ofUnits(postingRepository.sumUnitsAfterUntil(walletId, after, at)));
+    }
+
+    @Transactional(readOnly = true)
+    public List<WalletPosting> history(Long walletId, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_HISTORY);
+        return postingRepository.findHistory(walletId, PageRequest.of(0, size));
+    }
+
+    @Scheduled(fixedDelayString = "${ledger.snapshot.interval-ms:300000}",
+            initialDelayString = "${ledger.snapshot.interval-ms:300000}")
+    public void takeSnapshots() {
+        LocalDateTime settledBefore = LocalDateTime.now().minusSeconds(settleSeconds);
+        List<Long> walletIds = postingRepository.findWalletsWithSettledTail(settledBefore, minTail);
+        for (Long walletId : walletIds) {
+            snapshot(walletId, settledBefore);
+        }
+        if (!walletIds.isEmpty()) {
+            log.info("[Ledger] snapshotted {} wallets", walletIds.size());
+        }
+    }
+
+    /**
+     * Copies the exact balance of every wallet posted to since the last run into
+     * {@code wallets.equa_units}, one batch per chunk, and drops cached tails nobody read lately.
+     */
+    @Scheduled(fixedDelayString = "${ledger.balance-sync-ms:10000}")
+    public void syncBalanceColumn() {
+        long now = System.currentTimeMillis();
+        tails.values().removeIf(tail -> now - tail.loadedAt > cacheSeconds * 1000);
+        if (unsynced.isEmpty()) {
+            return;
+        }
+        List<Long> walletIds = new ArrayList<>(unsynced);
+        walletIds.forEach(unsynced::remove);
+        try {
+            List<Object[]> rows = new ArrayList<>(walletIds.size());
+            exactBalances(walletIds).forEach((walletId, balance) -> rows.add(new Object[]{balance.units(), walletId}));
+            jdbcTemplate.batchUpdate("UPDATE wallets SET equa_units = ? WHERE wallet_id = ?", rows);
+        } catch (RuntimeException e) {
+            unsynced.addAll(walletIds);
+            throw e;
+        }
+    }
+
+    /**
+     * Folds the wallet's settled postings into a new snapshot on top of the previous one. Postings
+     * never change once settled, so two instances snapshotting the same wallet agree.
+     */
+    public WalletBalanceSnapshot snapshot(Long walletId, LocalDateTime settledBefore) {
+        WalletBalanceSnapshot previous = snapshotRepository.findFirstByWalletIdOrderByLastPostingIdDesc(walletId).orElse(null);
+        long after = previous != null ? previous.getLastPostingId() : 0L;
+        Long until = postingRepository.findLastSettledPostingId(walletId, after, settledBefore);
+        if (until == null) {
+            return previous;
+        }
+
+        WalletPostingRepository.RangeTotal range = postingRepository.sumRange(walletId, after, until);
+        Money base = previous != null ? previous.getBalance() : Money.ZERO;
+        WalletBalanceSnapshot snapshot = snapshotRepository.save(WalletBalanceSnapshot.builder()
+                .walletId(walletId)
+                .balance(base.plus(Money.ofUnits(range.getUnits())))
+                .lastPostingId(until)
+                .coveredUntil(range.getCoveredUntil())
+                .takenAt(LocalDateTime.now())
+                .build());
+        latestSnapshots.merge(walletId, snapshot,
+                (cached, fresh) -> fresh.getLastPostingId() > cached.getLastPostingId() ? fresh : cached);
+        // The tail is rebuilt on the new snapshot at the next read
+        tails.remove(walletId);
+        return snapshot;
+    }
+
+    private WalletBalanceSnapshot latestSnapshot(Long walletId) {
+        WalletBalanceSnapshot cached = latestSnapshots.get(walletId);
+        if (cached != null) {
+            return cached;
+        }
+        WalletBalanceSnapshot loaded = snapshotRepository.findFirstByWalletIdOrderByLastPostingIdDesc(walletId).orElse(null);
+        if (loaded != null) {
+            latestSnapshots.putIfAbsent(walletId, loaded);
+        }
+        return loaded;
+    }
+
+    private Tail load(Long walletId, long now) {
+        WalletBalanceSnapshot snapshot = latestSnapshot(walletId);
+        long after = snapshot != null ? snapshot.getLastPostingId() : 0L;
+        Map<Long, Long> postings = new HashMap<>();
+        for (WalletPostingRepository.PostingUnits row : postingRepository.findTail(walletId, after)) {
+            postings.put(row.getPostingId(), row.getUnits());
+        }
+        return new Tail(snapshot != null ? snapshot.getBalance().units() : 0L, after, postings, true, now);
+    }
+
+    // Postings are added to the cached tails only once they are committed and visible to every reader
+    private void afterCommit(List<WalletPosting> postings) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committed(postings);
+                }
+            });
+        } else {
+            committed(postings);
+        }
+    }
+
+    private void committed(List<WalletPosting> postings) {
+        long now = System.currentTimeMillis();
+        for (WalletPosting posting : postings) {
+            long units = posting.getAmount().units();
+            tails.compute(posting.getWalletId(), (walletId, tail) -> tail == null
+                    ? new Tail(0L, 0L, Map.of(posting.getPostingId(), units), false, now)
+                    : tail.with(posting.getPostingId(), units));
+            unsynced.add(posting.getWalletId());
+        }
+    }
+
+    /**
+     * A snapshot balance and the postings after it, by posting ID so that the same posting seen
+     * both at commit and in a reload counts once. Incomplete tails hold only this instance's recent
+     * postings and are merged into a full load before being read.
+     */
+    private static final class Tail {
+        final long snapshotUnits;
+        final long snapshotPostingId;
+        final Map<Long, Long> postings;
+        final boolean complete;
+        final long loadedAt;
+        final long units;
+
+        Tail(long snapshotUnits, long snapshotPostingId, Map<Long, Long> postings, boolean complete, long loadedAt) {
+            this.snapshotUnits = snapshotUnits;
+            this.snapshotPostingId = snapshotPostingId;
+            this.postings = postings;
+            this.complete = complete;
+            this.loadedAt = loadedAt;
+            long sum = snapshotUnits;
+            for (long posting : postings.values()) {
+                sum += posting;
+            }
+            this.units = sum;
+        }
+
+        Tail with(long postingId, long postingUnits) {
+            if (postingId <= snapshotPostingId || postings.containsKey(postingId)) {
+                return this;
+            }
+            Map<Long, Long> next = new HashMap<>(postings);
+            next.put(postingId, postingUnits);
+            return new Tail(snapshotUnits, snapshotPostingId, next, complete, loadedAt);
+        }
+
+        // This (a fresh load) plus whatever committed locally after it was read
+        Tail plus(Tail cached) {
+            Tail merged = this;
+            for (Map.Entry<Long, Long> posting : cached.postings.entrySet()) {
+                merged = merged.with(posting.getKey(), posting.getValue());
+            }
+            return merged;
+        }
+    }
+}
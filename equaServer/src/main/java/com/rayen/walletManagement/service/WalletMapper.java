@@ -5,6 +5,7 @@ import com.rayen.walletManagement.entity.DeviseWallet;
 import com.rayen.walletManagement.entity.Wallet;
 import com.rayen.walletManagement.model.CurrencyCode;
 import com.rayen.walletManagement.model.DeviseWalletDTO;
+import com.rayen.walletManagement.model.Money;
 import com.rayen.walletManagement.model.WalletDTO;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
@@ -20,11 +21,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class WalletMapper {
 
+    private final WalletLedgerService walletLedgerService;
+
     public WalletDTO toDTO(Wallet wallet) {
         if (wallet == null) {
             return null;
         }
+        return toDTO(wallet, wallet.getWalletId() == null ? null : walletLedgerService.balance(wallet.getWalletId()));
+    }
 
+    private WalletDTO toDTO(Wallet wallet, Money equa) {
         User user = wallet.getUser();
         Map<CurrencyCode, BigDecimal> balances = balancesOf(wallet.getDeviseWallet());
 
@@ -32,13 +38,13 @@ public class WalletMapper {
                 .id(wallet.getWalletId())
                 .publicKey(wallet.getPublicKey())
                 .status(wallet.getStatus())
-                .equaAmount(BigDecimal.valueOf(wallet.getEquaAmount()))
+                .equaAmount(equa == null ? null : equa.toBigDecimal())
                 .ownerEmail(user == null ? null : user.getEmail())
                 .loyaltyTier(wallet.getLoyaltyTier())
                 .loyaltyPoints(wallet.getLoyaltyPoints())
                 .fraudRiskLevel(wallet.getFraudRiskLevel() == null ? null : wallet.getFraudRiskLevel().name())
-                .achievements(wallet.getAchievements())
-                .completedChallenges(wallet.getCompletedChallenges())
+                .achievements(wallet.getAchievements().stream().map(Enum::name).collect(Collectors.toSet()))
+                .completedChallenges(wallet.getCompletedChallenges().stream().map(Enum::name).collect(Collectors.toSet()))
                 .currencyBalances(balances)
                 .build();
     }
@@ -47,8 +53,10 @@ public class WalletMapper {
         if (wallets == null) {
             return Collections.emptyList();
         }
+        // One balance statement per chunk instead of a ledger read per wallet
+        Map<Long, Money> equa = walletLedgerService.exactBalances(wallets.stream().map(Wallet::getWalletId).toList());
         return wallets.stream()
-                .map(this::toDTO)
+                .map(wallet -> toDTO(wallet, equa.getOrDefault(wallet.getWalletId(), Money.ZERO)))
                 .collect(Collectors.toList());
     }
 
@@ -8,6 +8,8 @@ import com.rayen.blockChainManagement.repository.DinarWalletRepository;
 import com.rayen.blockChainManagement.service.EquaValuationEngine;
 import com.rayen.walletManagement.entity.DeviseWallet;
 import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
 import com.rayen.walletManagement.repository.WalletRepository;
 import com.rayen.walletManagement.service.DeviseWalletService;
 import com.rayen.userManaement.entity.User;
@@ -31,6 +33,7 @@ public class WalletService {
     private final AuthContextService authContextService;
     private final DeviseWalletService deviseWalletService;
     private final ConversionRepository conversionRepository;
+    private final WalletLedgerService walletLedgerService;
 
     // ─── CRUD ────────────────────────────────────────────────
 
@@ -42,7 +45,7 @@ public class WalletService {
             throw new RuntimeException("Wallet already exists for userId: " + user.getId());
 
         Wallet wallet = Wallet.builder()
-                .equaAmount(0f)
+                .equaAmount(Money.ZERO)
                 .status("ACTIVE")
                 .publicKey("pk-" + user.getId() + "-" + System.currentTimeMillis())
                 .user(user)
@@ -108,7 +111,6 @@ public class WalletService {
         Wallet wallet = walletRepository.findByUser_Id(userId)
                 .orElseThrow(() -> new RuntimeException("Wallet not found for userId: " + userId));
 
-        wallet.setEquaAmount(wallet.getEquaAmount() + equaReceived.floatValue());
         log.info("[WalletService] userId:{} converted {} DT → {} EQUA @ rate={}", userId, amountInDinars, equaReceived, rate);
 
 
@@ -121,6 +123,7 @@ public class WalletService {
                 .build();
 
         conversionRepository.save(record);
+        walletLedgerService.post(wallet, Money.of(equaReceived), PostingType.DINAR_CONVERSION, "conversion:" + record.getId());
 
         return walletRepository.save(wallet);
     }
@@ -0,0 +1,88 @@
+package com.rayen;
+
+import com.rayen.userManaement.entity.AssistantUser;
+import com.rayen.userManaement.entity.User;
+import com.rayen.userManaement.repository.UserRepository;
+import com.rayen.userManaement.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AuthContextServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final AuthContextService authContextService = new AuthContextService(userRepository);
+
+    AuthContextServiceTest() {
+        ReflectionTestUtils.setField(authContextService, "cacheTtlSeconds", 300L);
+        ReflectionTestUtils.setField(authContextService, "cacheMaxEntries", 100);
+    }
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void userIdFromTokenNeedsNoQuery() {
+        authenticate(new AuthenticatedUser(7L, "alice@equa.tn"));
+
+        assertEquals(7L, authContextService.getLoggedInUserId());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void userIdForLegacyPrincipalIsCached() {
+        when(userRepository.findByEmail("bob@equa.tn")).thenReturn(Optional.of(user(9L)));
+        authenticate("bob@equa.tn");
+
+        assertEquals(9L, authContextService.getLoggedInUserId());
+        authenticate(new AuthenticatedUser(null, "bob@equa.tn"));
+        assertEquals(9L, authContextService.getLoggedInUserId());
+        verify(userRepository, times(1)).findByEmail("bob@equa.tn");
+    }
+
+    @Test
+    void userIsLoadedOncePerRequest() {
+        User alice = user(7L);
+        when(userRepository.findByEmail("alice@equa.tn")).thenReturn(Optional.of(alice));
+        authenticate(new AuthenticatedUser(7L, "alice@equa.tn"));
+
+        for (int request = 0; request < 2; request++) {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+            assertSame(alice, authContextService.getLoggedInUser());
+            assertSame(alice, authContextService.getLoggedInUser());
+        }
+        verify(userRepository, times(2)).findByEmail("alice@equa.tn");
+    }
+
+    @Test
+    void unknownUserStillFails() {
+        when(userRepository.findByEmail("ghost@equa.tn")).thenReturn(Optional.empty());
+        authenticate("ghost@equa.tn");
+
+        assertThrows(RuntimeException.class, authContextService::getLoggedInUserId);
+    }
+
+    private static void authenticate(Object principal) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    private static User user(Long id) {
+        AssistantUser user = new AssistantUser();
+        user.setId(id);
+        return user;
+    }
+}
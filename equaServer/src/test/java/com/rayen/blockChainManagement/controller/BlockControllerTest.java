@@ -0,0 +1,93 @@
+package com.rayen.blockChainManagement.controller;
+
+import com.rayen.blockChainManagement.model.BlockResponse;
+import com.rayen.blockChainManagement.service.BlockService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BlockControllerTest {
+
+    private static final String IMMUTABLE = "max-age=31536000, public, immutable";
+
+    private final BlockService blockService = mock(BlockService.class);
+    private final BlockController controller = new BlockController(blockService);
+
+    @Test
+    void sealedBlockByIdOrHashIsImmutable() {
+        BlockResponse sealed = block(7, "abc", 0);
+        when(blockService.getBlockById(7)).thenReturn(sealed);
+        when(blockService.getBlockByHash("abc")).thenReturn(sealed);
+
+        for (ResponseEntity<BlockResponse> response : List.of(controller.getBlockById(7, null),
+                controller.getBlockByHash("abc", null))) {
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertEquals("\"abc\"", response.getHeaders().getETag());
+            assertEquals(IMMUTABLE, response.getHeaders().getCacheControl());
+            assertSame(sealed, response.getBody());
+        }
+    }
+
+    @Test
+    void openBlockIsRevalidatedWithAnETagThatChangesAsItFills() {
+        when(blockService.getBlockById(7)).thenReturn(block(7, "abc", 3));
+
+        ResponseEntity<BlockResponse> response = controller.getBlockById(7, null);
+
+        assertEquals("\"abc-3\"", response.getHeaders().getETag());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void sealedTipIsStillRevalidatedOnLatest() {
+        when(blockService.getLatestBlock()).thenReturn(block(7, "abc", 0));
+
+        ResponseEntity<BlockResponse> response = controller.getLatestBlock(null);
+
+        assertEquals("\"abc\"", response.getHeaders().getETag());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getLatestBlock("\"abc\"").getStatusCode());
+        assertEquals("no-cache", controller.getLatestBlock("\"abc\"").getHeaders().getCacheControl());
+    }
+
+    @Test
+    void matchingIfNoneMatchGives304WithoutBody() {
+        when(blockService.getBlockById(7)).thenReturn(block(7, "abc", 0));
+
+        for (String ifNoneMatch : new String[]{"\"abc\"", "W/\"abc\"", "\"old\", \"abc\"", "*"}) {
+            ResponseEntity<BlockResponse> response = controller.getBlockById(7, ifNoneMatch);
+            assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode(), ifNoneMatch);
+            assertNull(response.getBody());
+            assertEquals("\"abc\"", response.getHeaders().getETag());
+            assertEquals(IMMUTABLE, response.getHeaders().getCacheControl());
+        }
+    }
+
+    @Test
+    void openBlockETagNoLongerMatchesOnceItGrows() {
+        when(blockService.getBlockById(7)).thenReturn(block(7, "abc", 2));
+
+        assertEquals(HttpStatus.OK, controller.getBlockById(7, "\"abc-3\"").getStatusCode());
+        assertEquals(HttpStatus.OK, controller.getBlockById(7, "\"abc\"").getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getBlockById(7, "\"abc-2\"").getStatusCode());
+    }
+
+    @Test
+    void missingBlockHasNoCachingHeaders() {
+        ResponseEntity<BlockResponse> response = controller.getBlockById(9, "*");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNull(response.getBody());
+        assertNull(response.getHeaders().getFirst(HttpHeaders.ETAG));
+    }
+
+    private static BlockResponse block(int id, String hash, long remaining) {
+        return BlockResponse.builder().blockId(id).blockHash(hash).blockSize(remaining).build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.model.BlockResponse;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockResponseCacheTest {
+
+    private final BlockResponseCache cache = new BlockResponseCache(2);
+
+    @Test
+    void sealedBlockIsServedByIdAndByHash() {
+        BlockResponse sealed = block(1, "h1", 0);
+        cache.putIfSealed(sealed);
+
+        assertSame(sealed, cache.getById(1));
+        assertSame(sealed, cache.getByHash("h1"));
+    }
+
+    @Test
+    void openBlockIsNotCached() {
+        cache.putIfSealed(block(1, "h1", 4));
+        cache.putIfSealed(block(2, "h2", null));
+
+        assertEquals(0, cache.size());
+        assertNull(cache.getById(1));
+        assertNull(cache.getByHash("h1"));
+    }
+
+    @Test
+    void evictionDropsBothIndexesOfTheLeastRecentlyUsedBlock() {
+        cache.putIfSealed(block(1, "h1", 0));
+        cache.putIfSealed(block(2, "h2", 0));
+        cache.getById(1);                       // 2 is now least recently used
+        cache.putIfSealed(block(3, "h3", 0));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.getById(2));
+        assertNull(cache.getByHash("h2"));
+        assertNotNull(cache.getByHash("h1"));
+        assertNotNull(cache.getByHash("h3"));
+    }
+
+    @Test
+    void lookupByHashRefreshesRecency() {
+        cache.putIfSealed(block(1, "h1", 0));
+        cache.putIfSealed(block(2, "h2", 0));
+        cache.getByHash("h1");
+        cache.putIfSealed(block(3, "h3", 0));
+
+        assertNotNull(cache.getById(1));
+        assertNull(cache.getByHash("h2"));
+    }
+
+    @Test
+    void eTagIsTheHashOnceSealedAndIncludesTheRemainingSizeBefore() {
+        assertEquals("\"h1\"", BlockResponseCache.eTagOf(block(1, "h1", 0)));
+        assertEquals("\"h1-5\"", BlockResponseCache.eTagOf(block(1, "h1", 5)));
+    }
+
+    private static BlockResponse block(int id, String hash, Long remaining) {
+        return BlockResponse.builder().blockId(id).blockHash(hash).blockSize(remaining).build();
+    }
+
+    private static BlockResponse block(int id, String hash, long remaining) {
+        return block(id, hash, Long.valueOf(remaining));
+    }
+}
@@ -0,0 +1,103 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.model.BlockMapper;
+import com.rayen.blockChainManagement.model.BlockPage;
+import com.rayen.blockChainManagement.model.BlockResponse;
+import com.rayen.blockChainManagement.repository.BlockRepository;
+import com.rayen.blockChainManagement.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BlockServicePageTest {
+
+    // Block IDs 1..n, block i holding i % 3 transactions
+    private final List<BlockResponse> chain = new ArrayList<>();
+    // Row limit of every page query
+    private final List<Integer> limits = new ArrayList<>();
+    private final BlockRepository blockRepository = mock(BlockRepository.class);
+    private final BlockService service = new BlockService(mock(TransactionRepository.class), blockRepository,
+            new BlockMapper(), new BlockResponseCache(10));
+
+    @BeforeEach
+    void setUp() {
+        for (int id = 1; id <= 500; id++) {
+            chain.add(BlockResponse.builder().blockId(id).blockHash("h" + id).blockSize(0L).build());
+        }
+        when(blockRepository.findBlockPage(anyInt(), any())).thenAnswer(call -> page(call.getArgument(0), call.getArgument(1), false));
+        when(blockRepository.findBlockPageWithTransactionCount(anyInt(), any()))
+                .thenAnswer(call -> page(call.getArgument(0), call.getArgument(1), true));
+    }
+
+    @Test
+    void firstPageStartsAtTheTipAndPointsToTheNextOne() {
+        BlockPage page = service.getBlockPage(null, 3, false);
+
+        assertEquals(List.of(500, 499, 498), ids(page));
+        assertTrue(page.isHasMore());
+        assertEquals(498, page.getNextCursor());
+        // One row more than the page, to tell whether an older page exists
+        assertEquals(List.of(4), limits);
+    }
+
+    @Test
+    void cursorWalksDownToALastPageWithoutCursor() {
+        BlockPage page = service.getBlockPage(4, 3, false);
+        assertEquals(List.of(3, 2, 1), ids(page));
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+
+        page = service.getBlockPage(3, 3, false);
+        assertEquals(List.of(2, 1), ids(page));
+        assertFalse(page.isHasMore());
+
+        assertEquals(List.of(), ids(service.getBlockPage(1, 3, false)));
+    }
+
+    @Test
+    void pageSizeIsClamped() {
+        assertEquals(1, ids(service.getBlockPage(null, 0, false)).size());
+        assertEquals(1, ids(service.getBlockPage(null, -5, false)).size());
+        BlockPage large = service.getBlockPage(null, 10_000, false);
+
+        assertEquals(200, ids(large).size());
+        assertEquals(301, large.getNextCursor());
+        assertEquals(List.of(2, 2, 201), limits);
+    }
+
+    @Test
+    void transactionCountsOnlyWhenAskedFor() {
+        BlockPage plain = service.getBlockPage(null, 2, false);
+        BlockPage counted = service.getBlockPage(null, 2, true);
+
+        assertTrue(plain.getBlocks().stream().allMatch(block -> block.getTransactionCount() == null));
+        assertEquals(List.of(2L, 1L), counted.getBlocks().stream().map(BlockResponse::getTransactionCount).toList());
+        verify(blockRepository, times(1)).findBlockPage(anyInt(), any());
+        verify(blockRepository, times(1)).findBlockPageWithTransactionCount(anyInt(), any());
+    }
+
+    // What the page queries return: blocks below the cursor, newest first, up to the page limit
+    private List<BlockResponse> page(int beforeId, Pageable pageable, boolean withCount) {
+        limits.add(pageable.getPageSize());
+        List<BlockResponse> rows = new ArrayList<>();
+        for (int i = chain.size() - 1; i >= 0 && rows.size() < pageable.getPageSize(); i--) {
+            BlockResponse block = chain.get(i);
+            if (block.getBlockId() < beforeId) {
+                rows.add(BlockResponse.builder().blockId(block.getBlockId()).blockHash(block.getBlockHash())
+                        .blockSize(block.getBlockSize()).transactionCount(withCount ? (long) (block.getBlockId() % 3) : null).build());
+            }
+        }
+        return rows;
+    }
+
+    private static List<Integer> ids(BlockPage page) {
+        return page.getBlocks().stream().map(BlockResponse::getBlockId).toList();
+    }
+}
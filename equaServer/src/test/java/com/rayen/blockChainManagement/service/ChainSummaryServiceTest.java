@@ -0,0 +1,146 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.model.ChainSummary;
+import com.rayen.blockChainManagement.model.TransactionActivity;
+import com.rayen.blockChainManagement.repository.BlockRepository;
+import com.rayen.blockChainManagement.repository.NodeRepository;
+import com.rayen.blockChainManagement.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChainSummaryServiceTest {
+
+    // Committed rows as the service would see them
+    private final Map<Integer, Row> transactions = new TreeMap<>();
+    private final List<Integer> blocks = new ArrayList<>();
+
+    private BlockRepository blockRepository;
+    private ChainSummaryService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        NodeRepository nodeRepository = mock(NodeRepository.class);
+        blockRepository = mock(BlockRepository.class);
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+
+        when(nodeRepository.findAll()).thenReturn(List.of());
+        when(blockRepository.findRecentBlockSummaries(any())).thenReturn(List.of());
+        when(transactionRepository.findActivityAfter(anyInt(), any())).thenAnswer(call -> {
+            int after = call.getArgument(0);
+            int limit = ((Pageable) call.getArgument(1)).getPageSize();
+            return transactions.values().stream()
+                    .filter(row -> row.getTransactionId() > after)
+                    .limit(limit)
+                    .map(TransactionActivity.class::cast)
+                    .toList();
+        });
+        when(transactionRepository.findActivityByIds(anyCollection())).thenAnswer(call ->
+                ((Collection<Integer>) call.getArgument(0)).stream()
+                        .filter(transactions::containsKey)
+                        .map(id -> (TransactionActivity) transactions.get(id))
+                        .toList());
+        when(blockRepository.findBlockIdsAfter(anyInt(), any())).thenAnswer(call -> {
+            int after = call.getArgument(0);
+            return blocks.stream().filter(id -> id > after).sorted(Comparator.naturalOrder()).toList();
+        });
+        when(blockRepository.findExistingBlockIds(anyCollection())).thenAnswer(call ->
+                ((Collection<Integer>) call.getArgument(0)).stream().filter(blocks::contains).toList());
+
+        service = new ChainSummaryService(nodeRepository, blockRepository, transactionRepository, 60_000);
+    }
+
+    @Test
+    void rowCommittingBelowTheWatermarkIsStillCounted() {
+        blocks.add(1);
+        commit(1, null, null, "PENDING");
+        commit(3, null, null, "PENDING");
+        assertEquals(2, service.getSummary().getTotalTransactions());
+
+        // 2 was inserted before 3 but committed after it had been folded
+        commit(2, null, null, "PENDING");
+        assertEquals(3, service.getSummary().getTotalTransactions());
+        assertEquals(3, service.getSummary().getTotalTransactions());
+    }
+
+    @Test
+    void lateBlockIsStillCounted() {
+        blocks.add(1);
+        blocks.add(3);
+        assertEquals(2, service.getSummary().getTotalBlocks());
+
+        blocks.add(2);
+        assertEquals(3, service.getSummary().getTotalBlocks());
+    }
+
+    @Test
+    void validationAndPlacementMoveTheHeightOnce() {
+        blocks.add(1);
+        commit(1, null, null, "PENDING");
+        ChainSummary pending = service.getSummary();
+        assertTrue(pending.getContext().contains("Validated transactions: 0"));
+
+        commit(1, 7, null, "VALID");
+        ChainSummary validated = service.getSummary();
+        assertNotEquals(pending.getHeight(), validated.getHeight());
+        assertTrue(validated.getContext().contains("Validated transactions: 1"));
+
+        commit(1, 7, 1, "VALID");
+        ChainSummary placed = service.getSummary();
+        assertNotEquals(validated.getHeight(), placed.getHeight());
+        assertTrue(placed.getContext().contains("Validated transactions: 1"));
+
+        // Settled rows are no longer re-read and nothing is counted twice
+        assertSame(placed, service.getSummary());
+    }
+
+    @Test
+    void unchangedChainReusesTheRenderedSummary() {
+        blocks.add(1);
+        commit(1, 7, 1, "VALID");
+        ChainSummary first = service.getSummary();
+        assertSame(first, service.getSummary());
+        verify(blockRepository, times(1)).findRecentBlockSummaries(any());
+    }
+
+    @Test
+    void cursorDropsGapsPastTheTimeout() {
+        IdCursor cursor = new IdCursor(1_000);
+        cursor.advance(1, 0);
+        cursor.advance(4, 0);
+        assertEquals(2, cursor.openGaps(500).size());
+        assertTrue(cursor.fill(2));
+        assertFalse(cursor.fill(2));
+        assertTrue(cursor.openGaps(2_000).isEmpty());
+    }
+
+    @Test
+    void cursorKeepsAtMostMaxGaps() {
+        IdCursor cursor = new IdCursor(1_000);
+        cursor.advance(1, 0);
+        cursor.advance(10_000, 0);
+        assertEquals(IdCursor.MAX_GAPS, cursor.gapCount());
+        assertTrue(cursor.fill(9_999));
+    }
+
+    private void commit(int id, Integer validator, Integer block, String status) {
+        transactions.put(id, new Row(id, validator, block, LocalDateTime.of(2026, 1, 1, 10, 0), status));
+    }
+
+    private record Row(Integer getTransactionId, Integer getValidatorNodeId, Integer getBlockId,
+                       LocalDateTime getTimestamp, String getStatus) implements TransactionActivity {
+    }
+}
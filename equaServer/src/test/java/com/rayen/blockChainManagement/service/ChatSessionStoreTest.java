@@ -0,0 +1,139 @@
+package com.rayen.blockChainManagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatSessionStoreTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final List<String> created = new ArrayList<>();
+
+    private ChatSessionStore store(int maxSessions) {
+        return new ChatSessionStore(maxSessions, 30, 20, 24_000, clock);
+    }
+
+    private ChatSessionStore.ChatSession open(ChatSessionStore store, String sessionId) {
+        return store.getOrCreate(sessionId, () -> {
+            created.add(sessionId);
+            return "context of " + sessionId;
+        });
+    }
+
+    @Test
+    void leastRecentlyReadSessionIsEvictedFirst() {
+        ChatSessionStore store = store(2);
+        open(store, "a");
+        open(store, "b");
+        open(store, "a");
+        open(store, "c");
+
+        assertEquals(2, store.size());
+        open(store, "a");
+        open(store, "b");
+        assertEquals(List.of("a", "b", "c", "b"), created);
+    }
+
+    @Test
+    void committingATurnMakesTheSessionMostRecentlyUsed() {
+        ChatSessionStore store = store(2);
+        ChatSessionStore.ChatSession a = open(store, "a");
+        open(store, "b");
+        // "a" was opened first but its answer arrives last
+        store.commit("a", a, "hello", "hi");
+        open(store, "c");
+
+        open(store, "a");
+        assertEquals(List.of("a", "b", "c"), created);
+        open(store, "b");
+        assertEquals(List.of("a", "b", "c", "b"), created);
+    }
+
+    @Test
+    void idleSessionsExpireAfterTheTtl() {
+        ChatSessionStore store = store(10);
+        open(store, "a");
+        clock.advance(Duration.ofMinutes(10));
+        open(store, "b");
+
+        clock.advance(Duration.ofMinutes(25));
+        store.evictIdle();
+        assertEquals(1, store.size());
+
+        clock.advance(Duration.ofMinutes(6));
+        store.evictIdle();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void committedTurnRestartsTheIdleClock() {
+        ChatSessionStore store = store(10);
+        ChatSessionStore.ChatSession a = open(store, "a");
+        clock.advance(Duration.ofMinutes(1));
+        open(store, "b");
+        clock.advance(Duration.ofMinutes(19));
+        store.commit("a", a, "hello", "hi");
+
+        clock.advance(Duration.ofMinutes(15));
+        store.evictIdle();
+
+        assertEquals(1, store.size());
+        open(store, "a");
+        assertEquals(List.of("a", "b"), created);
+    }
+
+    @Test
+    void commitOnAnEvictedSessionDoesNotBringItBack() {
+        ChatSessionStore store = store(1);
+        ChatSessionStore.ChatSession a = open(store, "a");
+        open(store, "b");
+        store.commit("a", a, "hello", "hi");
+
+        assertEquals(1, store.size());
+        open(store, "b");
+        assertEquals(List.of("a", "b"), created);
+    }
+
+    @Test
+    void windowKeepsTheMostRecentTurnsThatFit() {
+        ChatSessionStore store = new ChatSessionStore(10, 30, 2, 10_000, clock);
+        ChatSessionStore.ChatSession a = open(store, "a");
+        store.commit("a", a, "q1", "r1");
+        store.commit("a", a, "q2", "r2");
+        store.commit("a", a, "q3", "r3");
+
+        List<String> window = a.window("q4");
+        assertEquals(List.of("context of a", ChatSessionStore.ACKNOWLEDGEMENT, "q2", "r2", "q3", "r3", "q4"), window);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
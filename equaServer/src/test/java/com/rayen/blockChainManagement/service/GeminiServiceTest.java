@@ -0,0 +1,123 @@
+package com.rayen.blockChainManagement.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiServiceTest {
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMs = 0;
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean holdRequests = false;
+
+    private GeminiService gemini;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/generate", exchange -> {
+            int n = hits.incrementAndGet();
+            try {
+                if (holdRequests) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                if (delayMs > 0) {
+                    Thread.sleep(delayMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"answer-" + n + "\"}]}}]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        server.start();
+
+        gemini = newClient(300, 3);
+    }
+
+    @AfterEach
+    void stopStub() {
+        gemini.shutdown();
+        server.stop(0);
+    }
+
+    private GeminiService newClient(int readTimeoutMs, int failureThreshold) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/generate";
+        return new GeminiService("test-key", url, 500, readTimeoutMs, 4, 1000, 0, 60, failureThreshold, 30);
+    }
+
+    @Test
+    void concurrentIdenticalPromptsShareOneUpstreamCall() {
+        holdRequests = true;
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            calls.add(gemini.analyzeBlockchainAsync("same prompt", "h1"));
+        }
+        release.countDown();
+
+        calls.forEach(call -> assertEquals("answer-1", call.join()));
+        assertEquals(1, hits.get());
+    }
+
+    @Test
+    void responsesAreCachedPerChainHeight() {
+        assertEquals("answer-1", gemini.analyzeBlockchainAsync("prompt", "h1").join());
+        assertEquals("answer-1", gemini.analyzeBlockchainAsync("prompt", "h1").join());
+        assertEquals(1, hits.get());
+
+        assertEquals("answer-2", gemini.analyzeBlockchainAsync("prompt", "h2").join());
+        assertEquals(2, hits.get());
+    }
+
+    @Test
+    void failuresFallBackAndOpenTheCircuit() {
+        status = 500;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(GeminiService.ANALYZE_FALLBACK, gemini.analyzeBlockchainAsync("prompt " + i, "h").join());
+        }
+        assertEquals(3, hits.get());
+
+        // Circuit is open: no further upstream traffic, failures are not cached
+        assertEquals(GeminiService.ANALYZE_FALLBACK, gemini.analyzeBlockchainAsync("prompt 0", "h").join());
+        assertEquals(GeminiService.CHAT_FALLBACK, gemini.chatAsync(List.of("hi")).join());
+        assertEquals(3, hits.get());
+    }
+
+    @Test
+    void readTimeoutResolvesToFallback() {
+        delayMs = 1000;
+        long start = System.nanoTime();
+        assertEquals(GeminiService.ANALYZE_FALLBACK, gemini.analyzeBlockchainAsync("slow", "h").join());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 900);
+    }
+
+    @Test
+    void chatIsNeverCachedOrCoalesced() {
+        assertEquals("answer-1", gemini.chatAsync(List.of("hello")).join());
+        assertEquals("answer-2", gemini.chatAsync(List.of("hello")).join());
+        assertEquals(2, hits.get());
+    }
+}
@@ -0,0 +1,256 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.entity.Block;
+import com.rayen.blockChainManagement.entity.Node;
+import com.rayen.blockChainManagement.entity.Transaction;
+import com.rayen.blockChainManagement.entity.TransactionStatus;
+import com.rayen.blockChainManagement.model.BatchTransactionResponse;
+import com.rayen.blockChainManagement.model.BatchTransactionResult;
+import com.rayen.blockChainManagement.model.TransactionMapper;
+import com.rayen.blockChainManagement.model.TransactionRequest;
+import com.rayen.blockChainManagement.repository.BlockRepository;
+import com.rayen.blockChainManagement.repository.TransactionRepository;
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.entity.WalletPosting;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.repository.WalletRepository;
+import com.rayen.walletManagement.service.InMemoryLedger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SettlementServiceTest {
+
+    private final Map<Long, Wallet> wallets = new HashMap<>();
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final BlockRepository blockRepository = mock(BlockRepository.class);
+    private final BlockService blockService = mock(BlockService.class);
+    private final InMemoryLedger ledger = new InMemoryLedger(walletRepository);
+    private final TransactionMapper transactionMapper = new TransactionMapper();
+
+    private final Node validator = new Node();
+    private Block tip;
+    private SettlementService settlement;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(walletRepository.findAllByIdForUpdate(anyCollection())).thenAnswer(call -> {
+            List<Wallet> found = new ArrayList<>();
+            for (Long id : (Collection<Long>) call.getArgument(0)) {
+                if (wallets.containsKey(id)) {
+                    found.add(wallets.get(id));
+                }
+            }
+            return found;
+        });
+        AtomicInteger ids = new AtomicInteger(100);
+        when(transactionRepository.saveAll(anyList())).thenAnswer(call -> {
+            List<Transaction> saved = call.getArgument(0);
+            saved.forEach(transaction -> transaction.setTransactionId(ids.incrementAndGet()));
+            return saved;
+        });
+
+        tip = block(10, 1);
+        when(blockRepository.findLatestBlock()).thenReturn(Optional.of(tip));
+        AtomicInteger blockIds = new AtomicInteger(10);
+        when(blockService.generateBlockAfter(any())).thenAnswer(call -> block(blockIds.incrementAndGet(), 2));
+
+        validator.setNodeId(7);
+        TransactionService transactionService = new TransactionService(transactionRepository, transactionMapper);
+        settlement = new SettlementService(walletRepository, transactionRepository, blockRepository, blockService,
+                transactionService, transactionMapper, ledger.ledger());
+    }
+
+    @Test
+    void itemsAreCheckedInOrderAgainstRunningBalances() {
+        wallet(1L, 100);
+        wallet(2L, 0);
+        wallet(3L, 0);
+
+        BatchTransactionResponse response = settlement.settleBatch(List.of(
+                request("1", "2", "60"),
+                request("2", "3", "50"),   // spends what the first item credited
+                request("2", "3", "20"),   // only 10 left
+                request("1", "1", "5"),
+                request("x", "2", "5"),
+                request("1", "9", "5"),
+                request("1", "3", "0")
+        ), validator);
+
+        assertEquals(7, response.getSubmitted());
+        assertEquals(2, response.getAccepted());
+        assertEquals(5, response.getRejected());
+        assertEquals(7, response.getValidatorNodeId());
+
+        List<BatchTransactionResult> results = response.getResults();
+        assertTrue(results.get(0).isAccepted());
+        assertTrue(results.get(1).isAccepted());
+        assertEquals("INSUFFICIENT CREDIT", results.get(2).getError());
+        assertEquals("Sender and receiver are the same wallet", results.get(3).getError());
+        assertEquals("Invalid wallet ID", results.get(4).getError());
+        assertEquals("Receiver wallet not found", results.get(5).getError());
+        assertEquals("Amount must be positive", results.get(6).getError());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).getIndex());
+        }
+
+        assertEquals(Money.of(40), ledger.balance(1L));
+        assertEquals(Money.of(10), ledger.balance(2L));
+        assertEquals(Money.of(50), ledger.balance(3L));
+    }
+
+    @Test
+    void acceptedItemsAreStoredValidAndPostedUnderTheirTransactionId() {
+        wallet(1L, 100);
+        wallet(2L, 0);
+
+        BatchTransactionResponse response = settlement.settleBatch(List.of(
+                request("1", "2", "10"),
+                request("1", "2", "500"),
+                request("2", "1", "4")
+        ), validator);
+
+        List<Transaction> stored = captureSavedTransactions();
+        assertEquals(2, stored.size());
+        assertTrue(stored.stream().allMatch(t -> t.getStatus() == TransactionStatus.VALID && t.getValidatorNode() == validator));
+        assertEquals(101, response.getResults().get(0).getTransaction().getTransactionId());
+        assertEquals(102, response.getResults().get(2).getTransaction().getTransactionId());
+
+        List<WalletPosting> postings = capturePostings();
+        assertEquals(List.of("tx:101", "tx:101", "tx:102", "tx:102"),
+                postings.stream().map(WalletPosting::getReference).toList());
+        assertEquals(Money.of(-10), postings.get(0).getAmount());
+        assertEquals(Money.of(10), postings.get(1).getAmount());
+    }
+
+    @Test
+    void walletsAreLockedOnceInIdOrder() {
+        wallet(3L, 100);
+        wallet(1L, 100);
+        wallet(2L, 100);
+
+        settlement.settleBatch(List.of(request("3", "1", "1"), request("2", "3", "1"), request("1", "2", "1")), validator);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Long>> locked = ArgumentCaptor.forClass(Collection.class);
+        verify(walletRepository, times(1)).findAllByIdForUpdate(locked.capture());
+        assertEquals(List.of(1L, 2L, 3L), new ArrayList<>(locked.getValue()));
+    }
+
+    @Test
+    void acceptedItemsFillTheTipBeforeOpeningNewBlocks() {
+        wallet(1L, 100);
+        wallet(2L, 0);
+
+        BatchTransactionResponse response = settlement.settleBatch(List.of(
+                request("1", "2", "1"), request("1", "2", "1"), request("1", "2", "1"), request("1", "2", "1")
+        ), validator);
+
+        // Tip has room for one, then blocks of two are opened
+        assertEquals(List.of(10, 11, 12), response.getBlockIds());
+        assertEquals(0, tip.getBlockSize());
+        assertEquals(1, tip.getTransaction().size());
+        verify(blockService, times(2)).generateBlockAfter(any());
+    }
+
+    @Test
+    void batchWithNothingAcceptedTouchesNoBlock() {
+        wallet(1L, 0);
+        wallet(2L, 0);
+
+        BatchTransactionResponse response = settlement.settleBatch(List.of(request("1", "2", "1")), validator);
+
+        assertEquals(0, response.getAccepted());
+        assertEquals(List.of(), response.getBlockIds());
+        verify(blockRepository, never()).findLatestBlock();
+    }
+
+    @Test
+    void batchSettlesManyTransfersWithTheDatabaseRoundTripsOfOne() throws Exception {
+        int items = 500;
+        List<TransactionRequest> requests = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) {
+            wallet(id, 1_000);
+        }
+        for (int i = 0; i < items; i++) {
+            requests.add(request(String.valueOf(i % 10 + 1), String.valueOf((i + 1) % 10 + 1), "1"));
+        }
+        clearInvocations(walletRepository, transactionRepository, blockRepository, ledger.postingRepository());
+
+        // The settlement part of the per-item loop: lock, balance read and two postings per transfer
+        for (TransactionRequest request : requests) {
+            settlement.transfer(Long.valueOf(request.getFromWallet()), Long.valueOf(request.getToWallet()),
+                    request.getAmount(), "tx:test");
+        }
+        int perItem = roundTrips();
+        clearInvocations(walletRepository, transactionRepository, blockRepository, ledger.postingRepository());
+
+        BatchTransactionResponse response = settlement.settleBatch(requests, validator);
+        int batch = roundTrips();
+
+        assertEquals(items, response.getAccepted());
+        assertEquals(4 * items, perItem);
+        // One lock query, one balance read, one insert of transactions and one of postings, one tip read
+        assertEquals(5, batch);
+        assertTrue(perItem >= 50 * batch, perItem + " round trips per item vs " + batch + " for the batch");
+    }
+
+    private void wallet(Long id, long equa) {
+        wallets.put(id, Wallet.builder().walletId(id).build());
+        ledger.credit(id, equa);
+    }
+
+    // Repository calls, i.e. statements sent to the database
+    private int roundTrips() {
+        return Stream.of(walletRepository, transactionRepository, blockRepository, ledger.postingRepository())
+                .mapToInt(repository -> mockingDetails(repository).getInvocations().size())
+                .sum();
+    }
+
+    private static TransactionRequest request(String from, String to, String amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setFromWallet(from);
+        request.setToWallet(to);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+
+    private static Block block(int id, long capacity) {
+        Block block = new Block();
+        block.setBlockId(id);
+        block.setBlockSize(capacity);
+        return block;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Transaction> captureSavedTransactions() {
+        ArgumentCaptor<List<Transaction>> saved = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<WalletPosting> capturePostings() {
+        ArgumentCaptor<List<WalletPosting>> appended = ArgumentCaptor.forClass(List.class);
+        verify(ledger.postingRepository()).saveAll(appended.capture());
+        return appended.getValue();
+    }
+}
@@ -0,0 +1,237 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.blockChainManagement.entity.Block;
+import com.rayen.blockChainManagement.entity.Node;
+import com.rayen.blockChainManagement.entity.Transaction;
+import com.rayen.blockChainManagement.entity.TransactionStatus;
+import com.rayen.blockChainManagement.model.TransactionMapper;
+import com.rayen.blockChainManagement.model.TransactionRequest;
+import com.rayen.blockChainManagement.model.TransactionResponse;
+import com.rayen.blockChainManagement.repository.BlockRepository;
+import com.rayen.blockChainManagement.repository.DinarRepository;
+import com.rayen.blockChainManagement.repository.DinarWalletRepository;
+import com.rayen.blockChainManagement.repository.NodeRepository;
+import com.rayen.blockChainManagement.repository.TransactionRepository;
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.repository.WalletRepository;
+import com.rayen.walletManagement.service.WalletLedgerService;
+import org.apache.coyote.BadRequestException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link SmartContract#processTransaction(TransactionRequest, String)} with the settlement stubbed:
+ * a settled transaction records its Idempotency-Key in an in-memory transactions table, as
+ * {@link SettlementService#settle} does in the same database transaction as the movement.
+ */
+class SmartContractIdempotencyTest {
+
+    // transactions rows by ID
+    private final Map<Integer, Transaction> transactions = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger(100);
+    private final TransactionRepository transactionRepository = mock(TransactionRepository.class);
+    private final TransactionService transactionService = mock(TransactionService.class);
+    private final SettlementService settlementService = mock(SettlementService.class);
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+    private IdempotencyCache idempotencyCache = new IdempotencyCache(100);
+    private SmartContract contract;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(transactionService.createTransaction(any())).thenAnswer(call -> {
+            TransactionRequest request = call.getArgument(0);
+            Transaction transaction = Transaction.builder()
+                    .transactionId(ids.incrementAndGet())
+                    .fromWallet(request.getFromWallet())
+                    .toWallet(request.getToWallet())
+                    .amount(request.getAmount())
+                    .status(TransactionStatus.PENDING)
+                    .transactionHash("a")
+                    .build();
+            transactions.put(transaction.getTransactionId(), transaction);
+            return new TransactionMapper().toResponse(transaction);
+        });
+        when(transactionRepository.findById(anyInt())).thenAnswer(call -> Optional.ofNullable(transactions.get((Integer) call.getArgument(0))));
+        when(transactionRepository.findByIdempotencyKey(anyString())).thenAnswer(call -> transactions.values().stream()
+                .filter(transaction -> call.getArgument(0).equals(transaction.getIdempotencyKey()))
+                .findFirst());
+        doAnswer(call -> {
+            Transaction transaction = transactions.get((Integer) call.getArgument(0));
+            transaction.setIdempotencyKey(call.getArgument(4));
+            transaction.setStatus(TransactionStatus.VALID);
+            return null;
+        }).when(settlementService).settle(anyInt(), anyLong(), anyLong(), any(), any());
+        contract();
+    }
+
+    private void contract() {
+        NodeRepository nodeRepository = mock(NodeRepository.class);
+        // A fresh node each race: reputation 0 means no wait between guesses
+        when(nodeRepository.findAll()).thenAnswer(call -> {
+            Node node = new Node();
+            node.setNodeId(1);
+            node.setReputationScore(0.0);
+            return List.of(node);
+        });
+        BlockRepository blockRepository = mock(BlockRepository.class);
+        Block tip = new Block();
+        tip.setBlockId(1);
+        tip.setBlockSize(1_000L);
+        when(blockRepository.findLatestBlock()).thenReturn(Optional.of(tip));
+        when(blockRepository.findAllBlocksWithTransactions()).thenReturn(List.of());
+        WalletRepository walletRepository = mock(WalletRepository.class);
+        when(walletRepository.findById(anyLong())).thenAnswer(call -> Optional.of(Wallet.builder().walletId(call.getArgument(0)).build()));
+        WalletLedgerService ledger = mock(WalletLedgerService.class);
+        when(ledger.balance(anyLong())).thenReturn(Money.of(1_000));
+
+        contract = new SmartContract(nodeRepository, transactionRepository, blockRepository, mock(BlockService.class),
+                transactionService, mock(DinarWalletRepository.class), mock(DinarRepository.class), walletRepository,
+                idempotencyCache, new TransactionMapper(), settlementService, new WalletLocks(16), ledger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void replayReturnsTheOriginalResponseWithoutSettlingAgain() throws Exception {
+        TransactionResponse first = contract.processTransaction(request("1", "2", "10"), "key-1");
+        TransactionResponse second = contract.processTransaction(request("1", "2", "10.00"), "key-1");
+
+        assertEquals(TransactionStatus.VALID, first.getStatus());
+        assertSame(first, second);
+        verify(transactionService, times(1)).createTransaction(any());
+        verify(settlementService, times(1)).settle(anyInt(), anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void keyReusedForADifferentTransferIsRejected() throws Exception {
+        contract.processTransaction(request("1", "2", "10"), "key-1");
+
+        for (TransactionRequest other : List.of(request("3", "2", "10"), request("1", "3", "10"), request("1", "2", "11"))) {
+            BadRequestException e = assertThrows(BadRequestException.class, () -> contract.processTransaction(other, "key-1"));
+            assertEquals("Idempotency-Key already used for a different transaction", e.getMessage());
+        }
+        verify(settlementService, times(1)).settle(anyInt(), anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void concurrentSubmissionWithTheSameKeyJoinsTheOneInFlight() throws Exception {
+        CountDownLatch settling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(call -> {
+            settling.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+            transactions.get((Integer) call.getArgument(0)).setIdempotencyKey(call.getArgument(4));
+            return null;
+        }).when(settlementService).settle(anyInt(), anyLong(), anyLong(), any(), any());
+
+        Future<TransactionResponse> first = callers.submit(() -> contract.processTransaction(request("1", "2", "10"), "key-1"));
+        assertTrue(settling.await(5, TimeUnit.SECONDS));
+        AtomicReference<Thread> joining = new AtomicReference<>();
+        Future<TransactionResponse> second = callers.submit(() -> {
+            joining.set(Thread.currentThread());
+            return contract.processTransaction(request("1", "2", "10"), "key-1");
+        });
+        // Parked on the first submission's outcome
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (joining.get() == null || joining.get().getState() != Thread.State.WAITING) {
+            assertTrue(System.nanoTime() < deadline, "second submission never waited");
+            Thread.onSpinWait();
+        }
+        assertFalse(second.isDone());
+
+        release.countDown();
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        verify(transactionService, times(1)).createTransaction(any());
+        verify(settlementService, times(1)).settle(anyInt(), anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void failedAttemptReleasesTheKeySoTheRetryRuns() throws Exception {
+        doThrow(new IllegalStateException("database down"))
+                .doAnswer(call -> {
+                    transactions.get((Integer) call.getArgument(0)).setIdempotencyKey(call.getArgument(4));
+                    return null;
+                })
+                .when(settlementService).settle(anyInt(), anyLong(), anyLong(), any(), any());
+
+        assertThrows(IllegalStateException.class, () -> contract.processTransaction(request("1", "2", "10"), "key-1"));
+        assertEquals(0, idempotencyCache.size());
+        assertEquals(TransactionStatus.INVALID, transactions.get(101).getStatus());
+
+        TransactionResponse retried = contract.processTransaction(request("1", "2", "10"), "key-1");
+
+        assertEquals(102, retried.getTransactionId());
+        assertEquals(TransactionStatus.VALID, retried.getStatus());
+        verify(settlementService, times(2)).settle(anyInt(), anyLong(), anyLong(), any(), any());
+    }
+
+    @Test
+    void keyEvictedFromTheCacheIsStillFoundInTheDatabase() throws Exception {
+        idempotencyCache = new IdempotencyCache(1);
+        contract();
+        TransactionResponse first = contract.processTransaction(request("1", "2", "10"), "key-1");
+        contract.processTransaction(request("1", "2", "10"), "key-2");   // evicts key-1
+
+        TransactionResponse replayed = contract.processTransaction(request("1", "2", "10"), "key-1");
+
+        assertEquals(first.getTransactionId(), replayed.getTransactionId());
+        verify(transactionRepository, atLeastOnce()).findByIdempotencyKey("key-1");
+        verify(settlementService, times(2)).settle(anyInt(), anyLong(), anyLong(), any(), any());
+        assertThrows(BadRequestException.class, () -> contract.processTransaction(request("1", "2", "99"), "key-1"));
+    }
+
+    @Test
+    void losingTheUniqueKeyRaceReplaysTheWinnerAndInvalidatesItsOwnTransaction() throws Exception {
+        // Another instance settles key-1 between our lookup and our settlement
+        Transaction winner = Transaction.builder().transactionId(7).fromWallet("1").toWallet("2")
+                .amount(new BigDecimal("10")).status(TransactionStatus.VALID).idempotencyKey("key-1").build();
+        when(transactionRepository.findByIdempotencyKey("key-1")).thenReturn(Optional.empty(), Optional.of(winner));
+        doThrow(new DataIntegrityViolationException("duplicate key idempotency_key"))
+                .when(settlementService).settle(anyInt(), anyLong(), anyLong(), any(), any());
+
+        TransactionResponse response = contract.processTransaction(request("1", "2", "10"), "key-1");
+
+        assertEquals(7, response.getTransactionId());
+        assertEquals(TransactionStatus.INVALID, transactions.get(101).getStatus());
+    }
+
+    @Test
+    void integrityViolationWithoutAKeyIsNotSwallowed() throws Exception {
+        doThrow(new DataIntegrityViolationException("constraint"))
+                .when(settlementService).settle(anyInt(), anyLong(), anyLong(), any(), any());
+
+        assertThrows(DataIntegrityViolationException.class, () -> contract.processTransaction(request("1", "2", "10"), null));
+        assertEquals(TransactionStatus.INVALID, transactions.get(101).getStatus());
+    }
+
+    private static TransactionRequest request(String from, String to, String amount) {
+        TransactionRequest request = new TransactionRequest();
+        request.setFromWallet(from);
+        request.setToWallet(to);
+        request.setAmount(new BigDecimal(amount));
+        return request;
+    }
+}
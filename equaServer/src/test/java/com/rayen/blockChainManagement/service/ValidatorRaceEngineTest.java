@@ -0,0 +1,75 @@
+package com.rayen.blockChainManagement.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidatorRaceEngineTest {
+
+    private final ValidatorRaceEngine engine = new ValidatorRaceEngine();
+
+    @Test
+    void equalWaitsGiveEqualOdds() {
+        double[] odds = engine.winProbabilities(new long[]{20, 20, 20, 20});
+        for (double p : odds) {
+            assertEquals(0.25, p, 1e-9);
+        }
+    }
+
+    @Test
+    void matchesMonteCarloSimulationOfTheRace() {
+        long[] waits = {7, 10, 10, 15, 33};
+        double[] exact = engine.winProbabilities(waits);
+        assertEquals(1.0, Arrays.stream(exact).sum(), 1e-9);
+
+        double[] simulated = simulate(waits, 200_000);
+        for (int i = 0; i < waits.length; i++) {
+            assertEquals(exact[i], simulated[i], 0.005, "node " + i);
+        }
+    }
+
+    @Test
+    void zeroAndNegativeWaits() {
+        assertArrayEquals(new double[]{0.5, 0.0, 0.5, 0.0}, engine.winProbabilities(new long[]{0, 12, 0, -1}), 1e-12);
+        assertArrayEquals(new double[]{0.0}, engine.winProbabilities(new long[]{-5}), 1e-12);
+    }
+
+    @Test
+    void thousandsOfNodesSumToOne() {
+        long[] waits = new SplittableRandom(42).longs(10_000, 1, 60).toArray();
+        double[] odds = engine.winProbabilities(waits);
+        assertEquals(1.0, Arrays.stream(odds).sum(), 1e-6);
+    }
+
+    // Replays SmartContract's race: each node guesses every wait ms, 1/6 hit chance, ties split evenly
+    private static double[] simulate(long[] waits, int races) {
+        SplittableRandom random = new SplittableRandom(7);
+        double[] wins = new double[waits.length];
+        for (int r = 0; r < races; r++) {
+            long bestTime = Long.MAX_VALUE;
+            int[] winners = new int[waits.length];
+            int count = 0;
+            for (int i = 0; i < waits.length; i++) {
+                long round = 1;
+                while (random.nextInt(SmartContract.HASH_ALPHABET_SIZE) != 0) {
+                    round++;
+                }
+                long time = round * waits[i];
+                if (time < bestTime) {
+                    bestTime = time;
+                    count = 0;
+                }
+                if (time == bestTime) {
+                    winners[count++] = i;
+                }
+            }
+            for (int k = 0; k < count; k++) {
+                wins[winners[k]] += 1.0 / count;
+            }
+        }
+        return Arrays.stream(wins).map(w -> w / races).toArray();
+    }
+}
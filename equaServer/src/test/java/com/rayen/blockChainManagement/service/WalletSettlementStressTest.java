@@ -0,0 +1,165 @@
+package com.rayen.blockChainManagement.service;
+
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.repository.WalletRepository;
+import com.rayen.walletManagement.service.InMemoryLedger;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * Drives {@link WalletLocks} + {@link SettlementService#transfer} the way SmartContract.deductAndCredit
+ * does, against an in-memory ledger whose check-then-debit would overdraw without the locks.
+ */
+class WalletSettlementStressTest {
+
+    private final Map<Long, Wallet> store = new ConcurrentHashMap<>();
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final WalletLocks locks = new WalletLocks(256);
+    private final InMemoryLedger ledger = new InMemoryLedger(walletRepository);
+    private final SettlementService settlement =
+            new SettlementService(walletRepository, null, null, null, null, null, ledger.ledger());
+
+    @SuppressWarnings("unchecked")
+    WalletSettlementStressTest() {
+        when(walletRepository.findAllByIdForUpdate(anyCollection())).thenAnswer(invocation -> {
+            List<Wallet> found = new ArrayList<>();
+            for (Long id : (Collection<Long>) invocation.getArgument(0)) {
+                Wallet wallet = store.get(id);
+                if (wallet != null) {
+                    found.add(wallet);
+                }
+            }
+            return found;
+        });
+    }
+
+    @Test
+    void sameWalletTransfersAreSerializedWithoutLostUpdates() throws Exception {
+        wallet(1L, 10_000);
+        wallet(2L, 1_000);  // reverse transfers may run before any forward one has credited wallet 2
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ledger.onExactRead(walletIds -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.yield();  // widen the check-then-debit window
+            inFlight.decrementAndGet();
+        });
+
+        int threads = 8;
+        int transfersPerThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean reverse = t % 4 == 3;  // some transfers go the other way to exercise lock ordering
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < transfersPerThread; i++) {
+                    transfer(reverse ? 2L : 1L, reverse ? 1L : 2L, 1);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int forward = 6 * transfersPerThread;
+        int backward = 2 * transfersPerThread;
+        assertEquals(Money.of(10_000 - forward + backward), ledger.balance(1L));
+        assertEquals(Money.of(1_000 + forward - backward), ledger.balance(2L));
+        assertEquals(1, maxInFlight.get(), "two transfers on the same wallet overlapped");
+    }
+
+    @Test
+    void disjointWalletTransfersRunInParallel() throws Exception {
+        int pairs = 8;
+        List<long[]> walletPairs = disjointPairs(pairs);
+        for (long[] pair : walletPairs) {
+            wallet(pair[0], 100);
+            wallet(pair[1], 0);
+        }
+        // Every transfer waits inside its locks until all of them are there: only possible if none blocks another
+        CyclicBarrier allInside = new CyclicBarrier(pairs);
+        Set<Long> senders = new HashSet<>();
+        walletPairs.forEach(pair -> senders.add(pair[0]));
+        ledger.onExactRead(walletIds -> {
+            if (senders.containsAll(walletIds)) {
+                try {
+                    allInside.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(pairs);
+        List<Future<?>> futures = new ArrayList<>();
+        for (long[] pair : walletPairs) {
+            futures.add(executor.submit(() -> {
+                transfer(pair[0], pair[1], 40);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        for (long[] pair : walletPairs) {
+            assertEquals(Money.of(60), ledger.balance(pair[0]));
+            assertEquals(Money.of(40), ledger.balance(pair[1]));
+        }
+    }
+
+    private void transfer(long from, long to, int amount) throws Exception {
+        WalletLocks.Held held = locks.lock(from, to);
+        try {
+            settlement.transfer(from, to, BigDecimal.valueOf(amount), "tx:test");
+        } finally {
+            held.close();
+        }
+    }
+
+    private void wallet(long id, long balance) {
+        store.put(id, Wallet.builder().walletId(id).build());
+        ledger.credit(id, balance);
+    }
+
+    // Wallet pairs whose stripes never collide with another pair's
+    private List<long[]> disjointPairs(int count) {
+        List<long[]> pairs = new ArrayList<>();
+        Set<Integer> usedStripes = new HashSet<>();
+        long id = 100;
+        while (pairs.size() < count) {
+            long from = id++;
+            long to = id++;
+            int a = locks.stripeOf(from);
+            int b = locks.stripeOf(to);
+            if (a != b && !usedStripes.contains(a) && !usedStripes.contains(b)) {
+                usedStripes.add(a);
+                usedStripes.add(b);
+                pairs.add(new long[]{from, to});
+            }
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,57 @@
+package com.rayen.userManaement.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtAuthFilterTest {
+
+    private static final String SECRET = "test-secret-key-min-256-bits-for-hs512-signing-in-unit-tests-only-0123456789";
+
+    private final JwtUtils jwtUtils = new JwtUtils(SECRET, 60_000, 1_000);
+    private final JwtAuthFilter filter = new JwtAuthFilter(jwtUtils);
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void repeatedTokenIsAuthenticatedFromTheVerifiedCache() throws Exception {
+        String token = jwtUtils.generateToken("alice@equa.tn", 42L);
+
+        Object first = authenticate("Bearer " + token).getPrincipal();
+        SecurityContextHolder.clearContext();
+        Object second = authenticate("Bearer " + token).getPrincipal();
+
+        assertEquals(new AuthenticatedUser(42L, "alice@equa.tn"), first);
+        // Same instance: the second request was not parsed again
+        assertSame(first, second);
+        assertEquals(1, jwtUtils.verifiedCacheSize());
+    }
+
+    @Test
+    void requestWithoutValidTokenStaysAnonymousAndContinues() throws Exception {
+        assertNull(authenticate(null));
+        assertNull(authenticate("Bearer not-a-token"));
+        assertNull(authenticate("Basic " + jwtUtils.generateToken("alice@equa.tn", 42L)));
+        assertEquals(0, jwtUtils.verifiedCacheSize());
+    }
+
+    private Authentication authenticate(String authorization) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/wallets/me");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilterInternal(request, new MockHttpServletResponse(), chain);
+        assertNotNull(chain.getRequest(), "filter chain not continued");
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+}
@@ -0,0 +1,118 @@
+package com.rayen.userManaement.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "test-secret-key-min-256-bits-for-hs512-signing-in-unit-tests-only-0123456789";
+
+    private final MutableClock clock = new MutableClock();
+    private final JwtUtils jwtUtils = new JwtUtils(SECRET, 60_000, 100, clock);
+
+    @Test
+    void tokenCarriesTheUserId() {
+        String token = jwtUtils.generateToken("alice@equa.tn", 42L);
+
+        assertEquals(new AuthenticatedUser(42L, "alice@equa.tn"), jwtUtils.getUserFromToken(token));
+        assertEquals("alice@equa.tn", jwtUtils.getEmailFromToken(token));
+        assertTrue(jwtUtils.validateToken(token));
+    }
+
+    @Test
+    void tokenWithoutUserIdStillAuthenticates() {
+        String legacy = Jwts.builder()
+                .subject("bob@equa.tn")
+                .expiration(new Date(clock.millis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), Jwts.SIG.HS512)
+                .compact();
+
+        assertEquals(new AuthenticatedUser(null, "bob@equa.tn"), jwtUtils.getUserFromToken(legacy));
+    }
+
+    @Test
+    void foreignOrExpiredTokensAreRejected() {
+        String foreign = new JwtUtils(SECRET.replace('t', 'x'), 60_000, 100, clock).generateToken("alice@equa.tn", 42L);
+        JwtUtils expiring = new JwtUtils(SECRET, -1_000, 100, clock);
+
+        assertNull(jwtUtils.getUserFromToken(foreign));
+        assertNull(jwtUtils.getUserFromToken(expiring.generateToken("alice@equa.tn", 42L)));
+        assertNull(jwtUtils.getUserFromToken("not-a-token"));
+        assertFalse(jwtUtils.validateToken(foreign));
+        assertEquals(0, jwtUtils.verifiedCacheSize());
+    }
+
+    @Test
+    void verifiedTokensAreRememberedUpToTheLimit() {
+        JwtUtils small = new JwtUtils(SECRET, 60_000, 2, clock);
+        String first = small.generateToken("a@equa.tn", 1L);
+        String second = small.generateToken("b@equa.tn", 2L);
+        String third = small.generateToken("c@equa.tn", 3L);
+
+        AuthenticatedUser user = small.getUserFromToken(first);
+        assertSame(user, small.getUserFromToken(first));
+        small.getUserFromToken(second);
+        small.getUserFromToken(first);          // most recently used again
+        small.getUserFromToken(third);          // evicts the second
+
+        assertEquals(2, small.verifiedCacheSize());
+        assertSame(user, small.getUserFromToken(first));
+        assertEquals(new AuthenticatedUser(2L, "b@equa.tn"), small.getUserFromToken(second));
+    }
+
+    @Test
+    void expiredEntryIsNotServedFromTheCache() {
+        JwtUtils shortLived = new JwtUtils(SECRET, 1_000, 100, clock);
+        String token = shortLived.generateToken("a@equa.tn", 1L);
+        assertNotNull(shortLived.getUserFromToken(token));
+
+        clock.advance(Duration.ofMillis(1_001));
+
+        assertNull(shortLived.getUserFromToken(token));
+        assertEquals(0, shortLived.verifiedCacheSize());
+    }
+
+    @Test
+    void stripedCacheHoldsItsFullCapacity() {
+        JwtUtils striped = new JwtUtils(SECRET, 60_000, 128, clock);
+        for (long id = 0; id < 1_000; id++) {
+            assertNotNull(striped.getUserFromToken(striped.generateToken("u" + id + "@equa.tn", id)));
+        }
+
+        assertEquals(128, striped.verifiedCacheSize());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.rayen.userManaement.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    private static final long WINDOW_MS = 60_000;
+    private static final long T0 = 1_000 * WINDOW_MS;   // start of a fixed window
+
+    private final LoginThrottle throttle = new LoginThrottle(8, WINDOW_MS / 1000, 5, false, null);
+
+    @Test
+    void failuresAreCountedPerEmailIgnoringCase() {
+        assertEquals(1, throttle.recordFailure("Alice@Equa.tn", "10.0.0.1", T0));
+        assertEquals(2, throttle.recordFailure("alice@equa.tn ", "10.0.0.2", T0 + 1_000));
+        assertEquals(1, throttle.recordFailure("bob@equa.tn", "10.0.0.1", T0 + 2_000));
+    }
+
+    @Test
+    void previousWindowFadesOutAsTheWindowSlides() {
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure("alice@equa.tn", null, T0 + 50_000);
+        }
+
+        assertEquals(4, throttle.failures("email:alice@equa.tn", T0 + WINDOW_MS));                // full overlap
+        assertEquals(2, throttle.failures("email:alice@equa.tn", T0 + WINDOW_MS + WINDOW_MS / 2));
+        assertEquals(0, throttle.failures("email:alice@equa.tn", T0 + 2 * WINDOW_MS));
+        assertEquals(3, throttle.recordFailure("alice@equa.tn", null, T0 + WINDOW_MS + WINDOW_MS / 2));
+    }
+
+    @Test
+    void ipIsRefusedOnceOverItsLimit() {
+        for (int i = 0; i < 5; i++) {
+            throttle.checkIp("10.0.0.1", T0 + i);
+            throttle.recordFailure("user" + i + "@equa.tn", "10.0.0.1", T0 + i);
+        }
+
+        LoginThrottle.ThrottledException e = assertThrows(LoginThrottle.ThrottledException.class,
+                () -> throttle.checkIp("10.0.0.1", T0 + 10));
+        assertEquals(WINDOW_MS / 1000, e.getRetryAfterSeconds());
+        assertDoesNotThrow(() -> throttle.checkIp("10.0.0.2", T0 + 10));
+        assertDoesNotThrow(() -> throttle.checkIp("10.0.0.1", T0 + 2 * WINDOW_MS));
+    }
+
+    @Test
+    void resetForgetsTheEmailButNotTheIp() {
+        throttle.recordFailure("alice@equa.tn", "10.0.0.1", T0);
+        throttle.recordFailure("alice@equa.tn", "10.0.0.1", T0);
+
+        throttle.reset("ALICE@equa.tn");
+
+        assertEquals(0, throttle.failures("email:alice@equa.tn", T0));
+        assertEquals(2, throttle.failures("ip:10.0.0.1", T0));
+    }
+
+    @Test
+    void idleKeysAreEvicted() {
+        throttle.recordFailure("alice@equa.tn", "10.0.0.1", System.currentTimeMillis() - 3 * WINDOW_MS);
+        throttle.recordFailure("bob@equa.tn", null, System.currentTimeMillis());
+
+        throttle.evictIdle();
+
+        assertEquals(1, throttle.size());
+    }
+}
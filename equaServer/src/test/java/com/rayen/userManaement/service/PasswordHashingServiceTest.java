@@ -0,0 +1,128 @@
+package com.rayen.userManaement.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<PasswordHashingService> services = new ArrayList<>();
+    private final ExecutorService callers = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        callers.shutdownNow();
+        services.forEach(PasswordHashingService::shutdown);
+    }
+
+    @Test
+    void hashesAndVerifiesOnThePool() {
+        PasswordHashingService service = service(new BCryptPasswordEncoder(4), 1, 1, 5_000);
+
+        String hash = service.encode("secret123");
+
+        assertTrue(service.matches("secret123", hash));
+        assertFalse(service.matches("wrong", hash));
+        assertEquals(3L, service.getStats().get("completed"));
+        assertEquals(0L, service.getStats().get("rejected"));
+    }
+
+    @Test
+    void saturatedPoolRejectsImmediately() throws Exception {
+        PasswordHashingService service = service(blockingEncoder(), 1, 1, 30_000);
+        Future<?> running = callers.submit(() -> service.encode("a"));
+        Future<?> queued = callers.submit(() -> service.encode("b"));
+        waitUntil(() -> service.getStats().get("active") == 1 && service.getStats().get("queued") == 1);
+
+        assertThrows(PasswordHashingService.BusyException.class, () -> service.encode("c"));
+        assertEquals(1L, service.getStats().get("rejected"));
+        assertEquals(0L, service.getStats().get("timedOut"));
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void callerGivesUpAfterMaxWait() {
+        PasswordHashingService service = service(blockingEncoder(), 1, 4, 100);
+
+        assertThrows(PasswordHashingService.BusyException.class, () -> service.encode("a"));
+        assertEquals(1L, service.getStats().get("timedOut"));
+    }
+
+    @Test
+    void abandonedQueuedTaskFreesItsSlotButARunningOneKeepsIt() throws Exception {
+        PasswordHashingService service = service(blockingEncoder(), 1, 1, 500);
+        // Gives up while hashing: BCrypt cannot be stopped, the worker stays busy
+        assertThrows(PasswordHashingService.BusyException.class, () -> service.encode("a"));
+        // Gives up while queued: taken out of the queue
+        assertThrows(PasswordHashingService.BusyException.class, () -> service.encode("b"));
+        assertEquals(2L, service.getStats().get("timedOut"));
+        assertEquals(0L, service.getStats().get("queued"));
+
+        Future<?> queued = callers.submit(() -> service.encode("c"));
+        waitUntil(() -> service.getStats().get("queued") == 1);
+        assertThrows(PasswordHashingService.BusyException.class, () -> service.encode("d"));
+        assertEquals(1L, service.getStats().get("rejected"));
+
+        release.countDown();
+        queued.get(5, TimeUnit.SECONDS);
+        assertEquals(2L, service.getStats().get("completed"));
+    }
+
+    @Test
+    void lowerCostHashNeedsUpgrade() {
+        PasswordHashingService service = service(new BCryptPasswordEncoder(5), 1, 1, 5_000);
+
+        assertTrue(service.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret123")));
+        assertFalse(service.upgradeEncoding(service.encode("secret123")));
+    }
+
+    private PasswordHashingService service(PasswordEncoder encoder, int threads, int queueSize, long maxWaitMs) {
+        PasswordHashingService service = new PasswordHashingService(encoder, threads, queueSize, maxWaitMs);
+        services.add(service);
+        return service;
+    }
+
+    private PasswordEncoder blockingEncoder() {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "hash";
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return encode(rawPassword).equals(encodedPassword);
+            }
+        };
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.rayen.walletManagement.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void roundsHalfUpToEightDecimals() {
+        assertEquals(12_345_678_9L, Money.of(new BigDecimal("1.234567885")).units());
+        assertEquals(1L, Money.of(new BigDecimal("0.000000005")).units());
+        assertEquals(0L, Money.of(new BigDecimal("0.000000004")).units());
+        assertEquals(new BigDecimal("500.00000000"), Money.of(500).toBigDecimal());
+    }
+
+    @Test
+    void arithmeticIsExactWhereFloatWasNot() {
+        Money balance = Money.ZERO;
+        Money cent = Money.of(new BigDecimal("0.01"));
+        float floatBalance = 0f;
+        for (int i = 0; i < 100_000; i++) {
+            balance = balance.plus(cent);
+            floatBalance += 0.01f;
+        }
+        assertEquals(Money.of(1_000), balance);
+        assertNotEquals(1_000f, floatBalance);
+
+        assertTrue(balance.minus(Money.of(1_000)).isZero());
+        assertTrue(cent.isLessThan(balance));
+        assertTrue(Money.ZERO.minus(cent).isNegative());
+    }
+
+    @Test
+    void overflowThrowsInsteadOfWrapping() {
+        Money max = Money.ofUnits(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> max.plus(Money.ofUnits(1)));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e20")));
+    }
+
+    @Test
+    void serializesAsDecimalNumberAndStoresAsUnits() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        Money amount = Money.of(new BigDecimal("42.5"));
+
+        assertEquals("42.50000000", mapper.writeValueAsString(amount));
+        assertEquals(amount, mapper.readValue("42.5", Money.class));
+
+        MoneyConverter converter = new MoneyConverter();
+        assertEquals(4_250_000_000L, converter.convertToDatabaseColumn(amount));
+        assertEquals(amount, converter.convertToEntityAttribute(4_250_000_000L));
+        assertNull(converter.convertToEntityAttribute(null));
+    }
+}
@@ -0,0 +1,90 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.AnalyticsSummary;
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.DeviseTotals;
+import com.rayen.walletManagement.model.FraudRiskCount;
+import com.rayen.walletManagement.model.FraudRiskLevel;
+import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.model.LoyaltyTierCount;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.WalletTotals;
+import com.rayen.walletManagement.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AnalyticsServiceTest {
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final AnalyticsService analytics = new AnalyticsService(null, walletRepository,
+            new FxRateProvider(List.of(new StaticFxRateSource()), "static", 1), null);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(analytics, "summaryTtlMs", 60_000L);
+        when(walletRepository.findWalletTotals()).thenReturn(new Totals(4, Money.of(10).units(), 3, 1));
+        when(walletRepository.sumDeviseBalances()).thenReturn(new Devise(Money.of(100).units(), 0, 0,
+                Money.of(new BigDecimal("0.01")).units()));
+        when(walletRepository.countByLoyaltyTier()).thenReturn(List.of(
+                new TierRow(LoyaltyTier.BRONZE, 3), new TierRow(LoyaltyTier.GOLD, 1), new TierRow(null, 2)));
+        when(walletRepository.countByFraudRiskLevel()).thenReturn(List.of(new RiskRow(FraudRiskLevel.HIGH, 1)));
+    }
+
+    @Test
+    void summaryFoldsTheAggregatesAtCurrentRates() {
+        AnalyticsSummary summary = analytics.getGlobalSummary();
+
+        assertEquals(4, summary.getTotalWallets());
+        assertEquals(3, summary.getActiveWallets());
+        assertEquals(1, summary.getSuspendedWallets());
+        // 10 EQUA + 100 EUR + 0.01 BTC × 29 000
+        assertEquals(0, new BigDecimal("400").compareTo(summary.getTotalBalance()));
+        assertEquals(new BigDecimal("100.00"), summary.getAverageBalance());
+        assertEquals(0, new BigDecimal("0.01").compareTo(summary.getCurrencyDistribution().get(CurrencyCode.BTC)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(summary.getCurrencyDistribution().get(CurrencyCode.USD)));
+        assertEquals(Map.of(LoyaltyTier.BRONZE, 3L, LoyaltyTier.GOLD, 1L), summary.getTierDistribution());
+        assertEquals(Map.of(FraudRiskLevel.HIGH, 1L), summary.getFraudRiskDistribution());
+    }
+
+    @Test
+    void noWalletsAveragesToZero() {
+        when(walletRepository.findWalletTotals()).thenReturn(new Totals(0, 0, 0, 0));
+        when(walletRepository.sumDeviseBalances()).thenReturn(new Devise(0, 0, 0, 0));
+
+        AnalyticsSummary summary = analytics.getGlobalSummary();
+
+        assertEquals(0, summary.getTotalWallets());
+        assertEquals(BigDecimal.ZERO, summary.getAverageBalance());
+    }
+
+    @Test
+    void summaryIsReusedWithinTheTtl() {
+        AnalyticsSummary first = analytics.getGlobalSummary();
+        assertSame(first, analytics.getGlobalSummary());
+        verify(walletRepository, times(1)).findWalletTotals();
+
+        ReflectionTestUtils.setField(analytics, "summaryTtlMs", 0L);
+        assertNotSame(first, analytics.getGlobalSummary());
+        verify(walletRepository, times(2)).findWalletTotals();
+    }
+
+    private record Totals(long getWallets, long getEquaUnits, long getActive, long getSuspended) implements WalletTotals {
+    }
+
+    private record Devise(long getEurUnits, long getUsdUnits, long getTndUnits, long getBtcUnits) implements DeviseTotals {
+    }
+
+    private record TierRow(LoyaltyTier getTier, long getWallets) implements LoyaltyTierCount {
+    }
+
+    private record RiskRow(FraudRiskLevel getLevel, long getWallets) implements FraudRiskCount {
+    }
+}
@@ -0,0 +1,162 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.DeviseWallet;
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.BulkTransferResponse;
+import com.rayen.walletManagement.model.BulkTransferResult;
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.TransferRequest;
+import com.rayen.walletManagement.model.WalletOperationType;
+import com.rayen.walletManagement.repository.DeviseWalletRepository;
+import com.rayen.walletManagement.repository.WalletRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DeviseWalletBulkTransferTest {
+
+    private final Map<Long, Wallet> store = new HashMap<>();
+    private final List<Collection<Long>> lockRequests = new ArrayList<>();
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final DeviseWalletRepository deviseWalletRepository = mock(DeviseWalletRepository.class);
+    private final FraudDetectionService fraudDetectionService = mock(FraudDetectionService.class);
+    private final WalletEventOutbox walletEventOutbox = mock(WalletEventOutbox.class);
+    private final DeviseWalletService service = new DeviseWalletService(walletRepository, deviseWalletRepository, new WalletBalanceValidator(),
+            fraudDetectionService, walletEventOutbox, new FxRateProvider(List.of(new StaticFxRateSource()), "static", 1));
+
+    @SuppressWarnings("unchecked")
+    DeviseWalletBulkTransferTest() {
+        ReflectionTestUtils.setField(service, "bulkTransferMaxLegs", 10);
+        when(deviseWalletRepository.findAllByWalletIdForUpdate(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            lockRequests.add(List.copyOf(ids));
+            return ids.stream().map(store::get).filter(w -> w != null).map(Wallet::getDeviseWallet).toList();
+        });
+        when(walletRepository.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(store::get).filter(w -> w != null).toList();
+        });
+        when(walletRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void legsSeeEarlierLegsAndOnlyTheNetIsWritten() {
+        wallet(3L, "100");
+        wallet(1L, "0");
+        wallet(2L, "0");
+
+        BulkTransferResponse response = service.bulkTransfer(List.of(
+                leg(3L, 1L, "60"),
+                leg(1L, 2L, "50"),      // funded by the first leg
+                leg(3L, 2L, "50"),      // only 40 left
+                leg(3L, 2L, "40")));
+
+        assertEquals(3, response.getAccepted());
+        assertEquals(List.of(true, true, false, true), response.getResults().stream().map(BulkTransferResult::isAccepted).toList());
+        assertEquals("Insufficient EUR balance", response.getResults().get(2).getError());
+        assertEquals(List.of(List.of(1L, 2L, 3L)), lockRequests);
+
+        assertEquals(0, balance(3L).signum());
+        assertEquals(0, new BigDecimal("9.7").compareTo(balance(1L)));             // 59.7 in, 50 out
+        assertEquals(0, new BigDecimal("89.55").compareTo(balance(2L)));            // 49.75 + 39.8 after fees
+        // One event per wallet and currency for the gross amount moved, but one fraud check per leg side
+        verify(walletEventOutbox).record(eq(store.get(1L)), eq(WalletOperationType.TRANSFER), eq(CurrencyCode.EUR),
+                argThat(amount -> amount.compareTo(new BigDecimal("109.7")) == 0));
+        verify(walletEventOutbox, times(3)).record(any(), any(), any(), any());
+        verify(fraudDetectionService, times(6)).assess(any(), any(), any(), any());
+        verify(fraudDetectionService).assess(eq(store.get(1L)), eq(WalletOperationType.TRANSFER), eq(CurrencyCode.EUR),
+                argThat(amount -> amount.compareTo(new BigDecimal("50")) == 0));
+        verify(walletRepository, times(3)).save(any());
+    }
+
+    @Test
+    void invalidLegsAreRejectedWithoutLockingTheirWallets() {
+        wallet(1L, "10");
+        wallet(2L, "0");
+
+        BulkTransferResponse response = service.bulkTransfer(List.of(
+                leg(1L, 1L, "1"),
+                leg(1L, 7L, "0"),
+                leg(1L, 8L, "0.000000001"),
+                leg(1L, 9L, "1"),
+                leg(1L, 2L, "1")));
+
+        assertEquals(List.of("Cannot transfer to the same wallet", "Amount must be positive", "Amount must be positive",
+                "Target wallet not found"), response.getResults().subList(0, 4).stream().map(BulkTransferResult::getError).toList());
+        assertTrue(response.getResults().get(4).isAccepted());
+        assertEquals(List.of(List.of(1L, 2L, 9L)), lockRequests);
+        assertEquals(2, response.getWalletsLocked());
+        assertEquals(2, response.getWalletsUpdated());
+    }
+
+    @Test
+    void oversizedBatchIsRefused() {
+        List<TransferRequest> legs = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            legs.add(leg(1L, 2L, "1"));
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> service.bulkTransfer(legs));
+        assertThrows(IllegalArgumentException.class, () -> service.bulkTransfer(List.of()));
+        verifyNoInteractions(walletRepository, deviseWalletRepository);
+    }
+
+    @Test
+    void singleTransferLocksBothWalletsInOneRequestInIdOrder() {
+        wallet(1L, "0");
+        wallet(2L, "100");
+
+        service.transferBetweenWallets(2L, CurrencyCode.EUR, 1L, CurrencyCode.EUR, new BigDecimal("10"));
+
+        assertEquals(List.of(List.of(1L, 2L)), lockRequests);
+        assertEquals(0, new BigDecimal("90").compareTo(balance(2L)));
+        assertEquals(0, new BigDecimal("9.95").compareTo(balance(1L)));
+    }
+
+    @Test
+    void singleWalletOperationsGoThroughTheDeviseLock() {
+        wallet(1L, "10");
+
+        service.addFunds(1L, CurrencyCode.EUR, new BigDecimal("5"));
+        service.removeFunds(1L, CurrencyCode.EUR, new BigDecimal("3"));
+        service.convertCurrency(1L, CurrencyCode.EUR, CurrencyCode.USD, new BigDecimal("2"));
+
+        assertEquals(List.of(List.of(1L), List.of(1L), List.of(1L)), lockRequests);
+        assertEquals(0, new BigDecimal("10").compareTo(balance(1L)));
+        assertThrows(IllegalArgumentException.class, () -> service.addFunds(9L, CurrencyCode.EUR, BigDecimal.ONE));
+        verify(walletRepository, never()).findById(any());
+    }
+
+    private void wallet(Long id, String eur) {
+        DeviseWallet devise = DeviseWallet.builder().build();
+        devise.deposit(CurrencyCode.EUR, new BigDecimal(eur));
+        store.put(id, Wallet.builder().walletId(id).status("ACTIVE").equaAmount(Money.ZERO).deviseWallet(devise).build());
+    }
+
+    private BigDecimal balance(Long id) {
+        return store.get(id).getDeviseWallet().getBalance(CurrencyCode.EUR);
+    }
+
+    private static TransferRequest leg(Long source, Long target, String amount) {
+        TransferRequest leg = new TransferRequest();
+        leg.setSourceWalletId(source);
+        leg.setSourceCurrency(CurrencyCode.EUR);
+        leg.setTargetWalletId(target);
+        leg.setTargetCurrency(CurrencyCode.EUR);
+        leg.setAmount(new BigDecimal(amount));
+        return leg;
+    }
+}
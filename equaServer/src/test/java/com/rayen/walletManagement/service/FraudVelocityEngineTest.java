@@ -0,0 +1,121 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.WalletOperationType;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FraudVelocityEngineTest {
+
+    private final FraudVelocityEngine engine = new FraudVelocityEngine(16, null);
+
+    @Test
+    void steadyRateSettlesOnEventsPerWindow() {
+        long t = 0;
+        FraudVelocityEngine.Rates rates = null;
+        for (int i = 0; i < 360; i++) {  // one transfer every 10 seconds for an hour
+            rates = engine.record(1L, WalletOperationType.TRANSFER, t);
+            t += 10_000;
+        }
+        // ~6 per minute (6.5 with the event just counted), ~228 of the 360 still weigh in the hour window
+        assertEquals(6.5, rates.changesLastMinute(), 0.1);
+        assertTrue(rates.changesLastHour() > 200 && rates.changesLastHour() < 260, "hour: " + rates.changesLastHour());
+        assertEquals(0, rates.conversionsLastDay());
+    }
+
+    @Test
+    void oldActivityFadesInsteadOfAccumulating() {
+        for (int i = 0; i < 10; i++) {
+            engine.record(2L, WalletOperationType.CONVERSION, i * 1_000L);
+        }
+        FraudVelocityEngine.Rates burst = engine.rates(2L, 10_000);
+        assertTrue(burst.changesLastMinute() > 8);
+        assertTrue(burst.conversionsLastDay() > 9.9);
+
+        FraudVelocityEngine.Rates later = engine.rates(2L, 10_000 + 2 * FraudVelocityEngine.HOUR_MS);
+        assertTrue(later.changesLastMinute() < 1e-6);
+        assertTrue(later.changesLastHour() < 1.5);
+        assertTrue(later.conversionsLastDay() > 9);   // still inside the day window
+    }
+
+    @Test
+    void loyaltyRedemptionsAreNotBalanceChanges() {
+        FraudVelocityEngine.Rates rates = engine.record(3L, WalletOperationType.LOYALTY_REDEEM, 0);
+        assertEquals(0, rates.changesLastMinute());
+        assertSame(FraudVelocityEngine.Rates.NONE, engine.rates(4L, 0));
+    }
+
+    @Test
+    void idleWalletsAreEvicted() {
+        engine.record(5L, WalletOperationType.FUNDING, System.currentTimeMillis() - 10 * FraudVelocityEngine.DAY_MS);
+        engine.record(6L, WalletOperationType.FUNDING, System.currentTimeMillis());
+        engine.evictIdle();
+        assertEquals(1, engine.size());
+    }
+
+    @Test
+    void lateEventIsCountedAsIfItHadArrivedInOrder() {
+        engine.record(7L, WalletOperationType.TRANSFER, 0);
+        engine.record(7L, WalletOperationType.CONVERSION, 30_000);
+        FraudVelocityEngine.Rates inOrder = engine.record(7L, WalletOperationType.TRANSFER, 60_000);
+
+        engine.record(8L, WalletOperationType.TRANSFER, 0);
+        engine.record(8L, WalletOperationType.TRANSFER, 60_000);
+        // Committed last, but happened in between
+        FraudVelocityEngine.Rates late = engine.record(8L, WalletOperationType.CONVERSION, 30_000);
+
+        assertEquals(inOrder.changesLastMinute(), late.changesLastMinute(), 1e-9);
+        assertEquals(inOrder.changesLastHour(), late.changesLastHour(), 1e-9);
+        assertEquals(inOrder.conversionsLastDay(), late.conversionsLastDay(), 1e-9);
+        assertTrue(late.changesLastMinute() < 2);
+    }
+
+    @Test
+    void replaySkipsEventsWithAnUnknownOperationType() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        long now = System.currentTimeMillis();
+        doAnswer(call -> {
+            RowCallbackHandler handler = call.getArgument(1);
+            handler.processRow(event(9L, "TRANSFER", now - 2_000));
+            handler.processRow(event(9L, "RETIRED_TYPE", now - 1_000));
+            handler.processRow(event(10L, "CONVERSION", now));
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Timestamp.class));
+        FraudVelocityEngine replaying = new FraudVelocityEngine(16, jdbcTemplate);
+
+        replaying.start();
+
+        assertTrue(replaying.isRunning());
+        assertEquals(2, replaying.size());
+        assertEquals(1, replaying.rates(9L, now).changesLastDay(), 0.01);
+        assertEquals(1, replaying.rates(10L, now).conversionsLastDay(), 0.01);
+    }
+
+    @Test
+    void replayThatCannotReadTheEventsFailsStartup() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doThrow(new DataAccessResourceFailureException("connection refused"))
+                .when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Timestamp.class));
+        FraudVelocityEngine replaying = new FraudVelocityEngine(16, jdbcTemplate);
+
+        assertThrows(DataAccessResourceFailureException.class, replaying::start);
+        assertFalse(replaying.isRunning());
+    }
+
+    private static ResultSet event(long walletId, String operationType, long atMillis) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(walletId);
+        when(rs.getString(2)).thenReturn(operationType);
+        when(rs.getTimestamp(3)).thenReturn(new Timestamp(atMillis));
+        return rs;
+    }
+}
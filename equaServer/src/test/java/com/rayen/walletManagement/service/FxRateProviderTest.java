@@ -0,0 +1,109 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.FxRateSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRateProviderTest {
+
+    private final SettableSource source = new SettableSource();
+
+    @Test
+    void crossRatesMatchMultiplyThenDivide() {
+        FxRateProvider provider = new FxRateProvider(List.of(new StaticFxRateSource()), "static", 10);
+        BigDecimal amount = new BigDecimal("1234.56789");
+        for (CurrencyCode from : CurrencyCode.values()) {
+            for (CurrencyCode to : CurrencyCode.values()) {
+                BigDecimal expected = amount.multiply(from.getDefaultEurRate())
+                        .divide(to.getDefaultEurRate(), 8, RoundingMode.HALF_UP);
+                assertEquals(expected, provider.convert(from, to, amount), from + " -> " + to);
+            }
+        }
+    }
+
+    @Test
+    void refreshSwapsSnapshotOnlyWhenRatesChange() {
+        FxRateProvider provider = new FxRateProvider(List.of(source), "test", 10);
+        FxRateSnapshot first = provider.current();
+
+        assertTrue(provider.refresh());
+        assertSame(first, provider.current());
+
+        source.rates.put(CurrencyCode.USD, new BigDecimal("1.2"));
+        assertTrue(provider.refresh());
+        FxRateSnapshot second = provider.current();
+
+        assertEquals(2, second.getVersion());
+        assertEquals(new BigDecimal("1.1"), first.getEurRate(CurrencyCode.USD));   // old snapshot untouched
+        assertEquals(new BigDecimal("12.00000000"), provider.convert(CurrencyCode.USD, CurrencyCode.EUR, BigDecimal.TEN));
+        assertEquals(List.of(second, first), provider.history());
+    }
+
+    @Test
+    void failingSourceKeepsCurrentSnapshot() {
+        FxRateProvider provider = new FxRateProvider(List.of(source), "test", 10);
+        FxRateSnapshot before = provider.current();
+
+        source.rates.remove(CurrencyCode.BTC);
+
+        assertFalse(provider.refresh());
+        assertSame(before, provider.current());
+    }
+
+    @Test
+    void startsOnDefaultRatesWhenSourceIsUnreadable() {
+        source.rates.clear();
+        FxRateProvider provider = new FxRateProvider(List.of(source), "test", 10);
+
+        assertEquals(StaticFxRateSource.NAME, provider.current().getSource());
+        assertEquals(CurrencyCode.BTC.getDefaultEurRate(), provider.current().getEurRate(CurrencyCode.BTC));
+    }
+
+    @Test
+    void historyIsBoundedAndLooksUpByTime() {
+        FxRateProvider provider = new FxRateProvider(List.of(source), "test", 3);
+        for (int i = 2; i <= 5; i++) {
+            source.rates.put(CurrencyCode.TND, BigDecimal.valueOf(i));
+            provider.refresh();
+        }
+
+        List<FxRateSnapshot> history = provider.history();
+        assertEquals(List.of(5L, 4L, 3L), history.stream().map(FxRateSnapshot::getVersion).toList());
+        assertSame(history.get(0), provider.snapshotAt(LocalDateTime.now()));
+        assertNull(provider.snapshotAt(history.get(2).getLoadedAt().minusSeconds(1)));
+    }
+
+    @Test
+    void unknownSourceIsRejected() {
+        assertThrows(IllegalStateException.class, () -> new FxRateProvider(List.of(source), "missing", 10));
+    }
+
+    private static final class SettableSource implements FxRateSource {
+        private final Map<CurrencyCode, BigDecimal> rates = new EnumMap<>(CurrencyCode.class);
+
+        private SettableSource() {
+            for (CurrencyCode currency : CurrencyCode.values()) {
+                rates.put(currency, currency.getDefaultEurRate());
+            }
+        }
+
+        @Override
+        public String name() {
+            return "test";
+        }
+
+        @Override
+        public Map<CurrencyCode, BigDecimal> load() {
+            return new EnumMap<>(rates);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.DeviseWallet;
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.AchievementType;
+import com.rayen.walletManagement.model.ChallengeType;
+import com.rayen.walletManagement.model.CurrencyCode;
+import com.rayen.walletManagement.model.EnumBits;
+import com.rayen.walletManagement.model.GamificationContext;
+import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.WalletOperationType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GamificationRulesTest {
+
+    private final InMemoryLedger ledger = new InMemoryLedger(null);
+    private final GamificationService gamificationService =
+            new GamificationService(ledger.ledger(), new FxRateProvider(List.of(new StaticFxRateSource()), "static", 1));
+
+    @Test
+    void onlyPendingRulesAreTested() {
+        AtomicInteger tested = new AtomicInteger();
+        GamificationRules.RuleSet<ChallengeType> rules = GamificationRules.RuleSet.of(ChallengeType.class)
+                .rule(ChallengeType.DAILY_MINIMUM_BALANCE, c -> tested.incrementAndGet() > 0)
+                .rule(ChallengeType.WEEKLY_VALUE_GROWTH, c -> tested.incrementAndGet() > 0)
+                .rule(ChallengeType.MULTI_CURRENCY_USE, c -> tested.incrementAndGet() < 0)
+                .rule(ChallengeType.CONSISTENT_ACTIVITY, c -> tested.incrementAndGet() > 0)
+                .build();
+        long earned = EnumBits.bit(ChallengeType.DAILY_MINIMUM_BALANCE) | EnumBits.bit(ChallengeType.CONSISTENT_ACTIVITY);
+
+        long gained = rules.evaluate(earned, context(WalletOperationType.TRANSFER));
+
+        assertEquals(2, tested.get());
+        assertEquals(EnumBits.bit(ChallengeType.WEEKLY_VALUE_GROWTH), gained);
+        assertEquals(0, rules.pending(earned | gained | EnumBits.bit(ChallengeType.MULTI_CURRENCY_USE)));
+    }
+
+    @Test
+    void everyConstantNeedsExactlyOneRule() {
+        assertThrows(IllegalStateException.class, () -> GamificationRules.RuleSet.of(ChallengeType.class)
+                .rule(ChallengeType.DAILY_MINIMUM_BALANCE, c -> true)
+                .build());
+        assertThrows(IllegalStateException.class, () -> GamificationRules.RuleSet.of(ChallengeType.class)
+                .rule(ChallengeType.DAILY_MINIMUM_BALANCE, c -> true)
+                .rule(ChallengeType.DAILY_MINIMUM_BALANCE, c -> false));
+    }
+
+    @Test
+    void evaluateGrantsFromOneContextAndStampsVersion() {
+        DeviseWallet devise = DeviseWallet.builder().build();
+        devise.deposit(CurrencyCode.EUR, BigDecimal.valueOf(2_000));
+        devise.deposit(CurrencyCode.BTC, BigDecimal.valueOf(0.1));      // 2 900 EUR
+        ledger.credit(1L, 600);
+        Wallet wallet = Wallet.builder()
+                .walletId(1L)
+                .loyaltyTier(LoyaltyTier.SILVER)
+                .recentBalanceChanges(1)
+                .deviseWallet(devise)
+                .build();
+
+        assertTrue(gamificationService.evaluate(wallet, WalletOperationType.CONVERSION));
+
+        assertEquals(EnumSet.of(AchievementType.FIRST_WALLET_FUNDING, AchievementType.FIRST_CURRENCY_CONVERSION,
+                AchievementType.HOLDING_MULTIPLE_CURRENCIES), wallet.getAchievements());
+        assertEquals(EnumSet.of(ChallengeType.DAILY_MINIMUM_BALANCE, ChallengeType.WEEKLY_VALUE_GROWTH,
+                ChallengeType.MULTI_CURRENCY_USE), wallet.getCompletedChallenges());
+        assertEquals(GamificationRules.VERSION, wallet.getGamificationRulesVersion());
+        assertEquals(0, new BigDecimal("5500").compareTo(gamificationService.computeAggregateNetWorth(wallet)));
+
+        // Nothing new: earned bits are kept, nothing is reported
+        assertFalse(gamificationService.evaluate(wallet, WalletOperationType.TRANSFER));
+        assertTrue(wallet.hasAchievement(AchievementType.FIRST_CURRENCY_CONVERSION));
+    }
+
+    @Test
+    void fullyEarnedWalletSkipsTheContext() {
+        Wallet wallet = Wallet.builder()
+                .equaAmount(null)   // building a context would fail
+                .achievementBits(EnumBits.toMask(EnumSet.allOf(AchievementType.class)))
+                .challengeBits(EnumBits.toMask(EnumSet.allOf(ChallengeType.class)))
+                .build();
+
+        assertFalse(gamificationService.evaluate(wallet, WalletOperationType.TRANSFER));
+        assertEquals(GamificationRules.VERSION, wallet.getGamificationRulesVersion());
+    }
+
+    private static GamificationContext context(WalletOperationType operationType) {
+        return new GamificationContext(operationType, Money.ZERO, BigDecimal.ZERO, 0, LoyaltyTier.BRONZE, 0, false);
+    }
+}
@@ -0,0 +1,140 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.WalletPosting;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.repository.WalletBalanceSnapshotRepository;
+import com.rayen.walletManagement.repository.WalletPostingRepository;
+import com.rayen.walletManagement.repository.WalletRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A {@link WalletLedgerService} over postings kept in memory, without snapshots. Every saved posting
+ * counts as committed.
+ */
+public class InMemoryLedger {
+
+    private final List<WalletPosting> postings = new ArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final WalletPostingRepository postingRepository = mock(WalletPostingRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final WalletLedgerService ledger;
+    private volatile Consumer<Collection<Long>> onExactRead = walletIds -> { };
+
+    @SuppressWarnings("unchecked")
+    public InMemoryLedger(WalletRepository walletRepository) {
+        when(postingRepository.save(any())).thenAnswer(call -> add(call.getArgument(0)));
+        when(postingRepository.saveAll(anyList())).thenAnswer(call -> {
+            List<WalletPosting> saved = call.getArgument(0);
+            saved.forEach(this::add);
+            return saved;
+        });
+        when(postingRepository.findExactBalances(anyCollection())).thenAnswer(call -> {
+            Collection<Long> walletIds = call.getArgument(0);
+            onExactRead.accept(walletIds);
+            return walletIds.stream()
+                    .map(walletId -> units(walletId, balance(walletId).units()))
+                    .toList();
+        });
+        when(postingRepository.findTail(any(), anyLong())).thenAnswer(call -> {
+            Long walletId = call.getArgument(0);
+            long after = call.getArgument(1);
+            return copy().stream()
+                    .filter(posting -> posting.getWalletId().equals(walletId) && posting.getPostingId() > after)
+                    .map(posting -> tail(posting.getPostingId(), posting.getAmount().units()))
+                    .toList();
+        });
+        ledger = new WalletLedgerService(postingRepository, mock(WalletBalanceSnapshotRepository.class),
+                walletRepository, jdbcTemplate);
+    }
+
+    public WalletLedgerService ledger() {
+        return ledger;
+    }
+
+    public WalletPostingRepository postingRepository() {
+        return postingRepository;
+    }
+
+    public JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Runs on the thread reading exact balances, i.e. under the caller's row locks.
+     */
+    public void onExactRead(Consumer<Collection<Long>> hook) {
+        this.onExactRead = hook;
+    }
+
+    /**
+     * A posting committed without going through {@link #ledger()}, e.g. by another instance.
+     */
+    public void credit(Long walletId, long equa) {
+        add(ledger.posting(walletId, Money.of(equa), null, null));
+    }
+
+    public Money balance(Long walletId) {
+        long units = 0;
+        for (WalletPosting posting : copy()) {
+            if (posting.getWalletId().equals(walletId)) {
+                units += posting.getAmount().units();
+            }
+        }
+        return Money.ofUnits(units);
+    }
+
+    private WalletPosting add(WalletPosting posting) {
+        synchronized (postings) {
+            posting.setPostingId(ids.incrementAndGet());
+            postings.add(posting);
+        }
+        return posting;
+    }
+
+    private List<WalletPosting> copy() {
+        synchronized (postings) {
+            return new ArrayList<>(postings);
+        }
+    }
+
+    private static WalletPostingRepository.WalletUnits units(Long walletId, long units) {
+        return new WalletPostingRepository.WalletUnits() {
+            @Override
+            public Long getWalletId() {
+                return walletId;
+            }
+
+            @Override
+            public Long getUnits() {
+                return units;
+            }
+        };
+    }
+
+    private static WalletPostingRepository.PostingUnits tail(Long postingId, long units) {
+        return new WalletPostingRepository.PostingUnits() {
+            @Override
+            public Long getPostingId() {
+                return postingId;
+            }
+
+            @Override
+            public Long getUnits() {
+                return units;
+            }
+        };
+    }
+}
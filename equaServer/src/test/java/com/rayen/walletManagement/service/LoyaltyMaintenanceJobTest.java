@@ -0,0 +1,234 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.BatchCheckpoint;
+import com.rayen.walletManagement.model.LoyaltyTier;
+import com.rayen.walletManagement.repository.BatchCheckpointRepository;
+import com.rayen.walletManagement.service.LoyaltyMaintenanceJob.LoyaltyRow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class LoyaltyMaintenanceJobTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 1, 3, 0);
+    private static final LocalDateTime EXPIRE_BEFORE = NOW.minusDays(365);
+
+    // wallets rows by ID, as the job sees them
+    private final Map<Long, LoyaltyRow> wallets = new TreeMap<>();
+    // Keyset lower bound of every chunk read
+    private final List<Long> readAfter = new CopyOnWriteArrayList<>();
+    // Wallet IDs of the expiry audit rows
+    private final List<Long> expiries = new CopyOnWriteArrayList<>();
+    private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final BatchCheckpointRepository checkpointRepository = mock(BatchCheckpointRepository.class);
+    private BatchCheckpoint stored;
+    // Runs after each non-empty chunk is read, while nothing of it is written yet
+    private volatile Runnable afterRead = () -> { };
+    private LoyaltyMaintenanceJob job;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyLong(), anyInt())).thenAnswer(call -> {
+            long after = call.getArgument(2);
+            int limit = call.getArgument(3);
+            readAfter.add(after);
+            synchronized (wallets) {
+                List<LoyaltyRow> chunk = wallets.values().stream().filter(row -> row.walletId() > after).limit(limit).toList();
+                if (!chunk.isEmpty()) {
+                    afterRead.run();
+                }
+                return chunk;
+            }
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(call -> {
+            String sql = call.getArgument(0);
+            List<Object[]> rows = call.getArgument(1);
+            if (sql.startsWith("INSERT INTO loyalty_expiries")) {
+                rows.forEach(args -> expiries.add((Long) args[0]));
+                return new int[rows.size()];
+            }
+            int[] counts = new int[rows.size()];
+            synchronized (wallets) {
+                for (int i = 0; i < rows.size(); i++) {
+                    Object[] args = rows.get(i);
+                    Long walletId = (Long) args[3];
+                    if (failing.contains(walletId)) {
+                        throw new IllegalStateException("connection lost");
+                    }
+                    LoyaltyRow current = wallets.get(walletId);
+                    if (Objects.equals(current.points(), args[4]) && Objects.equals(name(current.tier()), args[5])
+                            && Objects.equals(timestamp(current.activityAt()), args[6])) {
+                        wallets.put(walletId, new LoyaltyRow(walletId, (BigDecimal) args[0],
+                                LoyaltyTier.valueOf((String) args[1]), ((Timestamp) args[2]).toLocalDateTime()));
+                        counts[i] = 1;
+                    }
+                }
+            }
+            return counts;
+        });
+        when(checkpointRepository.findById(LoyaltyMaintenanceJob.JOB_NAME)).thenAnswer(call -> Optional.ofNullable(stored));
+        when(checkpointRepository.save(any())).thenAnswer(call -> {
+            BatchCheckpoint checkpoint = call.getArgument(0);
+            stored = BatchCheckpoint.builder().jobName(checkpoint.getJobName()).lastWalletId(checkpoint.getLastWalletId())
+                    .runStartedAt(checkpoint.getRunStartedAt()).completedAt(checkpoint.getCompletedAt()).build();
+            return checkpoint;
+        });
+
+        job = new LoyaltyMaintenanceJob(jdbcTemplate, mock(PlatformTransactionManager.class), checkpointRepository);
+        ReflectionTestUtils.setField(job, "threads", 1);
+        ReflectionTestUtils.setField(job, "chunkSize", 3);
+    }
+
+    @Test
+    void upToDateRowIsLeftAlone() {
+        LoyaltyRow row = new LoyaltyRow(1, new BigDecimal("1500.00"), LoyaltyTier.SILVER, NOW.minusDays(10));
+
+        assertEquals(row, LoyaltyMaintenanceJob.maintain(row, NOW, EXPIRE_BEFORE));
+    }
+
+    @Test
+    void tierFollowsCurrentThresholds() {
+        LoyaltyRow row = new LoyaltyRow(1, new BigDecimal("6000.00"), LoyaltyTier.SILVER, NOW.minusDays(10));
+
+        LoyaltyRow next = LoyaltyMaintenanceJob.maintain(row, NOW, EXPIRE_BEFORE);
+
+        assertEquals(LoyaltyTier.GOLD, next.tier());
+        assertEquals(row.points(), next.points());
+        assertEquals(row.activityAt(), next.activityAt());
+    }
+
+    @Test
+    void pointsExpireAfterInactivityAndTierDrops() {
+        LoyaltyRow row = new LoyaltyRow(1, new BigDecimal("25000.00"), LoyaltyTier.PLATINUM, NOW.minusDays(400));
+
+        LoyaltyRow next = LoyaltyMaintenanceJob.maintain(row, NOW, EXPIRE_BEFORE);
+
+        assertEquals(0, next.points().signum());
+        assertEquals(LoyaltyTier.BRONZE, next.tier());
+        assertEquals(row.activityAt(), next.activityAt());
+    }
+
+    @Test
+    void expiryCanBeDisabled() {
+        LoyaltyRow row = new LoyaltyRow(1, new BigDecimal("25000.00"), LoyaltyTier.PLATINUM, NOW.minusDays(4000));
+
+        assertEquals(row, LoyaltyMaintenanceJob.maintain(row, NOW, null));
+    }
+
+    @Test
+    void unknownActivityStartsTheClockInsteadOfExpiring() {
+        LoyaltyRow row = new LoyaltyRow(1, new BigDecimal("1200.00"), null, null);
+
+        LoyaltyRow next = LoyaltyMaintenanceJob.maintain(row, NOW, EXPIRE_BEFORE);
+
+        assertEquals(new LoyaltyRow(1, row.points(), LoyaltyTier.SILVER, NOW), next);
+    }
+
+    @Test
+    void walletsAreReadInKeysetChunksUntilAnEmptyOne() {
+        for (long id = 1; id <= 7; id++) {
+            wallets.put(id, new LoyaltyRow(id, new BigDecimal("1200.00"), null, null));
+        }
+
+        assertEquals(7, job.run());
+
+        assertEquals(List.of(0L, 3L, 6L, 7L), readAfter);
+        assertTrue(wallets.values().stream().allMatch(row -> row.tier() == LoyaltyTier.SILVER && row.activityAt() != null));
+        assertEquals(7L, stored.getLastWalletId());
+        assertNotNull(stored.getCompletedAt());
+    }
+
+    @Test
+    void interruptedRunResumesAfterItsLastContiguousChunk() {
+        for (long id = 1; id <= 7; id++) {
+            wallets.put(id, new LoyaltyRow(id, new BigDecimal("1200.00"), null, null));
+        }
+        failing.add(5L);
+
+        job.run();
+
+        assertEquals(3L, stored.getLastWalletId());
+        assertNull(stored.getCompletedAt());
+        LocalDateTime runStartedAt = stored.getRunStartedAt();
+
+        failing.clear();
+        readAfter.clear();
+        job.run();
+
+        assertEquals(3L, readAfter.get(0));
+        assertEquals(7L, stored.getLastWalletId());
+        assertNotNull(stored.getCompletedAt());
+        assertEquals(runStartedAt, stored.getRunStartedAt());
+        // The resumed run keeps the first run's clock
+        assertEquals(runStartedAt, wallets.get(5L).activityAt());
+        assertTrue(wallets.values().stream().allMatch(row -> row.tier() == LoyaltyTier.SILVER));
+    }
+
+    @Test
+    void completedRunStartsOverFromTheFirstWallet() {
+        wallets.put(1L, new LoyaltyRow(1, new BigDecimal("1200.00"), LoyaltyTier.SILVER, NOW));
+        stored = BatchCheckpoint.builder().jobName(LoyaltyMaintenanceJob.JOB_NAME).lastWalletId(1L)
+                .runStartedAt(NOW).completedAt(NOW).build();
+
+        assertEquals(0, job.run());
+
+        assertEquals(0L, readAfter.get(0));
+        assertNotEquals(NOW, stored.getRunStartedAt());
+    }
+
+    @Test
+    void eachExpiryIsRecordedOnlyWhenTheResetWasWritten() {
+        ReflectionTestUtils.setField(job, "inactiveDays", 365L);
+        LocalDateTime longAgo = LocalDateTime.now().minusDays(400);
+        wallets.put(1L, new LoyaltyRow(1, new BigDecimal("25000.00"), LoyaltyTier.PLATINUM, longAgo));
+        wallets.put(2L, new LoyaltyRow(2, new BigDecimal("6000.00"), LoyaltyTier.GOLD, longAgo));
+        wallets.put(3L, new LoyaltyRow(3, new BigDecimal("6000.00"), LoyaltyTier.GOLD, LocalDateTime.now()));
+        // Wallet 2 earns points between the read and the write: the guarded update skips it
+        afterRead = () -> wallets.put(2L, new LoyaltyRow(2, new BigDecimal("6010.00"), LoyaltyTier.GOLD, LocalDateTime.now()));
+
+        assertEquals(1, job.run());
+
+        assertEquals(List.of(1L), expiries);
+        assertEquals(0, wallets.get(1L).points().signum());
+        assertEquals(new BigDecimal("6010.00"), wallets.get(2L).points());
+    }
+
+    @Test
+    void nothingExpiresByDefault() {
+        wallets.put(1L, new LoyaltyRow(1, new BigDecimal("25000.00"), LoyaltyTier.PLATINUM, NOW.minusYears(10)));
+
+        assertEquals(0, job.run());
+
+        assertEquals(List.of(), expiries);
+        assertEquals(new BigDecimal("25000.00"), wallets.get(1L).points());
+    }
+
+    private static String name(LoyaltyTier tier) {
+        return tier == null ? null : tier.name();
+    }
+
+    private static Timestamp timestamp(LocalDateTime at) {
+        return at == null ? null : Timestamp.valueOf(at);
+    }
+}
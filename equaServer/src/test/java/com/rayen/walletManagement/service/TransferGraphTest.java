@@ -0,0 +1,165 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.model.FraudRiskLevel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferGraphTest {
+
+    // 1h bursts of 5 counterparties, pass-through within 15 min keeping 90%, cycles up to 4 hops in a day
+    private static final TransferGraph.Limits LIMITS = new TransferGraph.Limits(3600, 5, 900, 0.1, 2, 4, 86_400, 1024, 32);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void findsTimeOrderedCycleAndIgnoresOutOfOrderOne() {
+        TransferGraph graph = TransferGraph.builder()
+                .addTransfer(10, 11, 1_000, 50)
+                .addTransfer(11, 12, 1_100, 50)
+                .addTransfer(12, 10, 1_200, 50)
+                // 20 -> 21 -> 22 -> 20, but no rotation of it has increasing times: no money went round
+                .addTransfer(21, 22, 1_300, 5)
+                .addTransfer(20, 21, 1_400, 5)
+                .addTransfer(22, 20, 1_500, 5)
+                .build();
+
+        TransferGraph.Findings findings = graph.analyse(LIMITS, pool);
+
+        assertEquals(Set.of(10L, 11L, 12L), wallets(graph, findings.cycle()));
+    }
+
+    @Test
+    void findsCycleWhoseFirstTransferLeavesALaterSeenWallet() {
+        TransferGraph graph = TransferGraph.builder()
+                .addTransfer(2, 3, 0, 1)            // 2 and 3 are interned before 1
+                .addTransfer(1, 2, 1_000, 10)
+                .addTransfer(2, 3, 1_005, 10)
+                .addTransfer(3, 1, 1_009, 10)
+                .build();
+
+        assertEquals(Set.of(1L, 2L, 3L), wallets(graph, graph.analyse(LIMITS, pool).cycle()));
+    }
+
+    @Test
+    void cycleMustCloseWithinSpanAndLength() {
+        TransferGraph graph = TransferGraph.builder()
+                .addTransfer(1, 2, 0, 10)
+                .addTransfer(2, 1, 90_000, 10)      // back after more than a day
+                .addTransfer(3, 4, 100_000, 10)
+                .addTransfer(4, 5, 100_010, 10)
+                .addTransfer(5, 6, 100_020, 10)
+                .addTransfer(6, 7, 100_030, 10)
+                .addTransfer(7, 3, 100_040, 10)     // five hops
+                .build();
+
+        assertTrue(wallets(graph, graph.analyse(LIMITS, pool).cycle()).isEmpty());
+    }
+
+    @Test
+    void flagsFanOutAndFanInBurstsOfDistinctCounterparties() {
+        TransferGraph.Builder builder = TransferGraph.builder();
+        long t = 0;
+        for (long target = 100; target < 106; target++) {
+            builder.addTransfer(1, target, t += 60, 1);       // one wallet pays six others in minutes
+        }
+        for (long source = 200; source < 206; source++) {
+            builder.addTransfer(source, 2, t += 60, 1);       // six wallets pay one
+        }
+        for (int i = 0; i < 10; i++) {
+            builder.addTransfer(3, 300, t += 60, 1);          // many transfers, one counterparty
+        }
+        for (long target = 400; target < 406; target++) {
+            builder.addTransfer(4, target, t += 7_200, 1);    // six counterparties, spread over hours
+        }
+        TransferGraph graph = builder.build();
+
+        TransferGraph.Findings findings = graph.analyse(LIMITS, pool);
+
+        assertEquals(Set.of(1L), wallets(graph, findings.fanOut()));
+        assertEquals(Set.of(2L), wallets(graph, findings.fanIn()));
+    }
+
+    @Test
+    void flagsRapidPassThroughToThirdParties() {
+        TransferGraph graph = TransferGraph.builder()
+                .addTransfer(1, 5, 0, 100)
+                .addTransfer(5, 6, 60, 97)          // forwarded minus a small cut
+                .addTransfer(2, 5, 1_000, 200)
+                .addTransfer(5, 7, 1_100, 195)
+                // wallet 8 sends back to its sender, pays a different amount, or waits too long
+                .addTransfer(1, 8, 2_000, 100)
+                .addTransfer(8, 1, 2_010, 100)
+                .addTransfer(2, 8, 3_000, 100)
+                .addTransfer(8, 9, 3_010, 40)
+                .addTransfer(3, 8, 4_000, 100)
+                .addTransfer(8, 9, 6_000, 100)
+                .build();
+
+        TransferGraph.Findings findings = graph.analyse(LIMITS, pool);
+
+        assertEquals(Set.of(5L), wallets(graph, findings.passThrough()));
+    }
+
+    @Test
+    void classifiesByPatternCount() {
+        TransferGraph.Builder builder = TransferGraph.builder();
+        long t = 0;
+        for (long target = 100; target < 105; target++) {
+            builder.addTransfer(1, target, t += 10, 1);
+        }
+        builder.addTransfer(100, 1, t += 10, 1);              // 1 also sits on a cycle with 100
+        for (long target = 200; target < 205; target++) {
+            builder.addTransfer(2, target, t += 10, 1);
+        }
+        TransferGraph graph = builder.build();
+
+        Map<FraudRiskLevel, List<Long>> flagged =
+                TransferGraphAnalysisJob.classify(graph, graph.analyse(LIMITS, pool));
+
+        assertEquals(List.of(1L), flagged.get(FraudRiskLevel.CRITICAL));
+        assertEquals(List.of(100L), flagged.get(FraudRiskLevel.HIGH));
+        assertEquals(List.of(2L), flagged.get(FraudRiskLevel.MEDIUM));
+    }
+
+    @Test
+    void rejectsTransfersOutOfTimestampOrder() {
+        TransferGraph.Builder builder = TransferGraph.builder().addTransfer(1, 2, 100, 1);
+        assertThrows(IllegalArgumentException.class, () -> builder.addTransfer(2, 3, 99, 1));
+    }
+
+    @Test
+    void internsManyWallets() {
+        TransferGraph.Builder builder = TransferGraph.builder();
+        for (int i = 0; i < 50_000; i++) {
+            builder.addTransfer(i, (i + 1) % 50_000, i, 1);
+        }
+        TransferGraph graph = builder.build();
+
+        assertEquals(50_000, graph.nodeCount());
+        assertEquals(50_000, graph.edgeCount());
+        assertEquals(49_999L, graph.walletId(49_999));
+    }
+
+    private static Set<Long> wallets(TransferGraph graph, boolean[] flags) {
+        Set<Long> wallets = new HashSet<>();
+        for (int node = 0; node < flags.length; node++) {
+            if (flags[node]) {
+                wallets.add(graph.walletId(node));
+            }
+        }
+        return wallets;
+    }
+}
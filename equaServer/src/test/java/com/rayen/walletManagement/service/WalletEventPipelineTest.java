@@ -0,0 +1,264 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.entity.WalletEvent;
+import com.rayen.walletManagement.model.WalletEventRecorded;
+import com.rayen.walletManagement.model.WalletOperationType;
+import com.rayen.walletManagement.repository.WalletEventRepository;
+import com.rayen.walletManagement.repository.WalletRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link WalletEventOutbox} → {@link WalletEventDispatcher} → {@link WalletEventProcessor} over an
+ * in-memory wallet_events table, with loyalty accrual standing in for the side effects.
+ */
+class WalletEventPipelineTest {
+
+    // wallet_events rows by ID
+    private final Map<Long, WalletEvent> table = new TreeMap<>();
+    // Event IDs in the order their side effects were applied
+    private final List<Long> applied = new CopyOnWriteArrayList<>();
+    private final Set<Long> failing = ConcurrentHashMap.newKeySet();
+
+    private final WalletEventRepository walletEventRepository = mock(WalletEventRepository.class);
+    private final LoyaltyService loyaltyService = mock(LoyaltyService.class);
+    private WalletEventDispatcher dispatcher;
+    private WalletEventOutbox outbox;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(walletEventRepository.save(any())).thenAnswer(call -> {
+            synchronized (table) {
+                WalletEvent event = call.getArgument(0);
+                event.setId((long) table.size() + 1);
+                table.put(event.getId(), event);
+                return event;
+            }
+        });
+        when(walletEventRepository.findById(anyLong())).thenAnswer(call -> {
+            synchronized (table) {
+                return Optional.ofNullable(table.get((Long) call.getArgument(0)));
+            }
+        });
+        when(walletEventRepository.claim(anyLong(), any())).thenAnswer(call -> {
+            synchronized (table) {
+                WalletEvent event = table.get((Long) call.getArgument(0));
+                if (event.getProcessedAt() != null) {
+                    return 0;
+                }
+                event.setProcessedAt(call.getArgument(1));
+                return 1;
+            }
+        });
+        when(walletEventRepository.hasEarlierPending(anyLong(), anyLong())).thenAnswer(call -> {
+            Long walletId = call.getArgument(0);
+            Long id = call.getArgument(1);
+            synchronized (table) {
+                return table.values().stream().anyMatch(e -> e.getWalletId().equals(walletId) && e.getId() < id
+                        && e.getProcessedAt() == null && e.getDeadAt() == null);
+            }
+        });
+        when(walletEventRepository.findPending(any(), any())).thenAnswer(call -> {
+            LocalDateTime before = call.getArgument(0);
+            int limit = ((Pageable) call.getArgument(1)).getPageSize();
+            synchronized (table) {
+                return table.values().stream()
+                        .filter(e -> e.getProcessedAt() == null && e.getDeadAt() == null && !e.getCreatedAt().isAfter(before))
+                        .limit(limit)
+                        .toList();
+            }
+        });
+        when(walletEventRepository.recordFailure(anyLong(), any())).thenAnswer(call -> {
+            synchronized (table) {
+                WalletEvent event = table.get((Long) call.getArgument(0));
+                // The failed attempt's claim rolled back with its transaction
+                event.setProcessedAt(null);
+                event.setAttempts(event.getAttempts() == null ? 1 : event.getAttempts() + 1);
+                event.setLastError(call.getArgument(1));
+                return 1;
+            }
+        });
+        when(walletEventRepository.deadLetter(anyLong(), anyInt(), any())).thenAnswer(call -> {
+            synchronized (table) {
+                WalletEvent event = table.get((Long) call.getArgument(0));
+                if (event.getAttempts() < (int) call.getArgument(1)) {
+                    return 0;
+                }
+                event.setDeadAt(call.getArgument(2));
+                return 1;
+            }
+        });
+
+        WalletRepository walletRepository = mock(WalletRepository.class);
+        when(walletRepository.findAllByIdForUpdate(anyCollection())).thenAnswer(call ->
+                ((Collection<Long>) call.getArgument(0)).stream()
+                        .map(id -> Wallet.builder().walletId(id).build())
+                        .toList());
+        doAnswer(call -> {
+            Long eventId = ((BigDecimal) call.getArgument(1)).longValue();
+            if (failing.contains(eventId)) {
+                throw new IllegalStateException("loyalty down");
+            }
+            applied.add(eventId);
+            return null;
+        }).when(loyaltyService).recordActivity(any(), any(), any());
+
+        WalletEventProcessor processor = new WalletEventProcessor(walletEventRepository, walletRepository,
+                loyaltyService, mock(GamificationService.class));
+        dispatcher(processor, 1000);
+        outbox = new WalletEventOutbox(walletEventRepository,
+                event -> dispatcher.onRecorded((WalletEventRecorded) event));
+    }
+
+    private void dispatcher(WalletEventProcessor processor, int queueCapacity) {
+        dispatcher = new WalletEventDispatcher(processor, walletEventRepository, 2, queueCapacity);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "sweepAfterSeconds", 0L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void eachWalletsEventsAreAppliedOnceInOrder() {
+        for (int i = 0; i < 20; i++) {
+            record(i % 3 + 1L);
+        }
+        await(() -> applied.size() == 20);
+
+        dispatcher.sweep();
+        for (long walletId = 1; walletId <= 3; walletId++) {
+            assertEquals(idsOf(walletId), appliedTo(walletId));
+        }
+        assertEquals(20, applied.size());
+    }
+
+    @Test
+    void failedEventHoldsBackLaterOnesOfItsWalletUntilItIsRetried() {
+        failing.add(1L);
+        record(1L);
+        record(1L);
+        record(2L);
+        await(() -> applied.contains(3L));
+        await(() -> attemptsOf(1L) == 1);
+        assertFalse(applied.contains(2L));
+
+        failing.clear();
+        dispatcher.sweep();
+        await(() -> applied.size() == 3);
+        assertEquals(List.of(1L, 2L), appliedTo(1L));
+    }
+
+    @Test
+    void eventFailingMaxAttemptsIsDeadLetteredAndReleasesItsWallet() {
+        failing.add(1L);
+        record(1L);
+        record(1L);
+        await(() -> attemptsOf(1L) == 1);
+
+        dispatcher.sweep();
+        await(() -> attemptsOf(1L) == 2);
+        dispatcher.sweep();
+        await(() -> table.get(1L).getDeadAt() != null);
+        assertEquals(3, attemptsOf(1L));
+        assertEquals("loyalty down", table.get(1L).getLastError());
+
+        dispatcher.sweep();
+        await(() -> applied.contains(2L));
+        dispatcher.sweep();
+        assertEquals(List.of(2L), applied);
+        assertNull(table.get(1L).getProcessedAt());
+    }
+
+    @Test
+    void fullQueueLeavesEventsPendingForTheSweep() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        WalletEventProcessor processor = mock(WalletEventProcessor.class);
+        doAnswer(call -> {
+            running.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(processor).process(anyLong());
+        dispatcher.shutdown();
+        dispatcher(processor, 1);
+
+        dispatcher.dispatch(1L, 1L);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        dispatcher.dispatch(2L, 1L);
+        dispatcher.dispatch(3L, 1L);   // queue holds one: dropped, not blocking the caller
+        release.countDown();
+        dispatcher.shutdown();
+
+        verify(processor).process(1L);
+        verify(processor).process(2L);
+        verify(processor, never()).process(3L);
+    }
+
+    // The amount carries the event ID so the loyalty stub can tell events apart
+    private void record(Long walletId) {
+        long nextId;
+        synchronized (table) {
+            nextId = table.size() + 1;
+        }
+        outbox.record(Wallet.builder().walletId(walletId).build(), WalletOperationType.FUNDING, null,
+                BigDecimal.valueOf(nextId));
+    }
+
+    private List<Long> idsOf(Long walletId) {
+        synchronized (table) {
+            return table.values().stream().filter(e -> e.getWalletId().equals(walletId)).map(WalletEvent::getId).toList();
+        }
+    }
+
+    private List<Long> appliedTo(Long walletId) {
+        List<Long> ids = new ArrayList<>();
+        for (Long id : applied) {
+            if (table.get(id).getWalletId().equals(walletId)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private int attemptsOf(Long eventId) {
+        synchronized (table) {
+            Integer attempts = table.get(eventId).getAttempts();
+            return attempts == null ? 0 : attempts;
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.onSpinWait();
+        }
+    }
+}
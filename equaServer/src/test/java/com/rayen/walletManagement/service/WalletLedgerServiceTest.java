@@ -0,0 +1,91 @@
+package com.rayen.walletManagement.service;
+
+import com.rayen.walletManagement.entity.Wallet;
+import com.rayen.walletManagement.model.Money;
+import com.rayen.walletManagement.model.PostingType;
+import com.rayen.walletManagement.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WalletLedgerServiceTest {
+
+    private final WalletRepository walletRepository = mock(WalletRepository.class);
+    private final InMemoryLedger postings = new InMemoryLedger(walletRepository);
+    private final WalletLedgerService ledger = postings.ledger();
+    private final Wallet wallet = Wallet.builder().walletId(1L).build();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(ledger, "cacheSeconds", 30L);
+    }
+
+    @Test
+    void postingOnlyAppendsAndNeverWritesTheWallet() {
+        ledger.post(wallet, Money.of(5), PostingType.TRANSFER, "tx:1");
+        ledger.post(wallet, Money.of(-2), PostingType.TRANSFER, "tx:2");
+
+        assertEquals(Money.of(3), postings.balance(1L));
+        verifyNoInteractions(walletRepository);
+    }
+
+    @Test
+    void committedPostingsAreAddedToTheCachedTail() {
+        postings.credit(1L, 100);
+        assertEquals(Money.of(100), ledger.balance(1L));
+
+        ledger.post(wallet, Money.of(-30), PostingType.TRANSFER, "tx:1");
+        ledger.post(wallet, Money.of(5), PostingType.REWARD_CREDIT, null);
+
+        assertEquals(Money.of(75), ledger.balance(1L));
+        verify(postings.postingRepository(), times(1)).findTail(any(), anyLong());
+    }
+
+    @Test
+    void postingSeenAtCommitAndInTheLoadCountsOnce() {
+        postings.credit(1L, 100);
+        // Committed before the wallet was ever read: the load sees it too
+        ledger.post(wallet, Money.of(20), PostingType.TRANSFER, "tx:1");
+
+        assertEquals(Money.of(120), ledger.balance(1L));
+        assertEquals(Money.of(120), ledger.balance(1L));
+    }
+
+    @Test
+    void otherInstancesPostingsShowOnceTheCacheExpires() {
+        postings.credit(1L, 100);
+        assertEquals(Money.of(100), ledger.balance(1L));
+
+        postings.credit(1L, 50);
+        assertEquals(Money.of(100), ledger.balance(1L));
+
+        ReflectionTestUtils.setField(ledger, "cacheSeconds", -1L);
+        assertEquals(Money.of(150), ledger.balance(1L));
+    }
+
+    @Test
+    void balanceColumnIsCopiedOnceForWalletsPostedTo() {
+        postings.credit(2L, 7);
+        ledger.post(wallet, Money.of(10), PostingType.TRANSFER, null);
+        ledger.post(wallet, Money.of(1), PostingType.TRANSFER, null);
+
+        ledger.syncBalanceColumn();
+        ledger.syncBalanceColumn();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(postings.jdbcTemplate(), times(1)).batchUpdate(anyString(), rows.capture());
+        assertEquals(1, rows.getValue().size());
+        assertArrayEquals(new Object[]{Money.of(11).units(), 1L}, rows.getValue().get(0));
+    }
+}